@@ -60,6 +60,12 @@ public final class MultiVariantDataSource implements GATKDataSource<VariantConte
     private CloseableIterator<VariantContext> currentIterator;
     private SortedSet<String> mergedSamples;
 
+    /**
+     * If true, the sources are merged with a {@link VariantStartMergingIterator}, which breaks ties between variants
+     * that start at the same position by source index, rather than with htsjdk's {@link MergingIterator}.
+     */
+    private final boolean mergeByStart;
+
     /**
      * Creates a MultiVariantDataSource backed by the provided FeatureInputs. We will look ahead the specified number of bases
      * during queries that produce cache misses.
@@ -82,6 +88,23 @@ public final class MultiVariantDataSource implements GATKDataSource<VariantConte
      * @param reference reference to use when creating FeatureDataSources, may be null, only needed by GenomicsDB
      */
     public MultiVariantDataSource(final List<FeatureInput<VariantContext>> featureInputs, final int queryLookaheadBases, final int cloudPrefetchBuffer, final int cloudIndexPrefetchBuffer, final Path reference) {
+        this(featureInputs, queryLookaheadBases, cloudPrefetchBuffer, cloudIndexPrefetchBuffer, reference, false);
+    }
+
+    /**
+     * Creates a MultiVariantDataSource backed by the provided FeatureInputs. We will look ahead the specified number of bases
+     * during queries that produce cache misses.
+     *
+     * @param featureInputs List of FeatureInput<VariantContext>> specifying sources of VariantContexts
+     * @param queryLookaheadBases look ahead this many bases during queries that produce cache misses
+     * @param cloudPrefetchBuffer  MB size of caching/prefetching wrapper for the data, if on Google Cloud (0 to disable).
+     * @param cloudIndexPrefetchBuffer MB size of caching/prefetching wrapper for the index, if on Google Cloud (0 to disable).
+     * @param reference reference to use when creating FeatureDataSources, may be null, only needed by GenomicsDB
+     * @param mergeByStart if true, merge the sources with a {@link VariantStartMergingIterator}, which emits variants
+     *                     that start at the same position in input order
+     */
+    public MultiVariantDataSource(final List<FeatureInput<VariantContext>> featureInputs, final int queryLookaheadBases, final int cloudPrefetchBuffer, final int cloudIndexPrefetchBuffer, final Path reference,
+                                  final boolean mergeByStart) {
         Utils.validateArg(queryLookaheadBases >= 0, "Query lookahead bases must be >= 0");
         Utils.validateArg(featureInputs != null && featureInputs.size() > 0, "FeatureInputs list must be non-null and non-empty");
 
@@ -98,6 +121,7 @@ public final class MultiVariantDataSource implements GATKDataSource<VariantConte
         // 2) Create and cache a merged header using versions of the individual headers from each data source that
         //    have been updated to include the actual dictionary returned from that data source
         //
+        this.mergeByStart = mergeByStart;
         validateAllSequenceDictionaries();
         mergedHeader = getMergedHeader();
         mergedSamples = getSortedSamples();
@@ -195,8 +219,12 @@ public final class MultiVariantDataSource implements GATKDataSource<VariantConte
             final List<CloseableIterator<VariantContext>> iterators = new ArrayList<>(featureDataSources.size());
             featureDataSources.forEach(ds -> iterators.add(getCloseableIteratorWrapper(iteratorFromSource.apply((ds)))));
 
-            final VariantContextComparator varComparator = new VariantContextComparator(getSequenceDictionary());
-            currentIterator = new MergingIterator<>(varComparator, iterators);
+            if (mergeByStart) {
+                currentIterator = new VariantStartMergingIterator(getSequenceDictionary(), iterators);
+            } else {
+                final VariantContextComparator varComparator = new VariantContextComparator(getSequenceDictionary());
+                currentIterator = new MergingIterator<>(varComparator, iterators);
+            }
         } else {
             currentIterator = getCloseableIteratorWrapper(iteratorFromSource.apply(featureDataSources.get(0)));
         }
@@ -371,7 +399,7 @@ public final class MultiVariantDataSource implements GATKDataSource<VariantConte
     }
 
     /**
-     * Wrap the sourceIterator in a CloseableIterator to make it usable as a MergingIterator source.
+     * Wrap the sourceIterator in a CloseableIterator to make it usable as a merged iterator source.
      */
     private CloseableIterator<VariantContext> getCloseableIteratorWrapper(final Iterator<VariantContext> sourceIterator) {
         Utils.nonNull(sourceIterator);
@@ -58,6 +58,15 @@ public abstract class MultiVariantWalker extends VariantWalkerBase {
         return new MultiVariantInputArgumentCollection.DefaultMultiVariantInputArgumentCollection();
     }
 
+    /**
+     * Return true to merge the driving variants with a merger that emits variants starting at the same position in
+     * the order of their inputs.  Tools that combine records across inputs can override this to make their
+     * output deterministic.  The default uses htsjdk's merger, whose order for such ties is unspecified.
+     */
+    protected boolean mergeDrivingVariantsByStart() {
+        return false;
+    }
+
     @Override
     protected void initializeDrivingVariants() {
         multiVariantInputArgumentCollection.getDrivingVariantPaths().stream().forEach(
@@ -78,11 +87,26 @@ public abstract class MultiVariantWalker extends VariantWalkerBase {
         // Create a (MultiVariantDataSource) FeatureDataSource for the driving variants inputs using the
         // cache lookahead value from getDrivingVariantCacheLookAheadBases()
         drivingVariants = new MultiVariantDataSource(drivingVariantsFeatureInputs, getDrivingVariantCacheLookAheadBases(), cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
-                                                     referenceArguments.getReferencePath());
+                                                     referenceArguments.getReferencePath(), mergeDrivingVariantsByStart());
 
         // Note: the intervals for the driving variants are set in onStartup()
     }
 
+    /**
+     * Create a data source over the given variant files that is merged and configured like the driving variants, but
+     * is independent of them and of the {@link FeatureManager}, for tools that traverse other sets of variants on their
+     * own (e.g. on other threads).  The caller must close it.
+     *
+     * @param paths the variant files to merge
+     * @return a new data source over the given files
+     */
+    protected final MultiVariantDataSource createMultiVariantDataSource(final List<String> paths) {
+        final List<FeatureInput<VariantContext>> featureInputs = new ArrayList<>(paths.size());
+        paths.forEach(path -> featureInputs.add(new FeatureInput<>(path)));
+        return new MultiVariantDataSource(featureInputs, getDrivingVariantCacheLookAheadBases(), cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
+                                          referenceArguments.getReferencePath(), mergeDrivingVariantsByStart());
+    }
+
     /**
      * Returns a list of feature inputs used for the driving variants for this source.
      */
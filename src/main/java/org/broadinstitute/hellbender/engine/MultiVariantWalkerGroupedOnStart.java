@@ -40,6 +40,13 @@ public abstract class MultiVariantWalkerGroupedOnStart extends MultiVariantWalke
             optional = true)
     private boolean ignoreIntervalsOutsideStart = false;
 
+    /**
+     * @return true if variants that start outside of the requested intervals are dropped before being grouped
+     */
+    protected final boolean ignoresVariantsStartingOutsideIntervals() {
+        return ignoreIntervalsOutsideStart;
+    }
+
     @Override
     public boolean requiresReference() {
         return true;
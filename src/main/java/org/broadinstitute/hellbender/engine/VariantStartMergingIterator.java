@@ -0,0 +1,150 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.variant.variantcontext.VariantContext;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * K-way merge of coordinate-sorted variant iterators into a single iterator sorted by contig (in sequence dictionary
+ * order) and start.
+ *
+ * Each source's head record is reduced to a single primitive key, {@code (contigIndex << 32) | start}, when it is
+ * read, so the binary heap compares longs instead of looking up contig names on every comparison as
+ * {@link htsjdk.variant.variantcontext.VariantContextComparator} does.  Ties are broken by source index, so records
+ * that start at the same position are always emitted in input order, which makes the merged order deterministic.
+ */
+final class VariantStartMergingIterator implements CloseableIterator<VariantContext> {
+
+    private final List<CloseableIterator<VariantContext>> sources;
+    private final Map<String, Integer> contigIndices;
+
+    // per-source state, indexed by source
+    private final VariantContext[] heads;
+    private final long[] keys;
+    private final String[] lastContigs;
+    private final int[] lastContigIndices;
+
+    // binary min-heap of source indices
+    private final int[] heap;
+    private int heapSize = 0;
+
+    VariantStartMergingIterator(final SAMSequenceDictionary dictionary, final List<CloseableIterator<VariantContext>> sources) {
+        Utils.nonNull(dictionary, "a sequence dictionary is required to merge variant sources");
+        Utils.nonEmpty(sources, "at least one source is required");
+
+        this.sources = sources;
+        contigIndices = new HashMap<>(dictionary.size() * 2);
+        for (final SAMSequenceRecord record : dictionary.getSequences()) {
+            contigIndices.put(record.getSequenceName(), record.getSequenceIndex());
+        }
+
+        final int n = sources.size();
+        heads = new VariantContext[n];
+        keys = new long[n];
+        lastContigs = new String[n];
+        lastContigIndices = new int[n];
+        heap = new int[n];
+        for (int source = 0; source < n; source++) {
+            if (advance(source)) {
+                heap[heapSize] = source;
+                siftUp(heapSize++);
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return heapSize > 0;
+    }
+
+    @Override
+    public VariantContext next() {
+        if (heapSize == 0) {
+            throw new NoSuchElementException("No more variants in the merged sources");
+        }
+        final int source = heap[0];
+        final VariantContext result = heads[source];
+        if (!advance(source)) {
+            heap[0] = heap[--heapSize];
+        }
+        if (heapSize > 0) {
+            siftDown(0);
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        sources.forEach(CloseableIterator::close);
+    }
+
+    /**
+     * Load the next record of the given source and compute its key.
+     * @return false if the source is exhausted
+     */
+    private boolean advance(final int source) {
+        final CloseableIterator<VariantContext> it = sources.get(source);
+        if (!it.hasNext()) {
+            heads[source] = null;
+            return false;
+        }
+        final VariantContext vc = it.next();
+        final String contig = vc.getContig();
+        if (!contig.equals(lastContigs[source])) {
+            final Integer contigIndex = contigIndices.get(contig);
+            if (contigIndex == null) {
+                throw new UserException(String.format("Variant at %s:%d is on a contig that is not in the sequence dictionary",
+                        contig, vc.getStart()));
+            }
+            lastContigs[source] = contig;
+            lastContigIndices[source] = contigIndex;
+        }
+        heads[source] = vc;
+        keys[source] = ((long) lastContigIndices[source] << 32) | vc.getStart();
+        return true;
+    }
+
+    private boolean lessThan(final int sourceA, final int sourceB) {
+        return keys[sourceA] < keys[sourceB] || (keys[sourceA] == keys[sourceB] && sourceA < sourceB);
+    }
+
+    private void siftUp(int position) {
+        final int source = heap[position];
+        while (position > 0) {
+            final int parent = (position - 1) >>> 1;
+            if (!lessThan(source, heap[parent])) {
+                break;
+            }
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = source;
+    }
+
+    private void siftDown(int position) {
+        final int source = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && lessThan(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!lessThan(heap[child], source)) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = source;
+    }
+}
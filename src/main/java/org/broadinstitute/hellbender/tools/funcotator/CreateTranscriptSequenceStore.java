@@ -0,0 +1,71 @@
+package org.broadinstitute.hellbender.tools.funcotator;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
+import org.broadinstitute.barclay.help.DocumentedFeature;
+import org.broadinstitute.hellbender.cmdline.CommandLineProgram;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.engine.ReferenceDataSource;
+import org.broadinstitute.hellbender.tools.funcotator.dataSources.gencode.TranscriptSequenceStore;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import picard.cmdline.programgroups.VariantEvaluationProgramGroup;
+
+import java.nio.file.Path;
+
+/**
+ * Creates a memory-mapped transcript sequence store for a GENCODE transcript FASTA file of a <b><i>{@link Funcotator}</i></b> data source.
+ *
+ * <p>
+ * When the store is found next to its transcript FASTA file, Funcotator reads the transcript sequences from the store
+ * rather than from the FASTA file.  This avoids parsing the FASTA file in every Funcotator run and lets concurrent
+ * runs on the same machine share the transcript sequences in the page cache.
+ * Funcotator ignores a store that is older than its FASTA file.
+ * </p>
+ *
+ * <h3>Usage example</h3>
+ * <pre>
+ * gatk CreateTranscriptSequenceStore \
+ *     -T dataSources/gencode/hg19/gencode.v19.pc_transcripts.fasta
+ * </pre>
+ * This produces the corresponding store, gencode.v19.pc_transcripts.fasta.tss.
+ * The FASTA file must have companion .fai and .dict files.
+ */
+@CommandLineProgramProperties(
+        summary = "Creates a memory-mapped transcript sequence store for a GENCODE transcript FASTA file of a Funcotator data source.",
+        oneLineSummary = "Creates a transcript sequence store for Funcotator.",
+        programGroup = VariantEvaluationProgramGroup.class
+)
+@DocumentedFeature
+public final class CreateTranscriptSequenceStore extends CommandLineProgram {
+    private static final Logger logger = LogManager.getLogger(CreateTranscriptSequenceStore.class);
+
+    public static final String TRANSCRIPT_FASTA_LONG_NAME = "transcript-fasta";
+    public static final String TRANSCRIPT_FASTA_SHORT_NAME = "T";
+
+    @Argument(shortName = TRANSCRIPT_FASTA_SHORT_NAME,
+              fullName = TRANSCRIPT_FASTA_LONG_NAME,
+              doc = "GENCODE transcript FASTA file for which to create the store.")
+    public String transcriptFasta;
+
+    @Argument(shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
+              fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME,
+              doc = "The output store file. If missing, the tool will create the store next to the FASTA file, " +
+                      "where Funcotator looks for it.",
+              optional = true)
+    public String outputFile;
+
+    @Override
+    protected Object doWork() {
+        final Path transcriptFastaPath = IOUtils.getPath(transcriptFasta);
+        final Path storePath = (outputFile != null) ? IOUtils.getPath(outputFile) : TranscriptSequenceStore.getStorePath(transcriptFastaPath);
+
+        try ( final ReferenceDataSource transcriptFastaDataSource = ReferenceDataSource.of(transcriptFastaPath) ) {
+            TranscriptSequenceStore.writeStore(transcriptFastaDataSource, storePath);
+        }
+
+        logger.info("Successfully wrote transcript sequence store to " + storePath.toUri().toString());
+        return storePath.toUri().toString();
+    }
+}
@@ -170,7 +170,27 @@ public abstract class DataSourceFuncotationFactory implements Closeable {
         Utils.nonNull(featureContext);
 
         // Query this funcotation factory to get the list of overlapping features.
-        final List<Feature> featureList = queryFeaturesFromFeatureContext(featureContext);
+        return createFuncotationsFromFeatures(variant, referenceContext, queryFeaturesFromFeatureContext(featureContext), gencodeFuncotations);
+    }
+
+    /**
+     * Creates a {@link List} of {@link Funcotation} for the given {@code variant}, {@code referenceContext}, and {@code gencodeFuncotations}
+     * from the {@link Feature}s this data source returned from {@link #queryFeaturesFromFeatureContext(FeatureContext)} for the variant.
+     * Unlike {@link #createFuncotations(VariantContext, ReferenceContext, FeatureContext, List)}, this does not use the
+     * {@link FeatureContext}, so it can be called on another thread than the one traversing the variants.
+     * Accounts for override values passed into the constructor as well.
+     * @param variant {@link VariantContext} to annotate.  Never {@code null}.
+     * @param referenceContext {@link ReferenceContext} corresponding to the given {@code variant}.  Never {@code null}.
+     * @param featureList {@link List} of {@link Feature} queried for the variant from this data source.  Never {@code null}.
+     * @param gencodeFuncotations {@link List} of {@link GencodeFuncotation} that have already been created for the given {@code variant}.
+     *   {@code null} is acceptable if there are no corresponding gencode funcotations.
+     * @return {@link List} of {@link Funcotation} given the {@code variant}, {@code referenceContext}, and {@code featureList}.  This should never be empty.
+     */
+    public List<Funcotation> createFuncotationsFromFeatures(final VariantContext variant, final ReferenceContext referenceContext, final List<Feature> featureList, final List<GencodeFuncotation> gencodeFuncotations) {
+
+        Utils.nonNull(variant);
+        Utils.nonNull(referenceContext);
+        Utils.nonNull(featureList);
 
         final List<Funcotation> outputFuncotations;
 
@@ -727,6 +727,16 @@ public class Funcotator extends VariantWalker {
 
     private FuncotatorEngine funcotatorEngine;
 
+    /**
+     * Annotates variants on multiple threads when {@link FuncotatorArgumentCollection#annotationThreads} > 1, {@code null} otherwise.
+     */
+    private FuncotatorWorkerPool funcotatorWorkerPool;
+
+    /**
+     * Number of variants given to each annotation thread in each batch.
+     */
+    private static final int VARIANTS_PER_THREAD_PER_BATCH = 1000;
+
     //==================================================================================================================
 
     /**
@@ -801,6 +811,20 @@ public class Funcotator extends VariantWalker {
                 getDefaultToolVCFHeaderLines(),
                 this
         );
+
+        if ( funcotatorArgs.annotationThreads > 1 ) {
+            // The annotation threads share the data sources of the engine, but each needs its own reference reader:
+            final List<ReferenceDataSource> workerReferences = new ArrayList<>(funcotatorArgs.annotationThreads);
+            for ( int i = 0; i < funcotatorArgs.annotationThreads; i++ ) {
+                workerReferences.add(ReferenceDataSource.of(referenceArguments.getReferencePath()));
+            }
+            funcotatorWorkerPool = new FuncotatorWorkerPool(
+                    funcotatorEngine,
+                    workerReferences,
+                    outputRenderer,
+                    VARIANTS_PER_THREAD_PER_BATCH * funcotatorArgs.annotationThreads
+            );
+        }
     }
 
     /**
@@ -854,6 +878,11 @@ public class Funcotator extends VariantWalker {
     @Override
     public Object onTraversalSuccess() {
 
+        // Annotate any variants still waiting on the annotation threads:
+        if ( funcotatorWorkerPool != null ) {
+            funcotatorWorkerPool.flush();
+        }
+
         // If we only saw IGRs, we most likely have a configuration issue.
         // Make sure the user knows this by making a HUGE stink about it.
         if ( funcotatorEngine.onlyProducedIGRs() ) {
@@ -875,6 +904,10 @@ public class Funcotator extends VariantWalker {
 
     @Override
     public void closeTool() {
+        if ( funcotatorWorkerPool != null ) {
+            funcotatorWorkerPool.close();
+        }
+
         if ( funcotatorEngine != null) {
             funcotatorEngine.close();
         }
@@ -895,6 +928,11 @@ public class Funcotator extends VariantWalker {
      */
     private void enqueueAndHandleVariant(final VariantContext variant, final ReferenceContext referenceContext, final FeatureContext featureContext) {
 
+        if ( funcotatorWorkerPool != null ) {
+            funcotatorWorkerPool.submit(variant, referenceContext, featureContext);
+            return;
+        }
+
         final FuncotationMap funcotationMap = funcotatorEngine.createFuncotationMapForVariant(variant, referenceContext, featureContext);
 
         // At this point there is only one transcript ID in the funcotation map if canonical or best effect are selected
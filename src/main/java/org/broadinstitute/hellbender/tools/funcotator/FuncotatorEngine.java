@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.tools.funcotator;
 
 import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.tribble.Feature;
 import htsjdk.tribble.util.ParsingUtils;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.VariantContextBuilder;
@@ -72,8 +73,9 @@ public final class FuncotatorEngine implements AutoCloseable {
     /**
      * Whether this {@link FuncotatorEngine} has only produced annotations on variants that have been labeled by the
      * {@link org.broadinstitute.hellbender.tools.funcotator.dataSources.gencode.GencodeFuncotationFactory} as {@link org.broadinstitute.hellbender.tools.funcotator.dataSources.gencode.GencodeFuncotation.VariantClassification#IGR}.
+     * Volatile because variants may be annotated on several threads (see {@link #createFuncotationMapForVariant(VariantContext, ReferenceContext, List)}).
      */
-    private boolean onlyProducedIGRs = true;
+    private volatile boolean onlyProducedIGRs = true;
 
     /**
      * Create a {@link FuncotatorEngine} using the given {@code metadata} and {@code funcotationFactories} representing
@@ -125,6 +127,48 @@ public final class FuncotatorEngine implements AutoCloseable {
         Utils.nonNull(referenceContext);
         Utils.nonNull(featureContext);
 
+        return createFuncotationMapForVariant(variantContext, referenceContext, queryFeaturesForVariant(featureContext));
+    }
+
+    /**
+     * Queries the {@link Feature}s needed to annotate a variant from each of the data sources of this {@link FuncotatorEngine}.
+     * Must be called on the thread traversing the variants, since the {@code featureContext} is backed by its feature readers.
+     *
+     * @param featureContext {@link FeatureContext} corresponding to the variant to annotate.  Never {@code null}.
+     * @return A {@link List} with the {@link Feature}s from each data source, in the order of {@link #getFuncotationFactories()}.
+     */
+    public List<List<Feature>> queryFeaturesForVariant(final FeatureContext featureContext) {
+        Utils.nonNull(featureContext);
+
+        final List<List<Feature>> featuresByDataSource = new ArrayList<>(dataSourceFactories.size());
+        for (final DataSourceFuncotationFactory funcotationFactory : dataSourceFactories) {
+            featuresByDataSource.add(funcotationFactory.queryFeaturesFromFeatureContext(featureContext));
+        }
+        return featuresByDataSource;
+    }
+
+    /**
+     * Creates a {@link FuncotationMap} for the given {@code variantContext} from {@link Feature}s that have already been
+     * queried by {@link #queryFeaturesForVariant(FeatureContext)}.
+     *
+     * Unlike {@link #queryFeaturesForVariant(FeatureContext)}, this may be called from several threads at once: the data
+     * source factories guard their own readers and caches, so they can be shared by all threads annotating variants.
+     *
+     * @param variantContext   {@link VariantContext} to annotate.  Never {@code null}.
+     * @param referenceContext {@link ReferenceContext} corresponding to the given {@code variantContext}.  Never {@code null}.
+     * @param featuresByDataSource The {@link Feature}s from each data source, in the order of {@link #getFuncotationFactories()}.  Never {@code null}.
+     * @return an instance of FuncotationMap that maps transcript IDs to lists of funcotations for the given variantContext context.
+     */
+    public FuncotationMap createFuncotationMapForVariant(final VariantContext variantContext,
+                                                         final ReferenceContext referenceContext,
+                                                         final List<List<Feature>> featuresByDataSource) {
+
+        Utils.nonNull(variantContext);
+        Utils.nonNull(referenceContext);
+        Utils.nonNull(featuresByDataSource);
+        Utils.validateArg(featuresByDataSource.size() == dataSourceFactories.size(),
+                () -> "Expected features from " + dataSourceFactories.size() + " data sources but got " + featuresByDataSource.size());
+
         //==============================================================================================================
         // First create only the transcript (Gencode) funcotations:
 
@@ -132,18 +176,19 @@ public final class FuncotatorEngine implements AutoCloseable {
             logger.warn("Attempting to annotate with more than one GENCODE datasource.  If these have overlapping transcript IDs, errors may occur.");
         }
 
-        final List<GencodeFuncotation> transcriptFuncotations = retrieveGencodeFuncotationFactoryStream()
-                .map(gf -> gf.createFuncotations(variantContext, referenceContext, featureContext))
-                .flatMap(List::stream)
-                .map(f -> {
-                        final GencodeFuncotation gf = (GencodeFuncotation) f;
-                        if (onlyProducedIGRs && (gf.getVariantClassification() != GencodeFuncotation.VariantClassification.IGR)) {
-                            onlyProducedIGRs = false;
-                        }
-                        return gf;
+        final List<GencodeFuncotation> transcriptFuncotations = new ArrayList<>();
+        for (int i = 0; i < dataSourceFactories.size(); i++) {
+            final DataSourceFuncotationFactory funcotationFactory = dataSourceFactories.get(i);
+            if (funcotationFactory.getType().equals(FuncotatorArgumentDefinitions.DataSourceType.GENCODE)) {
+                for (final Funcotation f : funcotationFactory.createFuncotationsFromFeatures(variantContext, referenceContext, featuresByDataSource.get(i), null)) {
+                    final GencodeFuncotation gf = (GencodeFuncotation) f;
+                    if (onlyProducedIGRs && (gf.getVariantClassification() != GencodeFuncotation.VariantClassification.IGR)) {
+                        onlyProducedIGRs = false;
                     }
-                )
-                .collect(Collectors.toList());
+                    transcriptFuncotations.add(gf);
+                }
+            }
+        }
 
         //==============================================================================================================
         // Create the funcotations for non-Gencode data sources:
@@ -152,15 +197,16 @@ public final class FuncotatorEngine implements AutoCloseable {
         final FuncotationMap funcotationMap = FuncotationMap.createFromGencodeFuncotations(transcriptFuncotations);
 
         // Perform the rest of the annotation.  Note that this code manually excludes the Gencode Funcotations.
-        for (final DataSourceFuncotationFactory funcotationFactory : dataSourceFactories ) {
+        for (int i = 0; i < dataSourceFactories.size(); i++) {
+            final DataSourceFuncotationFactory funcotationFactory = dataSourceFactories.get(i);
 
             // Note that this guarantees that we do not add GencodeFuncotations a second time.
             if (!funcotationFactory.getType().equals(FuncotatorArgumentDefinitions.DataSourceType.GENCODE)) {
                 final List<String> txIds = funcotationMap.getTranscriptList();
 
                 for (final String txId: txIds) {
-                    funcotationMap.add(txId, funcotationFactory.createFuncotations(variantContext, referenceContext,
-                            featureContext, funcotationMap.getGencodeFuncotations(txId)));
+                    funcotationMap.add(txId, funcotationFactory.createFuncotationsFromFeatures(variantContext, referenceContext,
+                            featuresByDataSource.get(i), funcotationMap.getGencodeFuncotations(txId)));
                 }
             }
         }
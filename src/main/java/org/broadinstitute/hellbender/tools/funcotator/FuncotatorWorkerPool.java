@@ -0,0 +1,204 @@
+package org.broadinstitute.hellbender.tools.funcotator;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.tribble.Feature;
+import htsjdk.variant.variantcontext.VariantContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.engine.FeatureContext;
+import org.broadinstitute.hellbender.engine.ReferenceContext;
+import org.broadinstitute.hellbender.engine.ReferenceDataSource;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Annotates variants on a pool of threads and renders them in the order in which they were submitted.
+ *
+ * All worker threads share the one {@link FuncotatorEngine} of the tool and its data source factories, which are
+ * created (and log) only once.  The factories guard their own readers and caches, so the workers use them read-only.
+ * Each worker has its own {@link ReferenceDataSource}, since a reference reader can't be shared between threads.
+ * Only the {@link Feature} queries are done on the thread traversing the variants, since they go through the feature
+ * readers of the traversal (see {@link FuncotatorEngine#queryFeaturesForVariant(FeatureContext)}).
+ *
+ * Variants are annotated in batches split evenly among the workers.  While the workers annotate a batch, the
+ * traversal thread queries the features of the next one.
+ */
+final class FuncotatorWorkerPool implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(FuncotatorWorkerPool.class);
+
+    /**
+     * The {@link FuncotatorEngine} used to query the features of each variant on the traversal thread, and to annotate
+     * the variants on the worker threads.
+     */
+    private final FuncotatorEngine funcotatorEngine;
+
+    private final List<ReferenceDataSource> workerReferences;
+    private final OutputRenderer outputRenderer;
+    private final int batchSize;
+    private final ExecutorService executorService;
+
+    private List<PendingVariant> currentBatch;
+
+    /**
+     * The batch being annotated by the workers, and the results of each worker on its consecutive part of the batch.
+     */
+    private List<PendingVariant> inFlightBatch = Collections.emptyList();
+    private List<Future<List<FuncotationMap>>> inFlightResults = Collections.emptyList();
+
+    /**
+     * @param funcotatorEngine {@link FuncotatorEngine} with which to query the features of each variant and annotate it.  Not closed by this {@link FuncotatorWorkerPool}.  Must not be {@code null}.
+     * @param workerReferences One {@link ReferenceDataSource} per worker thread.  Closed by this {@link FuncotatorWorkerPool}.  Must not be {@code null} or empty.
+     * @param outputRenderer {@link OutputRenderer} to which to write the annotated variants.  Must not be {@code null}.
+     * @param batchSize Number of variants to annotate in each batch.  Must be positive.
+     */
+    FuncotatorWorkerPool(final FuncotatorEngine funcotatorEngine,
+                         final List<ReferenceDataSource> workerReferences,
+                         final OutputRenderer outputRenderer,
+                         final int batchSize) {
+        Utils.nonNull(funcotatorEngine);
+        Utils.nonEmpty(workerReferences);
+        Utils.nonNull(outputRenderer);
+        Utils.validateArg(batchSize > 0, "batchSize must be positive.");
+
+        this.funcotatorEngine = funcotatorEngine;
+        this.workerReferences = workerReferences;
+        this.outputRenderer = outputRenderer;
+        this.batchSize = batchSize;
+        this.currentBatch = new ArrayList<>(batchSize);
+        this.executorService = Executors.newFixedThreadPool(workerReferences.size(),
+                new ThreadFactoryBuilder()
+                        .setNameFormat("funcotator-thread-%d")
+                        .setDaemon(true)
+                        .build());
+
+        logger.info("Annotating variants in batches of " + batchSize + " on " + workerReferences.size() + " threads.");
+    }
+
+    /**
+     * Queue the given {@code variant} to be annotated and rendered once its batch is complete.
+     * Must be called on the thread traversing the variants.
+     * @param variant {@link VariantContext} to annotate.  Must not be {@code null}.
+     * @param referenceContext {@link ReferenceContext} corresponding to the given {@code variant}.  Must not be {@code null}.
+     * @param featureContext {@link FeatureContext} corresponding to the given {@code variant}.  Must not be {@code null}.
+     */
+    void submit(final VariantContext variant, final ReferenceContext referenceContext, final FeatureContext featureContext) {
+        Utils.nonNull(variant);
+        Utils.nonNull(referenceContext);
+        Utils.nonNull(featureContext);
+
+        currentBatch.add(new PendingVariant(variant, referenceContext.getInterval(), referenceContext.getWindow(),
+                funcotatorEngine.queryFeaturesForVariant(featureContext)));
+
+        if ( currentBatch.size() >= batchSize ) {
+            dispatchCurrentBatch();
+        }
+    }
+
+    /**
+     * Annotate and render all variants submitted so far.
+     */
+    void flush() {
+        dispatchCurrentBatch();
+        renderInFlightBatch();
+    }
+
+    @Override
+    public void close() {
+        executorService.shutdownNow();
+        for ( final ReferenceDataSource workerReference : workerReferences ) {
+            workerReference.close();
+        }
+    }
+
+    private void dispatchCurrentBatch() {
+        // Only one batch is in flight at a time, so that each worker reference is only ever used by one task:
+        renderInFlightBatch();
+
+        if ( currentBatch.isEmpty() ) {
+            return;
+        }
+
+        final List<PendingVariant> batch = currentBatch;
+        currentBatch = new ArrayList<>(batchSize);
+
+        final int variantsPerWorker = (batch.size() + workerReferences.size() - 1) / workerReferences.size();
+        final List<Future<List<FuncotationMap>>> results = new ArrayList<>(workerReferences.size());
+        for ( int i = 0; i < workerReferences.size() && i * variantsPerWorker < batch.size(); i++ ) {
+            final List<PendingVariant> part = batch.subList(i * variantsPerWorker, Math.min(batch.size(), (i + 1) * variantsPerWorker));
+            final ReferenceDataSource workerReference = workerReferences.get(i);
+            results.add(executorService.submit(() -> annotate(part, funcotatorEngine, workerReference)));
+        }
+
+        inFlightBatch = batch;
+        inFlightResults = results;
+    }
+
+    private void renderInFlightBatch() {
+        int variantIndex = 0;
+        for ( final Future<List<FuncotationMap>> result : inFlightResults ) {
+            for ( final FuncotationMap funcotationMap : getResult(result) ) {
+                outputRenderer.write(inFlightBatch.get(variantIndex++).variant, funcotationMap);
+            }
+        }
+        inFlightBatch = Collections.emptyList();
+        inFlightResults = Collections.emptyList();
+    }
+
+    private static List<FuncotationMap> annotate(final List<PendingVariant> variants,
+                                                 final FuncotatorEngine funcotatorEngine,
+                                                 final ReferenceDataSource workerReference) {
+        final List<FuncotationMap> funcotationMaps = new ArrayList<>(variants.size());
+        for ( final PendingVariant pendingVariant : variants ) {
+            final ReferenceContext referenceContext = new ReferenceContext(workerReference, pendingVariant.interval, pendingVariant.window);
+            funcotationMaps.add(funcotatorEngine.createFuncotationMapForVariant(pendingVariant.variant, referenceContext, pendingVariant.featuresByDataSource));
+        }
+        return funcotationMaps;
+    }
+
+    private static List<FuncotationMap> getResult(final Future<List<FuncotationMap>> result) {
+        try {
+            return result.get();
+        }
+        catch ( final InterruptedException ex ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while annotating variants", ex);
+        }
+        catch ( final ExecutionException ex ) {
+            // Preserve user exceptions and the like thrown while annotating:
+            if ( ex.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new GATKException("Error while annotating variants", ex.getCause());
+        }
+    }
+
+    /**
+     * A variant waiting to be annotated, with everything needed to annotate it away from the traversal thread.
+     */
+    private static final class PendingVariant {
+        private final VariantContext variant;
+        private final SimpleInterval interval;
+        private final SimpleInterval window;
+        private final List<List<Feature>> featuresByDataSource;
+
+        private PendingVariant(final VariantContext variant,
+                               final SimpleInterval interval,
+                               final SimpleInterval window,
+                               final List<List<Feature>> featuresByDataSource) {
+            this.variant = variant;
+            this.interval = interval;
+            this.window = window;
+            this.featuresByDataSource = featuresByDataSource;
+        }
+    }
+}
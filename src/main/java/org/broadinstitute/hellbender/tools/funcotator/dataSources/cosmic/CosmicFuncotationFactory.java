@@ -98,7 +98,45 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
      * Template for results query for matching genes in the database.
      */
     private static final String RESULT_QUERY_TEMPLATE = "SELECT * FROM " + TABLE_NAME + " WHERE \""
-            + GENE_NAME_COLUMN + "\" == ";
+            + GENE_NAME_COLUMN + "\" IN ";
+
+    /**
+     * Ordering for the results query, so that the records for each gene come back in the order in which they are stored.
+     */
+    private static final String RESULT_QUERY_ORDERING = " ORDER BY rowid;";
+
+    /**
+     * Query to load the fields of every record needed to match it to a variant, in the order in which they are stored.
+     */
+    private static final String PRELOAD_QUERY = "SELECT \"" + GENE_NAME_COLUMN + "\", \"" + PROTEIN_POSITION_COLUMN_NAME + "\", \""
+            + GENOME_POSITION_COLUMN_NAME + "\" FROM " + TABLE_NAME + " ORDER BY rowid LIMIT ?;";
+
+    /**
+     * Query that returns 1 if the gene name column compares names ignoring case, 0 if it does not, and no row if no gene
+     * name has a letter in it.  A name with a letter cannot be equal to both its lower case and its upper case forms
+     * unless the column collation ignores case.
+     */
+    private static final String GENE_NAME_IGNORES_CASE_QUERY = "SELECT \"" + GENE_NAME_COLUMN + "\" = lower(\"" + GENE_NAME_COLUMN
+            + "\") AND \"" + GENE_NAME_COLUMN + "\" = upper(\"" + GENE_NAME_COLUMN + "\") FROM " + TABLE_NAME
+            + " WHERE \"" + GENE_NAME_COLUMN + "\" GLOB '*[A-Za-z]*' LIMIT 1;";
+
+    /**
+     * Maximum number of records to preload into memory from the DB.  Each preloaded record takes on the order of 200
+     * bytes, so the preloaded records take at most about 100 MB.  Larger DBs are queried gene by gene instead.
+     */
+    @VisibleForTesting
+    static final int DEFAULT_MAX_PRELOADED_RECORDS = 500_000;
+
+    /**
+     * Maximum number of genes to look up in a single query (SQLite limits the number of parameters in a statement).
+     */
+    private static final int MAX_GENES_PER_QUERY = 500;
+
+    /**
+     * Maximum number of genes for which to keep the parsed COSMIC records in memory.
+     */
+    @VisibleForTesting
+    static final int GENE_RECORD_CACHE_SIZE = 2000;
 
     //==================================================================================================================
     // Private Members:
@@ -126,6 +164,35 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
      */
     private final LinkedHashSet<String> supportedFields;
 
+    /**
+     * Whether the gene name column of the DB compares names ignoring case, as with {@code COLLATE NOCASE}.
+     * Gene names looked up in memory are compared the same way, so that they match exactly the records the DB would return.
+     */
+    private final boolean geneNamesIgnoreCase;
+
+    /**
+     * All the records of the DB, by gene name, if the DB has no more than the maximum number of preloaded records.
+     * Otherwise {@code null}, and records are queried by gene and kept in the {@link #geneRecordCache}.
+     */
+    private final Map<String, List<CosmicRecord>> preloadedRecordsByGene;
+
+    /**
+     * The parsed COSMIC records for the most recently used genes, in least recently used order, when the records of the
+     * DB are not all preloaded.  Variants are annotated in genomic order, so consecutive variants tend to hit the same genes.
+     *
+     * Over any run of variants touching at most {@link #GENE_RECORD_CACHE_SIZE} distinct genes, each gene is queried and
+     * parsed once, not once per variant.  The queries themselves are batched over the genes of a single variant
+     * (see {@link #getRecordsForGenes(Set)}).
+     */
+    private final Map<String, List<CosmicRecord>> geneRecordCache = new LinkedHashMap<String, List<CosmicRecord>>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, List<CosmicRecord>> eldest) {
+            return size() > GENE_RECORD_CACHE_SIZE;
+        }
+    };
+
     //==================================================================================================================
     // Constructors:
 
@@ -143,6 +210,20 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
                                     final LinkedHashMap<String, String> annotationOverridesMap,
                                     final String version,
                                     final boolean isDataSourceB37) {
+        this(pathToCosmicDb, annotationOverridesMap, version, isDataSourceB37, DEFAULT_MAX_PRELOADED_RECORDS);
+    }
+
+    /**
+     * @param maxPreloadedRecords The maximum number of records to preload into memory.  If the DB has more records, they
+     *                            are queried by gene instead.  Must not be negative.
+     */
+    @VisibleForTesting
+    CosmicFuncotationFactory(final Path pathToCosmicDb,
+                             final LinkedHashMap<String, String> annotationOverridesMap,
+                             final String version,
+                             final boolean isDataSourceB37,
+                             final int maxPreloadedRecords) {
+        Utils.validateArg(maxPreloadedRecords >= 0, "The maximum number of preloaded records must not be negative.");
 
         this.pathToCosmicDb = localizeCosmicDbFileIfRemote(pathToCosmicDb);
         this.version = version;
@@ -168,6 +249,9 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
             throw new UserException("Cannot load SQLite Java Package!", ex);
         }
 
+        geneNamesIgnoreCase = geneNameColumnIgnoresCase();
+        preloadedRecordsByGene = preloadRecords(maxPreloadedRecords);
+
         // Get the supported fields:
         supportedFields = new LinkedHashSet<>(1);
         supportedFields.add(name + "_overlapping_mutations");
@@ -186,7 +270,7 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
     }
 
     @Override
-    public void close() {
+    public synchronized void close() {
         if (dbConnection != null) {
             try {
                 dbConnection.close();
@@ -247,14 +331,16 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
         final Map<String, Integer> proteinChangeCounts = new LinkedHashMap<>();
 
         // If we have gencodeFuncotations we go through them and get the gene name
-        // Then query our DB for matches on the gene name.
-        // Then grab Genome position / Protein position and see if we overlap.
+        // Then get the records for the gene name (querying our DB for all genes not yet cached at once).
+        // Then check the Genome position / Protein position of each record and see if we overlap.
         // If any do, we create our CosmicFuncotation
-        for (  final GencodeFuncotation gencodeFuncotation : gencodeFuncotations ) {
-            final String geneName = gencodeFuncotation.getHugoSymbol();
+        final Map<String, List<CosmicRecord>> recordsByGene = getRecordsForGenes(
+                gencodeFuncotations.stream().map(GencodeFuncotation::getHugoSymbol).collect(Collectors.toCollection(LinkedHashSet::new))
+        );
 
-            final SimpleInterval genomePosition = new SimpleInterval(variant.getContig(), variant.getStart(), variant.getEnd());
+        final SimpleInterval genomePosition = new SimpleInterval(variant.getContig(), variant.getStart(), variant.getEnd());
 
+        for (  final GencodeFuncotation gencodeFuncotation : gencodeFuncotations ) {
             final SimpleInterval proteinPosition;
             if ( gencodeFuncotation.getProteinChange() != null ) {
                 proteinPosition = parseProteinString(gencodeFuncotation.getProteinChange());
@@ -263,42 +349,15 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
                 proteinPosition = null;
             }
 
-            try {
-                try ( final Statement statement = dbConnection.createStatement() ) {
-                    try ( final ResultSet resultSet = statement.executeQuery(RESULT_QUERY_TEMPLATE + "\"" + geneName + "\";") ) {
-                        // iterate through our results:
-                        while ( resultSet.next() ) {
-
-                            // Get the genome position:
-                            final SimpleInterval cosmicGenomePosition = getGenomePositionFromResults(resultSet);
-
-                            // Try to match on genome position first:
-                            if ( cosmicGenomePosition != null ) {
-                                if ( genomePosition.overlaps(cosmicGenomePosition) ) {
-                                    // If we overlap the records, we get the protein change and add it to the map:
-                                    updateProteinChangeCountMap(proteinChangeCounts, resultSet);
-                                    continue;
-                                }
-                            }
-
-                            // Get the protein position:
-                            final SimpleInterval cosmicProteinPosition = getProteinPositionFromResults(resultSet);
-
-                            // Now try to match on protein position:
-                            if ( proteinPosition != null ) {
-                                // If we overlap the records, we update the counter:
-                                if ( proteinPosition.overlaps(cosmicProteinPosition) ) {
-                                    updateProteinChangeCountMap(proteinChangeCounts, resultSet);
-                                }
-                            }
-                            // NOTE: We can't annotate if the protein position is null.
-                        }
-                    }
+            for ( final CosmicRecord record : recordsByGene.get(gencodeFuncotation.getHugoSymbol()) ) {
+                // Try to match on genome position first, then on protein position.
+                // NOTE: We can't annotate if the protein position is null.
+                if ( genomePosition.overlaps(record.genomePosition) ||
+                        ((proteinPosition != null) && proteinPosition.overlaps(record.proteinPosition)) ) {
+                    // If we overlap the records, we get the protein change and add it to the map:
+                    updateProteinChangeCountMap(proteinChangeCounts, record.proteinChange);
                 }
             }
-            catch (final SQLException ex) {
-                throw new GATKException("Unable to query the database for geneName: " + geneName, ex);
-            }
         }
 
         // Add our counts to all alternate alleles in this variant:
@@ -318,8 +377,7 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
         return outputFuncotations;
     }
 
-    private void updateProteinChangeCountMap(final Map<String, Integer> proteinChangeCounts, final ResultSet resultSet) {
-        final String proteinChange = getProteinChangeStringFromResults(resultSet);
+    private void updateProteinChangeCountMap(final Map<String, Integer> proteinChangeCounts, final String proteinChange) {
         if ( !proteinChange.isEmpty() ) {
             final int count = proteinChangeCounts.getOrDefault(proteinChange, 0);
             proteinChangeCounts.put(proteinChange, count + 1);
@@ -365,6 +423,179 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
         return localCosmicDbFilePath;
     }
 
+    /**
+     * @return Whether the gene name column of the DB compares names ignoring case.
+     */
+    private boolean geneNameColumnIgnoresCase() {
+        try ( final Statement statement = dbConnection.createStatement();
+              final ResultSet resultSet = statement.executeQuery(GENE_NAME_IGNORES_CASE_QUERY) ) {
+            return resultSet.next() && resultSet.getBoolean(1);
+        }
+        catch (final SQLException ex) {
+            throw new GATKException("Unable to query the database for the collation of column: " + GENE_NAME_COLUMN, ex);
+        }
+    }
+
+    /**
+     * Create a map keyed by gene name that compares gene names the way the gene name column of the DB does.
+     * SQLite's {@code NOCASE} collation only folds the case of ASCII letters, and so does the map.
+     */
+    private <T> Map<String, T> newGeneNameMap() {
+        return geneNamesIgnoreCase ? new TreeMap<>(CosmicFuncotationFactory::compareIgnoringAsciiCase) : new HashMap<>();
+    }
+
+    @VisibleForTesting
+    static int compareIgnoringAsciiCase(final String left, final String right) {
+        final int length = Math.min(left.length(), right.length());
+        for ( int i = 0; i < length; ++i ) {
+            final int diff = toAsciiLowerCase(left.charAt(i)) - toAsciiLowerCase(right.charAt(i));
+            if ( diff != 0 ) {
+                return diff;
+            }
+        }
+        return left.length() - right.length();
+    }
+
+    private static char toAsciiLowerCase(final char c) {
+        return c >= 'A' && c <= 'Z' ? (char)(c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * Load all the records of the DB into memory, by gene name, if there are no more than {@code maxRecords} of them.
+     * @param maxRecords The maximum number of records to load.
+     * @return A {@link Map} from gene name to its COSMIC records, in DB order; or {@code null} if the DB has more than
+     *         {@code maxRecords} records.
+     */
+    private Map<String, List<CosmicRecord>> preloadRecords(final int maxRecords) {
+        if ( maxRecords == 0 ) {
+            return null;
+        }
+
+        final Map<String, List<CosmicRecord>> recordsByGene = newGeneNameMap();
+        int numRecords = 0;
+        try ( final PreparedStatement statement = dbConnection.prepareStatement(PRELOAD_QUERY) ) {
+            // Ask for one more record than the maximum so that we know when there are too many:
+            statement.setLong(1, maxRecords + 1L);
+            try ( final ResultSet resultSet = statement.executeQuery() ) {
+                while ( resultSet.next() ) {
+                    if ( ++numRecords > maxRecords ) {
+                        logger.info("COSMIC DB has more than " + maxRecords + " records, so they will be queried by gene instead of preloaded.");
+                        return null;
+                    }
+                    // Records without a gene name can never be looked up:
+                    final String geneName = resultSet.getString(GENE_NAME_COLUMN);
+                    if ( geneName != null ) {
+                        recordsByGene.computeIfAbsent(geneName, k -> new ArrayList<>()).add(createRecord(resultSet));
+                    }
+                }
+            }
+        }
+        catch (final SQLException ex) {
+            throw new GATKException("Unable to preload the records of the database: " + pathToCosmicDb.toUri().toString(), ex);
+        }
+
+        logger.info("Preloaded " + numRecords + " COSMIC records for " + recordsByGene.size() + " genes.");
+        return recordsByGene;
+    }
+
+    /**
+     * Get the COSMIC records for each of the given genes: from memory if the DB was preloaded, otherwise from the cache
+     * when possible, looking up all genes that are not in the cache in the DB together.
+     *
+     * The genes are those of a single variant, because the gene names come from the {@link GencodeFuncotation}s of the
+     * variant, which only exist once it is being annotated.  DBs small enough to be preloaded are never queried after
+     * construction, and for the others, a run of variants costs one query per gene that is new to the {@link #geneRecordCache}.
+     * Synchronized because the cache and the DB connection are shared by all threads annotating with this factory.
+     * @param geneNames The names of the genes for which to get the records (must not be {@code null}).
+     * @return A {@link Map} from each of the given {@code geneNames} to its COSMIC records, in DB order.  Never {@code null}.
+     */
+    private synchronized Map<String, List<CosmicRecord>> getRecordsForGenes(final Set<String> geneNames) {
+        Utils.nonNull(geneNames);
+
+        final Map<String, List<CosmicRecord>> recordsByGene = new HashMap<>(geneNames.size());
+        if ( preloadedRecordsByGene != null ) {
+            for ( final String geneName : geneNames ) {
+                recordsByGene.put(geneName, preloadedRecordsByGene.getOrDefault(geneName, Collections.emptyList()));
+            }
+            return recordsByGene;
+        }
+
+        final List<String> uncachedGeneNames = new ArrayList<>();
+        for ( final String geneName : geneNames ) {
+            final List<CosmicRecord> records = geneRecordCache.get(geneName);
+            if ( records != null ) {
+                recordsByGene.put(geneName, records);
+            }
+            else {
+                uncachedGeneNames.add(geneName);
+            }
+        }
+
+        for ( int i = 0; i < uncachedGeneNames.size(); i += MAX_GENES_PER_QUERY ) {
+            final List<String> queryGeneNames = uncachedGeneNames.subList(i, Math.min(uncachedGeneNames.size(), i + MAX_GENES_PER_QUERY));
+            final Map<String, List<CosmicRecord>> queriedRecords = queryRecordsForGenes(queryGeneNames);
+            for ( final String geneName : queryGeneNames ) {
+                final List<CosmicRecord> records = queriedRecords.getOrDefault(geneName, Collections.emptyList());
+                geneRecordCache.put(geneName, records);
+                recordsByGene.put(geneName, records);
+            }
+        }
+
+        return recordsByGene;
+    }
+
+    /**
+     * Query the DB for the COSMIC records of all the given genes at once.
+     * The records are grouped by the given gene names, not by the gene names in the DB, which may differ from them in
+     * case when the gene name column ignores case.
+     * @param geneNames The names of the genes for which to query the records (must not be {@code null} or empty).
+     * @return A {@link Map} from each given gene name to its COSMIC records, in DB order.  Genes without records are absent.  Never {@code null}.
+     */
+    private Map<String, List<CosmicRecord>> queryRecordsForGenes(final List<String> geneNames) {
+        Utils.nonEmpty(geneNames);
+
+        final String query = RESULT_QUERY_TEMPLATE
+                + geneNames.stream().map(geneName -> "?").collect(Collectors.joining(",", "(", ")"))
+                + RESULT_QUERY_ORDERING;
+
+        // Several of the given gene names may match the same records if the gene name column ignores case:
+        final Map<String, List<String>> queriedNamesByGeneName = newGeneNameMap();
+        for ( final String geneName : geneNames ) {
+            queriedNamesByGeneName.computeIfAbsent(geneName, k -> new ArrayList<>()).add(geneName);
+        }
+
+        final Map<String, List<CosmicRecord>> recordsByGene = new HashMap<>(geneNames.size());
+        try ( final PreparedStatement statement = dbConnection.prepareStatement(query) ) {
+            for ( int i = 0; i < geneNames.size(); ++i ) {
+                statement.setString(i + 1, geneNames.get(i));
+            }
+            try ( final ResultSet resultSet = statement.executeQuery() ) {
+                // iterate through our results:
+                while ( resultSet.next() ) {
+                    final CosmicRecord record = createRecord(resultSet);
+                    for ( final String geneName : queriedNamesByGeneName.getOrDefault(resultSet.getString(GENE_NAME_COLUMN), Collections.emptyList()) ) {
+                        recordsByGene.computeIfAbsent(geneName, k -> new ArrayList<>()).add(record);
+                    }
+                }
+            }
+        }
+        catch (final SQLException ex) {
+            throw new GATKException("Unable to query the database for geneNames: " + String.join(", ", geneNames), ex);
+        }
+
+        return recordsByGene;
+    }
+
+    /**
+     * Create a {@link CosmicRecord} from the current record in the given {@link ResultSet}.
+     * @param resultSet The results of a query on the database with a current row (must not be {@code null}).
+     * @return The {@link CosmicRecord} for the current row.  Never {@code null}.
+     */
+    private CosmicRecord createRecord(final ResultSet resultSet) {
+        final String proteinChange = getProteinChangeStringFromResults(resultSet);
+        return new CosmicRecord(getGenomePositionFromResults(resultSet), parseProteinString(proteinChange), proteinChange);
+    }
+
     /**
      * Get the genome position of the current record in the given {@link ResultSet}.
      * @param resultSet The results of a query on the database with a current row (must not be {@code null}).
@@ -407,15 +638,6 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
         return null;
     }
 
-    /**
-     * Pulls a protein change / protein position out of the current record in the given {@link ResultSet}.
-     * @param resultSet The results of a query on the database with a current row (must not be {@code null}).
-     * @return A {@link SimpleInterval} representing the extents of the protein position in the current record in the given {@link ResultSet} or {@code null}.
-     */
-    private SimpleInterval getProteinPositionFromResults(final ResultSet resultSet) {
-        return parseProteinString( getProteinChangeStringFromResults(resultSet) );
-    }
-
     /**
      * Pulls a protein change string out of the current record in the given {@link ResultSet}.
      * @param resultSet The results of a query on the database with a current row (must not be {@code null}).
@@ -491,4 +713,24 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
     //==================================================================================================================
     // Helper Data Types:
 
+    /**
+     * The parts of a record in the COSMIC DB needed to match it to a variant.
+     */
+    private static final class CosmicRecord {
+        /** Genome position of the record, or {@code null} if it has none. */
+        private final SimpleInterval genomePosition;
+
+        /** Protein position of the record, or {@code null} if it has none. */
+        private final SimpleInterval proteinPosition;
+
+        /** Protein change of the record.  Never {@code null}. */
+        private final String proteinChange;
+
+        private CosmicRecord(final SimpleInterval genomePosition, final SimpleInterval proteinPosition, final String proteinChange) {
+            this.genomePosition = genomePosition;
+            this.proteinPosition = proteinPosition;
+            this.proteinChange = proteinChange;
+        }
+    }
+
 }
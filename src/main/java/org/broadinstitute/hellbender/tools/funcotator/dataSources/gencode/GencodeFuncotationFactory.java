@@ -31,6 +31,7 @@ import org.broadinstitute.hellbender.utils.reference.ReferenceUtils;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 
 import java.io.File;
+import java.nio.file.Files;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.util.*;
@@ -279,8 +280,8 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
         gencodeTranscriptFastaFile = localizeGencodeTranscriptFastaFile( gencodeTranscriptFastaFilePath );
         this.flankSettings = flankSettings;
 
-        // Initialize our transcript data source and ID map:
-        transcriptFastaReferenceDataSource = ReferenceDataSource.of(gencodeTranscriptFastaFile);
+        // Initialize our transcript data source (from its prebuilt memory-mapped store if there is one) and ID map:
+        transcriptFastaReferenceDataSource = TranscriptSequenceStore.of(gencodeTranscriptFastaFile);
         transcriptIdMap = createTranscriptIdMap(transcriptFastaReferenceDataSource);
 
         this.transcriptSelectionMode = transcriptSelectionMode;
@@ -342,6 +343,12 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
         // Copy Sequence Dictionary:
         NioFileCopierWithProgressMeter.create(remoteGencodeTranscriptFastaSequenceDictionaryFilePath, localGencodeTranscriptFastaSequenceDictionaryFilePath, true).initiateCopy();
 
+        // Copy the transcript sequence store, if there is one (after the FASTA, so that it is not older than the FASTA):
+        final Path remoteTranscriptSequenceStorePath = TranscriptSequenceStore.getStorePath(gencodeTranscriptFastaFilePath);
+        if ( Files.exists(remoteTranscriptSequenceStorePath) ) {
+            NioFileCopierWithProgressMeter.create(remoteTranscriptSequenceStorePath, TranscriptSequenceStore.getStorePath(localGencodeTranscriptFastaFilePath), true).initiateCopy();
+        }
+
         // Bye Bye!
         return localGencodeTranscriptFastaFilePath;
     }
@@ -643,7 +650,24 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
                 transcriptMapIdAndMetadata.codingSequenceEnd
         );
 
-        return transcriptFastaReferenceDataSource.queryAndPrefetch( transcriptInterval ).getBaseString() + transcriptTailPaddingBaseString;
+        return queryTranscriptFasta( transcriptFastaReferenceDataSource, transcriptInterval ).getBaseString() + transcriptTailPaddingBaseString;
+    }
+
+    /**
+     * Query the given GENCODE transcript FASTA data source, which is shared by all threads annotating with this factory.
+     * A {@link TranscriptSequenceStore} can be queried concurrently; any other {@link ReferenceDataSource} is queried by one thread at a time.
+     * @param transcriptFastaReferenceDataSource A {@link ReferenceDataSource} for the GENCODE transcript FASTA file.
+     * @param transcriptInterval The interval of the transcript sequence to get.
+     * @return The bases in the given {@code transcriptInterval}.
+     */
+    private static ReferenceSequence queryTranscriptFasta( final ReferenceDataSource transcriptFastaReferenceDataSource,
+                                                           final SimpleInterval transcriptInterval ) {
+        if ( transcriptFastaReferenceDataSource instanceof TranscriptSequenceStore ) {
+            return transcriptFastaReferenceDataSource.queryAndPrefetch(transcriptInterval);
+        }
+        synchronized ( transcriptFastaReferenceDataSource ) {
+            return transcriptFastaReferenceDataSource.queryAndPrefetch(transcriptInterval);
+        }
     }
 
     /**
@@ -675,7 +699,7 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
                     transcriptMapIdAndMetadata.fivePrimeUtrEnd + extraBases
             );
 
-            return transcriptFastaReferenceDataSource.queryAndPrefetch(transcriptInterval).getBaseString();
+            return queryTranscriptFasta(transcriptFastaReferenceDataSource, transcriptInterval).getBaseString();
         }
         else {
             return "";
@@ -0,0 +1,254 @@
+package org.broadinstitute.hellbender.tools.funcotator.dataSources.gencode;
+
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.reference.ReferenceSequence;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.engine.ReferenceDataSource;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * A {@link ReferenceDataSource} over a binary copy of a GENCODE transcript FASTA file that is memory-mapped rather
+ * than read through a FASTA reader.
+ *
+ * The store holds the names and lengths of all transcript sequences followed by their bases, already upper-cased and
+ * with IUPAC codes converted to {@code N} exactly as {@link ReferenceDataSource#of(Path)} returns them.  Queries copy
+ * the requested bases straight out of the mapped file, so there is no FASTA parsing, no per-reader base cache, and all
+ * processes reading the same store share its pages through the OS page cache.
+ *
+ * A store is created with {@link #writeStore(ReferenceDataSource, Path)} (see {@link org.broadinstitute.hellbender.tools.funcotator.CreateTranscriptSequenceStore})
+ * and is found next to its FASTA file by {@link #getStorePath(Path)}.
+ */
+public final class TranscriptSequenceStore implements ReferenceDataSource {
+
+    private static final Logger logger = LogManager.getLogger(TranscriptSequenceStore.class);
+
+    /**
+     * Extension appended to the name of a transcript FASTA file to get the name of its store.
+     */
+    public static final String STORE_EXTENSION = ".tss";
+
+    private static final int MAGIC_NUMBER = 0x54535331; // "TSS1"
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Maximum number of bases in each mapped region of the store.  Sequences never straddle two regions.
+     */
+    private static final long MAX_MAPPED_REGION_SIZE = 1L << 30;
+
+    private final Path storePath;
+    private final SAMSequenceDictionary sequenceDictionary;
+
+    /**
+     * For each sequence (by index in {@link #sequenceDictionary}), the mapped region holding its bases and their offset within it.
+     */
+    private final int[] sequenceRegions;
+    private final int[] sequenceOffsets;
+    private final MappedByteBuffer[] mappedRegions;
+
+    private TranscriptSequenceStore(final Path storePath) {
+        this.storePath = storePath;
+
+        final List<SAMSequenceRecord> sequences = new ArrayList<>();
+        final long basesStart;
+        try ( final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(storePath))) ) {
+            if ( in.readInt() != MAGIC_NUMBER || in.readInt() != FORMAT_VERSION ) {
+                throw new UserException.MalformedFile(storePath, "Not a transcript sequence store of version " + FORMAT_VERSION);
+            }
+            final int numSequences = in.readInt();
+            long headerSize = 3 * Integer.BYTES;
+            for ( int i = 0; i < numSequences; ++i ) {
+                final byte[] name = new byte[in.readInt()];
+                in.readFully(name);
+                final int length = in.readInt();
+                sequences.add(new SAMSequenceRecord(new String(name, StandardCharsets.UTF_8), length));
+                headerSize += 2 * Integer.BYTES + name.length;
+            }
+            basesStart = headerSize;
+        }
+        catch ( final EOFException ex ) {
+            throw new UserException.MalformedFile(storePath, "Transcript sequence store is truncated", ex);
+        }
+        catch ( final IOException ex ) {
+            throw new UserException.CouldNotReadInputFile(storePath, ex);
+        }
+        sequenceDictionary = new SAMSequenceDictionary(sequences);
+
+        // Group the sequences into regions small enough to be mapped:
+        sequenceRegions = new int[sequences.size()];
+        sequenceOffsets = new int[sequences.size()];
+        final List<long[]> regionExtents = new ArrayList<>();
+        long regionStart = basesStart;
+        long regionSize = 0;
+        for ( int i = 0; i < sequences.size(); ++i ) {
+            final int length = sequences.get(i).getSequenceLength();
+            if ( regionSize + length > MAX_MAPPED_REGION_SIZE && regionSize > 0 ) {
+                regionExtents.add(new long[] {regionStart, regionSize});
+                regionStart += regionSize;
+                regionSize = 0;
+            }
+            sequenceRegions[i] = regionExtents.size();
+            sequenceOffsets[i] = (int) regionSize;
+            regionSize += length;
+        }
+        regionExtents.add(new long[] {regionStart, regionSize});
+
+        mappedRegions = new MappedByteBuffer[regionExtents.size()];
+        try ( final FileChannel channel = FileChannel.open(storePath, StandardOpenOption.READ) ) {
+            final long expectedSize = regionStart + regionSize;
+            if ( channel.size() != expectedSize ) {
+                throw new UserException.MalformedFile(storePath, "Transcript sequence store should be " + expectedSize + " bytes long, but is " + channel.size());
+            }
+            for ( int i = 0; i < mappedRegions.length; ++i ) {
+                mappedRegions[i] = channel.map(FileChannel.MapMode.READ_ONLY, regionExtents.get(i)[0], regionExtents.get(i)[1]);
+            }
+        }
+        catch ( final IOException ex ) {
+            throw new UserException.CouldNotReadInputFile(storePath, ex);
+        }
+    }
+
+    /**
+     * @param transcriptFastaPath {@link Path} to a GENCODE transcript FASTA file.  Must not be {@code null}.
+     * @return The {@link Path} at which the {@link TranscriptSequenceStore} for the given FASTA file is expected.
+     */
+    public static Path getStorePath(final Path transcriptFastaPath) {
+        Utils.nonNull(transcriptFastaPath);
+        return transcriptFastaPath.resolveSibling(transcriptFastaPath.getFileName().toString() + STORE_EXTENSION);
+    }
+
+    /**
+     * Open the sequences of the given transcript FASTA file, from its {@link TranscriptSequenceStore} if there is an
+     * up-to-date one at {@link #getStorePath(Path)}, or from the FASTA file itself otherwise.
+     * @param transcriptFastaPath {@link Path} to a GENCODE transcript FASTA file.  Must not be {@code null}.
+     * @return A {@link ReferenceDataSource} for the sequences in the given FASTA file.  Never {@code null}.
+     */
+    public static ReferenceDataSource of(final Path transcriptFastaPath) {
+        Utils.nonNull(transcriptFastaPath);
+
+        final Path storePath = getStorePath(transcriptFastaPath);
+        try {
+            if ( Files.exists(storePath) &&
+                    Files.getLastModifiedTime(storePath).compareTo(Files.getLastModifiedTime(transcriptFastaPath)) >= 0 ) {
+                logger.info("Reading transcript sequences from store: " + storePath.toUri().toString());
+                return new TranscriptSequenceStore(storePath);
+            }
+        }
+        catch ( final IOException ex ) {
+            throw new UserException.CouldNotReadInputFile(storePath, ex);
+        }
+
+        return ReferenceDataSource.of(transcriptFastaPath);
+    }
+
+    /**
+     * Open an existing {@link TranscriptSequenceStore}.
+     * @param storePath {@link Path} to a file written by {@link #writeStore(ReferenceDataSource, Path)}.  Must not be {@code null}.
+     * @return The {@link TranscriptSequenceStore} in the given file.  Never {@code null}.
+     */
+    public static TranscriptSequenceStore open(final Path storePath) {
+        Utils.nonNull(storePath);
+        return new TranscriptSequenceStore(storePath);
+    }
+
+    /**
+     * Write all sequences of the given {@code source} to a {@link TranscriptSequenceStore} at the given path.
+     * The store is written to a temporary file first, so that readers never see a partially written store.
+     * @param source {@link ReferenceDataSource} for a GENCODE transcript FASTA file.  Must not be {@code null}.
+     * @param storePath {@link Path} to which to write the store.  Must not be {@code null}.
+     */
+    public static void writeStore(final ReferenceDataSource source, final Path storePath) {
+        Utils.nonNull(source);
+        Utils.nonNull(storePath);
+
+        final Path tmpPath = storePath.resolveSibling(storePath.getFileName().toString() + ".tmp");
+        final List<SAMSequenceRecord> sequences = source.getSequenceDictionary().getSequences();
+        try {
+            try ( final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath))) ) {
+                out.writeInt(MAGIC_NUMBER);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(sequences.size());
+                for ( final SAMSequenceRecord sequence : sequences ) {
+                    final byte[] name = sequence.getSequenceName().getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(name.length);
+                    out.write(name);
+                    out.writeInt(sequence.getSequenceLength());
+                }
+                for ( final SAMSequenceRecord sequence : sequences ) {
+                    if ( sequence.getSequenceLength() > 0 ) {
+                        out.write(source.queryAndPrefetch(sequence.getSequenceName(), 1, sequence.getSequenceLength()).getBases());
+                    }
+                }
+            }
+            Files.move(tmpPath, storePath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch ( final IOException ex ) {
+            throw new UserException.CouldNotCreateOutputFile(storePath.toUri().toString(), "Unable to write transcript sequence store", ex);
+        }
+    }
+
+    /**
+     * Start an iteration over the entire store. Not supported.
+     */
+    @Override
+    public Iterator<Byte> iterator() {
+        throw new UnsupportedOperationException("Iteration over all transcript sequences is not supported");
+    }
+
+    /**
+     * Query a specific interval of a transcript sequence, and get back all bases spanning that interval at once.
+     * Safe to call from multiple threads.
+     *
+     * @param contig name of the transcript sequence
+     * @param start query interval start (1-based, inclusive)
+     * @param stop query interval stop (1-based, inclusive)
+     * @return a ReferenceSequence containing all bases spanning the query interval
+     */
+    @Override
+    public ReferenceSequence queryAndPrefetch(final String contig, final long start, final long stop) {
+        final SAMSequenceRecord sequence = sequenceDictionary.getSequence(contig);
+        if ( sequence == null ) {
+            throw new UserException.MissingContigInSequenceDictionary(contig, sequenceDictionary);
+        }
+        if ( stop > sequence.getSequenceLength() ) {
+            throw new SAMException("Query asks for data past end of contig. Query contig " + contig + " start:" + start + " stop:" + stop + " contigLength:" + sequence.getSequenceLength());
+        }
+        if ( start < 1 || start > stop + 1 ) {
+            throw new SAMException("Malformed query; start point " + start + " lies after end point " + stop + " or before the start of contig " + contig);
+        }
+
+        final int index = sequence.getSequenceIndex();
+        final byte[] bases = new byte[(int) (stop - start + 1)];
+
+        // Work on a duplicate so that concurrent queries do not share a position:
+        final ByteBuffer region = mappedRegions[sequenceRegions[index]].duplicate();
+        region.position(sequenceOffsets[index] + (int) (start - 1));
+        region.get(bases);
+
+        return new ReferenceSequence(contig, index, bases);
+    }
+
+    @Override
+    public SAMSequenceDictionary getSequenceDictionary() {
+        return sequenceDictionary;
+    }
+
+    @Override
+    public String toString() {
+        return "TranscriptSequenceStore(" + storePath.toUri().toString() + ")";
+    }
+}
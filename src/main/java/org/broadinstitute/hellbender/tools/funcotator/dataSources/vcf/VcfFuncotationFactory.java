@@ -262,10 +262,13 @@ public class VcfFuncotationFactory extends DataSourceFuncotationFactory {
 
         // TODO: Caching logic can be refactored and shared in other funcotation factories:  https://github.com/broadinstitute/gatk/issues/4974
         final Triple<VariantContext, ReferenceContext, List<Feature>> cacheKey = createCacheKey(variant, referenceContext, featureList);
-        final List<Funcotation> cacheResult = cache.get(cacheKey);
-        if (cacheResult != null) {
-            cacheHits++;
-            return cacheResult;
+        // The cache is shared by all threads annotating with this factory:
+        synchronized ( cache ) {
+            final List<Funcotation> cacheResult = cache.get(cacheKey);
+            if (cacheResult != null) {
+                cacheHits++;
+                return cacheResult;
+            }
         }
 
         // Only create annotations if we have data to annotate:
@@ -313,8 +316,10 @@ public class VcfFuncotationFactory extends DataSourceFuncotationFactory {
             }
             variant.getAlternateAlleles().forEach(a -> outputFuncotations.add(outputOrderedMap.computeIfAbsent(a, allele -> createDefaultFuncotation(allele))));
         }
-        cacheMisses++;
-        cache.put(cacheKey, outputFuncotations);
+        synchronized ( cache ) {
+            cacheMisses++;
+            cache.put(cacheKey, outputFuncotations);
+        }
 
         // The output number of funcotations should equal to the variant.getAlternateAlleles().size()
         return outputFuncotations;
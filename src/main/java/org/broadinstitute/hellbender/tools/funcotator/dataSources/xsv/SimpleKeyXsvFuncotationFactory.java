@@ -1,5 +1,7 @@
 package org.broadinstitute.hellbender.tools.funcotator.dataSources.xsv;
 
+import com.google.common.annotations.VisibleForTesting;
+import htsjdk.samtools.util.IOUtil;
 import htsjdk.tribble.Feature;
 import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.VariantContext;
@@ -14,9 +16,18 @@ import org.broadinstitute.hellbender.tools.funcotator.dataSources.TableFuncotati
 import org.broadinstitute.hellbender.tools.funcotator.dataSources.gencode.GencodeFuncotation;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.nio.PathLineIterator;
-
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -34,6 +45,23 @@ public class SimpleKeyXsvFuncotationFactory extends DataSourceFuncotationFactory
     //==================================================================================================================
     // Private Static Members:
 
+    /**
+     * Uncompressed XSV files at least this large are indexed by key and read on demand rather than loaded into memory.
+     */
+    @VisibleForTesting
+    static final long ROW_INDEX_MIN_FILE_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Maximum number of rows read on demand to keep in memory when the XSV file is indexed.
+     */
+    @VisibleForTesting
+    static final int ROW_CACHE_SIZE = 4096;
+
+    /**
+     * Size of the buffer used to read the XSV file when indexing it and when reading rows on demand.
+     */
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
     //==================================================================================================================
     // Private Members:
 
@@ -80,10 +108,41 @@ public class SimpleKeyXsvFuncotationFactory extends DataSourceFuncotationFactory
     private final List<String> emptyAnnotationList;
 
     /**
-     * Map containing the annotations that we have to
+     * Whether to allow mismatches between the number of columns in the header row and data rows.
+     */
+    private final boolean permissiveColumns;
+
+    /**
+     * Map containing the annotations for each key.
+     * Only used when the rows of the XSV file are not indexed (i.e. {@link #rowOffsets} is {@code null}).
      */
     private final Map<String, List<String>> annotationMap;
 
+    /**
+     * Map from each key to the byte offset of its row in the XSV file, or {@code null} if the XSV file is not indexed.
+     */
+    private final Object2LongOpenHashMap<String> rowOffsets;
+
+    /**
+     * The most recently used rows read on demand from the indexed XSV file, in least recently used order.
+     */
+    private final Map<String, List<String>> rowCache;
+
+    /**
+     * Channel from which to read rows on demand from the indexed XSV file.  Opened lazily.
+     */
+    private SeekableByteChannel rowChannel;
+
+    /**
+     * Buffer into which rows are read from {@link #rowChannel}.  Allocated with it, and reused for every row.
+     */
+    private ByteBuffer rowBuffer;
+
+    /**
+     * Accumulates a row read from {@link #rowChannel} that doesn't fit in {@link #rowBuffer}.  Reused for every row.
+     */
+    private final ByteArrayOutputStream rowBytes = new ByteArrayOutputStream();
+
     //==================================================================================================================
     // Constructors:
 
@@ -121,6 +180,26 @@ public class SimpleKeyXsvFuncotationFactory extends DataSourceFuncotationFactory
                                           final int numHeaderLinesToIgnore,
                                           final boolean permissiveColumns,
                                           final boolean isDataSourceB37) {
+        this(name, filePath, version, delim, keyColumn, keyType, annotationOverrides, numHeaderLinesToIgnore, permissiveColumns, isDataSourceB37, shouldIndexRows(filePath));
+    }
+
+    /**
+     * @param indexRows If {@code true}, only the byte offset of the row for each key is kept in memory, and rows are read from the XSV file on demand.
+     *                  Must be {@code false} for block-compressed XSV files.
+     */
+    public SimpleKeyXsvFuncotationFactory(final String name,
+                                          final Path filePath,
+                                          final String version,
+                                          final String delim,
+                                          final int keyColumn,
+                                          final XsvDataKeyType keyType,
+                                          final LinkedHashMap<String, String> annotationOverrides,
+                                          final int numHeaderLinesToIgnore,
+                                          final boolean permissiveColumns,
+                                          final boolean isDataSourceB37,
+                                          final boolean indexRows) {
+
+        Utils.validateArg(!indexRows || !IOUtil.hasBlockCompressedExtension(filePath), "Cannot index the rows of a block-compressed XSV file: " + filePath.toUri().toString());
 
         this.name = name;
 
@@ -137,26 +216,50 @@ public class SimpleKeyXsvFuncotationFactory extends DataSourceFuncotationFactory
 
         this.dataSourceIsB37 = isDataSourceB37;
 
-        // Initialize our annotations map:
-        annotationMap = new HashMap<>();
+        this.permissiveColumns = permissiveColumns;
+
+        if ( indexRows ) {
+            // Initialize our row index:
+            annotationMap = null;
+            rowOffsets = new Object2LongOpenHashMap<>();
+            rowCache = new LinkedHashMap<String, List<String>>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, List<String>> eldest) {
+                    return size() > ROW_CACHE_SIZE;
+                }
+            };
+
+            try ( final OffsetLineIterator it = new OffsetLineIterator(xsvInputPath) ) {
+                annotationColumnNames = createColumnNames(it, numHeaderLinesToIgnore);
+                populateRowIndex(it);
+            }
+        }
+        else {
+            // Initialize our annotations map:
+            annotationMap = new HashMap<>();
+            rowOffsets = null;
+            rowCache = null;
 
-        // Create our iterator:
-        try ( final PathLineIterator pathLineIterator = new PathLineIterator(xsvInputPath) ) {
+            // Create our iterator:
+            try ( final PathLineIterator pathLineIterator = new PathLineIterator(xsvInputPath) ) {
 
-            // Get a line iterator for our lines:
-            final Iterator<String> it = pathLineIterator.iterator();
+                // Get a line iterator for our lines:
+                final Iterator<String> it = pathLineIterator.iterator();
 
-            // Get our column names:
-            annotationColumnNames = createColumnNames(it, numHeaderLinesToIgnore);
+                // Get our column names:
+                annotationColumnNames = createColumnNames(it, numHeaderLinesToIgnore);
 
-            // Populate our empty annotation list:
-            emptyAnnotationList = new ArrayList<>(annotationColumnNames.size());
-            for ( final String s : annotationColumnNames ) {
-                emptyAnnotationList.add("");
+                // Populate our annotation map:
+                populateAnnotationMap(it);
             }
+        }
 
-            // Populate our annotation map:
-            populateAnnotationMap(it, permissiveColumns);
+        // Populate our empty annotation list:
+        emptyAnnotationList = new ArrayList<>(annotationColumnNames.size());
+        for ( final String s : annotationColumnNames ) {
+            emptyAnnotationList.add("");
         }
 
         // Initialize overrides / defaults:
@@ -177,6 +280,26 @@ public class SimpleKeyXsvFuncotationFactory extends DataSourceFuncotationFactory
         return name;
     }
 
+    @Override
+    public void close() {
+        if ( rowCache == null ) {
+            return;
+        }
+        // Rows may still be being read by other threads, which hold the same lock:
+        synchronized ( rowCache ) {
+            if ( rowChannel != null ) {
+                try {
+                    rowChannel.close();
+                }
+                catch (final IOException ex) {
+                    throw new GATKException("Unable to close XSV file: " + xsvInputPath.toUri().toString(), ex);
+                }
+                rowChannel = null;
+                rowBuffer = null;
+            }
+        }
+    }
+
     @Override
     public LinkedHashSet<String> getSupportedFuncotationFields() {
         return new LinkedHashSet<>(annotationColumnNames);
@@ -232,7 +355,7 @@ public class SimpleKeyXsvFuncotationFactory extends DataSourceFuncotationFactory
             }
 
             // Get our annotations:
-            final List<String> annotations = annotationMap.get( key );
+            final List<String> annotations = getAnnotations( key );
             if ( annotations != null ) {
                 // Create 1 annotation for each alt allele and add our annotations to the list:
                 for ( final Allele altAllele : variant.getAlternateAlleles() ) {
@@ -259,6 +382,21 @@ public class SimpleKeyXsvFuncotationFactory extends DataSourceFuncotationFactory
     //==================================================================================================================
     // Static Methods:
 
+    /**
+     * @return {@code true} if the given XSV file is large enough to be worth indexing and can be read at random offsets.
+     */
+    private static boolean shouldIndexRows(final Path xsvFilePath) {
+        if ( IOUtil.hasBlockCompressedExtension(xsvFilePath) ) {
+            return false;
+        }
+        try {
+            return Files.size(xsvFilePath) >= ROW_INDEX_MIN_FILE_SIZE;
+        }
+        catch (final IOException ex) {
+            throw new UserException.CouldNotReadInputFile(xsvFilePath, ex);
+        }
+    }
+
     //==================================================================================================================
     // Instance Methods:
 
@@ -309,16 +447,105 @@ public class SimpleKeyXsvFuncotationFactory extends DataSourceFuncotationFactory
         return annotationColumnNames;
     }
 
+    /**
+     * Get the annotations for the given key, reading them from the XSV file if it is indexed.
+     * @param key The key for which to get the annotations.
+     * @return The annotations for the given key, or {@code null} if the XSV file has no row for it.
+     */
+    private List<String> getAnnotations(final String key) {
+        if ( rowOffsets == null ) {
+            return annotationMap.get(key);
+        }
+
+        if ( !rowOffsets.containsKey(key) ) {
+            return null;
+        }
+
+        // The row cache and channel are shared by all threads annotating with this factory:
+        synchronized ( rowCache ) {
+            List<String> annotations = rowCache.get(key);
+            if ( annotations == null ) {
+                final DataRow dataRow = parseDataRow(readLineAt(rowOffsets.getLong(key)), -1);
+                annotations = dataRow.values;
+                rowCache.put(key, annotations);
+            }
+            return annotations;
+        }
+    }
+
+    /**
+     * Read the line starting at the given byte offset in the XSV file.
+     * Must be called while holding the lock on {@link #rowCache}, as the channel and buffers are shared.
+     * @param offset Byte offset of the start of the line in the XSV file.
+     * @return The line starting at the given offset, without its line terminator.
+     */
+    private String readLineAt(final long offset) {
+        try {
+            if ( rowChannel == null ) {
+                rowChannel = Files.newByteChannel(xsvInputPath);
+                rowBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            }
+            rowChannel.position(offset);
+            rowBytes.reset();
+
+            final byte[] bytes = rowBuffer.array();
+            rowBuffer.clear();
+            while ( rowChannel.read(rowBuffer) > 0 ) {
+                final int length = rowBuffer.position();
+                for ( int i = 0; i < length; i++ ) {
+                    if ( bytes[i] == '\n' || bytes[i] == '\r' ) {
+                        return toLine(bytes, i);
+                    }
+                }
+                // The row continues past the buffer:
+                rowBytes.write(bytes, 0, length);
+                rowBuffer.clear();
+            }
+            return toLine(bytes, 0);
+        }
+        catch (final IOException ex) {
+            throw new UserException.CouldNotReadInputFile(xsvInputPath, ex);
+        }
+    }
+
+    /**
+     * @return The row accumulated in {@link #rowBytes}, followed by the first {@code length} bytes of {@code bytes}.
+     */
+    private String toLine(final byte[] bytes, final int length) {
+        if ( rowBytes.size() == 0 ) {
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        rowBytes.write(bytes, 0, length);
+        return new String(rowBytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
     /**
      * Populates {@link SimpleKeyXsvFuncotationFactory#annotationMap} with data from the given iterator.
      * Assumes that {@link SimpleKeyXsvFuncotationFactory#annotationColumnNames} is populated.
      * @param it An {@link Iterator} of {@link String} starting at the first data line in the file to parse.
-     * @param permissiveColumnNumbers A flag which if true indicates to allow mismatches between the number of columns in the header row and data rows.
-     *                                In the event of a mismatch, the data row with either be padded to the number of columns in the header
-     *                                or it will be truncated to match the number of columns in the header.
      */
-    private void populateAnnotationMap(final Iterator<String> it,
-                                       final boolean permissiveColumnNumbers) {
+    private void populateAnnotationMap(final Iterator<String> it) {
+        forEachDataRow(it, dataRow -> annotationMap.put(dataRow.key, dataRow.values));
+    }
+
+    /**
+     * Populates {@link SimpleKeyXsvFuncotationFactory#rowOffsets} with the offsets of the rows from the given iterator.
+     * Every row is parsed and validated exactly as in {@link #populateAnnotationMap(Iterator)}, but only its offset is kept.
+     * Assumes that {@link SimpleKeyXsvFuncotationFactory#annotationColumnNames} is populated.
+     * @param it An {@link OffsetLineIterator} starting at the first data line in the file to parse.
+     */
+    private void populateRowIndex(final OffsetLineIterator it) {
+        forEachDataRow(it, dataRow -> rowOffsets.put(dataRow.key, it.getLastLineOffset()));
+    }
+
+    /**
+     * Parses and validates each of the data rows from the given iterator.
+     * Assumes that {@link SimpleKeyXsvFuncotationFactory#annotationColumnNames} is populated.
+     * @param it An {@link Iterator} of {@link String} starting at the first data line in the file to parse.
+     * @param rowConsumer Called with each parsed row, in file order.
+     */
+    private void forEachDataRow(final Iterator<String> it,
+                                final Consumer<DataRow> rowConsumer) {
 
         boolean emptyLineFlag = false;
 
@@ -341,44 +568,177 @@ public class SimpleKeyXsvFuncotationFactory extends DataSourceFuncotationFactory
                     throw new UserException.MalformedFile("File contains an empty line (" + dataRowNum + ").  All lines must have data.");
             }
 
-            // The use of Utils.split is NECESSARY here because delimiter could potentially evaluate
-            // as a regular expression (as in the case of '|').
-            final List<String> dataRow = Utils.split(rawRow, delimiter);
+            // Hand off the parsed row:
+            rowConsumer.accept(parseDataRow(rawRow, dataRowNum));
 
-            // Remove the key column:
-            String rowKey = dataRow.remove(keyColumn);
-            if ( keyType == XsvDataKeyType.TRANSCRIPT_ID ) {
-                // If the key is a transcript ID, strip off the transcript version so that we don't consider it when
-                // matching on transcript ID:
-                rowKey = FuncotatorUtils.getTranscriptIdWithoutVersionNumber(rowKey);
-            }
+            // Increment our row counter:
+            ++dataRowNum;
+        }
+    }
+
+    /**
+     * Parses a single data row of the XSV file.
+     * If {@link #permissiveColumns} is {@code true}, mismatches between the number of columns in the header row and
+     * the data row are allowed.  In the event of a mismatch, the data row with either be padded to the number of
+     * columns in the header or it will be truncated to match the number of columns in the header.
+     * @param rawRow The line of the XSV file containing the row.
+     * @param dataRowNum The row number of the given row in the XSV file (for error messages).
+     * @return The key and the annotation values of the given row.
+     */
+    private DataRow parseDataRow(final String rawRow, final int dataRowNum) {
+        // The use of Utils.split is NECESSARY here because delimiter could potentially evaluate
+        // as a regular expression (as in the case of '|').
+        final List<String> dataRow = Utils.split(rawRow, delimiter);
+
+        // Remove the key column:
+        String rowKey = dataRow.remove(keyColumn);
+        if ( keyType == XsvDataKeyType.TRANSCRIPT_ID ) {
+            // If the key is a transcript ID, strip off the transcript version so that we don't consider it when
+            // matching on transcript ID:
+            rowKey = FuncotatorUtils.getTranscriptIdWithoutVersionNumber(rowKey);
+        }
 
-            // Make sure we have the same number of columns:
-            if ( (dataRow.size() != annotationColumnNames.size()) ) {
-                if ( !permissiveColumnNumbers ) {
-                    throw new UserException.MalformedFile("Data Source is badly formatted (" + xsvInputPath.toUri().toString() + ") - row " + dataRowNum + " does not contain the same number of columns as header (" + dataRow.size() + " != " + annotationColumnNames.size() + ")!");
+        // Make sure we have the same number of columns:
+        if ( (dataRow.size() != annotationColumnNames.size()) ) {
+            if ( !permissiveColumns ) {
+                throw new UserException.MalformedFile("Data Source is badly formatted (" + xsvInputPath.toUri().toString() + ") - row " + dataRowNum + " does not contain the same number of columns as header (" + dataRow.size() + " != " + annotationColumnNames.size() + ")!");
+            }
+            else if ( dataRow.size() > annotationColumnNames.size() ) {
+                dataRow.remove(dataRow.size()-1);
+            }
+            else {
+                while ( dataRow.size() < annotationColumnNames.size() ) {
+                    dataRow.add( "" );
                 }
-                else if ( dataRow.size() > annotationColumnNames.size() ) {
-                    dataRow.remove(dataRow.size()-1);
+            }
+        }
+
+        return new DataRow(rowKey, dataRow);
+    }
+
+    //==================================================================================================================
+    // Helper Data Types:
+
+    /**
+     * The key and annotation values of a data row of the XSV file.
+     */
+    private static final class DataRow {
+        private final String key;
+        private final List<String> values;
+
+        private DataRow(final String key, final List<String> values) {
+            this.key = key;
+            this.values = values;
+        }
+    }
+
+    /**
+     * Iterates over the lines of an uncompressed text file, keeping track of the byte offset at which each line starts.
+     * Lines are terminated by {@code \n}, {@code \r} or {@code \r\n}, as in {@link java.io.BufferedReader#readLine()}.
+     */
+    private static final class OffsetLineIterator implements Iterator<String>, AutoCloseable {
+        private final Path path;
+        private final InputStream inputStream;
+        private final byte[] buffer = new byte[READ_BUFFER_SIZE];
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        private int bufferLength = 0;
+        private int bufferPosition = 0;
+        private long position = 0;
+        private long lastLineOffset = -1;
+        private String nextLine;
+        private long nextLineOffset;
+
+        private OffsetLineIterator(final Path path) {
+            this.path = path;
+            try {
+                inputStream = Files.newInputStream(path);
+            }
+            catch (final IOException ex) {
+                throw new UserException("Error reading " + path.toUri().toString(), ex);
+            }
+            advance();
+        }
+
+        /**
+         * @return The byte offset of the start of the line last returned by {@link #next()}.
+         */
+        private long getLastLineOffset() {
+            return lastLineOffset;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextLine != null;
+        }
+
+        @Override
+        public String next() {
+            if ( nextLine == null ) {
+                throw new NoSuchElementException();
+            }
+            final String currentLine = nextLine;
+            lastLineOffset = nextLineOffset;
+            advance();
+            return currentLine;
+        }
+
+        @Override
+        public void close() {
+            try {
+                inputStream.close();
+            }
+            catch (final IOException ex) {
+                throw new GATKException("Unable to close XSV file: " + path.toUri().toString(), ex);
+            }
+        }
+
+        private void advance() {
+            nextLineOffset = position;
+            line.reset();
+            int b;
+            while ( (b = read()) != -1 ) {
+                if ( b == '\n' ) {
+                    nextLine = new String(line.toByteArray(), StandardCharsets.UTF_8);
+                    return;
                 }
-                else {
-                    while ( dataRow.size() < annotationColumnNames.size() ) {
-                        dataRow.add( "" );
+                else if ( b == '\r' ) {
+                    if ( peek() == '\n' ) {
+                        read();
                     }
+                    nextLine = new String(line.toByteArray(), StandardCharsets.UTF_8);
+                    return;
                 }
+                line.write(b);
             }
+            nextLine = (line.size() > 0) ? new String(line.toByteArray(), StandardCharsets.UTF_8) : null;
+        }
 
-            // Store this in our map:
-            annotationMap.put(rowKey, dataRow);
+        private int read() {
+            final int b = peek();
+            if ( b != -1 ) {
+                ++bufferPosition;
+                ++position;
+            }
+            return b;
+        }
 
-            // Increment our row counter:
-            ++dataRowNum;
+        private int peek() {
+            if ( bufferPosition == bufferLength ) {
+                try {
+                    bufferLength = Math.max(inputStream.read(buffer), 0);
+                }
+                catch (final IOException ex) {
+                    throw new UserException("Error reading " + path.toUri().toString(), ex);
+                }
+                bufferPosition = 0;
+                if ( bufferLength == 0 ) {
+                    return -1;
+                }
+            }
+            return buffer[bufferPosition] & 0xFF;
         }
     }
 
-    //==================================================================================================================
-    // Helper Data Types:
-
     public enum XsvDataKeyType {
         /**
          * The key specified is a Gene Name which will be used to match and annotate a {@link VariantContext}.
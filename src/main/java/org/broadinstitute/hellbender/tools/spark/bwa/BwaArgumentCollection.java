@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.tools.spark.bwa;
 
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.hellbender.tools.BwaMemIndexImageCreator;
 
@@ -15,6 +16,8 @@ public class BwaArgumentCollection implements Serializable {
     public static final String SINGLE_END_ALIGNMENT_SHORT_NAME = "se";
     public static final String BWA_MEM_INDEX_IMAGE_FULL_NAME = "bwa-mem-index-image";
     public static final String BWA_MEM_INDEX_IMAGE_SHORT_NAME = "image";
+    public static final String BWA_BATCH_BASES_PER_THREAD_FULL_NAME = "bwa-batch-bases-per-thread";
+    public static final String BWA_THREADS_FULL_NAME = "bwa-threads";
 
     /**
      * The BWA-MEM index image file name that you've distributed to each executor. The image file can be generated using
@@ -35,4 +38,28 @@ public class BwaArgumentCollection implements Serializable {
             shortName = SINGLE_END_ALIGNMENT_SHORT_NAME,
             optional = true)
     public boolean singleEndAlignment = false;
+
+    /**
+     * Stream each partition through the aligner in batches of about this many bases per BWA thread, instead of
+     * aligning the whole partition at once.  This bounds the memory used for alignment, and overlaps the conversion
+     * of reads with native alignment.  BWA-MEM itself processes 10,000,000 bases per thread at a time.
+     * When aligning pairs, BWA estimates the insert size distribution from each batch, so batches shouldn't be small.
+     * The default of 0 aligns each partition all at once.
+     */
+    @Advanced
+    @Argument(doc = "Align each partition in batches of about this many bases per BWA thread (0 aligns a partition all at once)",
+            fullName = BWA_BATCH_BASES_PER_THREAD_FULL_NAME,
+            minValue = 0,
+            optional = true)
+    public int batchBasesPerThread = 0;
+
+    /**
+     * The number of threads the native aligner uses for each partition.
+     */
+    @Advanced
+    @Argument(doc = "Number of threads the native aligner uses for each partition",
+            fullName = BWA_THREADS_FULL_NAME,
+            minValue = 1,
+            optional = true)
+    public int bwaThreads = 1;
 }
@@ -4,9 +4,11 @@ import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.SAMSequenceDictionary;
 import org.apache.spark.SparkFiles;
+import org.apache.spark.TaskContext;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.broadcast.Broadcast;
+import org.apache.spark.util.TaskCompletionListener;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.Utils;
@@ -16,6 +18,11 @@ import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The BwaSparkEngine provides a simple interface for transforming a JavaRDD<GATKRead> in which the reads are paired
@@ -34,6 +41,8 @@ public final class BwaSparkEngine implements AutoCloseable {
     private final String indexFileName;
     private final boolean resolveIndexFileName;
     private final Broadcast<SAMFileHeader> broadcastHeader;
+    private final int batchBasesPerThread;
+    private final int nThreads;
 
     /**
      * @param ctx           the Spark context
@@ -48,9 +57,34 @@ public final class BwaSparkEngine implements AutoCloseable {
                           final String indexFileName,
                           SAMFileHeader inputHeader,
                           final SAMSequenceDictionary refDictionary) {
+        this(ctx, referenceFile, indexFileName, inputHeader, refDictionary, 0, 1);
+    }
+
+    /**
+     * @param ctx           the Spark context
+     * @param referenceFile the path to the reference file named <i>_prefix_.fa</i>, which is used to find the image file with name <i>_prefix_.fa.img</i>.
+     *                      Can be <code>null</code> if the indexFileName is provided.
+     * @param indexFileName the index image file name that already exists, or <code>null</code> to have the image file automatically distributed.
+     * @param inputHeader   the SAM file header to use for reads
+     * @param refDictionary the sequence dictionary to use for reads if the SAM file header doesn't have one (or it's empty)
+     * @param batchBasesPerThread if positive, each partition is streamed through the aligner in batches of about this
+     *                      many bases per thread; if 0, each partition is aligned all at once
+     * @param nThreads      the number of threads the native aligner uses for each partition
+     */
+    public BwaSparkEngine(final JavaSparkContext ctx,
+                          final String referenceFile,
+                          final String indexFileName,
+                          SAMFileHeader inputHeader,
+                          final SAMSequenceDictionary refDictionary,
+                          final int batchBasesPerThread,
+                          final int nThreads) {
         Utils.nonNull(referenceFile);
         Utils.nonNull(inputHeader);
+        Utils.validateArg(batchBasesPerThread >= 0, "batchBasesPerThread must be non-negative");
+        Utils.validateArg(nThreads > 0, "nThreads must be positive");
         this.ctx = ctx;
+        this.batchBasesPerThread = batchBasesPerThread;
+        this.nThreads = nThreads;
         if (indexFileName != null) {
             this.indexFileName = indexFileName;
             this.resolveIndexFileName = false;
@@ -100,8 +134,13 @@ public final class BwaSparkEngine implements AutoCloseable {
         final Broadcast<SAMFileHeader> broadcastHeader = this.broadcastHeader;
         final String indexFileName = this.indexFileName;
         final boolean resolveIndexFileName = this.resolveIndexFileName;
-        return unalignedReads.mapPartitions(itr ->
-                new ReadAligner(resolveIndexFileName ? SparkFiles.get(indexFileName) : indexFileName, broadcastHeader.value(), pairedAlignment).apply(itr));
+        final int nThreads = this.nThreads;
+        final long batchBases = (long)batchBasesPerThread * nThreads;
+        return unalignedReads.mapPartitions(itr -> {
+            final ReadAligner readAligner =
+                    new ReadAligner(resolveIndexFileName ? SparkFiles.get(indexFileName) : indexFileName, broadcastHeader.value(), pairedAlignment, nThreads);
+            return batchBases > 0 ? readAligner.applyInBatches(itr, batchBases) : readAligner.apply(itr);
+        });
     }
 
     @Override
@@ -111,29 +150,76 @@ public final class BwaSparkEngine implements AutoCloseable {
     }
 
     private static final class ReadAligner {
-        private final BwaMemIndex bwaMemIndex;
+        private final String indexFileName;
         private final SAMFileHeader readsHeader;
         private final boolean alignsPairs;
+        private final int nThreads;
 
         // assumes 128Mb partitions, with reads needing about 100bytes each when BAM compressed
         private static final int READS_PER_PARTITION_GUESS = 1500000;
 
-        ReadAligner( final String indexFileName, final SAMFileHeader readsHeader, final boolean alignsPairs) {
-            this.bwaMemIndex = BwaMemIndexCache.getInstance(indexFileName);
+        ReadAligner( final String indexFileName, final SAMFileHeader readsHeader, final boolean alignsPairs,
+                     final int nThreads ) {
+            this.indexFileName = indexFileName;
             this.readsHeader = readsHeader;
             this.alignsPairs = alignsPairs;
+            this.nThreads = nThreads;
             if ( alignsPairs && readsHeader.getSortOrder() != SAMFileHeader.SortOrder.queryname ) {
                 throw new UserException("Input must be queryname sorted unless you use single-ended alignment mode.");
             }
         }
 
         Iterator<GATKRead> apply( final Iterator<GATKRead> readItr ) {
+            // hold a reference to the index while aligning, so that it can't be closed by some other task
+            final BwaMemIndex bwaMemIndex = BwaMemIndexCache.acquireInstance(indexFileName);
+            try {
+                return align(readItr, bwaMemIndex);
+            } finally {
+                BwaMemIndexCache.releaseInstance(bwaMemIndex);
+            }
+        }
+
+        /**
+         * Aligns the reads in batches of about batchBases bases, rather than all at once, so that memory use doesn't
+         * grow with the size of the partition.  Reads are returned lazily, batch by batch.
+         */
+        Iterator<GATKRead> applyInBatches( final Iterator<GATKRead> readItr, final long batchBases ) {
+            return new BatchAligningIterator(readItr, batchBases);
+        }
+
+        private Iterator<GATKRead> align( final Iterator<GATKRead> readItr, final BwaMemIndex bwaMemIndex ) {
             final List<GATKRead> inputReads = new ArrayList<>(READS_PER_PARTITION_GUESS);
             while ( readItr.hasNext() ) {
                 inputReads.add(readItr.next());
             }
+            checkPairs(inputReads);
             final int nReads = inputReads.size();
+            final List<List<BwaMemAlignment>> allAlignments;
+            if ( nReads == 0 ) allAlignments = Collections.emptyList();
+            else {
+                final List<byte[]> seqs = new ArrayList<>(nReads);
+                for (final GATKRead read : inputReads) {
+                    seqs.add(read.getBases());
+                }
+                final BwaMemAligner aligner = createAligner(bwaMemIndex);
+                allAlignments = aligner.alignSeqs(seqs);
+            }
+            return applyAlignments(inputReads, allAlignments, bwaMemIndex.getReferenceContigNames()).iterator();
+        }
+
+        private BwaMemAligner createAligner( final BwaMemIndex bwaMemIndex ) {
+            final BwaMemAligner aligner = new BwaMemAligner(bwaMemIndex);
+            // we are dealing with interleaved, paired reads.  tell BWA that they're paired.
+            if (alignsPairs) {
+                aligner.alignPairs();
+            }
+            aligner.setNThreadsOption(nThreads);
+            return aligner;
+        }
+
+        private void checkPairs( final List<GATKRead> inputReads ) {
             if ( alignsPairs ) {
+                final int nReads = inputReads.size();
                 if ( (nReads & 1) != 0 ) {
                     throw new GATKException("We're supposed to be aligning paired reads, but there are an odd number of them.");
                 }
@@ -145,21 +231,12 @@ public final class BwaSparkEngine implements AutoCloseable {
                     }
                 }
             }
-            final List<List<BwaMemAlignment>> allAlignments;
-            if ( nReads == 0 ) allAlignments = Collections.emptyList();
-            else {
-                final List<byte[]> seqs = new ArrayList<>(nReads);
-                for (final GATKRead read : inputReads) {
-                    seqs.add(read.getBases());
-                }
-                final BwaMemAligner aligner = new BwaMemAligner(bwaMemIndex);
-                // we are dealing with interleaved, paired reads.  tell BWA that they're paired.
-                if (alignsPairs) {
-                    aligner.alignPairs();
-                }
-                allAlignments = aligner.alignSeqs(seqs);
-            }
-            final List<String> refNames = bwaMemIndex.getReferenceContigNames();
+        }
+
+        private List<GATKRead> applyAlignments( final List<GATKRead> inputReads,
+                                                final List<List<BwaMemAlignment>> allAlignments,
+                                                final List<String> refNames ) {
+            final int nReads = inputReads.size();
             final List<GATKRead> outputReads = new ArrayList<>(allAlignments.stream().mapToInt(List::size).sum());
             for ( int idx = 0; idx != nReads; ++idx ) {
                 final GATKRead originalRead = inputReads.get(idx);
@@ -179,7 +256,137 @@ public final class BwaSparkEngine implements AutoCloseable {
                     outputReads.add(rec);
                 }
             }
-            return outputReads.iterator();
+            return outputReads;
+        }
+
+        /**
+         * Aligns a partition one batch at a time, as a three-stage pipeline:  while the native aligner works on one
+         * batch on a separate thread, the next batch is gathered from the input, and the alignments of the previous
+         * batch are turned into reads and returned.  So at most three batches are in memory at once.
+         * Batches end at a pair boundary when aligning pairs.
+         * The bases handed to the native aligner aren't copied from the reads, since it copies them itself.
+         */
+        private final class BatchAligningIterator implements Iterator<GATKRead> {
+            private final Iterator<GATKRead> readItr;
+            private final long batchBases;
+            private final BwaMemIndex bwaMemIndex;
+            private final BwaMemAligner aligner;
+            private final List<String> refNames;
+            private final ExecutorService alignmentExecutor;
+            private List<GATKRead> pendingReads;
+            private Future<List<List<BwaMemAlignment>>> pendingAlignments;
+            private Iterator<GATKRead> outputItr;
+            private boolean closed;
+
+            BatchAligningIterator( final Iterator<GATKRead> readItr, final long batchBases ) {
+                Utils.validateArg(batchBases > 0, "batchBases must be positive");
+                this.readItr = readItr;
+                this.batchBases = batchBases;
+                // hold a reference to the index until the partition is done, so that it can't be closed by some other task
+                bwaMemIndex = BwaMemIndexCache.acquireInstance(indexFileName);
+                aligner = createAligner(bwaMemIndex);
+                refNames = bwaMemIndex.getReferenceContigNames();
+                alignmentExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                    final Thread thread = new Thread(runnable, "BwaSparkEngine-aligner");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                outputItr = Collections.emptyIterator();
+                closed = false;
+                // release the index even if the task is abandoned before the partition is exhausted
+                final TaskContext taskContext = TaskContext.get();
+                if ( taskContext != null ) {
+                    final TaskCompletionListener closeOnCompletion = context -> close();
+                    taskContext.addTaskCompletionListener(closeOnCompletion);
+                }
+                submitBatch(gatherBatch());
+            }
+
+            @Override
+            public boolean hasNext() {
+                while ( !outputItr.hasNext() ) {
+                    if ( pendingAlignments == null ) {
+                        close();
+                        return false;
+                    }
+                    final List<GATKRead> nextReads = gatherBatch();
+                    final List<GATKRead> alignedReads = pendingReads;
+                    final List<List<BwaMemAlignment>> alignments = awaitAlignments();
+                    submitBatch(nextReads);
+                    outputItr = applyAlignments(alignedReads, alignments, refNames).iterator();
+                }
+                return true;
+            }
+
+            @Override
+            public GATKRead next() {
+                if ( !hasNext() ) {
+                    throw new NoSuchElementException("No more aligned reads.");
+                }
+                return outputItr.next();
+            }
+
+            private List<GATKRead> gatherBatch() {
+                final List<GATKRead> reads = new ArrayList<>();
+                long nBases = 0L;
+                while ( readItr.hasNext() && (nBases < batchBases || (alignsPairs && (reads.size() & 1) != 0)) ) {
+                    final GATKRead read = readItr.next();
+                    reads.add(read);
+                    nBases += read.getLength();
+                }
+                checkPairs(reads);
+                return reads;
+            }
+
+            private void submitBatch( final List<GATKRead> reads ) {
+                if ( reads.isEmpty() ) {
+                    pendingReads = null;
+                    pendingAlignments = null;
+                    return;
+                }
+                final List<byte[]> seqs = new ArrayList<>(reads.size());
+                for ( final GATKRead read : reads ) {
+                    seqs.add(read.getBasesNoCopy());
+                }
+                pendingReads = reads;
+                pendingAlignments = alignmentExecutor.submit(() -> aligner.alignSeqs(seqs));
+            }
+
+            private List<List<BwaMemAlignment>> awaitAlignments() {
+                try {
+                    return pendingAlignments.get();
+                } catch ( final InterruptedException ie ) {
+                    close();
+                    Thread.currentThread().interrupt();
+                    throw new GATKException("Interrupted while waiting for a batch of alignments", ie);
+                } catch ( final ExecutionException ee ) {
+                    close();
+                    throw new GATKException("Alignment of a batch of reads failed", ee.getCause());
+                }
+            }
+
+            /**
+             * Waits for any batch that's still in the native aligner (it can't be interrupted), and then releases
+             * the aligner and the index.  They're released even if the wait is interrupted, so that the index
+             * doesn't stay held forever.
+             */
+            private void close() {
+                if ( closed ) return;
+                closed = true;
+                alignmentExecutor.shutdown();
+                try {
+                    while ( !alignmentExecutor.awaitTermination(1L, TimeUnit.MINUTES) ) {}
+                } catch ( final InterruptedException ie ) {
+                    Thread.currentThread().interrupt();
+                    throw new GATKException("Interrupted while waiting for a batch of alignments", ie);
+                } finally {
+                    try {
+                        aligner.close();
+                    } finally {
+                        BwaMemIndexCache.releaseInstance(bwaMemIndex);
+                    }
+                }
+            }
         }
     }
 }
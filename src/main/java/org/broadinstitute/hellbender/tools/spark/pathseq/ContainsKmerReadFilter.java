@@ -35,6 +35,10 @@ public class ContainsKmerReadFilter extends ReadFilter {
     @Override
     public boolean test(final GATKRead read) {
         final SVKmerizer kmers = new SVKmerizer(read.getBases(), kSize, 1, new SVKmerShort(kSize));
+        if (kmerLib instanceof PSKmerBlockedBloomFilter) {
+            //The blocked Bloom filter is fastest when probed with all of the read's kmers at once
+            return countKmersContainedInBatch(kmers, read.getLength()) < kmerCountThreshold;
+        }
         int numKmersFound = 0;
         while (kmers.hasNext()) {
             if (kmerLib.contains(((SVKmerShort)kmers.next()))) {
@@ -46,6 +50,15 @@ public class ContainsKmerReadFilter extends ReadFilter {
         return true;
     }
 
+    private int countKmersContainedInBatch(final SVKmerizer kmers, final int readLength) {
+        final long[] rawKmers = new long[Math.max(0, readLength - kSize + 1)];
+        int numKmers = 0;
+        while (kmers.hasNext()) {
+            rawKmers[numKmers++] = ((SVKmerShort)kmers.next()).getLong();
+        }
+        return ((PSKmerBlockedBloomFilter) kmerLib).countContained(rawKmers, numKmers, kmerCountThreshold);
+    }
+
     //Static variables can't be garbage collected until the object is unloaded
     public static void closeKmerLib() {
         kmerLib = null;
@@ -67,6 +67,11 @@ public final class PSFilterArgumentCollection implements Serializable {
             optional = true)
     public boolean alignedInput = false;
 
+    /**
+     * Blocked Bloom filters (with the extension {@value PSKmerUtils#BLOCKED_BLOOM_FILTER_EXTENSION}) and mapped hash sets
+     * (with the extension {@value PSKmerUtils#MAPPED_HOPSCOTCH_SET_EXTENSION}) are memory-mapped, so they must be on the
+     * local disk of every worker.
+     */
     @Argument(doc = "Path to host k-mer file generated with PathSeqBuildKmers. K-mer filtering is skipped if this is not specified.",
             fullName = KMER_FILE_PATH_LONG_NAME,
             shortName = KMER_FILE_PATH_SHORT_NAME,
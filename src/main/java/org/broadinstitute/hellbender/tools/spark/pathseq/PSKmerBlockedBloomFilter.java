@@ -0,0 +1,100 @@
+package org.broadinstitute.hellbender.tools.spark.pathseq;
+
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerShort;
+import org.broadinstitute.hellbender.tools.spark.utils.BlockedLongBloomFilter;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+
+/**
+ * Kmer blocked Bloom filter class that encapsulates the filter, kmer size, and kmer mask.
+ * The kmer size, mask, and false positive probability are kept in the metadata of the filter's file, which is
+ * memory-mapped rather than deserialized.
+ */
+public final class PSKmerBlockedBloomFilter extends PSKmerCollection {
+
+    private static final int METADATA_BYTES = Integer.BYTES + Long.BYTES + Double.BYTES;
+
+    private final BlockedLongBloomFilter kmerSet;
+    private final int kmerSize;
+    private final SVKmerShort kmerMask;
+    private final double falsePositiveProbability;
+
+    /**
+     * Note values in the Bloom filter should have been run through PSKmerCollection's canonicalizeAndMask()
+     */
+    public PSKmerBlockedBloomFilter(final BlockedLongBloomFilter maskedKmerBloomFilter, final int kmerSize,
+                                    final SVKmerShort kmerMask, final long numElements) {
+        this(maskedKmerBloomFilter, kmerSize, kmerMask, maskedKmerBloomFilter.getTheoreticalFPP(numElements));
+    }
+
+    private PSKmerBlockedBloomFilter(final BlockedLongBloomFilter maskedKmerBloomFilter, final int kmerSize,
+                                     final SVKmerShort kmerMask, final double falsePositiveProbability) {
+        Utils.nonNull(maskedKmerBloomFilter);
+        Utils.nonNull(kmerMask);
+        this.kmerSet = maskedKmerBloomFilter;
+        this.kmerSize = kmerSize;
+        this.kmerMask = kmerMask;
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    /**
+     * Memory-maps a filter written by {@link #write}. The file must be on local disk.
+     */
+    public static PSKmerBlockedBloomFilter open(final String path) {
+        final BlockedLongBloomFilter bloomFilter = BlockedLongBloomFilter.open(path);
+        final byte[] metadata = bloomFilter.getMetadata();
+        if (metadata.length != METADATA_BYTES) {
+            throw new UserException.BadInput(path + " is a blocked Bloom filter, but not a kmer filter");
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(metadata).order(ByteOrder.LITTLE_ENDIAN);
+        final int kmerSize = buffer.getInt();
+        final SVKmerShort kmerMask = new SVKmerShort(buffer.getLong());
+        return new PSKmerBlockedBloomFilter(bloomFilter, kmerSize, kmerMask, buffer.getDouble());
+    }
+
+    public void write(final Path path) {
+        final ByteBuffer metadata = ByteBuffer.allocate(METADATA_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        metadata.putInt(kmerSize).putLong(kmerMask.getLong()).putDouble(falsePositiveProbability);
+        kmerSet.write(path, metadata.array());
+    }
+
+    /**
+     * Input should not be canonicalized/masked
+     */
+    @Override
+    public boolean contains(final SVKmerShort rawKmer) {
+        return kmerSet.contains(canonicalizeAndMask(rawKmer, kmerSize, kmerMask));
+    }
+
+    /**
+     * Counts how many of the first numKmers raw (not canonicalized or masked) kmers are in the filter, stopping
+     * early once the count reaches maxCount. Probes the filter with the whole batch of kmers at once
+     * (see {@link BlockedLongBloomFilter#countContained}).
+     */
+    int countContained(final long[] rawKmers, final int numKmers, final int maxCount) {
+        final long[] maskedKmers = new long[numKmers];
+        for (int i = 0; i < numKmers; i++) {
+            maskedKmers[i] = canonicalizeAndMask(new SVKmerShort(rawKmers[i]), kmerSize, kmerMask);
+        }
+        return kmerSet.countContained(maskedKmers, 0, numKmers, maxCount);
+    }
+
+    @Override
+    public int kmerSize() {
+        return kmerSize;
+    }
+
+    @Override
+    public SVKmerShort getMask() {
+        return kmerMask;
+    }
+
+    @Override
+    public double getFalsePositiveProbability() {
+        return falsePositiveProbability;
+    }
+}
@@ -0,0 +1,85 @@
+package org.broadinstitute.hellbender.tools.spark.pathseq;
+
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerShort;
+import org.broadinstitute.hellbender.tools.spark.utils.LargeLongHopscotchSet;
+import org.broadinstitute.hellbender.tools.spark.utils.MappedLongHopscotchSet;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+
+/**
+ * Kmer Hopscotch set class that encapsulates the set, kmer size, and kmer mask, like {@link PSKmerSet}, but whose set
+ * is memory-mapped from its file rather than deserialized onto the heap.
+ * The kmer size and mask are kept in the metadata of the set's file.
+ */
+public final class PSKmerMappedSet extends PSKmerCollection {
+
+    private static final int METADATA_BYTES = Integer.BYTES + Long.BYTES;
+
+    private final MappedLongHopscotchSet kmerSet;
+    private final int kmerSize;
+    private final SVKmerShort kmerMask;
+
+    private PSKmerMappedSet(final MappedLongHopscotchSet maskedKmerSet, final int kmerSize, final SVKmerShort kmerMask) {
+        this.kmerSet = maskedKmerSet;
+        this.kmerSize = kmerSize;
+        this.kmerMask = kmerMask;
+    }
+
+    /**
+     * Memory-maps a set written by {@link #write}. The file must be on local disk.
+     */
+    public static PSKmerMappedSet open(final String path) {
+        final MappedLongHopscotchSet hopscotchSet = MappedLongHopscotchSet.open(path);
+        final byte[] metadata = hopscotchSet.getMetadata();
+        if (metadata.length != METADATA_BYTES) {
+            throw new UserException.BadInput(path + " is a mapped hopscotch set, but not a kmer set");
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(metadata).order(ByteOrder.LITTLE_ENDIAN);
+        final int kmerSize = buffer.getInt();
+        return new PSKmerMappedSet(hopscotchSet, kmerSize, new SVKmerShort(buffer.getLong()));
+    }
+
+    /**
+     * Writes a set in the format that {@link #open} maps.
+     * Note values in the input set should have been run through PSKmerCollection's canonicalizeAndMask()
+     */
+    public static void write(final LargeLongHopscotchSet maskedKmerSet, final int kmerSize, final SVKmerShort kmerMask,
+                             final Path path) {
+        Utils.nonNull(maskedKmerSet);
+        Utils.nonNull(kmerMask);
+        final ByteBuffer metadata = ByteBuffer.allocate(METADATA_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        metadata.putInt(kmerSize).putLong(kmerMask.getLong());
+        MappedLongHopscotchSet.write(maskedKmerSet, metadata.array(), path);
+    }
+
+    /**
+     * Input should not be canonicalized/masked
+     */
+    @Override
+    public boolean contains(final SVKmerShort rawKmer) {
+        return kmerSet.contains(canonicalizeAndMask(rawKmer, kmerSize, kmerMask));
+    }
+
+    @Override
+    public int kmerSize() {
+        return kmerSize;
+    }
+
+    @Override
+    public SVKmerShort getMask() {
+        return kmerMask;
+    }
+
+    @Override
+    public double getFalsePositiveProbability() {
+        return 0;
+    }
+
+    public long setSize() {
+        return kmerSet.size();
+    }
+}
@@ -10,9 +10,11 @@ import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerShort;
 import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerizer;
+import org.broadinstitute.hellbender.tools.spark.utils.BlockedLongBloomFilter;
 import org.broadinstitute.hellbender.tools.spark.utils.LargeLongHopscotchSet;
 import org.broadinstitute.hellbender.tools.spark.utils.LongBloomFilter;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
 import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
 
 import java.io.IOException;
@@ -27,6 +29,8 @@ public class PSKmerUtils {
 
     public static final String HOPSCOTCH_SET_EXTENSION = ".hss";
     public static final String BLOOM_FILTER_EXTENSION = ".bfi";
+    public static final String BLOCKED_BLOOM_FILTER_EXTENSION = ".bbf";
+    public static final String MAPPED_HOPSCOTCH_SET_EXTENSION = ".mhs";
     private static final Logger logger = LogManager.getLogger(PSKmerUtils.class);
 
     /**
@@ -101,6 +105,19 @@ public class PSKmerUtils {
         return bloomFilter;
     }
 
+    /**
+     * Converts a Collection of Lists of Longs's into a blocked Bloom filter
+     */
+    protected static BlockedLongBloomFilter longArrayCollectionToBlockedBloomFilter(final Collection<long[]> longs, final long numLongs, final double bloomFpp) {
+        final BlockedLongBloomFilter bloomFilter = new BlockedLongBloomFilter(numLongs, bloomFpp);
+        final ProgressCounter counter = new ProgressCounter(numLongs, 1e6, "million kmers", logger);
+        for (final long[] array : longs) {
+            bloomFilter.addAll(array);
+            counter.update(array.length);
+        }
+        return bloomFilter;
+    }
+
     /**
      * Writes an object to a URI using Kryo serialization.
      */
@@ -127,7 +144,35 @@ public class PSKmerUtils {
         writeKryoObject(bloomFilter, filePath);
     }
 
+    /**
+     * Writes a blocked Bloom filter in its memory-mappable format, which must be on local disk to be read.
+     */
+    public static void writeKmerBlockedBloomFilter(final String uri, final PSKmerBlockedBloomFilter bloomFilter) {
+        String filePath = uri;
+        if (!uri.toLowerCase().endsWith(BLOCKED_BLOOM_FILTER_EXTENSION.toLowerCase())) {
+            filePath = filePath + BLOCKED_BLOOM_FILTER_EXTENSION;
+        }
+        bloomFilter.write(IOUtils.getPath(filePath));
+    }
+
+    /**
+     * Writes a hash set in its memory-mappable format, which must be on local disk to be read.
+     */
+    public static void writeKmerMappedSet(final String uri, final LargeLongHopscotchSet maskedKmerSet,
+                                          final int kmerSize, final SVKmerShort kmerMask) {
+        String filePath = uri;
+        if (!uri.toLowerCase().endsWith(MAPPED_HOPSCOTCH_SET_EXTENSION.toLowerCase())) {
+            filePath = filePath + MAPPED_HOPSCOTCH_SET_EXTENSION;
+        }
+        PSKmerMappedSet.write(maskedKmerSet, kmerSize, kmerMask, IOUtils.getPath(filePath));
+    }
+
     public static PSKmerCollection readKmerFilter(final String uri) {
+        if (uri.endsWith(BLOCKED_BLOOM_FILTER_EXTENSION)) {
+            return PSKmerBlockedBloomFilter.open(uri);
+        } else if (uri.endsWith(MAPPED_HOPSCOTCH_SET_EXTENSION)) {
+            return PSKmerMappedSet.open(uri);
+        }
         final Input input = new Input(BucketUtils.openFile(uri));
         final Kryo kryo = new Kryo();
         if (uri.endsWith(HOPSCOTCH_SET_EXTENSION)) {
@@ -26,6 +26,8 @@ public final class PSScoreArgumentCollection implements Serializable {
     public static final String NOT_NORMALIZED_BY_KINGDOM_SHORT_NAME = NOT_NORMALIZED_BY_KINGDOM_LONG_NAME;
     public static final String SCORE_READS_PER_PARTITION_LONG_NAME = "score-reads-per-partition-estimate";
     public static final String SCORE_READS_PER_PARTITION_SHORT_NAME = SCORE_READS_PER_PARTITION_LONG_NAME;
+    public static final String AGGREGATE_SCORES_BY_PARTITION_LONG_NAME = "aggregate-scores-by-partition";
+    public static final String AGGREGATE_SCORES_BY_PARTITION_SHORT_NAME = AGGREGATE_SCORES_BY_PARTITION_LONG_NAME;
 
     @Argument(doc = "URI for the taxonomic scores output",
             fullName = SCORES_OUTPUT_LONG_NAME,
@@ -102,6 +104,18 @@ public final class PSScoreArgumentCollection implements Serializable {
             optional = true)
     public int readsPerPartitionEstimate = 200000;
 
+    /**
+     * Instead of broadcasting the taxonomy database and reducing per-taxon scores by key, writes the tree and
+     * accessions to a compact file that each executor memory-maps on first use, sums the scores of each partition
+     * into a primitive table, and merges the tables with a tree reduction. Results are the same, up to rounding.
+     */
+    @Advanced
+    @Argument(doc = "Aggregate taxon scores within each partition and tree-reduce them",
+            fullName = AGGREGATE_SCORES_BY_PARTITION_LONG_NAME,
+            shortName = AGGREGATE_SCORES_BY_PARTITION_SHORT_NAME,
+            optional = true)
+    public boolean aggregateScoresByPartition = false;
+
     /**
      * If specified, records the following metrics:
      * <ul>
@@ -5,6 +5,7 @@ import com.esotericsoftware.kryo.io.Input;
 import htsjdk.samtools.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.spark.SparkFiles;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
@@ -13,12 +14,15 @@ import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.spark.sv.utils.SVUtils;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import scala.Tuple2;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -46,29 +50,52 @@ public final class PSScorer {
 
         //Load taxonomy database, created by running PathSeqBuildReferenceTaxonomy with this reference
         final PSTaxonomyDatabase taxDB = readTaxonomyDatabase(scoreArgs.taxonomyDatabasePath);
-        final Broadcast<PSTaxonomyDatabase> taxonomyDatabaseBroadcast = ctx.broadcast(taxDB);
 
         //Check header against database
         if (scoreArgs.headerWarningFile != null) {
             writeMissingReferenceAccessions(scoreArgs.headerWarningFile, header, taxDB, logger);
         }
 
-        //Determine which alignments are valid hits and return their tax IDs in PSPathogenAlignmentHit
-        //Also adds pathseq tags containing the hit IDs to the reads
-        final JavaRDD<Tuple2<Iterable<GATKRead>, PSPathogenAlignmentHit>> readHits = mapGroupedReadsToTax(groupedReads,
-                scoreArgs.minIdentity, scoreArgs.identityMargin, taxonomyDatabaseBroadcast);
+        final boolean divideByGenomeLength = scoreArgs.divideByGenomeLength; //To prevent serialization of PSScorer
+        final JavaRDD<Tuple2<Iterable<GATKRead>, PSPathogenAlignmentHit>> readHits;
+        Map<Integer, PSPathogenTaxonScore> taxScoresMap;
+        if (scoreArgs.aggregateScoresByPartition) {
+
+            //Ship the compact taxonomy to the executors as a file, which each one maps when it's first needed
+            final PSScoringTaxonomy scoringTaxonomy = PSScoringTaxonomy.fromDatabase(taxDB);
+            final File scoringTaxonomyFile = IOUtils.createTempFile("scoringTaxonomy", PSScoringTaxonomy.EXTENSION);
+            scoringTaxonomy.write(scoringTaxonomyFile.toPath());
+            ctx.addFile(scoringTaxonomyFile.getAbsolutePath());
+            final String scoringTaxonomyFileName = scoringTaxonomyFile.getName();
+
+            readHits = mapGroupedReadsToTax(groupedReads, scoreArgs.minIdentity, scoreArgs.identityMargin, scoringTaxonomyFileName);
+
+            //Sum the scores of each partition, then merge the per-partition tables
+            final PSTaxonScoreTable taxScoresTable = readHits.map(Tuple2::_2)
+                    .mapPartitions(iter -> Collections.singletonList(computeTaxScoreTable(iter,
+                            openScoringTaxonomy(scoringTaxonomyFileName), divideByGenomeLength)).iterator())
+                    .treeAggregate(new PSTaxonScoreTable(), PSTaxonScoreTable::merge, PSTaxonScoreTable::merge);
+            taxScoresMap = taxScoresTable.toTaxonScores(scoringTaxonomy);
+        } else {
+            final Broadcast<PSTaxonomyDatabase> taxonomyDatabaseBroadcast = ctx.broadcast(taxDB);
+
+            //Determine which alignments are valid hits and return their tax IDs in PSPathogenAlignmentHit
+            //Also adds pathseq tags containing the hit IDs to the reads
+            readHits = mapGroupedReadsToTax(groupedReads, scoreArgs.minIdentity, scoreArgs.identityMargin, taxonomyDatabaseBroadcast);
+
+            //Compute taxonomic scores from the alignment hits
+            final JavaRDD<PSPathogenAlignmentHit> alignmentHits = readHits.map(Tuple2::_2);
+            final JavaPairRDD<Integer, PSPathogenTaxonScore> taxScoresRdd = alignmentHits
+                    .mapPartitionsToPair(iter -> computeTaxScores(iter, taxonomyDatabaseBroadcast.value(), divideByGenomeLength));
+
+            //Reduce scores by taxon
+            taxScoresMap = new HashMap<>(taxScoresRdd.reduceByKey(PSPathogenTaxonScore::add).collectAsMap());
+        }
 
         //Get the original reads, now with their pathseq hit tags set
         final JavaRDD<GATKRead> readsFinal = flattenIterableKeys(readHits);
 
-        //Compute taxonomic scores from the alignment hits
-        final JavaRDD<PSPathogenAlignmentHit> alignmentHits = readHits.map(Tuple2::_2);
-        final boolean divideByGenomeLength = scoreArgs.divideByGenomeLength; //To prevent serialization of PSScorer
-        final JavaPairRDD<Integer, PSPathogenTaxonScore> taxScoresRdd = alignmentHits
-                .mapPartitionsToPair(iter -> computeTaxScores(iter, taxonomyDatabaseBroadcast.value(), divideByGenomeLength));
-
-        //Reduce scores by taxon and compute normalized scores
-        Map<Integer, PSPathogenTaxonScore> taxScoresMap = new HashMap<>(taxScoresRdd.reduceByKey(PSPathogenTaxonScore::add).collectAsMap());
+        //Compute normalized scores
         taxScoresMap = computeNormalizedScores(taxScoresMap, taxDB.tree, scoreArgs.notNormalizedByKingdom);
 
         //Write scores to file
@@ -168,41 +195,73 @@ public final class PSScorer {
                                                                                             final double minIdentity,
                                                                                             final double identityMargin,
                                                                                             final Broadcast<PSTaxonomyDatabase> taxonomyDatabaseBroadcast) {
-        return pairs.map(readIter -> {
+        return pairs.map(readIter -> mapReadsToTax(readIter, minIdentity, identityMargin,
+                taxonomyDatabaseBroadcast.value().accessionToTaxId::get));
+    }
+
+    /**
+     * Same as above, but looks up accessions in the scoring taxonomy file that was added to the Spark context under
+     * the given name.
+     */
+    static JavaRDD<Tuple2<Iterable<GATKRead>, PSPathogenAlignmentHit>> mapGroupedReadsToTax(final JavaRDD<Iterable<GATKRead>> pairs,
+                                                                                            final double minIdentity,
+                                                                                            final double identityMargin,
+                                                                                            final String scoringTaxonomyFileName) {
+        return pairs.mapPartitions(iter -> {
+            final PSScoringTaxonomy taxonomy = openScoringTaxonomy(scoringTaxonomyFileName);
+            return Utils.stream(iter)
+                    .map(readIter -> mapReadsToTax(readIter, minIdentity, identityMargin, taxonomy::getTaxIdOfAccession))
+                    .iterator();
+        });
+    }
 
-            //Number of reads in the pair (1 for unpaired reads)
-            final int numReads = (int) Utils.stream(readIter).count();
+    /**
+     * Maps the scoring taxonomy file that was added to the Spark context under the given name
+     */
+    private static PSScoringTaxonomy openScoringTaxonomy(final String scoringTaxonomyFileName) {
+        return PSScoringTaxonomy.open(IOUtils.getPath(SparkFiles.get(scoringTaxonomyFileName)));
+    }
 
-            //Get tax IDs of all alignments in all reads that meet the coverage/identity criteria.
-            final Stream<Integer> taxIds = Utils.stream(readIter)
-                    .flatMap(read -> getValidHits(read, taxonomyDatabaseBroadcast.value(), minIdentity, identityMargin).stream());
+    /**
+     * Helper for mapGroupedReadsToTax()
+     */
+    private static Tuple2<Iterable<GATKRead>, PSPathogenAlignmentHit> mapReadsToTax(final Iterable<GATKRead> readIter,
+                                                                                    final double minIdentity,
+                                                                                    final double identityMargin,
+                                                                                    final Function<String, Integer> accessionToTaxId) {
 
-            //Get list of tax IDs that are hits in all reads
-            final List<Integer> hitTaxIds;
-            if (numReads > 1) {
+        //Number of reads in the pair (1 for unpaired reads)
+        final int numReads = (int) Utils.stream(readIter).count();
 
-                //Group the flattened stream by tax id, e.g. 3453 -> {3453, 3453}, 938 -> {938}, etc., so that the
-                // length of the list is the number of reads with that tax ID. Then map the lists to list lengths.
-                final Map<Integer, Long> taxIdCounts = taxIds.collect(Collectors.groupingBy(e -> e, Collectors.counting()));
+        //Get tax IDs of all alignments in all reads that meet the coverage/identity criteria.
+        final Stream<Integer> taxIds = Utils.stream(readIter)
+                .flatMap(read -> getValidHits(read, accessionToTaxId, minIdentity, identityMargin).stream());
 
-                //Filter hits that didn't occur in all reads
-                hitTaxIds = taxIdCounts.entrySet().stream().map(entry -> entry.getValue() == numReads ? entry.getKey() : null)
-                        .filter(Objects::nonNull).collect(Collectors.toList());
+        //Get list of tax IDs that are hits in all reads
+        final List<Integer> hitTaxIds;
+        if (numReads > 1) {
 
-            } else {
-                //Unpaired reads
-                hitTaxIds = taxIds.collect(Collectors.toList());
-            }
+            //Group the flattened stream by tax id, e.g. 3453 -> {3453, 3453}, 938 -> {938}, etc., so that the
+            // length of the list is the number of reads with that tax ID. Then map the lists to list lengths.
+            final Map<Integer, Long> taxIdCounts = taxIds.collect(Collectors.groupingBy(e -> e, Collectors.counting()));
 
-            final PSPathogenAlignmentHit info = new PSPathogenAlignmentHit(hitTaxIds, numReads);
+            //Filter hits that didn't occur in all reads
+            hitTaxIds = taxIdCounts.entrySet().stream().map(entry -> entry.getValue() == numReads ? entry.getKey() : null)
+                    .filter(Objects::nonNull).collect(Collectors.toList());
 
-            //If there was at least one hit, append a tag to each read with the list of hits
-            if (hitTaxIds.size() > 0) {
-                final String hitString = String.join(",", hitTaxIds.stream().map(String::valueOf).collect(Collectors.toList()));
-                Utils.stream(readIter).forEach(read -> read.setAttribute(HITS_TAG, hitString));
-            }
-            return new Tuple2<>(readIter, info);
-        });
+        } else {
+            //Unpaired reads
+            hitTaxIds = taxIds.collect(Collectors.toList());
+        }
+
+        final PSPathogenAlignmentHit info = new PSPathogenAlignmentHit(hitTaxIds, numReads);
+
+        //If there was at least one hit, append a tag to each read with the list of hits
+        if (hitTaxIds.size() > 0) {
+            final String hitString = String.join(",", hitTaxIds.stream().map(String::valueOf).collect(Collectors.toList()));
+            Utils.stream(readIter).forEach(read -> read.setAttribute(HITS_TAG, hitString));
+        }
+        return new Tuple2<>(readIter, info);
     }
 
 
@@ -210,7 +269,7 @@ public final class PSScorer {
      * Gets set of sufficiently well-mapped hits
      */
     private static Set<Integer> getValidHits(final GATKRead read,
-                                            final PSTaxonomyDatabase taxonomyDatabase,
+                                            final Function<String, Integer> accessionToTaxId,
                                             final double minIdentity,
                                             final double identityMargin) {
 
@@ -243,7 +302,7 @@ public final class PSScorer {
 
         //Throw out duplicates and accessions not in the taxonomic database so it returns a list of unique tax ID's
         // for each read in the pair
-        return bestHits.stream().map(hit -> taxonomyDatabase.accessionToTaxId.getOrDefault(hit.getAccession(), null))
+        return bestHits.stream().map(hit -> accessionToTaxId.apply(hit.getAccession()))
                 .filter(Objects::nonNull).collect(Collectors.toSet());
     }
 
@@ -337,6 +396,90 @@ public final class PSScorer {
         return taxIdsToScores.entrySet().stream().map(entry -> new Tuple2<>(entry.getKey(), entry.getValue())).iterator();
     }
 
+    /**
+     * Same as computeTaxScores(), but sums the scores into a primitive table keyed by the node indices of the scoring
+     * taxonomy, walking paths to the root by parent index.
+     */
+    static PSTaxonScoreTable computeTaxScoreTable(final Iterator<PSPathogenAlignmentHit> taxonHits,
+                                                  final PSScoringTaxonomy taxonomy,
+                                                  final boolean divideByGenomeLength) {
+        final PSTaxonScoreTable scores = new PSTaxonScoreTable();
+        final Set<Integer> invalidIds = new HashSet<>();
+        int[] hitNodes = new int[16];
+        int[] hitPathNodes = new int[64];
+        while (taxonHits.hasNext()) {
+            final PSPathogenAlignmentHit hit = taxonHits.next();
+
+            //Get the distinct nodes hit by this read, leaving out invalid ones
+            if (hitNodes.length < hit.taxIDs.size()) {
+                hitNodes = new int[hit.taxIDs.size()];
+            }
+            int numHits = 0;
+            for (final int taxId : hit.taxIDs) {
+                final int node = taxonomy.indexOf(taxId);
+                if (node < 0 || taxonomy.lengthOf(node) == 0) {
+                    invalidIds.add(taxId);
+                } else {
+                    hitNodes[numHits++] = node;
+                }
+            }
+            Arrays.sort(hitNodes, 0, numHits);
+            numHits = unique(hitNodes, numHits);
+            if (numHits == 0) continue;
+
+            //Unambiguous read scores for the lowest common ancestor and its ancestors
+            int lowestCommonAncestor = hitNodes[0];
+            for (int i = 1; i < numHits; i++) {
+                lowestCommonAncestor = taxonomy.getLCA(lowestCommonAncestor, hitNodes[i]);
+            }
+            for (int node = lowestCommonAncestor; node != -1; node = taxonomy.parentOf(node)) {
+                scores.addUnambiguousReads(node, hit.numMates);
+            }
+
+            //Scores normalized by genome length and degree of ambiguity (number of hits)
+            int numPathNodes = 0;
+            for (int i = 0; i < numHits; i++) {
+                final int hitNode = hitNodes[i];
+                double score = hit.numMates / (double) numHits;
+                if (divideByGenomeLength) score *= SCORE_GENOME_LENGTH_UNITS / taxonomy.lengthOf(hitNode);
+                scores.addSelfScore(hitNode, score);
+                for (int node = hitNode; node != -1; node = taxonomy.parentOf(node)) {
+                    if (node != hitNode) {
+                        scores.addDescendentScore(node, score);
+                    }
+                    if (numPathNodes == hitPathNodes.length) {
+                        hitPathNodes = Arrays.copyOf(hitPathNodes, 2 * numPathNodes);
+                    }
+                    hitPathNodes[numPathNodes++] = node;
+                }
+            }
+
+            //"reads" score is the number of reads that COULD belong to each node i.e. an upper-bound
+            Arrays.sort(hitPathNodes, 0, numPathNodes);
+            numPathNodes = unique(hitPathNodes, numPathNodes);
+            for (int i = 0; i < numPathNodes; i++) {
+                scores.addTotalReads(hitPathNodes[i], hit.numMates);
+            }
+        }
+        PSUtils.logItemizedWarning(logger, invalidIds, "The following taxonomic ID hits were ignored because " +
+                "they either could not be found in the tree or had a reference length of 0 (this may happen when " +
+                "the catalog file, taxdump file, and/or pathogen reference are inconsistent)");
+        return scores;
+    }
+
+    /**
+     * Removes adjacent duplicates from the first length values of a sorted array, and returns the new length.
+     */
+    private static int unique(final int[] sortedValues, final int length) {
+        int newLength = 0;
+        for (int i = 0; i < length; i++) {
+            if (newLength == 0 || sortedValues[newLength - 1] != sortedValues[i]) {
+                sortedValues[newLength++] = sortedValues[i];
+            }
+        }
+        return newLength;
+    }
+
     /**
      * Assigns scores normalized to 100%. For each taxon, its normalized score is own score divided by the sum
      * over all scores, plus the sum of its childrens' normalized scores. If normalizeByKingdom is true,
@@ -0,0 +1,302 @@
+package org.broadinstitute.hellbender.tools.spark.pathseq;
+
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.spark.utils.MappedFileCache;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The parts of a {@link PSTaxonomyDatabase} that are needed to score reads, encoded in flat arrays so that a file
+ * holding them can be memory-mapped rather than deserialized.
+ * <p>
+ * Nodes are identified by their index in the array of sorted taxonomic IDs, and each node's parent is stored as an
+ * index, so walking a path to the root never touches a hash map. Names and ranks are not included; they're only
+ * needed on the driver to write the scores. All values are little-endian:
+ * <pre>
+ *     int   magic ("PST1")
+ *     int   version
+ *     int   number of nodes
+ *     int   number of accessions
+ *     long[nodes] reference length of each node
+ *     int[nodes]  taxonomic ID of each node, in ascending order
+ *     int[nodes]  index of each node's parent (-1 for the root)
+ *     int[nodes]  depth of each node (0 for the root)
+ *     int[accessions] taxonomic ID of each accession, in the byte order of the accessions
+ *     int[accessions + 1] offset of each accession in the accession bytes
+ *     byte[] accessions, in UTF-8
+ * </pre>
+ * Lookups use absolute gets only, so a mapped taxonomy can be shared by any number of threads.
+ */
+public final class PSScoringTaxonomy {
+
+    public static final String EXTENSION = ".pst";
+    private static final int MAGIC = 0x50535431; // "PST1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final MappedFileCache<PSScoringTaxonomy> OPEN_TAXONOMIES = new MappedFileCache<>(PSScoringTaxonomy::map);
+
+    private final ByteBuffer buffer;
+    private final int numNodes;
+    private final int numAccessions;
+    private final int lengthsStart, taxIdsStart, parentsStart, depthsStart;
+    private final int accessionTaxIdsStart, accessionOffsetsStart, accessionBytesStart;
+
+    private PSScoringTaxonomy(final ByteBuffer buffer, final String source) {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new UserException.BadInput(source + " is not a PathSeq scoring taxonomy");
+        }
+        final int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new UserException.BadInput(source + " is a PathSeq scoring taxonomy of unsupported version " + version);
+        }
+        numNodes = buffer.getInt(8);
+        numAccessions = buffer.getInt(12);
+        lengthsStart = HEADER_BYTES;
+        taxIdsStart = lengthsStart + Long.BYTES * numNodes;
+        parentsStart = taxIdsStart + Integer.BYTES * numNodes;
+        depthsStart = parentsStart + Integer.BYTES * numNodes;
+        accessionTaxIdsStart = depthsStart + Integer.BYTES * numNodes;
+        accessionOffsetsStart = accessionTaxIdsStart + Integer.BYTES * numAccessions;
+        accessionBytesStart = accessionOffsetsStart + Integer.BYTES * (numAccessions + 1);
+        if (accessionBytesStart > buffer.limit() ||
+                accessionBytesStart + (long) buffer.getInt(accessionOffsetsStart + Integer.BYTES * numAccessions) != buffer.limit()) {
+            throw new UserException.BadInput(source + " is a truncated PathSeq scoring taxonomy");
+        }
+    }
+
+    /**
+     * Encodes the tree and accessions of a taxonomy database.
+     */
+    public static PSScoringTaxonomy fromDatabase(final PSTaxonomyDatabase taxonomyDatabase) {
+        return new PSScoringTaxonomy(encode(taxonomyDatabase), "taxonomy database");
+    }
+
+    /**
+     * Maps a file written by {@link #write}, or reuses the mapping if this JVM has already opened it.
+     */
+    public static PSScoringTaxonomy open(final Path path) {
+        return OPEN_TAXONOMIES.open(path);
+    }
+
+    private static PSScoringTaxonomy map(final Path path) {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new UserException.BadInput(path + " is too large to be a PathSeq scoring taxonomy");
+            }
+            return new PSScoringTaxonomy(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), path.toString());
+        } catch (final IOException e) {
+            throw new UserException.CouldNotReadInputFile(path, e);
+        }
+    }
+
+    public void write(final Path path) {
+        Utils.nonNull(path);
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final ByteBuffer contents = buffer.duplicate();
+            contents.clear();
+            while (contents.hasRemaining()) {
+                channel.write(contents);
+            }
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(path.toString(), "Could not write the scoring taxonomy", e);
+        }
+    }
+
+    private static ByteBuffer encode(final PSTaxonomyDatabase taxonomyDatabase) {
+        Utils.nonNull(taxonomyDatabase);
+        final PSTree tree = taxonomyDatabase.tree;
+        final int[] taxIds = tree.getNodeIDs().stream().mapToInt(Integer::intValue).sorted().toArray();
+        final int numNodes = taxIds.length;
+        final int[] parents = new int[numNodes];
+        for (int node = 0; node < numNodes; node++) {
+            final int parentId = tree.getParentOf(taxIds[node]);
+            if (parentId == PSTree.NULL_NODE) {
+                parents[node] = -1;
+            } else {
+                parents[node] = Arrays.binarySearch(taxIds, parentId);
+                if (parents[node] < 0) {
+                    throw new UserException.BadInput("Parent node " + parentId + " not found in tree");
+                }
+            }
+        }
+        final int[] depths = computeDepths(parents);
+
+        final Map<String, Integer> accessionToTaxId = taxonomyDatabase.accessionToTaxId == null ?
+                new HashMap<>() : taxonomyDatabase.accessionToTaxId;
+        final byte[][] accessions = accessionToTaxId.keySet().stream()
+                .map(accession -> accession.getBytes(StandardCharsets.UTF_8))
+                .sorted(PSScoringTaxonomy::compareUnsigned)
+                .toArray(byte[][]::new);
+        final long accessionBytes = Arrays.stream(accessions).mapToLong(bytes -> bytes.length).sum();
+
+        final long totalBytes = HEADER_BYTES + (long) numNodes * (Long.BYTES + 3 * Integer.BYTES) +
+                (2L * accessions.length + 1) * Integer.BYTES + accessionBytes;
+        if (totalBytes > Integer.MAX_VALUE) {
+            throw new GATKException("The taxonomy database is too large to encode for scoring: " + totalBytes + " bytes");
+        }
+        final ByteBuffer buffer = ByteBuffer.allocateDirect((int) totalBytes).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(numNodes).putInt(accessions.length);
+        for (final int taxId : taxIds) {
+            buffer.putLong(tree.getLengthOf(taxId));
+        }
+        for (final int taxId : taxIds) {
+            buffer.putInt(taxId);
+        }
+        for (final int parent : parents) {
+            buffer.putInt(parent);
+        }
+        for (final int depth : depths) {
+            buffer.putInt(depth);
+        }
+        for (final byte[] accession : accessions) {
+            buffer.putInt(accessionToTaxId.get(new String(accession, StandardCharsets.UTF_8)));
+        }
+        int offset = 0;
+        for (final byte[] accession : accessions) {
+            buffer.putInt(offset);
+            offset += accession.length;
+        }
+        buffer.putInt(offset);
+        for (final byte[] accession : accessions) {
+            buffer.put(accession);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    private static int[] computeDepths(final int[] parents) {
+        final int[] depths = new int[parents.length];
+        Arrays.fill(depths, -1);
+        final int[] stack = new int[parents.length];
+        for (int node = 0; node < parents.length; node++) {
+            int stackSize = 0;
+            int ancestor = node;
+            while (ancestor != -1 && depths[ancestor] == -1) {
+                if (stackSize == parents.length) {
+                    throw new UserException.BadInput("The tree contains a cycle at node index " + node);
+                }
+                stack[stackSize++] = ancestor;
+                ancestor = parents[ancestor];
+            }
+            int depth = ancestor == -1 ? -1 : depths[ancestor];
+            while (stackSize > 0) {
+                depths[stack[--stackSize]] = ++depth;
+            }
+        }
+        return depths;
+    }
+
+    private static int compareUnsigned(final byte[] a, final byte[] b) {
+        final int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            final int diff = (a[i] & 0xff) - (b[i] & 0xff);
+            if (diff != 0) return diff;
+        }
+        return a.length - b.length;
+    }
+
+    public int numNodes() {
+        return numNodes;
+    }
+
+    /**
+     * Returns the index of the node with the given taxonomic ID, or a negative number if there is no such node.
+     */
+    public int indexOf(final int taxId) {
+        int low = 0;
+        int high = numNodes - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int midTaxId = taxIdOf(mid);
+            if (midTaxId < taxId) {
+                low = mid + 1;
+            } else if (midTaxId > taxId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public int taxIdOf(final int node) {
+        return buffer.getInt(taxIdsStart + Integer.BYTES * node);
+    }
+
+    /**
+     * Returns the index of the node's parent, or -1 for the root.
+     */
+    public int parentOf(final int node) {
+        return buffer.getInt(parentsStart + Integer.BYTES * node);
+    }
+
+    public int depthOf(final int node) {
+        return buffer.getInt(depthsStart + Integer.BYTES * node);
+    }
+
+    public long lengthOf(final int node) {
+        return buffer.getLong(lengthsStart + Long.BYTES * node);
+    }
+
+    /**
+     * Returns the index of the lowest common ancestor of two nodes.
+     */
+    public int getLCA(int nodeA, int nodeB) {
+        while (depthOf(nodeA) > depthOf(nodeB)) nodeA = parentOf(nodeA);
+        while (depthOf(nodeB) > depthOf(nodeA)) nodeB = parentOf(nodeB);
+        while (nodeA != nodeB) {
+            nodeA = parentOf(nodeA);
+            nodeB = parentOf(nodeB);
+            //Only possible if the tree has more than one root, which it can't once its structure has been checked
+            if (nodeA == -1 || nodeB == -1) {
+                throw new GATKException.ShouldNeverReachHereException("Could not find common ancester of node set.");
+            }
+        }
+        return nodeA;
+    }
+
+    /**
+     * Returns the taxonomic ID of the given reference accession, or null if the accession is unknown.
+     */
+    public Integer getTaxIdOfAccession(final String accession) {
+        final byte[] key = accession.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = numAccessions - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int cmp = compareAccession(mid, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return buffer.getInt(accessionTaxIdsStart + Integer.BYTES * mid);
+            }
+        }
+        return null;
+    }
+
+    private int compareAccession(final int accessionIndex, final byte[] key) {
+        final int start = buffer.getInt(accessionOffsetsStart + Integer.BYTES * accessionIndex);
+        final int end = buffer.getInt(accessionOffsetsStart + Integer.BYTES * (accessionIndex + 1));
+        final int length = Math.min(end - start, key.length);
+        for (int i = 0; i < length; i++) {
+            final int diff = (buffer.get(accessionBytesStart + start + i) & 0xff) - (key[i] & 0xff);
+            if (diff != 0) return diff;
+        }
+        return (end - start) - key.length;
+    }
+}
@@ -0,0 +1,141 @@
+package org.broadinstitute.hellbender.tools.spark.pathseq;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unnormalized taxon scores keyed by the node index of a {@link PSScoringTaxonomy}, held in primitive arrays.
+ * <p>
+ * Scores for a partition of reads are accumulated into one of these, and the tables of all partitions are merged
+ * with a tree reduction, so only one small table per partition ever leaves an executor. The table is an open-addressing
+ * hash table with linear probing, and the scores for the key in each slot are stored in parallel arrays.
+ */
+public final class PSTaxonScoreTable implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final int NO_KEY = -1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int size = 0;
+    private int[] keys;
+    private double[] selfScores;
+    private double[] descendentScores;
+    private int[] totalReads;
+    private int[] unambiguousReads;
+
+    public PSTaxonScoreTable() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(final int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, NO_KEY);
+        selfScores = new double[capacity];
+        descendentScores = new double[capacity];
+        totalReads = new int[capacity];
+        unambiguousReads = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void addSelfScore(final int node, final double score) {
+        selfScores[slotOf(node)] += score;
+    }
+
+    public void addDescendentScore(final int node, final double score) {
+        descendentScores[slotOf(node)] += score;
+    }
+
+    public void addTotalReads(final int node, final int reads) {
+        totalReads[slotOf(node)] += reads;
+    }
+
+    public void addUnambiguousReads(final int node, final int reads) {
+        unambiguousReads[slotOf(node)] += reads;
+    }
+
+    /**
+     * Adds the scores of another table to this one.
+     * @return this table
+     */
+    public PSTaxonScoreTable merge(final PSTaxonScoreTable other) {
+        Utils.nonNull(other);
+        for (int otherSlot = 0; otherSlot < other.keys.length; otherSlot++) {
+            if (other.keys[otherSlot] != NO_KEY) {
+                final int slot = slotOf(other.keys[otherSlot]);
+                selfScores[slot] += other.selfScores[otherSlot];
+                descendentScores[slot] += other.descendentScores[otherSlot];
+                totalReads[slot] += other.totalReads[otherSlot];
+                unambiguousReads[slot] += other.unambiguousReads[otherSlot];
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Converts the table to the taxonomic ID-keyed scores used for normalization and output.
+     */
+    public Map<Integer, PSPathogenTaxonScore> toTaxonScores(final PSScoringTaxonomy taxonomy) {
+        Utils.nonNull(taxonomy);
+        final Map<Integer, PSPathogenTaxonScore> taxScores = new HashMap<>(size * 2);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != NO_KEY) {
+                final PSPathogenTaxonScore score = new PSPathogenTaxonScore();
+                score.setReferenceLength(taxonomy.lengthOf(keys[slot]));
+                score.addSelfScore(selfScores[slot]);
+                score.addDescendentScore(descendentScores[slot]);
+                score.addTotalReads(totalReads[slot]);
+                score.addUnambiguousReads(unambiguousReads[slot]);
+                taxScores.put(taxonomy.taxIdOf(keys[slot]), score);
+            }
+        }
+        return taxScores;
+    }
+
+    /**
+     * Returns the slot holding the given node, adding the node if it's not already in the table.
+     */
+    private int slotOf(final int node) {
+        Utils.validateArg(node >= 0, "Node index must be non-negative");
+        final int mask = keys.length - 1;
+        int slot = (node * 0x9E3779B9) >>> 1 & mask;
+        while (keys[slot] != node) {
+            if (keys[slot] == NO_KEY) {
+                if (2 * (size + 1) > keys.length) {
+                    resize();
+                    return slotOf(node);
+                }
+                keys[slot] = node;
+                size += 1;
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        final int[] oldKeys = keys;
+        final double[] oldSelfScores = selfScores;
+        final double[] oldDescendentScores = descendentScores;
+        final int[] oldTotalReads = totalReads;
+        final int[] oldUnambiguousReads = unambiguousReads;
+        allocate(2 * oldKeys.length);
+        size = 0;
+        for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+            if (oldKeys[oldSlot] != NO_KEY) {
+                final int slot = slotOf(oldKeys[oldSlot]);
+                selfScores[slot] = oldSelfScores[oldSlot];
+                descendentScores[slot] = oldDescendentScores[oldSlot];
+                totalReads[slot] = oldTotalReads[oldSlot];
+                unambiguousReads[slot] = oldUnambiguousReads[oldSlot];
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.tools.spark.pathseq;
 
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import org.broadinstitute.barclay.help.DocumentedFeature;
@@ -8,6 +9,7 @@ import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.cmdline.programgroups.MetagenomicsProgramGroup;
 import org.broadinstitute.hellbender.engine.spark.datasources.ReferenceFileSparkSource;
 import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerShort;
+import org.broadinstitute.hellbender.tools.spark.utils.BlockedLongBloomFilter;
 import org.broadinstitute.hellbender.tools.spark.utils.LargeLongHopscotchSet;
 import org.broadinstitute.hellbender.tools.spark.utils.LongBloomFilter;
 
@@ -29,6 +31,15 @@ import java.util.Collection;
  * read is < 1.5%, but the amount of memory used is reduced 4-fold compared to a hash table. For this reason, Bloom
  * filters are generally recommended.</p>
  *
+ * <p>Bloom filters may also be built as blocked Bloom filters with --blocked-bloom-filter. Each k-mer is then looked up
+ * in a single cache line, which makes host k-mer filtering considerably faster, at the cost of a somewhat larger filter
+ * for the same false positive probability. Blocked Bloom filters are memory-mapped rather than loaded, so the
+ * file must be on the local disk of every machine that runs the PathSeq filter.</p>
+ *
+ * <p>Likewise, the hash table may be built with --mapped-hash-set, in which case it is memory-mapped by the PathSeq
+ * filter rather than deserialized, so that every task on a machine shares one copy of it. Its file, too, must be on the
+ * local disk of every machine that runs the PathSeq filter.</p>
+ *
  * <p>Note that the file formats used for storing these k-mer data structures are only readable by the PathSeq tools.</p>
  *
  * <h3>Input</h3>
@@ -86,10 +97,14 @@ public final class PathSeqBuildKmers extends CommandLineProgram {
     public static final String KMER_MASK_SHORT_NAME = "M";
     public static final String KMER_SPACING_LONG_NAME = "kmer-spacing";
     public static final String KMER_SPACING_SHORT_NAME = "SP";
+    public static final String BLOCKED_BLOOM_FILTER_LONG_NAME = "blocked-bloom-filter";
+    public static final String MAPPED_HASH_SET_LONG_NAME = "mapped-hash-set";
 
     @Argument(doc = "File for k-mer set output. Extension will be automatically added if not present ("
-            + PSKmerUtils.HOPSCOTCH_SET_EXTENSION + " for hash set or "
-            + PSKmerUtils.BLOOM_FILTER_EXTENSION + " for Bloom filter)",
+            + PSKmerUtils.HOPSCOTCH_SET_EXTENSION + " for hash set, "
+            + PSKmerUtils.MAPPED_HOPSCOTCH_SET_EXTENSION + " for memory-mapped hash set, "
+            + PSKmerUtils.BLOOM_FILTER_EXTENSION + " for Bloom filter, or "
+            + PSKmerUtils.BLOCKED_BLOOM_FILTER_EXTENSION + " for blocked Bloom filter)",
             shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
             fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME)
     public String outputFile;
@@ -146,6 +161,37 @@ public final class PathSeqBuildKmers extends CommandLineProgram {
             optional = true)
     public int kmerSpacing = 1;
 
+    /**
+     * A blocked Bloom filter keeps all the bits of each k-mer in one cache line, so that a lookup costs at most one
+     * cache miss. Its file is memory-mapped by the PathSeq filter and must be on local disk.
+     */
+    @Advanced
+    @Argument(doc = "Build a blocked Bloom filter (requires a non-zero --" + BLOOM_FILTER_FALSE_POSITIVE_P_LONG_NAME + ")",
+            fullName = BLOCKED_BLOOM_FILTER_LONG_NAME,
+            optional = true)
+    public boolean blockedBloomFilter = false;
+
+    /**
+     * A memory-mapped hash set is shared by all the tasks on a machine instead of being loaded by each of them. Its
+     * file is memory-mapped by the PathSeq filter and must be on local disk.
+     */
+    @Advanced
+    @Argument(doc = "Build a memory-mapped hash set (incompatible with a non-zero --" + BLOOM_FILTER_FALSE_POSITIVE_P_LONG_NAME + ")",
+            fullName = MAPPED_HASH_SET_LONG_NAME,
+            optional = true)
+    public boolean mappedHashSet = false;
+
+    @Override
+    protected String[] customCommandLineValidation() {
+        if (blockedBloomFilter && bloomFpp == 0) {
+            return new String[]{"--" + BLOCKED_BLOOM_FILTER_LONG_NAME + " requires a non-zero --" + BLOOM_FILTER_FALSE_POSITIVE_P_LONG_NAME};
+        }
+        if (mappedHashSet && bloomFpp > 0) {
+            return new String[]{"--" + MAPPED_HASH_SET_LONG_NAME + " cannot be used with a non-zero --" + BLOOM_FILTER_FALSE_POSITIVE_P_LONG_NAME};
+        }
+        return null;
+    }
+
     /**
      * Get the list of distinct kmers in the reference, and write them to a file as a HopScotch set or Bloom filter.
      */
@@ -160,7 +206,13 @@ public final class PathSeqBuildKmers extends CommandLineProgram {
         logger.info("Loading reference kmers...");
         final Collection<long[]> maskedKmerCollection = PSKmerUtils.getMaskedKmersFromLocalReference(reference, kmerSize, kmerSpacing, kmerMask);
         final long numLongs = PSKmerUtils.longArrayCollectionSize(maskedKmerCollection);
-        if (bloomFpp > 0) {
+        if (blockedBloomFilter && bloomFpp > 0) {
+            logger.info("Building blocked Bloom filter with false positive probability " + bloomFpp + "...");
+            final BlockedLongBloomFilter bloomFilter = PSKmerUtils.longArrayCollectionToBlockedBloomFilter(maskedKmerCollection, numLongs, bloomFpp);
+            final PSKmerBlockedBloomFilter kmerBloomFilter = new PSKmerBlockedBloomFilter(bloomFilter, kmerSize, kmerMask, numLongs);
+            logger.info("Theoretical Bloom filter false positive probability: " + kmerBloomFilter.getFalsePositiveProbability());
+            PSKmerUtils.writeKmerBlockedBloomFilter(outputFile, kmerBloomFilter);
+        } else if (bloomFpp > 0) {
             logger.info("Building Bloom filter with false positive probability " + bloomFpp + "...");
             final LongBloomFilter bloomFilter = PSKmerUtils.longArrayCollectionToBloomFilter(maskedKmerCollection, numLongs, bloomFpp);
             final PSKmerBloomFilter kmerBloomFilter = new PSKmerBloomFilter(bloomFilter, kmerSize, kmerMask, numLongs);
@@ -169,8 +221,12 @@ public final class PathSeqBuildKmers extends CommandLineProgram {
         } else {
             logger.info("Building kmer hash set...");
             final LargeLongHopscotchSet kmerHopscotchSet = PSKmerUtils.longArrayCollectionToSet(maskedKmerCollection, numLongs);
-            final PSKmerSet kmerSet = new PSKmerSet(kmerHopscotchSet, kmerSize, kmerMask);
-            PSKmerUtils.writeKmerSet(outputFile, kmerSet);
+            if (mappedHashSet) {
+                PSKmerUtils.writeKmerMappedSet(outputFile, kmerHopscotchSet, kmerSize, kmerMask);
+            } else {
+                final PSKmerSet kmerSet = new PSKmerSet(kmerHopscotchSet, kmerSize, kmerMask);
+                PSKmerUtils.writeKmerSet(outputFile, kmerSet);
+            }
         }
         return null;
     }
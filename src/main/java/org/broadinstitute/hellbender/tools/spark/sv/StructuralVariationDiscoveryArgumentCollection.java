@@ -105,6 +105,11 @@ public class StructuralVariationDiscoveryArgumentCollection implements Serializa
         @Argument(doc = "Don't look for extra reads mapped outside the interval.", fullName = "interval-only-assembly")
         public boolean intervalOnlyAssembly = false;
 
+        @Advanced
+        @Argument(doc = "Decode the input reads once, keeping only the fields used to gather evidence and to assemble, " +
+                "and run all later passes over that persisted projection instead of over the input.", fullName = "single-read-scan")
+        public boolean singleReadScan = false;
+
         @Argument(doc = "Weight to give external evidence.", fullName = "external-evidence-weight")
         public int externalEvidenceWeight = 10;
 
@@ -118,6 +123,12 @@ public class StructuralVariationDiscoveryArgumentCollection implements Serializa
                 fullName = "sv-evidence-filter-threshold-probability")
         public double svEvidenceFilterThresholdProbability = 0.92;
 
+        @Advanced
+        @Argument(doc = "Number of pieces of evidence to gather into a feature matrix and score together with the xgboost "
+                + "evidence filter.  0 means score each piece of evidence as it's examined.",
+                fullName = "sv-evidence-filter-batch-size")
+        public int svEvidenceFilterBatchSize = 0;
+
         @Argument(doc = "Filter method for selecting evidence to group into Assembly Intervals",
                 fullName = "sv-evidence-filter-type")
         public SvEvidenceFilterType svEvidenceFilterType = SvEvidenceFilterType.DENSITY;
@@ -142,6 +153,26 @@ public class StructuralVariationDiscoveryArgumentCollection implements Serializa
         @Advanced @Argument(doc = "ZDropoff (see Bwa mem manual) for contig alignment.", fullName = "z-dropoff")
         public int zDropoff = 20;
 
+        /**
+         * Intervals too large to assemble are skipped before assembly according to --max-fastq-size, whatever the
+         * number of threads.
+         */
+        @Advanced
+        @Argument(doc = "Number of threads on which to assemble the intervals of each Spark partition concurrently. " +
+                "Set this to the number of cores available to each task.", fullName = "assembly-threads")
+        public int assemblyThreads = 1;
+
+        /**
+         * An interval whose assembly runs longer than this is excused as unassembled, just as an interval that's too
+         * big is.  Whether an assembly times out depends on the speed and load of the machine, so a non-zero timeout
+         * makes the output vary from run to run.  (Native FermiLite and BWA code can't be interrupted, so a timed-out
+         * assembly still occupies its thread until it finishes; nothing waits for it, though.)
+         */
+        @Advanced
+        @Argument(doc = "Give up on the assembly of an interval after this many seconds (0 means never). " +
+                "A non-zero timeout makes the output depend on machine speed.", fullName = "assembly-timeout-seconds")
+        public int assemblyTimeoutSeconds = 0;
+
         @Argument(doc = "Allow evidence filter to run without gaps annotation (assume no gaps).", fullName = "run-without-gaps-annotation")
         public boolean runWithoutGapsAnnotation = false;
         @Argument(doc = "Allow evidence filter to run without annotation for single-read mappability of 100-mers (assume all mappable).",
@@ -256,6 +287,9 @@ public class StructuralVariationDiscoveryArgumentCollection implements Serializa
             ParamUtils.isPositive(cleanerMaxCopyNumber, "invalid value provided to cleanerMaxCopyNumber: " + cleanerMaxCopyNumber);
             ParamUtils.isPositive(assemblyToMappedSizeRatioGuess, "invalid value provided to assemblyToMappedSizeRatioGuess: " + assemblyToMappedSizeRatioGuess);
             ParamUtils.isPositive(maxFASTQSize, "invalid value provided to maxFASTQSize: " + maxFASTQSize);
+            ParamUtils.isPositive(assemblyThreads, "invalid value provided to assemblyThreads: " + assemblyThreads);
+            ParamUtils.isPositiveOrZero(assemblyTimeoutSeconds, "invalid value provided to assemblyTimeoutSeconds: " + assemblyTimeoutSeconds);
+            ParamUtils.isPositiveOrZero(svEvidenceFilterBatchSize, "invalid value provided to svEvidenceFilterBatchSize: " + svEvidenceFilterBatchSize);
             ParamUtils.isPositiveOrZero(exclusionIntervalPadding, "invalid value provided to exclusionIntervalPadding: " + exclusionIntervalPadding);
             ParamUtils.isPositive(externalEvidenceWeight, "invalid value provided to externalEvidenceWeight: " + externalEvidenceWeight);
             ParamUtils.isPositive(externalEvidenceUncertainty, "invalid value provided to externalEvidenceUncertainty: " + externalEvidenceUncertainty);
@@ -6,6 +6,7 @@ import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.google.common.annotations.VisibleForTesting;
 import htsjdk.samtools.Cigar;
+import htsjdk.samtools.SAMTag;
 import htsjdk.samtools.TextCigarCodec;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.tools.spark.sv.utils.SVInterval;
@@ -14,6 +15,7 @@ import org.broadinstitute.hellbender.tools.spark.sv.utils.TextMDCodec;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
@@ -31,6 +33,14 @@ import java.util.stream.Collectors;
 @DefaultSerializer(BreakpointEvidence.Serializer.class)
 public class BreakpointEvidence {
     private static final SVInterval.Serializer intervalSerializer = new SVInterval.Serializer();
+    private static final String MD_TAG_NAME = SAMTag.MD.name();
+    private static final String MQ_TAG_NAME = SAMTag.MQ.name();
+    private static final String MC_TAG_NAME = SAMTag.MC.name();
+
+    /** The optional fields of a read that the evidence made from the read depends on. */
+    public static final List<String> READ_TAGS_USED =
+            Collections.unmodifiableList(Arrays.asList(SplitRead.SA_TAG_NAME, MD_TAG_NAME, MQ_TAG_NAME, MC_TAG_NAME));
+
     private final SVInterval location;
     private final int weight;
     private boolean validated; // this piece of evidence is consistent with enough other evidence to be taken seriously
@@ -431,8 +441,8 @@ public class BreakpointEvidence {
 
         @VisibleForTesting static int getLeadingMismatches(final GATKRead read, final boolean fromStart) {
             int leadingMismatches = 0;
-            if (read.hasAttribute("MD")) {
-                final String mdString = read.getAttributeAsString("MD");
+            if (read.hasAttribute(MD_TAG_NAME)) {
+                final String mdString = read.getAttributeAsString(MD_TAG_NAME);
                 final List<TextMDCodec.MDElement> mdElements = TextMDCodec.parseMDString(mdString);
                 int idx = fromStart ? 0 : (mdElements.size() - 1);
                 while (fromStart ? (idx < mdElements.size()) : (idx >= 0)) {
@@ -825,8 +835,8 @@ public class BreakpointEvidence {
             super(read, metadata, weight);
             target = getMateTargetInterval(read, metadata);
             targetForwardStrand = getMateForwardStrand(read);
-            if (read.hasAttribute("MQ")) {
-                targetQuality = read.getAttributeAsInteger("MQ");
+            if (read.hasAttribute(MQ_TAG_NAME)) {
+                targetQuality = read.getAttributeAsInteger(MQ_TAG_NAME);
             } else {
                 targetQuality = Integer.MAX_VALUE;
             }
@@ -935,8 +945,8 @@ public class BreakpointEvidence {
 
             final int mateAlignmentLength;
             // if the read has an MC attribute we don't have to assume the aligned read length of the mate
-            if (read.hasAttribute("MC")) {
-                mateAlignmentLength = TextCigarCodec.decode(read.getAttributeAsString("MC")).getPaddedReferenceLength();
+            if (read.hasAttribute(MC_TAG_NAME)) {
+                mateAlignmentLength = TextCigarCodec.decode(read.getAttributeAsString(MC_TAG_NAME)).getPaddedReferenceLength();
             } else {
                 mateAlignmentLength = read.getLength();
             }
@@ -4,8 +4,11 @@ import com.google.common.annotations.VisibleForTesting;
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMSequenceDictionary;
 import org.apache.spark.HashPartitioner;
+import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.broadcast.Broadcast;
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.BetaFeature;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
@@ -18,8 +21,10 @@ import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.tools.spark.sv.StructuralVariationDiscoveryArgumentCollection;
 import org.broadinstitute.hellbender.tools.spark.sv.utils.*;
 import org.broadinstitute.hellbender.tools.spark.utils.HopscotchMap;
+import org.broadinstitute.hellbender.tools.spark.utils.LongCountMinSketch;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
+import org.broadinstitute.hellbender.utils.spark.SparkUtils;
 import scala.Tuple2;
 
 import java.io.BufferedReader;
@@ -27,6 +32,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -77,6 +83,14 @@ public final class FindBadGenomicKmersSpark extends GATKSparkTool {
 
     public static final int MAX_KMER_FREQ = 3;
 
+    public static final int COUNT_MIN_SKETCH_DEPTH = 4;
+
+    /** Every executor holds the whole sketch in the second pass:  4 rows of 2^28 counters is 1GB. */
+    public static final int MAX_COUNT_MIN_SKETCH_LOG2_WIDTH = 28;
+
+    /** Sketches wider than this are built, merged, and broadcast as shards of this width (16MB apiece). */
+    public static final int COUNT_MIN_SKETCH_SHARD_LOG2_WIDTH = 22;
+
     @Argument(doc = "file for ubiquitous kmer output", shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
             fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME)
     private String outputFile;
@@ -91,6 +105,19 @@ public final class FindBadGenomicKmersSpark extends GATKSparkTool {
             fullName = "high-copy-fasta", optional = true)
     private String highCopyFastaFilename;
 
+    /**
+     * When this is non-zero, the reference is kmerized twice.  The first pass just counts kmers approximately in a
+     * count-min sketch having 4 rows of 2^N one-byte counters, and the second pass counts and shuffles only the kmers
+     * that the sketch says might occur too often.  The sketch never undercounts, so the output is the same;
+     * but the sketch is only an effective filter if it has many more counters than there are distinct kmers.
+     * Each executor holds the whole sketch (4*2^N bytes) during the second pass, so N can be no more than 28.
+     */
+    @Advanced
+    @Argument(doc = "log2 of the width of a count-min sketch used to prefilter kmers (0 means count all kmers exactly)",
+            fullName = "count-min-sketch-log2-width", optional = true,
+            minValue = 0, maxValue = MAX_COUNT_MIN_SKETCH_LOG2_WIDTH)
+    private int countMinSketchLog2Width = 0;
+
     @Override
     public boolean requiresReference() {
         return true;
@@ -103,7 +130,8 @@ public final class FindBadGenomicKmersSpark extends GATKSparkTool {
         SAMSequenceDictionary dict = null;
         if ( hdr != null ) dict = hdr.getSequenceDictionary();
         final ReferenceMultiSparkSource referenceMultiSource = getReference();
-        Collection<SVKmer> killList = findBadGenomicKmers(ctx, kSize, maxDUSTScore, referenceMultiSource, dict);
+        Collection<SVKmer> killList =
+                findBadGenomicKmers(ctx, kSize, maxDUSTScore, countMinSketchLog2Width, referenceMultiSource, dict);
         if ( highCopyFastaFilename != null ) {
             killList = SVUtils.uniquify(killList, processFasta(kSize, maxDUSTScore, highCopyFastaFilename));
         }
@@ -116,6 +144,7 @@ public final class FindBadGenomicKmersSpark extends GATKSparkTool {
     static List<SVKmer> findBadGenomicKmers( final JavaSparkContext ctx,
                                              final int kSize,
                                              final int maxDUSTScore,
+                                             final int countMinSketchLog2Width,
                                              final ReferenceMultiSparkSource ref,
                                              final SAMSequenceDictionary readsDict ) {
         // Generate reference sequence RDD.
@@ -125,7 +154,10 @@ public final class FindBadGenomicKmersSpark extends GATKSparkTool {
                                                         REF_RECORD_LEN, REF_RECORDS_PER_PARTITION);
 
         // Find the high copy number kmers
-        return collectUbiquitousKmersInReference(kSize, maxDUSTScore, MAX_KMER_FREQ, refRDD);
+        if ( countMinSketchLog2Width == 0 ) {
+            return collectUbiquitousKmersInReference(kSize, maxDUSTScore, MAX_KMER_FREQ, refRDD);
+        }
+        return collectUbiquitousKmersInReference(kSize, maxDUSTScore, MAX_KMER_FREQ, countMinSketchLog2Width, refRDD);
     }
 
     /**
@@ -143,15 +175,122 @@ public final class FindBadGenomicKmersSpark extends GATKSparkTool {
         Utils.validateArg(maxDUSTScore > 0, "provided DUST filter score is non positive");
         Utils.validateArg(maxKmerFreq > 0, "provided kmer frequency is non positive");
 
+        return countKmersAndCollectUbiquitous(kSize, maxDUSTScore, maxKmerFreq, refRDD, null, 0);
+    }
+
+    /**
+     * Like {@link #collectUbiquitousKmersInReference(int, int, int, JavaRDD)}, but first does a pass over the
+     * reference to count kmers in a count-min sketch.  Kmers that the sketch says occur no more than maxKmerFreq
+     * times are never counted exactly, and never shuffled.
+     */
+    @VisibleForTesting
+    static List<SVKmer> collectUbiquitousKmersInReference(final int kSize,
+                                                          final int maxDUSTScore,
+                                                          final int maxKmerFreq,
+                                                          final int countMinSketchLog2Width,
+                                                          final JavaRDD<byte[]> refRDD) {
+        return collectUbiquitousKmersInReference(kSize, maxDUSTScore, maxKmerFreq, countMinSketchLog2Width,
+                                                 COUNT_MIN_SKETCH_SHARD_LOG2_WIDTH, refRDD);
+    }
+
+    /**
+     * The sketch is split by kmer hash into shards no wider than 2^shardLog2Width.  Each task sketches its
+     * partitions' kmers into its own shards, the shards are merged by reduceByKey on the executors, and each merged
+     * shard is brought back and broadcast separately, so that neither the driver nor any single task result or
+     * broadcast ever has to hold more than one shard.
+     */
+    @VisibleForTesting
+    static List<SVKmer> collectUbiquitousKmersInReference(final int kSize,
+                                                          final int maxDUSTScore,
+                                                          final int maxKmerFreq,
+                                                          final int countMinSketchLog2Width,
+                                                          final int shardLog2Width,
+                                                          final JavaRDD<byte[]> refRDD) {
+        Utils.nonNull(refRDD, "reference bases RDD is null");
+        Utils.validateArg(kSize > 0, "provided kmer size is non positive");
+        Utils.validateArg(maxDUSTScore > 0, "provided DUST filter score is non positive");
+        Utils.validateArg(maxKmerFreq > 0 && maxKmerFreq < LongCountMinSketch.MAX_COUNT,
+                "provided kmer frequency is non positive, or too large to be counted by a count-min sketch");
+        Utils.validateArg(countMinSketchLog2Width > 0 && countMinSketchLog2Width <= MAX_COUNT_MIN_SKETCH_LOG2_WIDTH,
+                "count-min sketch log2 width must be between 1 and " + MAX_COUNT_MIN_SKETCH_LOG2_WIDTH);
+        Utils.validateArg(shardLog2Width > 0 && shardLog2Width <= LongCountMinSketch.MAX_LOG2_WIDTH,
+                "count-min sketch shard log2 width must be between 1 and " + LongCountMinSketch.MAX_LOG2_WIDTH);
+
+        final int log2Shards = Math.max(0, countMinSketchLog2Width - shardLog2Width);
+        final int sketchShardLog2Width = countMinSketchLog2Width - log2Shards;
+        final int nShards = 1 << log2Shards;
+
+        // one set of shards per core rather than one per (small) reference partition
+        final JavaSparkContext ctx = JavaSparkContext.fromSparkContext(refRDD.context());
+        final int nSketches = Math.min(refRDD.getNumPartitions(), ctx.defaultParallelism());
+        final JavaPairRDD<Integer, LongCountMinSketch> sketchShards = refRDD
+                .coalesce(nSketches)
+                .mapPartitionsToPair(seqItr -> {
+                    final LongCountMinSketch[] partitionShards = new LongCountMinSketch[nShards];
+                    while ( seqItr.hasNext() ) {
+                        SVDUSTFilteredKmerizer.canonicalStream(seqItr.next(), kSize, maxDUSTScore, new SVKmerLong())
+                                .forEach(kmer -> {
+                                    final long hash = ((SVKmerLong)kmer).hashCode64();
+                                    final int shard = LongCountMinSketch.shardOf(hash, log2Shards);
+                                    if ( partitionShards[shard] == null ) {
+                                        partitionShards[shard] =
+                                                new LongCountMinSketch(COUNT_MIN_SKETCH_DEPTH, sketchShardLog2Width);
+                                    }
+                                    partitionShards[shard].add(hash);
+                                });
+                    }
+                    final List<Tuple2<Integer, LongCountMinSketch>> shards = new ArrayList<>(nShards);
+                    for ( int shard = 0; shard != nShards; ++shard ) {
+                        if ( partitionShards[shard] != null ) shards.add(new Tuple2<>(shard, partitionShards[shard]));
+                    }
+                    return shards.iterator();
+                })
+                .reduceByKey(LongCountMinSketch::merge, nShards);
+
+        // a shard that no kmer hashed to stays null:  its kmers all have a count of 0
+        final List<Broadcast<LongCountMinSketch>> broadcastShards = new ArrayList<>(Collections.nCopies(nShards, null));
+        sketchShards.toLocalIterator()
+                .forEachRemaining(shard -> broadcastShards.set(shard._1(), ctx.broadcast(shard._2())));
+        final List<SVKmer> ubiquitousKmers =
+                countKmersAndCollectUbiquitous(kSize, maxDUSTScore, maxKmerFreq, refRDD, broadcastShards, log2Shards);
+        for ( final Broadcast<LongCountMinSketch> broadcastShard : broadcastShards ) {
+            if ( broadcastShard != null ) SparkUtils.destroyBroadcast(broadcastShard, "count-min sketch shard");
+        }
+        return ubiquitousKmers;
+    }
+
+    /**
+     * Count the kmers in each partition, shuffle the counts so that all the counts for a kmer are in one partition,
+     * and collect the kmers whose total count is more than maxKmerFreq.  If there's a sketch (as 2^log2Shards
+     * broadcast shards), only count kmers whose sketch count is more than maxKmerFreq.
+     */
+    private static List<SVKmer> countKmersAndCollectUbiquitous(final int kSize,
+                                                               final int maxDUSTScore,
+                                                               final int maxKmerFreq,
+                                                               final JavaRDD<byte[]> refRDD,
+                                                               final List<Broadcast<LongCountMinSketch>> broadcastShards,
+                                                               final int log2Shards) {
         final int nPartitions = refRDD.getNumPartitions();
         final int hashSize = 2*REF_RECORDS_PER_PARTITION;
         return refRDD
                 .mapPartitions(seqItr -> {
                     final HopscotchMap<SVKmer, Integer, KmerAndCount> kmerCounts = new HopscotchMap<>(hashSize);
+                    final LongCountMinSketch[] sketchShards = broadcastShards == null ? null :
+                            broadcastShards.stream()
+                                    .map(broadcastShard -> broadcastShard == null ? null : broadcastShard.value())
+                                    .toArray(LongCountMinSketch[]::new);
                     while ( seqItr.hasNext() ) {
                         final byte[] seq = seqItr.next();
                         SVDUSTFilteredKmerizer.canonicalStream(seq, kSize, maxDUSTScore, new SVKmerLong())
                                 .forEach(kmer -> {
+                                    if ( sketchShards != null ) {
+                                        final long hash = ((SVKmerLong)kmer).hashCode64();
+                                        final LongCountMinSketch sketchShard =
+                                                sketchShards[LongCountMinSketch.shardOf(hash, log2Shards)];
+                                        if ( sketchShard == null || sketchShard.estimateCount(hash) <= maxKmerFreq ) {
+                                            return;
+                                        }
+                                    }
                                     final KmerAndCount entry = kmerCounts.find(kmer);
                                     if ( entry == null ) kmerCounts.add(new KmerAndCount((SVKmerLong)kmer));
                                     else entry.bumpCount();
@@ -1,14 +1,19 @@
 package org.broadinstitute.hellbender.tools.spark.sv.evidence;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SAMTag;
 import htsjdk.tribble.Feature;
 import org.apache.logging.log4j.Logger;
+import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.broadcast.Broadcast;
+import org.apache.spark.storage.StorageLevel;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.barclay.argparser.BetaFeature;
@@ -38,6 +43,8 @@ import scala.Tuple2;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -141,6 +148,8 @@ public final class FindBreakpointEvidenceSpark extends GATKSparkTool {
     /**
      * Gathers evidence reads and outputs them in a directory where reads are written out as interleaved FASTQ's.
      * Also produces the SAM records of contigs locally-assembled from such reads for downstream variant discovery.
+     * The reads are traversed many times.  With {@code --single-read-scan} they are decoded once into a persisted
+     * projection (see {@link #projectForEvidenceScan}) that all of those traversals share.
      *
      * @return the in-memory representation of assembled contigs alignments, whose length equals the number of local assemblies (regardless of success of failure status)
      */
@@ -152,6 +161,77 @@ public final class FindBreakpointEvidenceSpark extends GATKSparkTool {
             final String outputAssemblyAlignments,
             final Logger logger) {
 
+        if ( !params.singleReadScan ) {
+            return gatherEvidenceFromReads(ctx, params, header, unfilteredReads, outputAssemblyAlignments, logger);
+        }
+
+        // map() keeps the partitioning, so the partition bounds in the metadata still describe the projected reads
+        final SVReadFilter filter = new SVReadFilter(params);
+        final JavaRDD<GATKRead> projectedReads =
+                unfilteredReads.map(read -> projectForEvidenceScan(read, filter))
+                        .persist(StorageLevel.MEMORY_AND_DISK_SER());
+        try {
+            return gatherEvidenceFromReads(ctx, params, header, projectedReads, outputAssemblyAlignments, logger);
+        } finally {
+            projectedReads.unpersist(false);
+        }
+    }
+
+    /**
+     * The only optional fields that any of the evidence-gathering or assembly passes look at: the read group, and
+     * whatever the evidence is made from (the SA tag is also what the FASTQs record the alignments of reads with).
+     */
+    @VisibleForTesting static final List<String> EVIDENCE_SCAN_TAGS;
+    static {
+        final List<String> tags = new ArrayList<>(BreakpointEvidence.READ_TAGS_USED.size() + 1);
+        tags.add(SAMTag.RG.name());
+        tags.addAll(BreakpointEvidence.READ_TAGS_USED);
+        EVIDENCE_SCAN_TAGS = Collections.unmodifiableList(tags);
+    }
+
+    /**
+     * Reduce a read to what the passes of {@link #gatherEvidenceAndWriteContigSamFile} use: name, flags, position,
+     * cigar, mate info, and the tags in {@link #EVIDENCE_SCAN_TAGS}.  The projection is a new headerless record that
+     * holds only those fields, so nothing else of the read is copied or serialized when it's persisted.
+     * Bases and qualities are kept for primary lines, which are kmerized and written to FASTQs, and for other reads
+     * that can be evidence, since split read evidence checks the qualities of soft clips.  Secondary alignments and
+     * supplementary alignments that can't be evidence (junk or poorly mapped) don't need them.
+     */
+    @VisibleForTesting static GATKRead projectForEvidenceScan( final GATKRead read, final SVReadFilter filter ) {
+        // reads are headerless in Spark, so this doesn't change the read
+        final SAMRecord record = read.convertToSAMRecord(null);
+        final SAMRecord projection = new SAMRecord(null);
+        projection.setReadName(record.getReadName());
+        projection.setFlags(record.getFlags());
+        projection.setReferenceName(record.getReferenceName());
+        projection.setAlignmentStart(record.getAlignmentStart());
+        projection.setMappingQuality(record.getMappingQuality());
+        projection.setCigar(record.getCigar());
+        projection.setMateReferenceName(record.getMateReferenceName());
+        projection.setMateAlignmentStart(record.getMateAlignmentStart());
+        projection.setInferredInsertSize(record.getInferredInsertSize());
+        if ( filter.isPrimaryLine(read) || filter.isEvidence(read) ) {
+            // the input record is dropped once it has been projected, so its arrays can be shared
+            projection.setReadBases(record.getReadBases());
+            projection.setBaseQualities(record.getBaseQualities());
+        }
+        for ( final String tag : EVIDENCE_SCAN_TAGS ) {
+            final Object value = record.getAttribute(tag);
+            if ( value != null ) {
+                projection.setAttribute(tag, value);
+            }
+        }
+        return new SAMRecordToGATKReadAdapter(projection);
+    }
+
+    private static AssembledEvidenceResults gatherEvidenceFromReads(
+            final JavaSparkContext ctx,
+            final FindBreakpointEvidenceSparkArgumentCollection params,
+            final SAMFileHeader header,
+            final JavaRDD<GATKRead> unfilteredReads,
+            final String outputAssemblyAlignments,
+            final Logger logger) {
+
         final SVReadFilter filter = new SVReadFilter(params);
         final ReadMetadata readMetadata = buildMetadata(params, header, unfilteredReads, filter, logger);
         log("Metadata retrieved.", logger);
@@ -185,7 +265,8 @@ public final class FindBreakpointEvidenceSpark extends GATKSparkTool {
                                                 params.expandAssemblyGraph, params.zDropoff);
         alignedAssemblyOrExcuseList.addAll(
                 handleAssemblies(ctx, qNamesMultiMap, unfilteredReads, filter, intervals.size(),
-                        params.includeMappingLocation, fermiLiteAssemblyHandler));
+                        params.includeMappingLocation, params.assemblyThreads, params.assemblyTimeoutSeconds,
+                        fermiLiteAssemblyHandler));
 
         alignedAssemblyOrExcuseList.sort(Comparator.comparingInt(AlignedAssemblyOrExcuse::getAssemblyId));
 
@@ -285,10 +366,10 @@ public final class FindBreakpointEvidenceSpark extends GATKSparkTool {
                                         params.externalEvidenceWeight, params.externalEvidenceUncertainty);
         log("External evidence retrieved.", logger);
 
-        final SVIntervalTree<SVInterval> highCoverageSubintervalTree =
+        final SVIntervalIndex highCoverageSubintervalIndex =
                 findGenomewideHighCoverageIntervalsToIgnore(params, readMetadata, ctx, header, unfilteredReads, filter, logger, broadcastMetadata);
 
-        final Broadcast<SVIntervalTree<SVInterval>> broadcastHighCoverageSubIntervals = ctx.broadcast(highCoverageSubintervalTree);
+        final Broadcast<SVIntervalIndex> broadcastHighCoverageSubIntervals = ctx.broadcast(highCoverageSubintervalIndex);
 
         final Broadcast<List<List<BreakpointEvidence>>> broadcastExternalEvidence = ctx.broadcast(externalEvidence);
         final Tuple2<List<SVInterval>, List<EvidenceTargetLink>> intervalsAndEvidenceTargetLinks =
@@ -314,13 +395,8 @@ public final class FindBreakpointEvidenceSpark extends GATKSparkTool {
         final Iterator<SVInterval> intervalIterator = intervals.iterator();
         while (intervalIterator.hasNext()) {
             final SVInterval interval = intervalIterator.next();
-            final Iterator<SVIntervalTree.Entry<SVInterval>> overlappers = highCoverageSubintervalTree.overlappers(interval);
-            while (overlappers.hasNext()) {
-                final SVIntervalTree.Entry<SVInterval> next = overlappers.next();
-                if (next.getInterval().overlapLen(interval) == interval.getLength()) {
-                    intervalIterator.remove();
-                    break;
-                }
+            if (filter.containedInRegionToIgnore(interval, highCoverageSubintervalIndex)) {
+                intervalIterator.remove();
             }
         }
 
@@ -341,14 +417,14 @@ public final class FindBreakpointEvidenceSpark extends GATKSparkTool {
         return new EvidenceScanResults(readMetadata, intervals, intervalsAndEvidenceTargetLinks._2(), qNamesMultiMap);
     }
 
-    static SVIntervalTree<SVInterval> findGenomewideHighCoverageIntervalsToIgnore(final FindBreakpointEvidenceSparkArgumentCollection params,
-                                                                                  final ReadMetadata readMetadata,
-                                                                                  final JavaSparkContext ctx,
-                                                                                  final SAMFileHeader header,
-                                                                                  final JavaRDD<GATKRead> unfilteredReads,
-                                                                                  final SVReadFilter filter,
-                                                                                  final Logger logger,
-                                                                                  final Broadcast<ReadMetadata> broadcastMetadata) {
+    static SVIntervalIndex findGenomewideHighCoverageIntervalsToIgnore(final FindBreakpointEvidenceSparkArgumentCollection params,
+                                                                       final ReadMetadata readMetadata,
+                                                                       final JavaSparkContext ctx,
+                                                                       final SAMFileHeader header,
+                                                                       final JavaRDD<GATKRead> unfilteredReads,
+                                                                       final SVReadFilter filter,
+                                                                       final Logger logger,
+                                                                       final Broadcast<ReadMetadata> broadcastMetadata) {
         final int capacity = header.getSequenceDictionary().getSequences().stream()
                 .mapToInt(seqRec -> (seqRec.getSequenceLength() + DEPTH_WINDOW_SIZE - 1)/DEPTH_WINDOW_SIZE).sum();
         final List<SVInterval> depthIntervals = new ArrayList<>(capacity);
@@ -362,10 +438,7 @@ public final class FindBreakpointEvidenceSpark extends GATKSparkTool {
 
         final List<SVInterval> highCoverageSubintervals = findHighCoverageSubintervalsAndLog(
                 params, ctx, broadcastMetadata, depthIntervals, unfilteredReads, filter, logger);
-        final SVIntervalTree<SVInterval> highCoverageSubintervalTree = new SVIntervalTree<>();
-        highCoverageSubintervals.forEach(i -> highCoverageSubintervalTree.put(i, i));
-
-        return highCoverageSubintervalTree;
+        return new SVIntervalIndex(highCoverageSubintervals);
     }
 
     static final class EvidenceScanResults {
@@ -563,6 +636,8 @@ public final class FindBreakpointEvidenceSpark extends GATKSparkTool {
     /**
      * Transform all the reads for a supplied set of template names in each interval into FASTQ records
      * for each interval, and do something with the list of FASTQ records for each interval (like write it to a file).
+     * With more than one assembly thread, or with a timeout, the intervals of each partition are handled by
+     * {@link #assembleConcurrently}.
      */
     @VisibleForTesting static List<AlignedAssemblyOrExcuse> handleAssemblies(
             final JavaSparkContext ctx,
@@ -571,6 +646,8 @@ public final class FindBreakpointEvidenceSpark extends GATKSparkTool {
             final SVReadFilter filter,
             final int nIntervals,
             final boolean includeMappingLocation,
+            final int assemblyThreads,
+            final int assemblyTimeoutSeconds,
             final LocalAssemblyHandler localAssemblyHandler ) {
 
         final int[] counts = new int[nIntervals];
@@ -581,7 +658,7 @@ public final class FindBreakpointEvidenceSpark extends GATKSparkTool {
 
         final Broadcast<HopscotchUniqueMultiMap<String, Integer, QNameAndInterval>> broadcastQNamesMultiMap =
                 ctx.broadcast(qNamesMultiMap);
-        final List<AlignedAssemblyOrExcuse> intervalDispositions =
+        final JavaPairRDD<Integer, List<SVFastqUtils.FastqRead>> intervalsAndReads =
             unfilteredReads
                 .mapPartitionsToPair(readItr ->
                         new ReadsForQNamesFinder(broadcastQNamesMultiMap.value(), nIntervals,
@@ -589,16 +666,128 @@ public final class FindBreakpointEvidenceSpark extends GATKSparkTool {
                 .combineByKey(x -> x,
                                 SVUtils::concatenateLists,
                                 SVUtils::concatenateLists,
-                                partitioner, false, null)
-                .map(localAssemblyHandler::apply)
-                .collect();
+                                partitioner, false, null);
+        final List<AlignedAssemblyOrExcuse> intervalDispositions;
+        if ( assemblyThreads == 1 && assemblyTimeoutSeconds == 0 ) {
+            intervalDispositions = intervalsAndReads.map(localAssemblyHandler::apply).collect();
+        } else {
+            intervalDispositions = intervalsAndReads
+                    .mapPartitions(itr ->
+                            assembleConcurrently(itr, localAssemblyHandler, assemblyThreads, assemblyTimeoutSeconds))
+                    .collect();
+        }
 
         SparkUtils.destroyBroadcast(broadcastQNamesMultiMap, "QNames multi map");
+        // a timed-out assembly may still hold the aligner's index, but then the close is deferred until it's released
         BwaMemIndexCache.closeAllDistributedInstances(ctx);
 
         return intervalDispositions;
     }
 
+    /**
+     * Handles the assemblies of one partition on a fixed pool of threads.  The intervals with the most reads are
+     * started first, so that the slowest assemblies don't begin last.  With no timeout, every assembly runs to
+     * completion (or is excused by the handler before it starts, e.g., for being too big), so the results don't
+     * depend on timing, and no thread is left running native FermiLite or BWA code when the partition is done.
+     * If timeoutSeconds is positive, an assembly that runs for longer than that is excused like one that's too big,
+     * and nothing waits for it:  native code can't be interrupted, so it keeps its (daemon) thread busy until it
+     * finishes.  Which intervals time out depends on the speed of the machine, so the results do too.
+     */
+    @VisibleForTesting static Iterator<AlignedAssemblyOrExcuse> assembleConcurrently(
+            final Iterator<Tuple2<Integer, List<SVFastqUtils.FastqRead>>> intervalsAndReads,
+            final LocalAssemblyHandler localAssemblyHandler,
+            final int nThreads,
+            final int timeoutSeconds ) {
+        Utils.validateArg(nThreads > 0, "nThreads must be positive");
+        Utils.validateArg(timeoutSeconds >= 0, "timeoutSeconds must be non-negative");
+        final List<Tuple2<Integer, List<SVFastqUtils.FastqRead>>> assemblies = new ArrayList<>();
+        intervalsAndReads.forEachRemaining(assemblies::add);
+        assemblies.sort(Comparator.comparingInt(intervalAndReads -> -intervalAndReads._2().size()));
+
+        final int nAssemblies = assemblies.size();
+        final AtomicLongArray startTimes = new AtomicLongArray(nAssemblies);
+        final ExecutorService executor = Executors.newFixedThreadPool(nThreads,
+                new ThreadFactoryBuilder().setNameFormat("assembly-thread-%d").setDaemon(true).build());
+        boolean abandonedAssembly = false;
+        try {
+            final List<Future<AlignedAssemblyOrExcuse>> futures = new ArrayList<>(nAssemblies);
+            for ( int idx = 0; idx != nAssemblies; ++idx ) {
+                final Tuple2<Integer, List<SVFastqUtils.FastqRead>> intervalAndReads = assemblies.get(idx);
+                final int assemblyIdx = idx;
+                futures.add(executor.submit(() -> {
+                    startTimes.set(assemblyIdx, System.nanoTime());
+                    return localAssemblyHandler.apply(intervalAndReads);
+                }));
+            }
+            final List<AlignedAssemblyOrExcuse> results = new ArrayList<>(nAssemblies);
+            for ( int idx = 0; idx != nAssemblies; ++idx ) {
+                final AlignedAssemblyOrExcuse result =
+                        awaitAssembly(futures.get(idx), startTimes, idx, assemblies.get(idx)._1(), timeoutSeconds);
+                if ( result == null ) {
+                    abandonedAssembly = true;
+                    results.add(new AlignedAssemblyOrExcuse(assemblies.get(idx)._1(),
+                            "no assembly -- timed out after " + timeoutSeconds + " secs."));
+                } else {
+                    results.add(result);
+                }
+            }
+            return results.iterator();
+        } finally {
+            executor.shutdownNow();
+            // if an assembly failed, the others can't be interrupted, so wait for the ones already running to finish
+            // (but not for ones that timed out, which may take arbitrarily long)
+            if ( !abandonedAssembly ) awaitTermination(executor);
+        }
+    }
+
+    /**
+     * Waits for an assembly.  The clock for the timeout doesn't start until the assembly does.
+     * Returns null if the assembly timed out.
+     */
+    private static AlignedAssemblyOrExcuse awaitAssembly( final Future<AlignedAssemblyOrExcuse> future,
+                                                          final AtomicLongArray startTimes,
+                                                          final int assemblyIdx,
+                                                          final int intervalId,
+                                                          final int timeoutSeconds ) {
+        try {
+            if ( timeoutSeconds == 0 ) {
+                return future.get();
+            }
+            final long timeoutNanos = TimeUnit.SECONDS.toNanos(timeoutSeconds);
+            while ( true ) {
+                final long startTime = startTimes.get(assemblyIdx);
+                final long waitNanos = startTime == 0L ? timeoutNanos : startTime + timeoutNanos - System.nanoTime();
+                try {
+                    return future.get(Math.max(waitNanos, 0L), TimeUnit.NANOSECONDS);
+                } catch ( final TimeoutException te ) {
+                    if ( startTime != 0L ) {
+                        future.cancel(true);
+                        return null;
+                    }
+                }
+            }
+        } catch ( final InterruptedException ie ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for the assembly of interval " + intervalId, ie);
+        } catch ( final ExecutionException ee ) {
+            throw new GATKException("Assembly of interval " + intervalId + " failed", ee.getCause());
+        }
+    }
+
+    private static void awaitTermination( final ExecutorService executor ) {
+        boolean interrupted = false;
+        while ( true ) {
+            try {
+                if ( executor.awaitTermination(1L, TimeUnit.MINUTES) ) break;
+            } catch ( final InterruptedException ie ) {
+                interrupted = true;
+            }
+        }
+        if ( interrupted ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public static final class IntPair {
         private final int int1;
         private final int int2;
@@ -951,7 +1140,7 @@ public final class FindBreakpointEvidenceSpark extends GATKSparkTool {
             final List<SVInterval> intervals,
             final JavaRDD<GATKRead> unfilteredReads,
             final SVReadFilter filter,
-            final Broadcast<SVIntervalTree<SVInterval>> broadcastHighCoverageSubIntervals) {
+            final Broadcast<SVIntervalIndex> broadcastHighCoverageSubIntervals) {
         final Broadcast<List<SVInterval>> broadcastIntervals = ctx.broadcast(intervals);
         final List<QNameAndInterval> qNameAndIntervalList =
                 unfilteredReads
@@ -981,7 +1170,7 @@ public final class FindBreakpointEvidenceSpark extends GATKSparkTool {
             final SAMFileHeader header,
             final JavaRDD<GATKRead> unfilteredReads,
             final SVReadFilter filter,
-            final Logger logger, final Broadcast<SVIntervalTree<SVInterval>> highCoverageSubintervalTree) {
+            final Logger logger, final Broadcast<SVIntervalIndex> highCoverageSubintervalIndex) {
         // find all breakpoint evidence, then filter for pile-ups
         final int nContigs = header.getSequenceDictionary().getSequences().size();
         final int allowedOverhang = params.allowedShortFragmentOverhang;
@@ -995,7 +1184,7 @@ public final class FindBreakpointEvidenceSpark extends GATKSparkTool {
                 .mapPartitions(readItr -> {
                     final GATKRead sentinel = new SAMRecordToGATKReadAdapter(null);
                     return FlatMapGluer.applyMapFunc(
-                            new ReadClassifier(broadcastMetadata.value(), sentinel, allowedOverhang, filter, highCoverageSubintervalTree.getValue()),
+                            new ReadClassifier(broadcastMetadata.value(), sentinel, allowedOverhang, filter, highCoverageSubintervalIndex.getValue()),
                             readItr, sentinel);
                 }, true);
         evidenceRDD.cache();
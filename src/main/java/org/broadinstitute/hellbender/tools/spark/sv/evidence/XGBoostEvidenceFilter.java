@@ -2,6 +2,7 @@ package org.broadinstitute.hellbender.tools.spark.sv.evidence;
 
 import biz.k11i.xgboost.Predictor;
 import biz.k11i.xgboost.learner.ObjFunction;
+import biz.k11i.xgboost.util.FVec;
 import com.google.common.annotations.VisibleForTesting;
 import htsjdk.samtools.CigarElement;
 import htsjdk.samtools.CigarOperator;
@@ -44,16 +45,22 @@ public final class XGBoostEvidenceFilter implements Iterator<BreakpointEvidence>
     private static final int DEFAULT_GOOD_MAPPING_QUALITY = 60;
     private static final double NON_READ_MAPPING_QUALITY = DEFAULT_GOOD_MAPPING_QUALITY; // alternatively could be Double.NaN
     private static final double NON_READ_CIGAR_LENGTHS = 0.0; // alternatively could be Double.NaN
+    private static final int NUM_FEATURES = 17;
 
     private final PartitionCrossingChecker partitionCrossingChecker;
 
     private final Predictor predictor;
     private final double thresholdProbability;
     private final ReadMetadata readMetadata;
+    private final int minEvidenceMapQ;
 
     private final EvidenceOverlapChecker evidenceOverlapChecker;
     private final Map<BreakpointEvidence, UnscaledOverlapInfo> rawFeatureCache;
 
+    // when scoring in batches, the probability of each piece of evidence, in tree order; null otherwise
+    private final double[] batchProbabilities;
+    private int numEvidenceExamined;
+
     private Iterator<SVIntervalTree.Entry<List<BreakpointEvidence>>> treeItr;
     private Iterator<BreakpointEvidence> listItr;
     private final FeatureDataSource<BEDFeature> genomeGaps;
@@ -88,10 +95,15 @@ public final class XGBoostEvidenceFilter implements Iterator<BreakpointEvidence>
         this.partitionCrossingChecker = partitionCrossingChecker;
         thresholdProbability = params.svEvidenceFilterThresholdProbability;
         this.readMetadata = readMetadata;
+        minEvidenceMapQ = params.minEvidenceMapQ;
 
         evidenceOverlapChecker = new EvidenceOverlapChecker(evidenceItr, readMetadata, params.minEvidenceMapQ);
         rawFeatureCache = new HashMap<>();
 
+        batchProbabilities = params.svEvidenceFilterBatchSize > 0 ?
+                predictProbabilities(params.svEvidenceFilterBatchSize) : null;
+        numEvidenceExamined = 0;
+
         listItr = null;
         treeItr = evidenceOverlapChecker.getTreeIterator();
     }
@@ -136,10 +148,12 @@ public final class XGBoostEvidenceFilter implements Iterator<BreakpointEvidence>
             final SVIntervalTree.Entry<List<BreakpointEvidence>> entry = treeItr.next();
             final SVInterval curInterval = entry.getInterval();
             final List<BreakpointEvidence> evidenceList = entry.getValue();
+            final int firstEvidenceIdx = numEvidenceExamined;
+            numEvidenceExamined += evidenceList.size();
             if( isValidated(entry.getValue()) || partitionCrossingChecker.onBoundary(curInterval) ) {
                 // already validated (no need to mark validated again) or on partition boundary (punt for now)
                 result = true;
-            } else if( anyPassesFilter(evidenceList) ) {
+            } else if( anyPassesFilter(evidenceList, firstEvidenceIdx) ) {
                 evidenceList.forEach(ev -> ev.setValidated(true));
                 result = true;
             }
@@ -166,7 +180,15 @@ public final class XGBoostEvidenceFilter implements Iterator<BreakpointEvidence>
         return false;
     }
 
-    private boolean anyPassesFilter(final List<BreakpointEvidence> evidenceList) {
+    private boolean anyPassesFilter(final List<BreakpointEvidence> evidenceList, final int firstEvidenceIdx) {
+        if(batchProbabilities != null) {
+            for(int evidenceIdx = firstEvidenceIdx; evidenceIdx < firstEvidenceIdx + evidenceList.size(); ++evidenceIdx) {
+                if(batchProbabilities[evidenceIdx] > thresholdProbability) {
+                    return true;
+                }
+            }
+            return false;
+        }
         for(final BreakpointEvidence evidence : evidenceList) {
             if(predictProbability(evidence) > thresholdProbability) {
                 return true;
@@ -180,20 +202,72 @@ public final class XGBoostEvidenceFilter implements Iterator<BreakpointEvidence>
         return predictor.predictSingle(getFeatures(evidence));
     }
 
+    /**
+     * Compute the probability of every piece of evidence, in tree order, by gathering the features of batchSize pieces
+     * of evidence at a time into a dense matrix and scoring the whole matrix at once. The overlap features for the
+     * entire partition are calculated up front by a sweep over the sorted evidence (see {@link BatchOverlapInfo}),
+     * rather than by querying the tree for each piece of evidence. The probabilities are identical to those returned
+     * by predictProbability.
+     */
+    @VisibleForTesting
+    double[] predictProbabilities(final int batchSize) {
+        final BatchOverlapInfo batchOverlapInfo = new BatchOverlapInfo(evidenceOverlapChecker.getTreeIterator());
+        final List<BreakpointEvidence> evidenceList = batchOverlapInfo.evidenceList;
+        final int numEvidence = evidenceList.size();
+        final double[] probabilities = new double[numEvidence];
+        final double[] featureMatrix = new double[Math.min(batchSize, numEvidence) * NUM_FEATURES];
+        for(int batchStart = 0; batchStart < numEvidence; batchStart += batchSize) {
+            final int batchEnd = Math.min(numEvidence, batchStart + batchSize);
+            for(int evidenceIdx = batchStart; evidenceIdx < batchEnd; ++evidenceIdx) {
+                fillFeatures(evidenceList.get(evidenceIdx),
+                        batchOverlapInfo.getIndividualOverlapInfo(evidenceIdx),
+                        batchOverlapInfo.getClusterOverlapInfo(evidenceIdx),
+                        featureMatrix, (evidenceIdx - batchStart) * NUM_FEATURES);
+            }
+            predictBatch(featureMatrix, batchEnd - batchStart, probabilities, batchStart);
+        }
+        return probabilities;
+    }
+
+    /**
+     * Score the first numRows rows of a row-major feature matrix, storing the probabilities in consecutive elements of
+     * probabilities, starting at probabilitiesOffset.
+     */
+    private void predictBatch(final double[] featureMatrix, final int numRows,
+                              final double[] probabilities, final int probabilitiesOffset) {
+        final FeatureMatrixRow row = new FeatureMatrixRow(featureMatrix);
+        for(int rowIdx = 0; rowIdx < numRows; ++rowIdx) {
+            row.setRow(rowIdx);
+            probabilities[probabilitiesOffset + rowIdx] = predictor.predictSingle(row);
+        }
+    }
+
     /**
      * Compute features vector for a piece of BreakpointEvidence
      */
     @VisibleForTesting
     EvidenceFeatures getFeatures(final BreakpointEvidence evidence) {
+        // calculate these similar to BreakpointDensityFilter, but always calculate full totals, never end early.
+        final CoverageScaledOverlapInfo individualOverlapInfo = getIndividualOverlapInfo(evidence);
+        final CoverageScaledOverlapInfo clusterOverlapInfo = getClusterOverlapInfo(evidence);
+        final double[] features = new double[NUM_FEATURES];
+        fillFeatures(evidence, individualOverlapInfo, clusterOverlapInfo, features, 0);
+        return new EvidenceFeatures(features);
+    }
+
+    /**
+     * Write the features of a piece of BreakpointEvidence into NUM_FEATURES consecutive elements of features,
+     * starting at offset.
+     */
+    private void fillFeatures(final BreakpointEvidence evidence,
+                              final CoverageScaledOverlapInfo individualOverlapInfo,
+                              final CoverageScaledOverlapInfo clusterOverlapInfo,
+                              final double[] features, final int offset) {
         // create new struct for these two, use CigarOperator to update if it's ReadEvidence
         final CigarQualityInfo cigarQualityInfo = new CigarQualityInfo(evidence);
         final double evidenceType = evidenceTypeMap.get(evidence.getClass());
         final double mappingQuality = getMappingQuality(evidence);
 
-        // calculate these similar to BreakpointDensityFilter, but always calculate full totals, never end early.
-        final CoverageScaledOverlapInfo individualOverlapInfo = getIndividualOverlapInfo(evidence);
-        final CoverageScaledOverlapInfo clusterOverlapInfo = getClusterOverlapInfo(evidence);
-
         // calculate properties related to overlap of intervals on the reference genome
         final double referenceGapOverlap = genomeGaps == null ?
                 DEFAULT_GOOD_GAP_OVERLAP
@@ -204,18 +278,24 @@ public final class XGBoostEvidenceFilter implements Iterator<BreakpointEvidence>
 
         // either templateSize is defined (for ReadEvidence) or readCount (for TemplateSizeAnomaly).
         final double templateSizeOrReadCount = getTemplateSizeOrReadCount(evidence);
-        return new EvidenceFeatures(
-                new double[]{
-                        cigarQualityInfo.basesMatched, cigarQualityInfo.referenceLength, evidenceType, mappingQuality, templateSizeOrReadCount,
-                        individualOverlapInfo.numOverlap, individualOverlapInfo.totalOverlapMappingQuality,
-                        individualOverlapInfo.meanOverlapMappingQuality, individualOverlapInfo.numCoherent,
-                        individualOverlapInfo.totalCoherentMappingQuality,
-                        clusterOverlapInfo.numOverlap, clusterOverlapInfo.totalOverlapMappingQuality,
-                        clusterOverlapInfo.meanOverlapMappingQuality, clusterOverlapInfo.numCoherent,
-                        clusterOverlapInfo.totalCoherentMappingQuality,
-                        referenceGapOverlap, umapS100
-                }
-        );
+        int idx = offset;
+        features[idx++] = cigarQualityInfo.basesMatched;
+        features[idx++] = cigarQualityInfo.referenceLength;
+        features[idx++] = evidenceType;
+        features[idx++] = mappingQuality;
+        features[idx++] = templateSizeOrReadCount;
+        features[idx++] = individualOverlapInfo.numOverlap;
+        features[idx++] = individualOverlapInfo.totalOverlapMappingQuality;
+        features[idx++] = individualOverlapInfo.meanOverlapMappingQuality;
+        features[idx++] = individualOverlapInfo.numCoherent;
+        features[idx++] = individualOverlapInfo.totalCoherentMappingQuality;
+        features[idx++] = clusterOverlapInfo.numOverlap;
+        features[idx++] = clusterOverlapInfo.totalOverlapMappingQuality;
+        features[idx++] = clusterOverlapInfo.meanOverlapMappingQuality;
+        features[idx++] = clusterOverlapInfo.numCoherent;
+        features[idx++] = clusterOverlapInfo.totalCoherentMappingQuality;
+        features[idx++] = referenceGapOverlap;
+        features[idx] = umapS100;
     }
 
     /**
@@ -343,6 +423,211 @@ public final class XGBoostEvidenceFilter implements Iterator<BreakpointEvidence>
                 new UnscaledOverlapInfo(numOverlap, numCoherent, totalOverlapMappingQuality, totalCoherentMappingQuality));
     }
 
+    /**
+     * Overlap info for all the evidence in a partition, calculated by sweeping once over the sorted tree entries while
+     * keeping track of the entries that might still overlap later ones, instead of querying the tree for the
+     * overlappers of each piece of evidence. The sums and maxima agree exactly with those from cacheOverlapInfo and
+     * getClusterOverlapInfo: self-overlap is excluded in the same way, and coherence is symmetric, so it's only
+     * checked once per pair. Evidence is indexed by its position in tree order.
+     */
+    private final class BatchOverlapInfo {
+        final List<BreakpointEvidence> evidenceList;
+        private final SVInterval[] entryIntervals;
+        private final int[] entryStarts; // index of the first piece of evidence in each entry, plus a final sentinel
+        private final int[] mappingQualities;
+        private final Boolean[] coherenceStrands; // null for evidence that can't be coherent with anything
+        private final List<List<StrandedInterval>> distalTargets;
+        private final int[] numOverlap;
+        private final int[] numCoherent;
+        private final int[] totalOverlapMappingQuality;
+        private final int[] totalCoherentMappingQuality;
+        private final int[] clusterNumOverlap;
+        private final int[] clusterNumCoherent;
+        private final int[] clusterOverlapMappingQuality;
+        private final int[] clusterCoherentMappingQuality;
+        private final double[] clusterMeanOverlapMappingQuality;
+
+        BatchOverlapInfo(final Iterator<SVIntervalTree.Entry<List<BreakpointEvidence>>> entryItr) {
+            final List<SVIntervalTree.Entry<List<BreakpointEvidence>>> entries = new ArrayList<>();
+            entryItr.forEachRemaining(entries::add);
+            final int numEntries = entries.size();
+            evidenceList = new ArrayList<>();
+            entryIntervals = new SVInterval[numEntries];
+            entryStarts = new int[numEntries + 1];
+            for(int entryIdx = 0; entryIdx < numEntries; ++entryIdx) {
+                entryIntervals[entryIdx] = entries.get(entryIdx).getInterval();
+                entryStarts[entryIdx] = evidenceList.size();
+                evidenceList.addAll(entries.get(entryIdx).getValue());
+            }
+            final int numEvidence = evidenceList.size();
+            entryStarts[numEntries] = numEvidence;
+
+            mappingQualities = new int[numEvidence];
+            coherenceStrands = new Boolean[numEvidence];
+            distalTargets = new ArrayList<>(numEvidence);
+            for(int evidenceIdx = 0; evidenceIdx < numEvidence; ++evidenceIdx) {
+                final BreakpointEvidence evidence = evidenceList.get(evidenceIdx);
+                mappingQualities[evidenceIdx] = getMappingQualityForOverlap(evidence);
+                final Boolean strand = evidence.isEvidenceUpstreamOfBreakpoint();
+                if(strand != null && evidence.hasDistalTargets(readMetadata, minEvidenceMapQ)) {
+                    coherenceStrands[evidenceIdx] = strand;
+                    distalTargets.add(evidence.getDistalTargets(readMetadata, minEvidenceMapQ));
+                } else {
+                    distalTargets.add(null);
+                }
+            }
+
+            numOverlap = new int[numEvidence];
+            numCoherent = new int[numEvidence];
+            totalOverlapMappingQuality = new int[numEvidence];
+            totalCoherentMappingQuality = new int[numEvidence];
+            forEachOverlappingPair((evidenceIdx1, evidenceIdx2) -> {
+                final boolean isCoherent = isCoherent(evidenceIdx1, evidenceIdx2);
+                addOverlapper(evidenceIdx1, evidenceIdx2, isCoherent);
+                addOverlapper(evidenceIdx2, evidenceIdx1, isCoherent);
+            });
+
+            clusterNumOverlap = new int[numEvidence];
+            clusterNumCoherent = new int[numEvidence];
+            clusterOverlapMappingQuality = new int[numEvidence];
+            clusterCoherentMappingQuality = new int[numEvidence];
+            clusterMeanOverlapMappingQuality = new double[numEvidence];
+            forEachOverlappingPair((evidenceIdx1, evidenceIdx2) -> {
+                addToCluster(evidenceIdx1, evidenceIdx2);
+                addToCluster(evidenceIdx2, evidenceIdx1);
+            });
+        }
+
+        CoverageScaledOverlapInfo getIndividualOverlapInfo(final int evidenceIdx) {
+            return new CoverageScaledOverlapInfo(
+                    numOverlap[evidenceIdx], numCoherent[evidenceIdx],
+                    totalOverlapMappingQuality[evidenceIdx], totalCoherentMappingQuality[evidenceIdx],
+                    getMeanOverlapMappingQuality(evidenceIdx), readMetadata.getCoverage()
+            );
+        }
+
+        CoverageScaledOverlapInfo getClusterOverlapInfo(final int evidenceIdx) {
+            return new CoverageScaledOverlapInfo(
+                    clusterNumOverlap[evidenceIdx], clusterNumCoherent[evidenceIdx],
+                    clusterOverlapMappingQuality[evidenceIdx], clusterCoherentMappingQuality[evidenceIdx],
+                    clusterMeanOverlapMappingQuality[evidenceIdx], readMetadata.getCoverage()
+            );
+        }
+
+        private double getMeanOverlapMappingQuality(final int evidenceIdx) {
+            return ((double)totalOverlapMappingQuality[evidenceIdx]) / numOverlap[evidenceIdx];
+        }
+
+        private void addOverlapper(final int evidenceIdx, final int overlapperIdx, final boolean isCoherent) {
+            ++numOverlap[evidenceIdx];
+            totalOverlapMappingQuality[evidenceIdx] += mappingQualities[overlapperIdx];
+            if(isCoherent) {
+                ++numCoherent[evidenceIdx];
+                totalCoherentMappingQuality[evidenceIdx] += mappingQualities[overlapperIdx];
+            }
+        }
+
+        private void addToCluster(final int evidenceIdx, final int overlapperIdx) {
+            clusterNumOverlap[evidenceIdx] = Math.max(clusterNumOverlap[evidenceIdx], numOverlap[overlapperIdx]);
+            clusterNumCoherent[evidenceIdx] = Math.max(clusterNumCoherent[evidenceIdx], numCoherent[overlapperIdx]);
+            clusterOverlapMappingQuality[evidenceIdx] =
+                    Math.max(clusterOverlapMappingQuality[evidenceIdx], totalOverlapMappingQuality[overlapperIdx]);
+            clusterCoherentMappingQuality[evidenceIdx] =
+                    Math.max(clusterCoherentMappingQuality[evidenceIdx], totalCoherentMappingQuality[overlapperIdx]);
+            clusterMeanOverlapMappingQuality[evidenceIdx] =
+                    Math.max(clusterMeanOverlapMappingQuality[evidenceIdx], getMeanOverlapMappingQuality(overlapperIdx));
+        }
+
+        private boolean isCoherent(final int evidenceIdx1, final int evidenceIdx2) {
+            final Boolean strand = coherenceStrands[evidenceIdx1];
+            if(strand == null || !strand.equals(coherenceStrands[evidenceIdx2])) {
+                return false;
+            }
+            for(final StrandedInterval distalTarget1 : distalTargets.get(evidenceIdx1)) {
+                for(final StrandedInterval distalTarget2 : distalTargets.get(evidenceIdx2)) {
+                    if(distalTarget1.getStrand() == distalTarget2.getStrand()
+                            && distalTarget1.getInterval().overlaps(distalTarget2.getInterval())) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Visit each unordered pair of distinct pieces of evidence whose locations overlap, skipping pairs that are
+         * equal (as the tree-query methods skip self-overlap). Entries are sorted by contig and start, so once an
+         * entry ends at or before the start of the current one, it can't overlap any later entry, and it's dropped
+         * from the active set. Empty intervals overlap nothing, so they're never active.
+         */
+        private void forEachOverlappingPair(final EvidencePairVisitor visitor) {
+            final int[] activeEntries = new int[entryIntervals.length];
+            int numActive = 0;
+            for(int entryIdx = 0; entryIdx < entryIntervals.length; ++entryIdx) {
+                final SVInterval interval = entryIntervals[entryIdx];
+                int numStillActive = 0;
+                for(int activeIdx = 0; activeIdx < numActive; ++activeIdx) {
+                    final int activeEntryIdx = activeEntries[activeIdx];
+                    final SVInterval activeInterval = entryIntervals[activeEntryIdx];
+                    if(activeInterval.getContig() == interval.getContig() && activeInterval.getEnd() > interval.getStart()) {
+                        activeEntries[numStillActive++] = activeEntryIdx;
+                        if(activeInterval.overlaps(interval)) {
+                            for(int evidenceIdx1 = entryStarts[activeEntryIdx]; evidenceIdx1 < entryStarts[activeEntryIdx + 1]; ++evidenceIdx1) {
+                                for(int evidenceIdx2 = entryStarts[entryIdx]; evidenceIdx2 < entryStarts[entryIdx + 1]; ++evidenceIdx2) {
+                                    visitIfDistinct(evidenceIdx1, evidenceIdx2, visitor);
+                                }
+                            }
+                        }
+                    }
+                }
+                numActive = numStillActive;
+                if(interval.overlaps(interval)) {
+                    for(int evidenceIdx1 = entryStarts[entryIdx]; evidenceIdx1 < entryStarts[entryIdx + 1]; ++evidenceIdx1) {
+                        for(int evidenceIdx2 = evidenceIdx1 + 1; evidenceIdx2 < entryStarts[entryIdx + 1]; ++evidenceIdx2) {
+                            visitIfDistinct(evidenceIdx1, evidenceIdx2, visitor);
+                        }
+                    }
+                    activeEntries[numActive++] = entryIdx;
+                }
+            }
+        }
+
+        private void visitIfDistinct(final int evidenceIdx1, final int evidenceIdx2, final EvidencePairVisitor visitor) {
+            if(!evidenceList.get(evidenceIdx1).equals(evidenceList.get(evidenceIdx2))) {
+                visitor.visit(evidenceIdx1, evidenceIdx2);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface EvidencePairVisitor {
+        void visit(final int evidenceIdx1, final int evidenceIdx2);
+    }
+
+    /**
+     * A view of one row of a row-major feature matrix, so that the predictor can score the rows of a batch without
+     * copying them into separate feature vectors.
+     */
+    private static final class FeatureMatrixRow implements FVec {
+        private static final long serialVersionUID = 1L;
+        private final double[] featureMatrix;
+        private int rowOffset;
+
+        FeatureMatrixRow(final double[] featureMatrix) {
+            this.featureMatrix = featureMatrix;
+            this.rowOffset = 0;
+        }
+
+        void setRow(final int rowIdx) {
+            rowOffset = rowIdx * NUM_FEATURES;
+        }
+
+        @Override
+        public double fvalue(final int index) {
+            return featureMatrix[rowOffset + index];
+        }
+    }
+
     private static class UnscaledOverlapInfo {
         final int numOverlap;
         final int numCoherent;
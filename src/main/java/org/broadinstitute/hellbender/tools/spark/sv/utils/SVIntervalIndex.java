@@ -0,0 +1,260 @@
+package org.broadinstitute.hellbender.tools.spark.sv.utils;
+
+import com.esotericsoftware.kryo.DefaultSerializer;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable set of SVIntervals that's built once and then queried for overlappers.
+ *
+ * <p>This is an alternative to {@link SVIntervalTree} for large sets of intervals that don't change after they're
+ * collected, and that have no values.  The intervals are kept in three primitive arrays in sorted order, and the
+ * array itself is treated as an implicit, balanced binary tree (the node at index i has level equal to the number of
+ * trailing 1 bits in i), which is augmented by the maximum end of each subtree.  So there's no per-interval object,
+ * and the whole thing serializes as two flat arrays.</p>
+ *
+ * <p>An interval's contig and coordinates are packed into a long (contig in the upper half), so that the total order
+ * is the same as that of SVInterval, and so that two intervals overlap exactly when their packed starts and ends do.
+ * This requires that contigs and coordinates be non-negative.  As elsewhere, intervals are half-open.</p>
+ */
+@DefaultSerializer(SVIntervalIndex.Serializer.class)
+public final class SVIntervalIndex implements Iterable<SVInterval> {
+    private static final int MAX_SIZE = 1 << 30;
+    private static final int LINEAR_SCAN_LEVEL = 3; // subtrees this small are scanned rather than traversed
+    private static final int MAX_STACK_SIZE = 64;
+
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] maxEnds;
+    private final int maxLevel;
+
+    public SVIntervalIndex( final Collection<SVInterval> intervals ) {
+        Utils.nonNull(intervals);
+        Utils.validateArg(intervals.size() <= MAX_SIZE, "too many intervals");
+        final SVInterval[] sortedIntervals = intervals.toArray(new SVInterval[intervals.size()]);
+        Arrays.sort(sortedIntervals);
+        final int size = sortedIntervals.length;
+        starts = new long[size];
+        ends = new long[size];
+        for ( int idx = 0; idx != size; ++idx ) {
+            final SVInterval interval = sortedIntervals[idx];
+            Utils.validateArg(interval.getContig() >= 0 && interval.getStart() >= 0 && interval.getEnd() >= 0,
+                    "intervals in an SVIntervalIndex can't have negative contigs or coordinates");
+            starts[idx] = pack(interval.getContig(), interval.getStart());
+            ends[idx] = pack(interval.getContig(), interval.getEnd());
+        }
+        maxEnds = new long[size];
+        maxLevel = buildMaxEnds(ends, maxEnds);
+    }
+
+    private SVIntervalIndex( final Kryo kryo, final Input input ) {
+        final int size = input.readInt();
+        starts = input.readLongs(size);
+        ends = input.readLongs(size);
+        maxEnds = new long[size];
+        maxLevel = buildMaxEnds(ends, maxEnds);
+    }
+
+    private void serialize( final Kryo kryo, final Output output ) {
+        output.writeInt(starts.length);
+        output.writeLongs(starts);
+        output.writeLongs(ends);
+    }
+
+    public int size() { return starts.length; }
+
+    public boolean isEmpty() { return starts.length == 0; }
+
+    /** Returns the interval with the given rank in the sorted order. */
+    public SVInterval getInterval( final int idx ) {
+        Utils.validIndex(idx, starts.length);
+        return new SVInterval(contigOf(starts[idx]), coordinateOf(starts[idx]), coordinateOf(ends[idx]));
+    }
+
+    /**
+     * Check the index against a probe interval to see if there's an overlapping interval.
+     *
+     * @param interval The interval sought.
+     * @return Whether or not there's an overlapping interval in this index.
+     */
+    public boolean hasOverlapper( final SVInterval interval ) {
+        return new OverlapIterator(interval).nextIdx >= 0;
+    }
+
+    /**
+     * Find the earliest interval in the index that overlaps the specified interval.
+     *
+     * @param interval The interval sought.
+     * @return The earliest overlapping interval, or null if there is none.
+     */
+    public SVInterval minOverlapper( final SVInterval interval ) {
+        final OverlapIterator itr = new OverlapIterator(interval);
+        return itr.hasNext() ? itr.next() : null;
+    }
+
+    /**
+     * Return an iterator over all intervals overlapping the specified interval, in sorted order.
+     *
+     * @param interval Any part of this interval lying in the index will be included in the returned iterator.
+     * @return An iterator that will return all the intervals that overlap the specified interval.
+     */
+    public Iterator<SVInterval> overlappers( final SVInterval interval ) { return new OverlapIterator(interval); }
+
+    /** Return an iterator over all the intervals in sorted order. */
+    @Override
+    public Iterator<SVInterval> iterator() {
+        return new Iterator<SVInterval>() {
+            private int idx = 0;
+
+            @Override public boolean hasNext() { return idx < starts.length; }
+
+            @Override public SVInterval next() {
+                if ( !hasNext() ) throw new NoSuchElementException("iterator is exhausted");
+                return getInterval(idx++);
+            }
+        };
+    }
+
+    @Override
+    public boolean equals( final Object obj ) {
+        if ( this == obj ) return true;
+        if ( !(obj instanceof SVIntervalIndex) ) return false;
+        final SVIntervalIndex that = (SVIntervalIndex)obj;
+        return Arrays.equals(starts, that.starts) && Arrays.equals(ends, that.ends);
+    }
+
+    @Override
+    public int hashCode() {
+        return 47 * Arrays.hashCode(starts) + Arrays.hashCode(ends);
+    }
+
+    private static long pack( final int contig, final int coordinate ) {
+        return ((long)contig << 32) | coordinate;
+    }
+
+    private static int contigOf( final long packed ) { return (int)(packed >>> 32); }
+
+    private static int coordinateOf( final long packed ) { return (int)packed; }
+
+    /**
+     * Fill in the max end of the subtree rooted at each node, and return the level of the root.
+     * The tree is complete only if the size is one less than a power of 2.  Otherwise, the missing right children
+     * of nodes near the end are treated as having the max end of the last complete subtree.
+     */
+    private static int buildMaxEnds( final long[] ends, final long[] maxEnds ) {
+        final int size = ends.length;
+        if ( size == 0 ) return -1;
+        int lastIdx = 0;
+        long lastMaxEnd = 0;
+        for ( int idx = 0; idx < size; idx += 2 ) {
+            lastIdx = idx;
+            lastMaxEnd = maxEnds[idx] = ends[idx];
+        }
+        int level = 1;
+        for ( ; 1L << level <= size; ++level ) {
+            final int halfStep = 1 << (level - 1);
+            final long step = 4L * halfStep;
+            for ( long idx = 2L * halfStep - 1; idx < size; idx += step ) {
+                final int node = (int)idx;
+                final long leftMaxEnd = maxEnds[node - halfStep];
+                final long rightMaxEnd = node + halfStep < size ? maxEnds[node + halfStep] : lastMaxEnd;
+                maxEnds[node] = Math.max(ends[node], Math.max(leftMaxEnd, rightMaxEnd));
+            }
+            lastIdx = ((lastIdx >> level) & 1) != 0 ? lastIdx - halfStep : lastIdx + halfStep;
+            if ( lastIdx < size && maxEnds[lastIdx] > lastMaxEnd ) lastMaxEnd = maxEnds[lastIdx];
+        }
+        return level - 1;
+    }
+
+    /**
+     * An in-order traversal of the implicit tree that skips subtrees that can't contain an overlapper.
+     * Nodes to visit are kept on a stack of (level, index, whether the left subtree has been visited).
+     * Indices of nodes that are missing from an incomplete tree may exceed the size, so they're kept as longs.
+     */
+    private final class OverlapIterator implements Iterator<SVInterval> {
+        private final long queryStart;
+        private final long queryEnd;
+        private final int[] stackLevels = new int[MAX_STACK_SIZE];
+        private final long[] stackNodes = new long[MAX_STACK_SIZE];
+        private final boolean[] stackLeftDone = new boolean[MAX_STACK_SIZE];
+        private int stackSize = 0;
+        private int scanIdx = 0;
+        private int scanEnd = 0;
+        private int nextIdx;
+
+        OverlapIterator( final SVInterval interval ) {
+            Utils.nonNull(interval);
+            queryStart = pack(interval.getContig(), interval.getStart());
+            queryEnd = pack(interval.getContig(), interval.getEnd());
+            if ( maxLevel >= 0 ) push(maxLevel, (1L << maxLevel) - 1, false);
+            nextIdx = advance();
+        }
+
+        @Override
+        public boolean hasNext() { return nextIdx >= 0; }
+
+        @Override
+        public SVInterval next() {
+            if ( !hasNext() ) throw new NoSuchElementException("iterator is exhausted");
+            final SVInterval result = getInterval(nextIdx);
+            nextIdx = advance();
+            return result;
+        }
+
+        private void push( final int level, final long node, final boolean leftDone ) {
+            stackLevels[stackSize] = level;
+            stackNodes[stackSize] = node;
+            stackLeftDone[stackSize] = leftDone;
+            stackSize += 1;
+        }
+
+        private int advance() {
+            final int size = starts.length;
+            while ( true ) {
+                while ( scanIdx < scanEnd ) {
+                    final int idx = scanIdx++;
+                    if ( starts[idx] >= queryEnd ) {
+                        scanIdx = scanEnd;
+                    } else if ( queryStart < ends[idx] ) {
+                        return idx;
+                    }
+                }
+                if ( stackSize == 0 ) return -1;
+                stackSize -= 1;
+                final int level = stackLevels[stackSize];
+                final long node = stackNodes[stackSize];
+                if ( level <= LINEAR_SCAN_LEVEL ) {
+                    final long firstIdx = node >> level << level;
+                    scanIdx = (int)Math.min(firstIdx, size);
+                    scanEnd = (int)Math.min(firstIdx + (1L << (level + 1)) - 1, size);
+                } else if ( !stackLeftDone[stackSize] ) {
+                    final long left = node - (1L << (level - 1));
+                    push(level, node, true);
+                    if ( left >= size || maxEnds[(int)left] > queryStart ) push(level - 1, left, false);
+                } else if ( node < size && starts[(int)node] < queryEnd ) {
+                    push(level - 1, node + (1L << (level - 1)), false);
+                    if ( queryStart < ends[(int)node] ) return (int)node;
+                }
+            }
+        }
+    }
+
+    public static final class Serializer extends com.esotericsoftware.kryo.Serializer<SVIntervalIndex> {
+        @Override
+        public void write( final Kryo kryo, final Output output, final SVIntervalIndex index ) {
+            index.serialize(kryo, output);
+        }
+
+        @Override
+        public SVIntervalIndex read( final Kryo kryo, final Input input, final Class<SVIntervalIndex> klass ) {
+            return new SVIntervalIndex(kryo, input);
+        }
+    }
+}
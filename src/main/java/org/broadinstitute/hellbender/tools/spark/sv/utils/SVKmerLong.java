@@ -134,7 +134,12 @@ public class SVKmerLong extends SVKmer implements Comparable<SVKmerLong>  {
 
     @Override
     public final int hashCode() {
-        return (int)SVUtils.fnvLong64(SVUtils.fnvLong64(valHigh), valLow);
+        return (int)hashCode64();
+    }
+
+    /** A 64-bit hash of all the bits of the kmer.  (The hashCode is its low 32 bits.) */
+    public final long hashCode64() {
+        return SVUtils.fnvLong64(SVUtils.fnvLong64(valHigh), valLow);
     }
 
     /**
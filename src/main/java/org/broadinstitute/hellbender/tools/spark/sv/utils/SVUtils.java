@@ -238,6 +238,16 @@ public final class SVUtils {
         return start;
     }
 
+    /**
+     * The MurmurHash3 64-bit finalizer:  a bijection that thoroughly mixes the bits of its input, so that every bit
+     * of the output depends on every bit of the input.  Useful for taking several independent indices from one hash.
+     */
+    public static long mix64( long hash ) {
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
     /**
      * 64-bit FNV-1a hash for byte arrays
      */
@@ -0,0 +1,427 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import com.esotericsoftware.kryo.DefaultSerializer;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.spark.sv.utils.SVUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Blocked Bloom filter for primitive longs.
+ * <p>
+ * Unlike {@link LongBloomFilter}, which scatters the bits of each element over the whole bit set, this filter first
+ * hashes an element to a single 512-bit block (one cache line), and then sets or tests all of the element's bits
+ * within that block. A lookup therefore costs at most one cache miss, rather than one per hash function, at the price
+ * of a slightly larger filter for the same false positive probability. See:
+ * <p>
+ * Putze, Sanders and Singler. 2007. Cache-, Hash- and Space-Efficient Bloom Filters. WEA 2007, LNCS 4525, 108-121.
+ * <p>
+ * Blocks are held in direct buffers, so a large filter lives outside the Java heap. A filter can also be written to a
+ * file with {@link #write} and memory-mapped with {@link #open}, in which case nothing is deserialized, all the tasks
+ * in a JVM share one read-only mapping, and Kryo serializes only the path. All values in the file are little-endian:
+ * <pre>
+ *     int   magic ("LBB1")
+ *     int   version
+ *     int   number of hash functions
+ *     int   number of metadata bytes
+ *     long  number of blocks
+ *     byte[40] reserved (the header is padded to a cache line)
+ *     byte[] metadata, padded with zeros to a multiple of 64 bytes
+ *     long[8 * number of blocks] blocks
+ * </pre>
+ * Since mappings start on a page boundary, every block of a mapped filter is aligned to a cache line.
+ */
+@DefaultSerializer(BlockedLongBloomFilter.Serializer.class)
+public final class BlockedLongBloomFilter {
+    private static final int MAGIC = 0x4c424231; // "LBB1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+
+    private static final int BITS_PER_BLOCK = 512;
+    private static final int POSITIONS_PER_HASH = 7; // number of 9-bit positions in a 64-bit hash
+    private static final int BLOCK_BYTES_SHIFT = 6;
+    // each segment holds 2^24 blocks, i.e., 1GB
+    private static final int BLOCKS_PER_SEGMENT_SHIFT = 24;
+    private static final long MAX_BLOCKS = 1L << 35; // 2TB
+    private static final int MAX_HASHES = 32;
+    private static final int BATCH_SIZE = 16;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+    private static final long HASH_SEED_2 = 0x6cebe6dca7f118a6L;
+    private static final MappedFileCache<BlockedLongBloomFilter> OPEN_FILTERS = new MappedFileCache<>(BlockedLongBloomFilter::new);
+
+    private final int numHashes;
+    private final long numBlocks;
+    private final ByteBuffer[] segments;
+    private final byte[] metadata;
+    private final String path; // null unless the filter is memory-mapped
+
+    /**
+     * Creates an empty filter large enough to hold numElements with a false positive probability no greater than fpp.
+     */
+    public BlockedLongBloomFilter( final long numElements, final double fpp ) {
+        Utils.validateArg(numElements > 0, "Number of elements must be greater than 0");
+        Utils.validateArg(fpp > 0 && fpp < 1, "False positive probability must be between 0 and 1");
+
+        numHashes = Math.max(1, Math.min(MAX_HASHES, (int)Math.ceil(-Math.log(fpp) / Math.log(2))));
+
+        // start from the size of an ideal Bloom filter, and grow until the blocking penalty is paid for
+        long blocks = (LongBloomFilter.getOptimalNumberOfBits(numElements, fpp) + BITS_PER_BLOCK - 1) / BITS_PER_BLOCK;
+        while ( theoreticalFPP(numElements, Math.max(1L, blocks), numHashes) > fpp ) {
+            blocks += Math.max(1L, blocks / 32);
+            if ( blocks > MAX_BLOCKS ) {
+                throw new GATKException("Could not create blocked Bloom filter with more than " + MAX_BLOCKS + " blocks");
+            }
+        }
+        numBlocks = Math.max(1L, blocks);
+        segments = allocateSegments(numBlocks);
+        metadata = new byte[0];
+        path = null;
+    }
+
+    private BlockedLongBloomFilter( final Kryo kryo, final Input input ) {
+        numHashes = input.readInt();
+        numBlocks = input.readLong();
+        segments = allocateSegments(numBlocks);
+        final byte[] chunk = new byte[WRITE_BUFFER_BYTES];
+        for ( final ByteBuffer segment : segments ) {
+            final ByteBuffer dup = segment.duplicate();
+            while ( dup.hasRemaining() ) {
+                final int len = Math.min(chunk.length, dup.remaining());
+                input.readBytes(chunk, 0, len);
+                dup.put(chunk, 0, len);
+            }
+        }
+        metadata = new byte[0];
+        path = null;
+    }
+
+    private BlockedLongBloomFilter( final Path filePath ) {
+        if ( filePath.getFileSystem() != FileSystems.getDefault() ) {
+            throw new UserException.BadInput("A blocked Bloom filter must be on local disk to be memory-mapped: " + filePath.toUri());
+        }
+        try ( final FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ) ) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while ( header.hasRemaining() && channel.read(header) >= 0 ) { }
+            header.flip();
+            if ( header.remaining() != HEADER_BYTES || header.getInt() != MAGIC ) {
+                throw new UserException.BadInput(filePath + " is not a blocked Bloom filter");
+            }
+            final int version = header.getInt();
+            if ( version != VERSION ) {
+                throw new UserException.BadInput(filePath + " is a blocked Bloom filter of unsupported version " + version);
+            }
+            numHashes = header.getInt();
+            final int metadataBytes = header.getInt();
+            numBlocks = header.getLong();
+            if ( numHashes < 1 || numHashes > MAX_HASHES || metadataBytes < 0 || numBlocks < 1 || numBlocks > MAX_BLOCKS ) {
+                throw new UserException.BadInput(filePath + " has a corrupt blocked Bloom filter header");
+            }
+
+            final long blocksStart = HEADER_BYTES + paddedLength(metadataBytes);
+            final long expectedLength = blocksStart + (numBlocks << BLOCK_BYTES_SHIFT);
+            if ( channel.size() != expectedLength ) {
+                throw new UserException.BadInput(filePath + " is truncated: expected " + expectedLength + " bytes, found " + channel.size());
+            }
+            final ByteBuffer metadataBuffer = ByteBuffer.allocate(metadataBytes);
+            while ( metadataBuffer.hasRemaining() && channel.read(metadataBuffer, HEADER_BYTES + metadataBuffer.position()) >= 0 ) { }
+            metadata = metadataBuffer.array();
+
+            segments = new ByteBuffer[numSegments(numBlocks)];
+            for ( int idx = 0; idx != segments.length; ++idx ) {
+                final long offset = (long)idx << (BLOCKS_PER_SEGMENT_SHIFT + BLOCK_BYTES_SHIFT);
+                segments[idx] = channel.map(FileChannel.MapMode.READ_ONLY, blocksStart + offset, segmentBytes(numBlocks, idx))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotReadInputFile(filePath, e);
+        }
+        path = filePath.toAbsolutePath().toString();
+    }
+
+    /** Map a filter written by {@link #write}, or reuse the mapping if this JVM has already opened it. */
+    public static BlockedLongBloomFilter open( final String pathString ) {
+        Utils.nonNull(pathString);
+        return OPEN_FILTERS.open(IOUtils.getPath(pathString));
+    }
+
+    /** Write the filter in the format that {@link #open} maps. */
+    public void write( final Path filePath ) {
+        write(filePath, new byte[0]);
+    }
+
+    /**
+     * Write the filter in the format that {@link #open} maps, along with some metadata that's opaque to the filter,
+     * and that can be retrieved from the mapped filter by {@link #getMetadata}.
+     */
+    public void write( final Path filePath, final byte[] fileMetadata ) {
+        Utils.nonNull(filePath);
+        Utils.nonNull(fileMetadata);
+        try ( final FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE) ) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + (int)paddedLength(fileMetadata.length))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(numHashes).putInt(fileMetadata.length).putLong(numBlocks);
+            header.position(HEADER_BYTES);
+            header.put(fileMetadata);
+            header.clear();
+            drain(channel, header);
+            for ( final ByteBuffer segment : segments ) {
+                drain(channel, segment.duplicate());
+            }
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotCreateOutputFile(filePath.toString(), "Could not write the Bloom filter", e);
+        }
+    }
+
+    private static void drain( final FileChannel channel, final ByteBuffer buffer ) throws IOException {
+        while ( buffer.hasRemaining() ) {
+            channel.write(buffer);
+        }
+    }
+
+    public void add( final long entryValue ) {
+        if ( path != null ) {
+            throw new UnsupportedOperationException("A memory-mapped Bloom filter is read-only");
+        }
+        final long hash2 = bitHash(entryValue);
+        final long blockIndex = blockIndexOf(SVUtils.fnvLong64(entryValue));
+        final ByteBuffer segment = segments[segmentIndexOf(blockIndex)];
+        final int blockOffset = blockOffsetOf(blockIndex);
+        long bits = hash2;
+        for ( int i = 0; i < numHashes; i++ ) {
+            if ( i > 0 && i % POSITIONS_PER_HASH == 0 ) bits = nextBitHash(hash2, i);
+            final int bit = (int)bits & (BITS_PER_BLOCK - 1);
+            bits >>>= 9;
+            final int wordOffset = blockOffset + ((bit >>> 6) << 3);
+            segment.putLong(wordOffset, segment.getLong(wordOffset) | (1L << bit));
+        }
+    }
+
+    public void addAll( final long[] entryValues ) {
+        for ( final long val : entryValues ) {
+            add(val);
+        }
+    }
+
+    public boolean contains( final long key ) {
+        final long blockIndex = blockIndexOf(SVUtils.fnvLong64(key));
+        final long hash2 = bitHash(key);
+        final ByteBuffer segment = segments[segmentIndexOf(blockIndex)];
+        final int blockOffset = blockOffsetOf(blockIndex);
+        return blockContains(segment, blockOffset, hash2, segment.getLong(blockOffset + ((firstBit(hash2) >>> 6) << 3)));
+    }
+
+    /**
+     * True if every one of the values is (probably) in the filter.
+     * The values are probed in batches as described for {@link #countContained}.
+     */
+    public boolean containsAll( final long[] vals ) {
+        Utils.nonNull(vals);
+        return countContained(vals, 0, vals.length, vals.length, true) == vals.length;
+    }
+
+    /**
+     * Counts how many of vals[from, to) are (probably) in the filter, stopping early once the count reaches maxCount.
+     * <p>
+     * Java has no prefetch instruction, so values are probed in small batches instead: the blocks for a whole batch
+     * are located and the first word of each is loaded before any of them is tested, which has the CPU wait on all
+     * the batch's cache misses at once rather than one after another.
+     */
+    public int countContained( final long[] vals, final int from, final int to, final int maxCount ) {
+        return countContained(vals, from, to, maxCount, false);
+    }
+
+    private int countContained( final long[] vals, final int from, final int to, final int maxCount,
+                                final boolean stopAtFirstAbsence ) {
+        Utils.nonNull(vals);
+        Utils.validateArg(from >= 0 && from <= to && to <= vals.length, "invalid range of values");
+        final int[] segmentIndices = new int[BATCH_SIZE];
+        final int[] offsets = new int[BATCH_SIZE];
+        final long[] hashes = new long[BATCH_SIZE];
+        final long[] firstWords = new long[BATCH_SIZE];
+        int count = 0;
+        for ( int batchStart = from; batchStart < to; batchStart += BATCH_SIZE ) {
+            final int batchSize = Math.min(to - batchStart, BATCH_SIZE);
+            loadBatch(vals, batchStart, batchSize, segmentIndices, offsets, hashes, firstWords);
+            for ( int j = 0; j != batchSize; ++j ) {
+                if ( blockContains(segments[segmentIndices[j]], offsets[j], hashes[j], firstWords[j]) ) {
+                    if ( ++count >= maxCount ) return count;
+                } else if ( stopAtFirstAbsence ) {
+                    return count;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Hash each value of a batch, and load the word of its block that holds its first bit.
+     */
+    private void loadBatch( final long[] vals, final int batchStart, final int batchSize, final int[] segmentIndices,
+                            final int[] offsets, final long[] hashes, final long[] firstWords ) {
+        for ( int j = 0; j != batchSize; ++j ) {
+            final long val = vals[batchStart + j];
+            final long blockIndex = blockIndexOf(SVUtils.fnvLong64(val));
+            final long hash2 = bitHash(val);
+            segmentIndices[j] = segmentIndexOf(blockIndex);
+            offsets[j] = blockOffsetOf(blockIndex);
+            hashes[j] = hash2;
+            firstWords[j] = segments[segmentIndices[j]].getLong(offsets[j] + ((firstBit(hash2) >>> 6) << 3));
+        }
+    }
+
+    /**
+     * Tests the bits of an element within its block, given the already-loaded word that holds its first bit.
+     */
+    private boolean blockContains( final ByteBuffer segment, final int blockOffset, final long hash2, final long firstWord ) {
+        if ( (firstWord & (1L << firstBit(hash2))) == 0 ) return false;
+        long bits = hash2 >>> 9;
+        for ( int i = 1; i < numHashes; i++ ) {
+            if ( i % POSITIONS_PER_HASH == 0 ) bits = nextBitHash(hash2, i);
+            final int bit = (int)bits & (BITS_PER_BLOCK - 1);
+            bits >>>= 9;
+            if ( (segment.getLong(blockOffset + ((bit >>> 6) << 3)) & (1L << bit)) == 0 ) return false;
+        }
+        return true;
+    }
+
+    /**
+     * The bits of an element within its block are taken 9 at a time from a well-mixed hash, and the hash is
+     * re-mixed to get more bits when it runs out.  (Double hashing, as in {@link LongBloomFilter}, gives too few
+     * distinct patterns within a block of 512 bits to reach small false positive probabilities.)  FNV alone doesn't
+     * mix its low bits well enough to be used this way, so its output goes through the MurmurHash3 finalizer.
+     */
+    private static long bitHash( final long key ) {
+        return SVUtils.mix64(SVUtils.fnvLong64(HASH_SEED_2, key));
+    }
+
+    private static long nextBitHash( final long hash2, final int hashIndex ) {
+        return SVUtils.mix64(hash2 + hashIndex * 0x9e3779b97f4a7c15L);
+    }
+
+    private static int firstBit( final long hash2 ) {
+        return (int)hash2 & (BITS_PER_BLOCK - 1);
+    }
+
+    private long blockIndexOf( final long hash1 ) {
+        return (hash1 >>> 1) % numBlocks;
+    }
+
+    private static int segmentIndexOf( final long blockIndex ) {
+        return (int)(blockIndex >>> BLOCKS_PER_SEGMENT_SHIFT);
+    }
+
+    private static int blockOffsetOf( final long blockIndex ) {
+        return ((int)blockIndex & ((1 << BLOCKS_PER_SEGMENT_SHIFT) - 1)) << BLOCK_BYTES_SHIFT;
+    }
+
+    private static int numSegments( final long numBlocks ) {
+        return (int)((numBlocks + (1L << BLOCKS_PER_SEGMENT_SHIFT) - 1) >>> BLOCKS_PER_SEGMENT_SHIFT);
+    }
+
+    private static int segmentBytes( final long numBlocks, final int segmentIndex ) {
+        final long blocks = Math.min(1L << BLOCKS_PER_SEGMENT_SHIFT, numBlocks - ((long)segmentIndex << BLOCKS_PER_SEGMENT_SHIFT));
+        return (int)(blocks << BLOCK_BYTES_SHIFT);
+    }
+
+    private static ByteBuffer[] allocateSegments( final long numBlocks ) {
+        final ByteBuffer[] segments = new ByteBuffer[numSegments(numBlocks)];
+        for ( int idx = 0; idx != segments.length; ++idx ) {
+            segments[idx] = ByteBuffer.allocateDirect(segmentBytes(numBlocks, idx)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return segments;
+    }
+
+    private static long paddedLength( final int metadataBytes ) {
+        return ((long)metadataBytes + (1 << BLOCK_BYTES_SHIFT) - 1) & -(1L << BLOCK_BYTES_SHIFT);
+    }
+
+    /**
+     * The false positive probability after adding numElements.  The number of elements in a block is approximately
+     * Poisson-distributed, and the probability is averaged over that distribution.
+     */
+    public double getTheoreticalFPP( final long numElements ) {
+        return theoreticalFPP(numElements, numBlocks, numHashes);
+    }
+
+    private static double theoreticalFPP( final long numElements, final long numBlocks, final int numHashes ) {
+        final double lambda = (double)numElements / numBlocks;
+        final double logLambda = Math.log(lambda);
+        final long maxLoad = (long)Math.ceil(lambda + 10. * Math.sqrt(lambda) + 10.);
+        double logPoisson = -lambda; // log of the probability that a block holds 0 elements
+        double result = 0.;
+        for ( long load = 0; load <= maxLoad; ++load ) {
+            if ( load > 0 ) logPoisson += logLambda - Math.log(load);
+            final double blockFPP = Math.pow(1. - Math.pow(1. - 1. / BITS_PER_BLOCK, (double)numHashes * load), numHashes);
+            result += Math.exp(logPoisson) * blockFPP;
+        }
+        return result;
+    }
+
+    public int getNumHashes() { return numHashes; }
+
+    public long getNumBlocks() { return numBlocks; }
+
+    /** The metadata stored with a mapped filter (empty if the filter isn't mapped). */
+    public byte[] getMetadata() { return metadata.clone(); }
+
+    @Override
+    public boolean equals( final Object o ) {
+        if ( this == o ) return true;
+        if ( !(o instanceof BlockedLongBloomFilter) ) return false;
+
+        final BlockedLongBloomFilter that = (BlockedLongBloomFilter) o;
+        return numHashes == that.numHashes && numBlocks == that.numBlocks && Arrays.equals(segments, that.segments);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (numBlocks ^ (numBlocks >>> 32));
+        result = 31 * result + numHashes;
+        return result;
+    }
+
+    private void serialize( final Kryo kryo, final Output output ) {
+        output.writeBoolean(path != null);
+        if ( path != null ) {
+            output.writeString(path);
+            return;
+        }
+        output.writeInt(numHashes);
+        output.writeLong(numBlocks);
+        final byte[] chunk = new byte[WRITE_BUFFER_BYTES];
+        for ( final ByteBuffer segment : segments ) {
+            final ByteBuffer dup = segment.duplicate();
+            while ( dup.hasRemaining() ) {
+                final int len = Math.min(chunk.length, dup.remaining());
+                dup.get(chunk, 0, len);
+                output.writeBytes(chunk, 0, len);
+            }
+        }
+    }
+
+    public static final class Serializer extends com.esotericsoftware.kryo.Serializer<BlockedLongBloomFilter> {
+        @Override
+        public void write( final Kryo kryo, final Output output, final BlockedLongBloomFilter bloomFilter ) {
+            bloomFilter.serialize(kryo, output);
+        }
+
+        @Override
+        public BlockedLongBloomFilter read( final Kryo kryo, final Input input, final Class<BlockedLongBloomFilter> klass ) {
+            return input.readBoolean() ? open(input.readString()) : new BlockedLongBloomFilter(kryo, input);
+        }
+    }
+}
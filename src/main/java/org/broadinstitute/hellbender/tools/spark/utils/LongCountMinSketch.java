@@ -0,0 +1,137 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import com.esotericsoftware.kryo.DefaultSerializer;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.broadinstitute.hellbender.tools.spark.sv.utils.SVUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Arrays;
+
+/**
+ * Count-min sketch for primitive longs.  Estimates the number of times each long has been added, and never
+ * underestimates:  each of the rows counts every long in one of its counters, and a long's estimate is the least
+ * of its counters.  Counters are single bytes that saturate at {@link #MAX_COUNT}, so the sketch is only meant for
+ * asking whether a count is over some small limit (as in "might this kmer occur more than 3 times?").
+ * Sketches of the same dimensions can be merged, so partial sketches can be built in parallel.
+ * A sketch too big to build in one place can be split into shards:  see {@link #shardOf}.
+ */
+@DefaultSerializer(LongCountMinSketch.Serializer.class)
+public final class LongCountMinSketch {
+    public static final int MAX_COUNT = 255;
+    public static final int MAX_LOG2_WIDTH = 30;
+
+    private final int log2Width;
+    private final byte[][] rows;
+
+    /**
+     * @param depth the number of rows (i.e., hash functions)
+     * @param log2Width the log of the number of counters in each row
+     */
+    public LongCountMinSketch( final int depth, final int log2Width ) {
+        Utils.validateArg(depth > 0, "depth must be positive");
+        Utils.validateArg(log2Width > 0 && log2Width <= MAX_LOG2_WIDTH,
+                "log2Width must be between 1 and " + MAX_LOG2_WIDTH);
+        this.log2Width = log2Width;
+        rows = new byte[depth][1 << log2Width];
+    }
+
+    private LongCountMinSketch( final Kryo kryo, final Input input ) {
+        final int depth = input.readInt();
+        log2Width = input.readInt();
+        rows = new byte[depth][];
+        for ( int row = 0; row != depth; ++row ) {
+            rows[row] = input.readBytes(1 << log2Width);
+        }
+    }
+
+    private void serialize( final Kryo kryo, final Output output ) {
+        output.writeInt(rows.length);
+        output.writeInt(log2Width);
+        for ( final byte[] row : rows ) {
+            output.writeBytes(row);
+        }
+    }
+
+    public int getDepth() { return rows.length; }
+
+    public int getLog2Width() { return log2Width; }
+
+    public void add( final long val ) {
+        final long hash1 = SVUtils.mix64(val);
+        final long hash2 = SVUtils.mix64(hash1) | 1L;
+        final int mask = (1 << log2Width) - 1;
+        for ( int row = 0; row != rows.length; ++row ) {
+            final int idx = (int)(hash1 + row * hash2) & mask;
+            final byte[] counters = rows[row];
+            if ( (counters[idx] & 0xff) != MAX_COUNT ) counters[idx] += 1;
+        }
+    }
+
+    /** Returns an upper bound on the number of times val has been added (or MAX_COUNT, if that's smaller). */
+    public int estimateCount( final long val ) {
+        final long hash1 = SVUtils.mix64(val);
+        final long hash2 = SVUtils.mix64(hash1) | 1L;
+        final int mask = (1 << log2Width) - 1;
+        int minCount = MAX_COUNT;
+        for ( int row = 0; row != rows.length && minCount != 0; ++row ) {
+            minCount = Math.min(minCount, rows[row][(int)(hash1 + row * hash2) & mask] & 0xff);
+        }
+        return minCount;
+    }
+
+    /**
+     * Adds the counts of another sketch of the same dimensions to this one.
+     * @return this sketch
+     */
+    public LongCountMinSketch merge( final LongCountMinSketch that ) {
+        Utils.nonNull(that);
+        Utils.validateArg(that.rows.length == rows.length && that.log2Width == log2Width,
+                "can't merge sketches of different dimensions");
+        for ( int row = 0; row != rows.length; ++row ) {
+            final byte[] counters = rows[row];
+            final byte[] thoseCounters = that.rows[row];
+            for ( int idx = 0; idx != counters.length; ++idx ) {
+                counters[idx] = (byte)Math.min(MAX_COUNT, (counters[idx] & 0xff) + (thoseCounters[idx] & 0xff));
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public boolean equals( final Object obj ) {
+        if ( this == obj ) return true;
+        if ( !(obj instanceof LongCountMinSketch) ) return false;
+        final LongCountMinSketch that = (LongCountMinSketch)obj;
+        return log2Width == that.log2Width && Arrays.deepEquals(rows, that.rows);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * log2Width + Arrays.deepHashCode(rows);
+    }
+
+    /**
+     * The shard (one of 2^log2Shards) to which a long belongs.  A big sketch can be split into shards, each a
+     * smaller sketch that counts only the longs that belong to it, so that no one sketch need be held or shipped
+     * whole.  The shard is taken from the high bits of the hash whose low bits pick the counters, so the longs in a
+     * shard are spread evenly over its counters.
+     */
+    public static int shardOf( final long val, final int log2Shards ) {
+        Utils.validateArg(log2Shards >= 0 && log2Shards < Integer.SIZE, "log2Shards must be between 0 and 31");
+        return log2Shards == 0 ? 0 : (int)(SVUtils.mix64(val) >>> (Long.SIZE - log2Shards));
+    }
+
+    public static final class Serializer extends com.esotericsoftware.kryo.Serializer<LongCountMinSketch> {
+        @Override
+        public void write( final Kryo kryo, final Output output, final LongCountMinSketch sketch ) {
+            sketch.serialize(kryo, output);
+        }
+
+        @Override
+        public LongCountMinSketch read( final Kryo kryo, final Input input, final Class<LongCountMinSketch> klass ) {
+            return new LongCountMinSketch(kryo, input);
+        }
+    }
+}
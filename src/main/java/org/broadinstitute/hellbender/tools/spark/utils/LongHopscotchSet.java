@@ -156,19 +156,31 @@ public final class LongHopscotchSet implements Serializable {
     }
 
     public final boolean contains(final long key, final int hash) {
+        return bucketIndexOf(key, hash) != NO_ELEMENT_INDEX;
+    }
+
+    /**
+     * The index of the bucket holding a key, or -1 if the key is absent.  Package-private for
+     * {@link MappedLongHopscotchTable}, which writes out the buckets and status bytes as they are laid out here.
+     */
+    final int bucketIndexOf(final long key, final int hash) {
         int bucketIndex = hashToIndex(hash);
-        if (!isChainHead(bucketIndex)) return false;
+        if (!isChainHead(bucketIndex)) return NO_ELEMENT_INDEX;
         long entryVal = getValue(buckets[bucketIndex]);
-        if (entryVal == key) return true;
+        if (entryVal == key) return bucketIndex;
         int offset;
         while ((offset = getOffset(bucketIndex)) != 0) {
             bucketIndex = getIndex(bucketIndex, offset);
             entryVal = getValue(buckets[bucketIndex]);
-            if (entryVal == key) return true;
+            if (entryVal == key) return bucketIndex;
         }
-        return false;
+        return NO_ELEMENT_INDEX;
     }
 
+    // the live tables (not copies), for MappedLongHopscotchTable
+    final long[] getBuckets() { return buckets; }
+    final byte[] getStatus() { return status; }
+
     public final boolean isEmpty() {
         return size == 0;
     }
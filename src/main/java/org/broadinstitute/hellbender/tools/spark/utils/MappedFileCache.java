@@ -0,0 +1,50 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A cache of read-only objects that are memory-mapped from files, so that all the tasks running in a JVM share one
+ * mapping of a file.  Objects are cached by path and modification time, so a file that's rewritten is mapped anew.
+ * The cache holds the objects only weakly: their mappings are released by the garbage collector once nothing else
+ * refers to them.
+ */
+public final class MappedFileCache<T> {
+    private final Map<String, WeakReference<T>> openFiles = new HashMap<>();
+    private final Function<Path, T> mapper;
+
+    /**
+     * @param mapper maps a file that isn't in the cache
+     */
+    public MappedFileCache( final Function<Path, T> mapper ) {
+        this.mapper = Utils.nonNull(mapper);
+    }
+
+    /** The object mapped from a file, mapping it if this JVM doesn't already have it. */
+    public T open( final Path path ) {
+        Utils.nonNull(path);
+        final String cacheKey;
+        try {
+            cacheKey = path.toAbsolutePath().normalize() + "@" + Files.getLastModifiedTime(path).toMillis();
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotReadInputFile(path, e);
+        }
+        synchronized ( openFiles ) {
+            final WeakReference<T> ref = openFiles.get(cacheKey);
+            T mapped = ref == null ? null : ref.get();
+            if ( mapped == null ) {
+                mapped = mapper.apply(path);
+                openFiles.put(cacheKey, new WeakReference<>(mapped));
+            }
+            return mapped;
+        }
+    }
+}
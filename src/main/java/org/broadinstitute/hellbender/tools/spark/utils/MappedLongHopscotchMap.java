@@ -0,0 +1,84 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import com.esotericsoftware.kryo.DefaultSerializer;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.util.Collections;
+
+/**
+ * A read-only map from non-negative longs to longs that lives in a memory-mapped file rather than on the heap.
+ * Values are stored next to the keys' hopscotch table, so a lookup costs the same as a {@link LongHopscotchSet}
+ * membership test.  Sharing and serialization work as for {@link MappedLongHopscotchSet}.
+ */
+@DefaultSerializer(MappedLongHopscotchMap.Serializer.class)
+public final class MappedLongHopscotchMap implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String path;
+    private transient MappedLongHopscotchTable table;
+
+    private MappedLongHopscotchMap( final String path ) {
+        this.path = path;
+        this.table = MappedLongHopscotchTable.open(IOUtils.getPath(path));
+        Utils.validateArg(table.hasValues(), () -> path + " holds a set, not a map");
+    }
+
+    /**
+     * Write a map to a file that can be opened as a MappedLongHopscotchMap.
+     * @param keys distinct, non-negative keys
+     * @param values the value of each key
+     */
+    public static void write( final long[] keys, final long[] values, final Path path ) {
+        Utils.nonNull(keys);
+        Utils.nonNull(values);
+        Utils.validateArg(keys.length == values.length, "there must be exactly one value for each key");
+        final LongHopscotchSet keySet = new LongHopscotchSet(keys.length);
+        for ( final long key : keys ) {
+            Utils.validateArg(keySet.add(key), () -> "duplicate key " + key);
+        }
+        MappedLongHopscotchTable.write(Collections.singletonList(keySet), keys, values, new byte[0], path);
+    }
+
+    /** Map a file written by {@link #write}, or reuse the mapping if this JVM has already opened it. */
+    public static MappedLongHopscotchMap open( final String path ) {
+        return new MappedLongHopscotchMap(Utils.nonNull(path));
+    }
+
+    public String getPath() { return path; }
+
+    public long size() { return table.size(); }
+
+    public boolean isEmpty() { return table.size() == 0; }
+
+    public boolean containsKey( final long key ) {
+        return table.find(key) != MappedLongHopscotchTable.NO_POSITION;
+    }
+
+    /** The value for a key, or missingValue if the key isn't in the map. */
+    public long get( final long key, final long missingValue ) {
+        final long position = table.find(key);
+        return position != MappedLongHopscotchTable.NO_POSITION ? table.getValue(position) : missingValue;
+    }
+
+    private Object readResolve() {
+        return open(path);
+    }
+
+    public static final class Serializer extends com.esotericsoftware.kryo.Serializer<MappedLongHopscotchMap> {
+        @Override
+        public void write( final Kryo kryo, final Output output, final MappedLongHopscotchMap map ) {
+            output.writeString(map.path);
+        }
+
+        @Override
+        public MappedLongHopscotchMap read( final Kryo kryo, final Input input, final Class<MappedLongHopscotchMap> klass ) {
+            return open(input.readString());
+        }
+    }
+}
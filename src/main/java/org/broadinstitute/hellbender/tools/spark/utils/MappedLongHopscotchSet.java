@@ -0,0 +1,106 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import com.esotericsoftware.kryo.DefaultSerializer;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.NoSuchElementException;
+
+/**
+ * A read-only set of non-negative longs that lives in a memory-mapped file rather than on the heap.
+ * <p>
+ * The file is written once, from a {@link LongHopscotchSet}, by {@link #write}.  Opening it maps the file without
+ * reading or copying anything, and every set opened on the same file in a JVM shares the same mapping.  Serializing
+ * the set (with Kryo or Java serialization) writes only the path, so broadcasting one costs next to nothing, and an
+ * executor maps the file once for all of its tasks, instead of each task deserializing its own on-heap copy.  The
+ * file must be readable at the same path by every executor (e.g., on a shared file system or shipped with SparkFiles).
+ * <p>
+ * A {@link LargeLongHopscotchSet} is written partition by partition, so sets too large for a single table can be
+ * mapped, too.
+ */
+@DefaultSerializer(MappedLongHopscotchSet.Serializer.class)
+public final class MappedLongHopscotchSet implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String path;
+    private transient MappedLongHopscotchTable table;
+
+    private MappedLongHopscotchSet( final String path ) {
+        this.path = path;
+        this.table = MappedLongHopscotchTable.open(IOUtils.getPath(path));
+    }
+
+    /** Write a set to a file that can be opened as a MappedLongHopscotchSet. */
+    public static void write( final LongHopscotchSet set, final Path path ) {
+        MappedLongHopscotchTable.write(Collections.singletonList(Utils.nonNull(set)), null, null, new byte[0], path);
+    }
+
+    /**
+     * Write a partitioned set to a file that can be opened as a MappedLongHopscotchSet, along with some metadata
+     * that's opaque to the set, and can be retrieved by {@link #getMetadata}.
+     */
+    public static void write( final LargeLongHopscotchSet set, final byte[] fileMetadata, final Path path ) {
+        MappedLongHopscotchTable.write(new ArrayList<>(Utils.nonNull(set).getSets()), null, null, fileMetadata, path);
+    }
+
+    /** Map a file written by {@link #write}, or reuse the mapping if this JVM has already opened it. */
+    public static MappedLongHopscotchSet open( final String path ) {
+        return new MappedLongHopscotchSet(Utils.nonNull(path));
+    }
+
+    public String getPath() { return path; }
+
+    public long size() { return table.size(); }
+
+    public boolean isEmpty() { return table.size() == 0; }
+
+    /** The metadata written with the set (empty if there was none). */
+    public byte[] getMetadata() { return table.getMetadata(); }
+
+    public boolean contains( final long key ) {
+        return table.find(key) != MappedLongHopscotchTable.NO_POSITION;
+    }
+
+    /** Iterates over the set in table order.  The set is read-only, so the iterator doesn't support remove. */
+    public LongIterator iterator() {
+        return new LongIterator() {
+            private long position = table.nextOccupied(0L);
+
+            @Override
+            public boolean hasNext() {
+                return position != MappedLongHopscotchTable.NO_POSITION;
+            }
+
+            @Override
+            public long next() {
+                if ( !hasNext() ) throw new NoSuchElementException("Iterator exhausted.");
+                final long key = table.getKey(position);
+                position = table.nextOccupied(position + 1);
+                return key;
+            }
+        };
+    }
+
+    private Object readResolve() {
+        return open(path);
+    }
+
+    public static final class Serializer extends com.esotericsoftware.kryo.Serializer<MappedLongHopscotchSet> {
+        @Override
+        public void write( final Kryo kryo, final Output output, final MappedLongHopscotchSet set ) {
+            output.writeString(set.path);
+        }
+
+        @Override
+        public MappedLongHopscotchSet read( final Kryo kryo, final Input input, final Class<MappedLongHopscotchSet> klass ) {
+            return open(input.readString());
+        }
+    }
+}
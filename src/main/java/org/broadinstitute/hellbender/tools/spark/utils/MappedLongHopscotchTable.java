@@ -0,0 +1,344 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * The read-only, memory-mapped table behind {@link MappedLongHopscotchSet} and {@link MappedLongHopscotchMap}.
+ * <p>
+ * The file holds one or more partitions, each the hopscotch table of a {@link LongHopscotchSet} exactly as it is laid
+ * out in memory, so a lookup walks the same chain it would on the heap, but nothing is ever deserialized: the file is
+ * mapped and read in place.  Keys are assigned to partitions by hash, just as {@link LargeLongHopscotchSet} assigns
+ * them, so the partitions of such a set can be written as they are.  All values are little-endian:
+ * <pre>
+ *     int   magic ("LHT1")
+ *     int   version
+ *     int   number of partitions
+ *     int   1 if there is a value for each bucket, 0 otherwise
+ *     long  size (summed over all partitions)
+ *     int   number of metadata bytes
+ *     int   reserved
+ *     byte[] metadata, opaque to the table, padded with zeros to a multiple of 8 bytes
+ *     int[number of partitions] capacities, padded with zeros to a multiple of 8 bytes
+ *     then, for each partition:
+ *         long[capacity] buckets (MSB set if the bucket is occupied, as in LongHopscotchSet)
+ *         long[capacity] values (only if there are values)
+ *         byte[capacity] status bytes (chain-head bit and offset to next, as in LongHopscotchSet), padded to 8 bytes
+ * </pre>
+ * Partitions are mapped in segments, so each may be larger than the 2GB limit of a single buffer.
+ * Lookups use absolute gets only, so a table can be shared by any number of threads.
+ * <p>
+ * An entry is found by its position, which packs the partition index into the high int and the bucket index into the
+ * low int.
+ */
+final class MappedLongHopscotchTable {
+    private static final int MAGIC = 0x4c485431; // "LHT1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+
+    // each mapped segment holds 2^27 longs (or 2^30 status bytes), i.e., 1GB
+    private static final int LONGS_PER_SEGMENT_SHIFT = 27;
+    private static final int BYTES_PER_SEGMENT_SHIFT = 30;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+    private static final int NO_ELEMENT_INDEX = -1;
+    private static final MappedFileCache<MappedLongHopscotchTable> OPEN_TABLES = new MappedFileCache<>(MappedLongHopscotchTable::new);
+
+    static final long NO_POSITION = -1L;
+
+    private final long size;
+    private final boolean hasValues;
+    private final byte[] metadata;
+    private final Partition[] partitions;
+
+    private MappedLongHopscotchTable( final Path path ) {
+        try ( final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ) ) {
+            final ByteBuffer header = readFully(channel, 0L, HEADER_BYTES);
+            if ( header.remaining() != HEADER_BYTES || header.getInt() != MAGIC ) {
+                throw new UserException.BadInput(path + " is not a mapped hopscotch table");
+            }
+            final int version = header.getInt();
+            if ( version != VERSION ) {
+                throw new UserException.BadInput(path + " is a mapped hopscotch table of unsupported version " + version);
+            }
+            final int numPartitions = header.getInt();
+            hasValues = header.getInt() != 0;
+            size = header.getLong();
+            final int metadataBytes = header.getInt();
+            if ( numPartitions < 1 || metadataBytes < 0 ) {
+                throw new UserException.BadInput(path + " is a mapped hopscotch table with a corrupt header");
+            }
+
+            final ByteBuffer metadataBuffer = readFully(channel, HEADER_BYTES, metadataBytes);
+            metadata = new byte[metadataBuffer.remaining()];
+            metadataBuffer.get(metadata);
+            long regionStart = HEADER_BYTES + paddedLength(metadataBytes);
+            final ByteBuffer capacities = readFully(channel, regionStart, Integer.BYTES * numPartitions);
+            if ( metadata.length != metadataBytes || capacities.remaining() != Integer.BYTES * numPartitions ) {
+                throw new UserException.BadInput(path + " is truncated");
+            }
+            regionStart += paddedLength(Integer.BYTES * numPartitions);
+
+            partitions = new Partition[numPartitions];
+            for ( int idx = 0; idx != numPartitions; ++idx ) {
+                final int capacity = capacities.getInt();
+                final long regionEnd = regionStart + Partition.byteLength(capacity, hasValues);
+                if ( capacity < 1 || regionEnd > channel.size() ) {
+                    throw new UserException.BadInput(path + " is truncated: expected at least " + regionEnd + " bytes, found " + channel.size());
+                }
+                partitions[idx] = new Partition(channel, regionStart, capacity, hasValues);
+                regionStart = regionEnd;
+            }
+            if ( channel.size() != regionStart ) {
+                throw new UserException.BadInput(path + " has the wrong length: expected " + regionStart + " bytes, found " + channel.size());
+            }
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotReadInputFile(path, e);
+        }
+    }
+
+    private static ByteBuffer readFully( final FileChannel channel, final long position, final int nBytes )
+            throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(nBytes).order(ByteOrder.LITTLE_ENDIAN);
+        while ( buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0 ) { }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static ByteBuffer[] mapRegion( final FileChannel channel, final long regionStart, final long regionLength,
+                                           final int segmentShift ) throws IOException {
+        final long segmentBytes = 1L << segmentShift;
+        final ByteBuffer[] segments = new ByteBuffer[(int)((regionLength + segmentBytes - 1) >>> segmentShift)];
+        for ( int idx = 0; idx != segments.length; ++idx ) {
+            final long offset = idx * segmentBytes;
+            final MappedByteBuffer segment =
+                    channel.map(FileChannel.MapMode.READ_ONLY, regionStart + offset, Math.min(segmentBytes, regionLength - offset));
+            segments[idx] = segment.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return segments;
+    }
+
+    private static long paddedLength( final long nBytes ) {
+        return (nBytes + Long.BYTES - 1) & -(long)Long.BYTES;
+    }
+
+    /** Map a table written by {@link #write}, or reuse the mapping if this JVM has already opened it. */
+    static MappedLongHopscotchTable open( final Path path ) {
+        return OPEN_TABLES.open(path);
+    }
+
+    /**
+     * Write the tables of the partitions of a set, and, optionally, a value for each of its keys.
+     * @param sets the partitions, in the order {@link LargeLongHopscotchSet} assigns keys to them (or just one set)
+     * @param keys if not null, each key of the set, in any order
+     * @param keyValues if not null, the value for each of keys (only supported for a single partition)
+     * @param fileMetadata opaque bytes to store with the table
+     */
+    static void write( final List<LongHopscotchSet> sets, final long[] keys, final long[] keyValues,
+                       final byte[] fileMetadata, final Path path ) {
+        Utils.nonEmpty(sets);
+        Utils.nonNull(fileMetadata);
+        Utils.nonNull(path);
+        long[] bucketValues = null;
+        if ( keyValues != null ) {
+            Utils.validateArg(sets.size() == 1, "values are only supported for a single partition");
+            Utils.validateArg(keys != null && keys.length == keyValues.length, "there must be exactly one value for each key");
+            final LongHopscotchSet set = sets.get(0);
+            bucketValues = new long[set.getBuckets().length];
+            for ( int idx = 0; idx != keys.length; ++idx ) {
+                final long key = keys[idx];
+                final int bucketIndex = set.bucketIndexOf(key, LongHopscotchSet.longHash(key));
+                if ( bucketIndex == NO_ELEMENT_INDEX ) {
+                    throw new GATKException("Key " + key + " has a value, but is not in the set");
+                }
+                bucketValues[bucketIndex] = keyValues[idx];
+            }
+        }
+
+        try ( final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE) ) {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            final long size = sets.stream().mapToLong(LongHopscotchSet::size).sum();
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(sets.size()).putInt(bucketValues != null ? 1 : 0)
+                    .putLong(size).putInt(fileMetadata.length).putInt(0);
+            writeBytes(channel, buffer, fileMetadata);
+            for ( final LongHopscotchSet set : sets ) {
+                if ( buffer.remaining() < Integer.BYTES ) drain(channel, buffer);
+                buffer.putInt(set.getBuckets().length);
+            }
+            pad(channel, buffer, Integer.BYTES * sets.size());
+            for ( final LongHopscotchSet set : sets ) {
+                writeLongs(channel, buffer, set.getBuckets());
+                if ( bucketValues != null ) {
+                    writeLongs(channel, buffer, bucketValues);
+                }
+                writeBytes(channel, buffer, set.getStatus());
+            }
+            drain(channel, buffer);
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotCreateOutputFile(path.toString(), "Could not write the hopscotch table", e);
+        }
+    }
+
+    private static void writeLongs( final FileChannel channel, final ByteBuffer buffer, final long[] longs )
+            throws IOException {
+        for ( final long val : longs ) {
+            if ( buffer.remaining() < Long.BYTES ) drain(channel, buffer);
+            buffer.putLong(val);
+        }
+    }
+
+    /** Writes the bytes, followed by zeros to pad them to a multiple of 8 bytes. */
+    private static void writeBytes( final FileChannel channel, final ByteBuffer buffer, final byte[] bytes )
+            throws IOException {
+        for ( final byte val : bytes ) {
+            if ( !buffer.hasRemaining() ) drain(channel, buffer);
+            buffer.put(val);
+        }
+        pad(channel, buffer, bytes.length);
+    }
+
+    private static void pad( final FileChannel channel, final ByteBuffer buffer, final long nBytesWritten )
+            throws IOException {
+        for ( long idx = nBytesWritten; idx != paddedLength(nBytesWritten); ++idx ) {
+            if ( !buffer.hasRemaining() ) drain(channel, buffer);
+            buffer.put((byte)0);
+        }
+    }
+
+    private static void drain( final FileChannel channel, final ByteBuffer buffer ) throws IOException {
+        buffer.flip();
+        while ( buffer.hasRemaining() ) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    long size() { return size; }
+
+    boolean hasValues() { return hasValues; }
+
+    /** The metadata stored with the table. */
+    byte[] getMetadata() { return metadata.clone(); }
+
+    /** The position of a key, or {@link #NO_POSITION} if the key is absent. */
+    long find( final long key ) {
+        if ( key < 0 ) return NO_POSITION;
+        final int hash = LongHopscotchSet.longHash(key);
+        final int partitionIndex = Integer.remainderUnsigned(hash, partitions.length);
+        final int bucketIndex = partitions[partitionIndex].bucketIndexOf(key, hash);
+        return bucketIndex == NO_ELEMENT_INDEX ? NO_POSITION : toPosition(partitionIndex, bucketIndex);
+    }
+
+    /** The first occupied position at or after the given one, or {@link #NO_POSITION} if there are no more. */
+    long nextOccupied( final long position ) {
+        int partitionIndex = (int)(position >>> 32);
+        int bucketIndex = (int)position;
+        while ( partitionIndex < partitions.length ) {
+            final Partition partition = partitions[partitionIndex];
+            while ( bucketIndex < partition.capacity ) {
+                if ( partition.getBucket(bucketIndex) != 0L ) return toPosition(partitionIndex, bucketIndex);
+                ++bucketIndex;
+            }
+            ++partitionIndex;
+            bucketIndex = 0;
+        }
+        return NO_POSITION;
+    }
+
+    long getKey( final long position ) {
+        return partitions[(int)(position >>> 32)].getBucket((int)position) & Long.MAX_VALUE;
+    }
+
+    long getValue( final long position ) {
+        return partitions[(int)(position >>> 32)].getValue((int)position);
+    }
+
+    private static long toPosition( final int partitionIndex, final int bucketIndex ) {
+        return ((long)partitionIndex << 32) | bucketIndex;
+    }
+
+    /** The mapped buckets, values, and status bytes of one LongHopscotchSet. */
+    private static final class Partition {
+        private final int capacity;
+        private final ByteBuffer[] buckets;
+        private final ByteBuffer[] values;
+        private final ByteBuffer[] status;
+
+        Partition( final FileChannel channel, long regionStart, final int capacity, final boolean hasValues )
+                throws IOException {
+            this.capacity = capacity;
+            buckets = mapRegion(channel, regionStart, 8L * capacity, LONGS_PER_SEGMENT_SHIFT + 3);
+            regionStart += 8L * capacity;
+            if ( hasValues ) {
+                values = mapRegion(channel, regionStart, 8L * capacity, LONGS_PER_SEGMENT_SHIFT + 3);
+                regionStart += 8L * capacity;
+            } else {
+                values = null;
+            }
+            status = mapRegion(channel, regionStart, capacity, BYTES_PER_SEGMENT_SHIFT);
+        }
+
+        static long byteLength( final int capacity, final boolean hasValues ) {
+            return (hasValues ? 16L : 8L) * capacity + paddedLength(capacity);
+        }
+
+        /** The index of the bucket holding a key, or -1 if the key is absent. */
+        int bucketIndexOf( final long key, final int hash ) {
+            int bucketIndex = hashToIndex(hash);
+            if ( !isChainHead(bucketIndex) ) return NO_ELEMENT_INDEX;
+            if ( (getBucket(bucketIndex) & Long.MAX_VALUE) == key ) return bucketIndex;
+            int offset;
+            while ( (offset = getOffset(bucketIndex)) != 0 ) {
+                bucketIndex = getIndex(bucketIndex, offset);
+                if ( (getBucket(bucketIndex) & Long.MAX_VALUE) == key ) return bucketIndex;
+            }
+            return NO_ELEMENT_INDEX;
+        }
+
+        long getBucket( final int bucketIndex ) {
+            return buckets[bucketIndex >>> LONGS_PER_SEGMENT_SHIFT].getLong(longOffset(bucketIndex));
+        }
+
+        long getValue( final int bucketIndex ) {
+            return values[bucketIndex >>> LONGS_PER_SEGMENT_SHIFT].getLong(longOffset(bucketIndex));
+        }
+
+        private static int longOffset( final int bucketIndex ) {
+            return (bucketIndex & ((1 << LONGS_PER_SEGMENT_SHIFT) - 1)) << 3;
+        }
+
+        private byte getStatus( final int bucketIndex ) {
+            return status[bucketIndex >>> BYTES_PER_SEGMENT_SHIFT].get(bucketIndex & ((1 << BYTES_PER_SEGMENT_SHIFT) - 1));
+        }
+
+        private boolean isChainHead( final int bucketIndex ) {
+            return (getStatus(bucketIndex) & Byte.MIN_VALUE) != 0;
+        }
+
+        private int getOffset( final int bucketIndex ) {
+            return getStatus(bucketIndex) & Byte.MAX_VALUE;
+        }
+
+        private int hashToIndex( final int hashVal ) {
+            int result = hashVal % capacity;
+            if ( result < 0 ) result += capacity;
+            return result;
+        }
+
+        private int getIndex( final int bucketIndex, final int offset ) {
+            int result = bucketIndex + offset;
+            if ( result >= capacity ) result -= capacity;
+            return result;
+        }
+    }
+}
@@ -1,20 +1,30 @@
 package org.broadinstitute.hellbender.tools.walkers;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.util.Locatable;
+import htsjdk.samtools.util.OverlapDetector;
+import htsjdk.tribble.index.tabix.TabixUtils;
 import htsjdk.variant.variantcontext.*;
+import htsjdk.variant.variantcontext.writer.Options;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
 import htsjdk.variant.vcf.*;
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import org.broadinstitute.barclay.help.DocumentedFeature;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.cmdline.argumentcollections.DbsnpArgumentCollection;
+import org.broadinstitute.hellbender.cmdline.argumentcollections.MultiVariantInputArgumentCollection;
 import org.broadinstitute.hellbender.cmdline.programgroups.ShortVariantDiscoveryProgramGroup;
+import org.broadinstitute.hellbender.engine.MultiVariantDataSource;
 import org.broadinstitute.hellbender.engine.MultiVariantWalkerGroupedOnStart;
 import org.broadinstitute.hellbender.engine.ReferenceContext;
+import org.broadinstitute.hellbender.engine.ReferenceDataSource;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.walkers.annotator.*;
 import org.broadinstitute.hellbender.tools.walkers.mutect.M2FiltersArgumentCollection;
@@ -22,12 +32,21 @@ import org.broadinstitute.hellbender.tools.walkers.mutect.Mutect2FilteringEngine
 import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.genotyper.IndexedSampleList;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFConstants;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFHeaderLines;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
 
 /**
  * Combine per-sample gVCF files produced by HaplotypeCaller into a multi-sample gVCF file
@@ -67,6 +86,19 @@ import java.util.*;
  * <p>Users generating large callsets (1000+ samples) may prefer GenomicsDBImport, which uses Intel's GenomicsDB and is capable of scaling to much larger sample sizes than CombineGVCFs.
  * This tool provides a pure java reference implementation of the combine operation which is available on all architectures.<p/>
  *
+ * <p>For medium cohorts (hundreds to a few thousand samples) the inputs can instead be combined in a tree with
+ * --tree-merge-fanout: groups of inputs are combined into temporary block-compressed GVCFs, on --tree-merge-threads
+ * threads, and those are combined in turn until few enough remain for the final combine.</p>
+ *
+ * <pre>
+ * gatk CombineGVCFs \
+ *   -R reference.fasta \
+ *   --variant gvcfs.list \
+ *   --tree-merge-fanout 50 \
+ *   --tree-merge-threads 8 \
+ *   -O cohort.g.vcf.gz
+ * </pre>
+ *
  */
 @CommandLineProgramProperties(summary = "Merges one or more HaplotypeCaller GVCF files into a single GVCF with appropriate annotations", oneLineSummary = "Merges one or more HaplotypeCaller GVCF files into a single GVCF with appropriate annotations", programGroup = ShortVariantDiscoveryProgramGroup.class)
 @DocumentedFeature
@@ -74,14 +106,15 @@ public final class CombineGVCFs extends MultiVariantWalkerGroupedOnStart {
 
     private VariantAnnotatorEngine annotationEngine;
     private VariantContextWriter vcfWriter;
-    private SAMSequenceDictionary sequenceDictionary;
-    private ReferenceConfidenceVariantContextMerger referenceConfidenceVariantContextMerger;
+    private GVCFCombiner combiner;
 
     public static final String BP_RES_LONG_NAME = "convert-to-base-pair-resolution";
     public static final String BREAK_BANDS_LONG_NAME = "break-bands-at-multiples-of";
     public static final String SOMATIC_INPUT_LONG_NAME = "input-is-somatic";
     public static final String DROP_SOMATIC_FILTERING_ANNOTATIONS_LONG_NAME = "drop-somatic-filtering-annotations";
     public static final String ALLELE_FRACTION_DELTA_LONG_NAME = "allele-fraction-error";
+    public static final String TREE_MERGE_FANOUT_LONG_NAME = "tree-merge-fanout";
+    public static final String TREE_MERGE_THREADS_LONG_NAME = "tree-merge-threads";
 
     @Argument(fullName= StandardArgumentDefinitions.OUTPUT_LONG_NAME,
             shortName=StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
@@ -115,6 +148,31 @@ public final class CombineGVCFs extends MultiVariantWalkerGroupedOnStart {
     @Argument(fullName=DROP_SOMATIC_FILTERING_ANNOTATIONS_LONG_NAME, doc = "For input somatic GVCFs (i.e. from Mutect2) drop filtering annotations")
     protected boolean dropSomaticFilteringAnnotations = false;
 
+    /**
+     * A single combine keeps a reader and the genotypes of every input in flight at each site, which stops scaling
+     * beyond a few hundred samples.  If this is set, the inputs are instead combined in a tree: groups of at most this
+     * many inputs are combined into temporary block-compressed GVCFs, which are combined in turn until at most this
+     * many remain for the final combine.  The output is the same as that of a single combine: the intermediate GVCFs
+     * keep every value of the INFO annotations that are combined by taking the median (e.g. the non allele-specific
+     * rank sum tests), so the final combine takes the median over the values of all the inputs.  The intermediate GVCFs
+     * declare their fixed-count INFO annotations with an unbounded count (Number=.) to allow this, and the output
+     * header is made from the headers of the inputs, as in a single combine.  The dbSNP annotation is only applied by
+     * the final combine.
+     */
+    @Advanced
+    @Argument(fullName=TREE_MERGE_FANOUT_LONG_NAME, doc = "If > 1, combine the inputs in a tree, at most this many GVCFs at a time", optional=true, minValue = 0)
+    protected int treeMergeFanout = 0;
+
+    @Advanced
+    @Argument(fullName=TREE_MERGE_THREADS_LONG_NAME, doc = "Number of threads used to combine the groups of each level of the tree (only applies with --" + TREE_MERGE_FANOUT_LONG_NAME + ")", optional=true, minValue = 1)
+    protected int treeMergeThreads = 1;
+
+    // the intermediate GVCFs of a tree merge that have not been consumed yet
+    private final Set<String> treeMergeIntermediates = new LinkedHashSet<>();
+
+    // the merged header of the inputs of a tree merge, which the final combine writes rather than that of the top level
+    private VCFHeader treeMergeInputHeader = null;
+
     @Override
     public boolean useVariantAnnotations() { return true;}
 
@@ -129,91 +187,226 @@ public final class CombineGVCFs extends MultiVariantWalkerGroupedOnStart {
     @ArgumentCollection
     protected DbsnpArgumentCollection dbsnp = new DbsnpArgumentCollection();
 
-    // State that gets accumulated between calls of apply()
-    private final LinkedList<VariantContext> variantContextsOverlappingCurrentMerge = new LinkedList<>();
-    private final Set<String> samples = new HashSet<>();
-    private SimpleInterval prevPos = null;
-    private byte refAfterPrevPos;
-    private ReferenceContext storedReferenceContext;
+    /**
+     * Records that start at the same position are merged in input order, so that the combined output (and the output
+     * of a tree merge in particular) is deterministic.
+     */
+    @Override
+    protected boolean mergeDrivingVariantsByStart() {
+        return true;
+    }
 
     @Override
-    public void apply(List<VariantContext> variantContexts, ReferenceContext referenceContext) {
-        // Check that the input variant contexts do not contain MNPs as these may not be properly merged
-        for (final VariantContext ctx : variantContexts) {
-            if (GATKVariantContextUtils.isUnmixedMnpIgnoringNonRef(ctx)) {
-                throw new UserException.BadInput(String.format(
-                        "Combining gVCFs containing MNPs is not supported. %1s contained a MNP at %2s:%3d",
-                        ctx.getSource(), ctx.getContig(), ctx.getStart()));
+    protected MultiVariantInputArgumentCollection getMultiVariantInputArgumentCollection() {
+        return new TreeMergeInputArgumentCollection();
+    }
+
+    /**
+     * When combining in a tree, the lower levels of the tree are combined here, before the driving variants are
+     * opened, so that the traversal of this tool is the final combine over the top level of intermediate GVCFs.
+     */
+    @Override
+    protected void initializeDrivingVariants() {
+        final TreeMergeInputArgumentCollection inputs = (TreeMergeInputArgumentCollection) multiVariantInputArgumentCollection;
+        if ( treeMergeFanout == 1 ) {
+            throw new CommandLineException.BadArgumentValue(TREE_MERGE_FANOUT_LONG_NAME, String.valueOf(treeMergeFanout), "should be 0 (no tree) or at least 2");
+        }
+        if ( treeMergeFanout > 1 && inputs.drivingVariantPaths.size() > treeMergeFanout ) {
+            inputs.combinedPaths = combineInTree(inputs.drivingVariantPaths);
+        }
+        super.initializeDrivingVariants();
+    }
+
+    /**
+     * Combine the inputs level by level, at most {@link #treeMergeFanout} at a time, until no more than
+     * {@link #treeMergeFanout} remain.  The groups of a level are combined in parallel and are kept in input order,
+     * so the tree (and therefore the output) doesn't depend on the number of threads.
+     *
+     * @return the paths to combine in the final level
+     */
+    private List<String> combineInTree(final List<String> inputs) {
+        final File tempDir = IOUtils.createTempDir("combinegvcfs-tree");
+        final SAMSequenceDictionary dictionary = getReferenceDictionary();
+        final List<SimpleInterval> intervals = intervalArgumentCollection.intervalsSpecified() ? intervalArgumentCollection.getIntervals(dictionary) : null;
+        final Collection<Annotation> annotations = makeVariantAnnotations();
+        treeMergeInputHeader = getMergedHeader(inputs);
+
+        final ExecutorService executorService = Executors.newFixedThreadPool(treeMergeThreads,
+                new ThreadFactoryBuilder()
+                        .setNameFormat("combinegvcfs-tree-%d")
+                        .setDaemon(true)
+                        .build());
+        try {
+            List<String> level = inputs;
+            for ( int depth = 1; level.size() > treeMergeFanout; depth++ ) {
+                final List<Future<String>> groups = new ArrayList<>(level.size() / treeMergeFanout + 1);
+                for ( int start = 0; start < level.size(); start += treeMergeFanout ) {
+                    final List<String> members = level.subList(start, Math.min(level.size(), start + treeMergeFanout));
+                    if ( members.size() == 1 ) {
+                        groups.add(CompletableFuture.completedFuture(members.get(0)));
+                    } else {
+                        final String output = new File(tempDir, String.format("level%d.group%d.g.vcf.gz", depth, groups.size())).getAbsolutePath();
+                        treeMergeIntermediates.add(output);
+                        groups.add(executorService.submit(() -> combineGroup(members, output, annotations, dictionary, intervals)));
+                    }
+                }
+                logger.info(String.format("Combining %d GVCFs into %d intermediate GVCFs (tree level %d)", level.size(), groups.size(), depth));
+                final List<String> combined = getCombinedGroups(groups);
+                // the intermediate GVCFs of the previous level have been consumed, unless they were carried up as is
+                level.stream().filter(path -> !combined.contains(path)).forEach(this::deleteTreeMergeIntermediate);
+                level = combined;
             }
+            return level;
+        } finally {
+            executorService.shutdownNow();
         }
+    }
 
-        // If we need to stop at an intermediate site since the last apply, do so (caused by gvcfBlocks, contexts ending, etc...)
-        if (!variantContextsOverlappingCurrentMerge.isEmpty()) {
-            Locatable last = prevPos!=null && prevPos.getContig().equals(variantContextsOverlappingCurrentMerge.get(0).getContig()) ?  prevPos : variantContextsOverlappingCurrentMerge.get(0);
-            // If on a different contig, close out all the queued states on the current contig
-            int end = last.getContig().equals(referenceContext.getWindow().getContig())
-                    ? referenceContext.getInterval().getStart() - 1
-                    : variantContextsOverlappingCurrentMerge.stream().mapToInt(VariantContext::getEnd).max().getAsInt();
+    /**
+     * Combine a group of GVCFs of the tree into an intermediate GVCF, in this VM.  The group is traversed like the
+     * driving variants of this tool, but with its own data sources, merger and writer, so groups can be combined on
+     * several threads at once without sharing any state.
+     *
+     * @param members the GVCFs to combine
+     * @param output the intermediate GVCF to write
+     * @param annotations the annotations of this run
+     * @param dictionary the reference dictionary
+     * @param intervals the intervals to combine over, or {@code null} to combine everything
+     * @return {@code output}
+     */
+    private String combineGroup(final List<String> members, final String output, final Collection<Annotation> annotations,
+                                final SAMSequenceDictionary dictionary, final List<SimpleInterval> intervals) {
+        final OverlapDetector<SimpleInterval> overlapDetector = intervals == null ? null : OverlapDetector.create(intervals);
+        final Predicate<Locatable> withinIntervals = loc -> overlapDetector == null || overlapDetector.overlapsAny(loc);
+
+        try ( final MultiVariantDataSource variants = createMultiVariantDataSource(members);
+              final ReferenceDataSource reference = ReferenceDataSource.of(referenceArguments.getReferencePath());
+              final VariantContextWriter writer = createTreeMergeWriter(output, dictionary) ) {
+            if ( intervals != null ) {
+                variants.setIntervalsForTraversal(intervals);
+            }
 
-            createIntermediateVariants( new SimpleInterval(last.getContig(), last.getStart(), end));
+            // dbSNP is left to the final combine
+            final VariantAnnotatorEngine groupAnnotationEngine = new VariantAnnotatorEngine(annotations, null, Collections.emptyList(), false);
+            final Set<VCFHeaderLine> headerLines = new LinkedHashSet<>(variants.getHeader().getMetaDataInInputOrder());
+            headerLines.addAll(getAnnotationHeaderLines(groupAnnotationEngine));
+            writer.writeHeader(new VCFHeader(getHeaderLinesWithUnboundedInfoCounts(headerLines), variants.getSamples()));
+            final GVCFCombiner groupCombiner = new GVCFCombiner(
+                    new ReferenceConfidenceVariantContextMerger(groupAnnotationEngine, variants.getHeader(), somaticInput, dropSomaticFilteringAnnotations, true),
+                    writer, dictionary, useBpResolution, multipleAtWhichToBreakBands, withinIntervals);
+
+            // Group the variants by start, as MultiVariantWalkerGroupedOnStart does for the driving variants
+            final List<VariantContext> currentVariants = new ArrayList<>();
+            ReferenceContext spanningReferenceContext = null;
+            final Iterator<VariantContext> iterator = getTransformedVariantStream(variants.spliterator(),
+                    makePreVariantFilterTransformer(), makeVariantFilter(), makePostVariantFilterTransformer()).iterator();
+            while ( iterator.hasNext() ) {
+                final VariantContext variant = iterator.next();
+                if ( ignoresVariantsStartingOutsideIntervals() && !withinIntervals.test(new SimpleInterval(variant.getContig(), variant.getStart(), variant.getStart())) ) {
+                    continue;
+                }
+                if ( !currentVariants.isEmpty() && (!currentVariants.get(0).contigsMatch(variant) || currentVariants.get(0).getStart() < variant.getStart()) ) {
+                    groupCombiner.apply(new ArrayList<>(currentVariants), spanningReferenceContext);
+                    currentVariants.clear();
+                }
+                currentVariants.add(variant);
+                final ReferenceContext referenceContext = new ReferenceContext(reference, new SimpleInterval(variant));
+                referenceContext.setWindow(1, 1);
+                if ( spanningReferenceContext == null || currentVariants.size() == 1
+                        || referenceContext.getWindow().getEnd() > spanningReferenceContext.getWindow().getEnd() ) {
+                    spanningReferenceContext = referenceContext;
+                }
+            }
+            if ( !currentVariants.isEmpty() ) {
+                groupCombiner.apply(currentVariants, spanningReferenceContext);
+            }
+            groupCombiner.finish();
         }
+        return output;
+    }
 
-        mergeWithNewVCs(variantContexts, referenceContext);
+    private VariantContextWriter createTreeMergeWriter(final String output, final SAMSequenceDictionary dictionary) {
+        final List<Options> options = new ArrayList<>(Collections.singletonList(Options.INDEX_ON_THE_FLY));
+        if ( lenientVCFProcessing ) {
+            options.add(Options.ALLOW_MISSING_FIELDS_IN_HEADER);
+        }
+        return GATKVariantContextUtils.createVCFWriter(IOUtils.getPath(output), dictionary, false, options.toArray(new Options[0]));
+    }
 
-        // Update the stored reference if it has a later stop position than the current stored reference
-        if ( (storedReferenceContext == null) ||
-                (!referenceContext.getWindow().contigsMatch(storedReferenceContext.getWindow()) ) ||
-                (storedReferenceContext.getWindow().getEnd() < referenceContext.getWindow().getEnd())) {
-            storedReferenceContext = referenceContext;
+    /**
+     * Merges the headers of the given GVCFs as the driving variants would, one GVCF at a time, so that the output of a
+     * tree merge has the header of a single combine of all its inputs.
+     */
+    private VCFHeader getMergedHeader(final List<String> paths) {
+        final List<VCFHeader> headers = new ArrayList<>(paths.size());
+        for ( final String path : paths ) {
+            try ( final MultiVariantDataSource variants = createMultiVariantDataSource(Collections.singletonList(path)) ) {
+                headers.add(variants.getHeader());
+            }
         }
+        return headers.size() > 1 ? new VCFHeader(VCFUtils.smartMergeHeaders(headers, true)) : headers.get(0);
     }
 
     /**
-     * calculates if there are any sites in the provided interval where we should expect the tool to create
-     * a new variant context object by calling endPreviousStates() and closes them by providing appropriate reference
-     * information and an empty list of new variant contexts.
-     *
+     * The intermediate GVCFs of a tree merge keep every value of the median-combined INFO annotations, so the numeric
+     * INFO header lines with a fixed count are given an unbounded count.  END is never combined, so it keeps its count.
      */
-    @VisibleForTesting
-    void createIntermediateVariants(SimpleInterval intervalToClose) {
-        resizeReferenceIfNeeded(intervalToClose);
-
-        // Break up the GVCF according to the provided reference blocking scheme
-        // The values returned from getIntermediateStopSites represent a proposed set of stop sites that may include
-        // intervals that are outside the actual interval being closed. These sites are filtered out below.
-        // Note: Precomputing these is really inefficient when large reference blocks are closed with
-        // fine band resolution because it results in very large collections of stop sites (tens or hundreds of millions)
-        // that must subsequently be sorted.
-        final Set<Integer> sitesToStop = getIntermediateStopSites(intervalToClose, multipleAtWhichToBreakBands);
-
-        // If any variant contexts ended (or were spanning deletions) the last context compute where we should stop them
-        for (VariantContext vc : variantContextsOverlappingCurrentMerge) {
-
-            // Asking if the number of alleles > 2 is a shorthand for a variant being present, as we expect <non-ref>
-            // symbolic alleles to be present in all VariantContext. This might also be the case if we saw a spanning
-            // deletion that reads into the current site, as we would expect ReferenceConfidenceVariantContextMerger to
-            // insert symbolic alleles for those spanning variants.
-            if (vc.getNAlleles() > 2) {
-                for (int i = vc.getStart(); i <= vc.getEnd(); i++ ) {
-                    sitesToStop.add(i);
+    private static Set<VCFHeaderLine> getHeaderLinesWithUnboundedInfoCounts(final Set<VCFHeaderLine> headerLines) {
+        final Set<VCFHeaderLine> result = new LinkedHashSet<>(headerLines.size());
+        for ( final VCFHeaderLine headerLine : headerLines ) {
+            if ( headerLine instanceof VCFInfoHeaderLine ) {
+                final VCFInfoHeaderLine infoLine = (VCFInfoHeaderLine) headerLine;
+                if ( infoLine.getCountType() == VCFHeaderLineCount.INTEGER && !infoLine.getID().equals(VCFConstants.END_KEY)
+                        && (infoLine.getType() == VCFHeaderLineType.Integer || infoLine.getType() == VCFHeaderLineType.Float) ) {
+                    result.add(new VCFInfoHeaderLine(infoLine.getID(), VCFHeaderLineCount.UNBOUNDED, infoLine.getType(), infoLine.getDescription()));
+                    continue;
                 }
-            } else if (vc.getEnd() <= intervalToClose.getEnd()) {
-                sitesToStop.add(vc.getEnd());
             }
+            result.add(headerLine);
         }
+        return result;
+    }
 
-        List<Integer> stoppedLocs = new ArrayList<>(sitesToStop);
-        stoppedLocs.sort(Comparator.naturalOrder());
+    private static List<String> getCombinedGroups(final List<Future<String>> groups) {
+        final List<String> combined = new ArrayList<>(groups.size());
+        for ( final Future<String> group : groups ) {
+            try {
+                combined.add(group.get());
+            }
+            catch ( final InterruptedException ex ) {
+                Thread.currentThread().interrupt();
+                throw new GATKException("Interrupted while combining GVCFs", ex);
+            }
+            catch ( final ExecutionException ex ) {
+                // Preserve user exceptions and the like thrown while combining:
+                if ( ex.getCause() instanceof RuntimeException ) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw new GATKException("Error while combining GVCFs", ex.getCause());
+            }
+        }
+        return combined;
+    }
 
-        // For each stopped loc that is within the interval being closed, create a fake QueuedContextState and pass it to endPreviousStats
-        for (int stoppedLoc : stoppedLocs) {
-            SimpleInterval loc = new SimpleInterval(intervalToClose.getContig(), stoppedLoc, stoppedLoc);
-            if (( stoppedLoc <= intervalToClose.getEnd() && stoppedLoc>= intervalToClose.getStart()) && isWithinInterval(loc)) {
-                byte[] refBases = Arrays.copyOfRange(storedReferenceContext.getBases(), stoppedLoc - storedReferenceContext.getWindow().getStart(), stoppedLoc - storedReferenceContext.getWindow().getStart() + 2);
-                endPreviousStates(loc, refBases, Collections.emptyList(), true);
+    /**
+     * Deletes an intermediate GVCF of the tree merge, and its index, if the path is one.  Inputs are left alone.
+     */
+    private void deleteTreeMergeIntermediate(final String path) {
+        if ( treeMergeIntermediates.remove(path) ) {
+            for ( final String file : Arrays.asList(path, path + TabixUtils.STANDARD_INDEX_EXTENSION) ) {
+                try {
+                    Files.deleteIfExists(IOUtils.getPath(file));
+                } catch ( final IOException e ) {
+                    // the temporary directory is also deleted on exit
+                    logger.warn("Could not delete intermediate file " + file, e);
+                }
             }
         }
+    }
 
+    @Override
+    public void apply(List<VariantContext> variantContexts, ReferenceContext referenceContext) {
+        combiner.apply(variantContexts, referenceContext);
     }
 
     // Get any intermediate stop sites based on the break band multiple.
@@ -236,17 +429,21 @@ public final class CombineGVCFs extends MultiVariantWalkerGroupedOnStart {
     }
 
     /**
-     * Resize {@link #storedReferenceContext} to cover at least as much as intervalToClose
-     * @param intervalToClose
+     * Does the given list of VariantContexts contain any with an alternate allele other than <NON_REF>?
+     *
+     * @param VCs  list of VariantContexts
+     * @return true if there are one or more variantContexts that contain a true alternate allele, false otherwise
      */
-    private void resizeReferenceIfNeeded(SimpleInterval intervalToClose) {
-        final int leftEdge = storedReferenceContext.getInterval().getStart() - intervalToClose.getStart();
-        final int rightEdge = intervalToClose.getEnd() - storedReferenceContext.getInterval().getEnd();
+    private static boolean containsTrueAltAllele(final List<VariantContext> VCs) {
 
-        storedReferenceContext.setWindow(Math.max(1, leftEdge), Math.max(1, rightEdge));
+        for ( final VariantContext vc : VCs ) {
+            if ( vc.getNAlleles() > 2 ) {
+                return true;
+            }
+        }
+        return false;
     }
 
-
     @Override
     public void onTraversalStart() {
         if (somaticInput) {
@@ -258,27 +455,36 @@ public final class CombineGVCFs extends MultiVariantWalkerGroupedOnStart {
 
         vcfWriter = getVCFWriter();
 
-        referenceConfidenceVariantContextMerger = new ReferenceConfidenceVariantContextMerger(annotationEngine, getHeaderForVariants(), somaticInput, dropSomaticFilteringAnnotations);
-
-        //now that we have all the VCF headers, initialize the annotations (this is particularly important to turn off RankSumTest dithering in integration tests)'
-        sequenceDictionary = getBestAvailableSequenceDictionary();
-
-        // optimization to prevent mods when we always just want to break bands
-        if ( multipleAtWhichToBreakBands == 1 || useBpResolution) {
-            useBpResolution = true;
-            multipleAtWhichToBreakBands = 1;
-        }
+        combiner = new GVCFCombiner(
+                new ReferenceConfidenceVariantContextMerger(annotationEngine, getHeaderForVariants(), somaticInput, dropSomaticFilteringAnnotations, false),
+                vcfWriter, getBestAvailableSequenceDictionary(), useBpResolution, multipleAtWhichToBreakBands, this::isWithinInterval);
     }
 
     private VariantContextWriter getVCFWriter() {
         final SortedSet<String> samples = getSamplesForVariants();
 
-        final VCFHeader inputVCFHeader = new VCFHeader(getHeaderForVariants().getMetaDataInInputOrder(), samples);
+        // the intermediate GVCFs of a tree merge don't carry the header of the inputs as is, so use the inputs'
+        final VCFHeader inputVCFHeader = new VCFHeader(
+                (treeMergeInputHeader != null ? treeMergeInputHeader : getHeaderForVariants()).getMetaDataInInputOrder(), samples);
 
         final Set<VCFHeaderLine> headerLines = new LinkedHashSet<>(inputVCFHeader.getMetaDataInInputOrder());
         headerLines.addAll(getDefaultToolVCFHeaderLines());
+        headerLines.addAll(getAnnotationHeaderLines(annotationEngine));
+
+        VariantContextWriter writer = createVCFWriter(outputFile);
 
-        headerLines.addAll(annotationEngine.getVCFAnnotationDescriptions());
+        final Set<String> sampleNameSet = new IndexedSampleList(samples).asSetOfSamples();
+        final VCFHeader vcfHeader = new VCFHeader(headerLines, new TreeSet<>(sampleNameSet));
+        writer.writeHeader(vcfHeader);
+
+        return writer;
+    }
+
+    /**
+     * @return the header lines of the annotations added by this tool
+     */
+    private Set<VCFHeaderLine> getAnnotationHeaderLines(final VariantAnnotatorEngine engine) {
+        final Set<VCFHeaderLine> headerLines = new LinkedHashSet<>(engine.getVCFAnnotationDescriptions());
 
         // add headers for annotations added by this tool
         headerLines.add(VCFStandardHeaderLines.getInfoLine(VCFConstants.DEPTH_KEY));   // needed for gVCFs without DP tags
@@ -297,199 +503,332 @@ public final class CombineGVCFs extends MultiVariantWalkerGroupedOnStart {
                 }
             }
         }
+        return headerLines;
+    }
 
-        VariantContextWriter writer = createVCFWriter(outputFile);
+    @Override
+    public Object onTraversalSuccess() {
 
-        final Set<String> sampleNameSet = new IndexedSampleList(samples).asSetOfSamples();
-        final VCFHeader vcfHeader = new VCFHeader(headerLines, new TreeSet<>(sampleNameSet));
-        writer.writeHeader(vcfHeader);
+        if (!combiner.hasCombinedAny()) {
+            logger.warn("Error: The requested interval contained no data in source VCF files");
+            return null;
+        }
 
-        return writer;
+        // there shouldn't be any state left unless the user cut in the middle of a gVCF block
+        if ( !combiner.finish() ) {
+            logger.warn("You have asked for an interval that cuts in the middle of one or more gVCF blocks. Please note that this will cause you to lose records that don't end within your interval.");
+        }
+
+        return null;
     }
 
-    /**
-     * Method which calls endPreviousStates at the appropriate places on the given a new startingStates object
-     * and an OverallState object corresponding to the currently accumulated reads.
-     *
-     * @param variantContexts list of variant contexts with the same start position to be reduced
-     * @param referenceContext ReferenceContext object overlapping the provided VariantContexts
-     */
-    public void mergeWithNewVCs(final List<VariantContext> variantContexts, final ReferenceContext referenceContext) {
-        if ( !variantContexts.isEmpty() ) {
-            if ( ! okayToSkipThisSite(variantContexts, referenceContext) ) {
-                SimpleInterval loc = referenceContext.getInterval();
-                if (loc.getStart()-1 > 0) {
-                    endPreviousStates(new SimpleInterval(loc.getContig(), loc.getStart() - 1, loc.getStart() - 1),
-                            Arrays.copyOfRange(referenceContext.getBases(), 1, referenceContext.getWindow().getLengthOnReference()),
-                            variantContexts,
-                            false);
-                }
-            }
-            variantContextsOverlappingCurrentMerge.addAll(variantContexts);
-            for(final VariantContext vc : variantContextsOverlappingCurrentMerge){
-                samples.addAll(vc.getSampleNames());
-            }
+    @Override
+    public void closeTool(){
+        if (vcfWriter != null) {
+            vcfWriter.close();
         }
+        // the top level of the tree has been consumed by this combine
+        new ArrayList<>(treeMergeIntermediates).forEach(this::deleteTreeMergeIntermediate);
     }
 
     /**
-     * Is it okay to skip the given position?
-     *
-     * @param variantContexts  the query variant contexts representing the current position
-     * @param referenceContext  Reference context object overlapping the variant contexts
-     * @return true if it is okay to skip this position, false otherwise
+     * The state of a combine: the records overlapping the current merge, which are merged and written out as the
+     * following records (or the end of the traversal) close them.  The tool has one over its driving variants, and each
+     * group of a tree merge has its own.
      */
-    private boolean okayToSkipThisSite(List<VariantContext> variantContexts, ReferenceContext referenceContext) {
-        Set<String> intersection = new HashSet<>(getSamples(variantContexts));
-        intersection.retainAll(samples);
+    private static final class GVCFCombiner {
+        private final ReferenceConfidenceVariantContextMerger referenceConfidenceVariantContextMerger;
+        private final VariantContextWriter vcfWriter;
+        private final SAMSequenceDictionary sequenceDictionary;
+        private final boolean useBpResolution;
+        private final int multipleAtWhichToBreakBands;
+        private final Predicate<Locatable> withinIntervals;
+
+        private final List<VariantContext> variantContextsOverlappingCurrentMerge = new ArrayList<>();
+        private final Set<String> samples = new HashSet<>();
+
+        private SimpleInterval prevPos = null;
+        private byte refAfterPrevPos;
+        private ReferenceContext storedReferenceContext;
+
+        GVCFCombiner(final ReferenceConfidenceVariantContextMerger referenceConfidenceVariantContextMerger, final VariantContextWriter vcfWriter,
+                     final SAMSequenceDictionary sequenceDictionary, final boolean useBpResolution, final int multipleAtWhichToBreakBands,
+                     final Predicate<Locatable> withinIntervals) {
+            this.referenceConfidenceVariantContextMerger = referenceConfidenceVariantContextMerger;
+            this.vcfWriter = vcfWriter;
+            this.sequenceDictionary = sequenceDictionary;
+            // optimization to prevent mods when we always just want to break bands
+            this.useBpResolution = useBpResolution || multipleAtWhichToBreakBands == 1;
+            this.multipleAtWhichToBreakBands = this.useBpResolution ? 1 : multipleAtWhichToBreakBands;
+            this.withinIntervals = withinIntervals;
+        }
 
-        //if there's a starting VC with a sample that's already in a current VC, don't skip this position
-        return prevPos != null && referenceContext.getInterval().getStart() == prevPos.getStart() + 1 && intersection.isEmpty();
-    }
+        void apply(final List<VariantContext> variantContexts, final ReferenceContext referenceContext) {
+            // Check that the input variant contexts do not contain MNPs as these may not be properly merged
+            for (final VariantContext ctx : variantContexts) {
+                if (GATKVariantContextUtils.isUnmixedMnpIgnoringNonRef(ctx)) {
+                    throw new UserException.BadInput(String.format(
+                            "Combining gVCFs containing MNPs is not supported. %1s contained a MNP at %2s:%3d",
+                            ctx.getSource(), ctx.getContig(), ctx.getStart()));
+                }
+            }
 
-    private Set<String> getSamples(List<VariantContext> variantContexts) {
-        Set<String> output = new HashSet<>();
-        for (final VariantContext vc : variantContexts) {
-            output.addAll(vc.getSampleNames());
-        }
-        return output;
-    }
 
-    /**
-     * Disrupt the VariantContexts so that they all stop at the given pos, write them out, and put the remainder back in the list.
-     * @param pos   the position for the starting variantContexts
-     * @param variantContexts the current variant contexts with the same starting position
-     * @param forceOutputAtCurrentPosition  indicates whether we output a variant at the current position, independent of VCF start/end, i.e. in BP resolution mode
-     */
-    private void endPreviousStates(final SimpleInterval pos, final byte[] refBases, final List<VariantContext> variantContexts, boolean forceOutputAtCurrentPosition) {
-        Set<String> newSamples = getSamples(variantContexts);
+            // If we need to stop at an intermediate site since the last apply, do so (caused by gvcfBlocks, contexts ending, etc...)
+            if (!variantContextsOverlappingCurrentMerge.isEmpty()) {
+                Locatable last = prevPos!=null && prevPos.getContig().equals(variantContextsOverlappingCurrentMerge.get(0).getContig()) ?  prevPos : variantContextsOverlappingCurrentMerge.get(0);
+                // If on a different contig, close out all the queued states on the current contig
+                int end = last.getContig().equals(referenceContext.getWindow().getContig())
+                        ? referenceContext.getInterval().getStart() - 1
+                        : variantContextsOverlappingCurrentMerge.stream().mapToInt(VariantContext::getEnd).max().getAsInt();
+
+                createIntermediateVariants( new SimpleInterval(last.getContig(), last.getStart(), end));
+            }
 
-        final byte refBase = refBases[0];
-        //if we're in BP resolution mode or a VC ends at the current position then the reference for the next output VC (refNextBase)
-        // will be advanced one base
-        final byte refNextBase = (forceOutputAtCurrentPosition) ? (refBases.length > 1 ? refBases[1] : (byte)'N' ): refBase;
+            mergeWithNewVCs(variantContexts, referenceContext);
 
-        final List<VariantContext> stoppedVCs = new ArrayList<>(variantContextsOverlappingCurrentMerge.size());
+            // Update the stored reference if it has a later stop position than the current stored reference
+            if ( (storedReferenceContext == null) ||
+                    (!referenceContext.getWindow().contigsMatch(storedReferenceContext.getWindow()) ) ||
+                    (storedReferenceContext.getWindow().getEnd() < referenceContext.getWindow().getEnd())) {
+                storedReferenceContext = referenceContext;
+            }
+        }
 
-        for (int i = variantContextsOverlappingCurrentMerge.size() - 1; i >= 0; i-- ) {
-            final VariantContext vc = variantContextsOverlappingCurrentMerge.get(i);
-            //the VC for the previous state will be stopped if its position is previous to the current position or it we've moved to a new contig
-            if ( vc.getStart() <= pos.getStart() || !vc.contigsMatch(pos)) {
+        /**
+         * @return true if any records have been combined
+         */
+        boolean hasCombinedAny() {
+            return storedReferenceContext != null;
+        }
 
-                stoppedVCs.add(vc);
+        /**
+         * Finish off the last blocks.
+         *
+         * @return true if no records were left over, i.e. none of them continue past the end of the traversal
+         */
+        boolean finish() {
+            if ( storedReferenceContext != null && !variantContextsOverlappingCurrentMerge.isEmpty() ) {
+                final SimpleInterval lastInterval = new SimpleInterval(
+                        variantContextsOverlappingCurrentMerge.get(0).getContig(),
+                        variantContextsOverlappingCurrentMerge.get(0).getStart(),
+                        variantContextsOverlappingCurrentMerge.stream().map(VariantContext::getEnd).max(Comparator.naturalOrder()).get());
+                createIntermediateVariants(lastInterval);
+            }
+            return variantContextsOverlappingCurrentMerge.isEmpty();
+        }
 
-                // if it was ending anyways, then remove it from the future state
-                // or if ending vc is the same sample as a starting VC, then remove it from the future state
-                if((vc.getEnd() == pos.getStart()) || (variantContexts.size() > 0 && !forceOutputAtCurrentPosition && newSamples.containsAll(vc.getSampleNames()))) {
-                    samples.removeAll(vc.getSampleNames());
-                    variantContextsOverlappingCurrentMerge.remove(i);
+        /**
+         * calculates if there are any sites in the provided interval where we should expect the tool to create
+         * a new variant context object by calling endPreviousStates() and closes them by providing appropriate reference
+         * information and an empty list of new variant contexts.
+         *
+         */
+        void createIntermediateVariants(SimpleInterval intervalToClose) {
+            resizeReferenceIfNeeded(intervalToClose);
+
+            // Break up the GVCF according to the provided reference blocking scheme
+            // The values returned from getIntermediateStopSites represent a proposed set of stop sites that may include
+            // intervals that are outside the actual interval being closed. These sites are filtered out below.
+            // Note: Precomputing these is really inefficient when large reference blocks are closed with
+            // fine band resolution because it results in very large collections of stop sites (tens or hundreds of millions)
+            // that must subsequently be sorted.
+            final Set<Integer> sitesToStop = getIntermediateStopSites(intervalToClose, multipleAtWhichToBreakBands);
+
+            // If any variant contexts ended (or were spanning deletions) the last context compute where we should stop them
+            for (VariantContext vc : variantContextsOverlappingCurrentMerge) {
+
+                // Asking if the number of alleles > 2 is a shorthand for a variant being present, as we expect <non-ref>
+                // symbolic alleles to be present in all VariantContext. This might also be the case if we saw a spanning
+                // deletion that reads into the current site, as we would expect ReferenceConfidenceVariantContextMerger to
+                // insert symbolic alleles for those spanning variants.
+                if (vc.getNAlleles() > 2) {
+                    for (int i = vc.getStart(); i <= vc.getEnd(); i++ ) {
+                        sitesToStop.add(i);
+                    }
+                } else if (vc.getEnd() <= intervalToClose.getEnd()) {
+                    sitesToStop.add(vc.getEnd());
                 }
             }
-        }
 
-        //output the stopped variantContexts if there is no previous output (state.prevPos == null) or our current position is past
-        // the last write position (state.prevPos)
-        //NOTE: BP resolution with have current position == state.prevPos because it gets output via a different control flow
-        if ( !stoppedVCs.isEmpty() &&  (prevPos == null || IntervalUtils.isAfter(pos,prevPos,sequenceDictionary) )) {
-            final SimpleInterval closingSpot = new SimpleInterval(stoppedVCs.get(0).getContig(), pos.getStart(), pos.getStart());
+            List<Integer> stoppedLocs = new ArrayList<>(sitesToStop);
+            stoppedLocs.sort(Comparator.naturalOrder());
 
-            // we need the specialized merge if the site contains anything other than ref blocks
-            final VariantContext mergedVC;
-            if ( containsTrueAltAllele(stoppedVCs) ) {
-                mergedVC = referenceConfidenceVariantContextMerger.merge(stoppedVCs, closingSpot, refBase, false, false);
-            } else {
-                mergedVC = referenceBlockMerge(stoppedVCs, pos.getStart());
+            // For each stopped loc that is within the interval being closed, create a fake QueuedContextState and pass it to endPreviousStats
+            for (int stoppedLoc : stoppedLocs) {
+                SimpleInterval loc = new SimpleInterval(intervalToClose.getContig(), stoppedLoc, stoppedLoc);
+                if (( stoppedLoc <= intervalToClose.getEnd() && stoppedLoc>= intervalToClose.getStart()) && withinIntervals.test(loc)) {
+                    byte[] refBases = Arrays.copyOfRange(storedReferenceContext.getBases(), stoppedLoc - storedReferenceContext.getWindow().getStart(), stoppedLoc - storedReferenceContext.getWindow().getStart() + 2);
+                    endPreviousStates(loc, refBases, Collections.emptyList(), true);
+                }
             }
 
-            vcfWriter.add(mergedVC);
-            prevPos = closingSpot;
-            refAfterPrevPos = refNextBase;
         }
-    }
 
-    /**
-     * Combine a list of reference block VariantContexts.
-     * We can't use GATKVariantContextUtils.simpleMerge() because it is just too slow for this sort of thing.
-     *
-     * @param vcs   the variant contexts to merge
-     * @param end   the end of this block (inclusive)
-     * @return a new merged VariantContext
-     */
-    private VariantContext referenceBlockMerge(final List<VariantContext> vcs, final int end) {
-
-        final VariantContext first = vcs.get(0);
-
-        // ref allele and start
-        final Allele refAllele;
-        final int start;
-        if ( prevPos == null || !prevPos.getContig().equals(first.getContig()) || first.getStart() >= prevPos.getStart() + 1) {
-            start = first.getStart();
-            refAllele = first.getReference();
-        } else {
-            start = prevPos.getStart() + 1;
-            refAllele = Allele.create(refAfterPrevPos, true);
-        }
+        /**
+         * Resize {@link #storedReferenceContext} to cover at least as much as intervalToClose
+         * @param intervalToClose
+         */
+        private void resizeReferenceIfNeeded(SimpleInterval intervalToClose) {
+            final int leftEdge = storedReferenceContext.getInterval().getStart() - intervalToClose.getStart();
+            final int rightEdge = intervalToClose.getEnd() - storedReferenceContext.getInterval().getEnd();
 
-        // attributes
-        final Map<String, Object> attrs = new HashMap<>(1);
-        if ( !useBpResolution && end != start ) {
-            attrs.put(VCFConstants.END_KEY, Integer.toString(end));
+            storedReferenceContext.setWindow(Math.max(1, leftEdge), Math.max(1, rightEdge));
         }
 
-        // genotypes
-        final GenotypesContext genotypes = GenotypesContext.create();
-        for (final VariantContext vc : vcs) {
-            for (final Genotype g : vc.getGenotypes()) {
-                genotypes.add(new GenotypeBuilder(g).alleles(GATKVariantContextUtils.noCallAlleles(g.getPloidy())).make());
+        /**
+         * Method which calls endPreviousStates at the appropriate places on the given a new startingStates object
+         * and an OverallState object corresponding to the currently accumulated reads.
+         *
+         * @param variantContexts list of variant contexts with the same start position to be reduced
+         * @param referenceContext ReferenceContext object overlapping the provided VariantContexts
+         */
+        private void mergeWithNewVCs(final List<VariantContext> variantContexts, final ReferenceContext referenceContext) {
+            if ( !variantContexts.isEmpty() ) {
+                if ( ! okayToSkipThisSite(variantContexts, referenceContext) ) {
+                    SimpleInterval loc = referenceContext.getInterval();
+                    if (loc.getStart()-1 > 0) {
+                        endPreviousStates(new SimpleInterval(loc.getContig(), loc.getStart() - 1, loc.getStart() - 1),
+                                Arrays.copyOfRange(referenceContext.getBases(), 1, referenceContext.getWindow().getLengthOnReference()),
+                                variantContexts,
+                                false);
+                    }
+                }
+                variantContextsOverlappingCurrentMerge.addAll(variantContexts);
+                for(final VariantContext vc : variantContextsOverlappingCurrentMerge){
+                    samples.addAll(vc.getSampleNames());
+                }
             }
         }
-        return new VariantContextBuilder("", first.getContig(), start, end, Arrays.asList(refAllele, Allele.NON_REF_ALLELE)).attributes(attrs).genotypes(genotypes).make();
-    }
 
-    /**
-     * Does the given list of VariantContexts contain any with an alternate allele other than <NON_REF>?
-     *
-     * @param VCs  list of VariantContexts
-     * @return true if there are one or more variantContexts that contain a true alternate allele, false otherwise
-     */
-    private static boolean containsTrueAltAllele(final List<VariantContext> VCs) {
+        /**
+         * Is it okay to skip the given position?
+         *
+         * @param variantContexts  the query variant contexts representing the current position
+         * @param referenceContext  Reference context object overlapping the variant contexts
+         * @return true if it is okay to skip this position, false otherwise
+         */
+        private boolean okayToSkipThisSite(List<VariantContext> variantContexts, ReferenceContext referenceContext) {
+            Set<String> intersection = new HashSet<>(getSamples(variantContexts));
+            intersection.retainAll(samples);
+
+            //if there's a starting VC with a sample that's already in a current VC, don't skip this position
+            return prevPos != null && referenceContext.getInterval().getStart() == prevPos.getStart() + 1 && intersection.isEmpty();
+        }
 
-        for ( final VariantContext vc : VCs ) {
-            if ( vc.getNAlleles() > 2 ) {
-                return true;
+        private Set<String> getSamples(List<VariantContext> variantContexts) {
+            Set<String> output = new HashSet<>();
+            for (final VariantContext vc : variantContexts) {
+                output.addAll(vc.getSampleNames());
             }
+            return output;
         }
-        return false;
-    }
 
-    @Override
-    public Object onTraversalSuccess() {
+        /**
+         * Disrupt the VariantContexts so that they all stop at the given pos, write them out, and put the remainder back in the list.
+         * @param pos   the position for the starting variantContexts
+         * @param variantContexts the current variant contexts with the same starting position
+         * @param forceOutputAtCurrentPosition  indicates whether we output a variant at the current position, independent of VCF start/end, i.e. in BP resolution mode
+         */
+        private void endPreviousStates(final SimpleInterval pos, final byte[] refBases, final List<VariantContext> variantContexts, boolean forceOutputAtCurrentPosition) {
+            Set<String> newSamples = getSamples(variantContexts);
+
+            final byte refBase = refBases[0];
+            //if we're in BP resolution mode or a VC ends at the current position then the reference for the next output VC (refNextBase)
+            // will be advanced one base
+            final byte refNextBase = (forceOutputAtCurrentPosition) ? (refBases.length > 1 ? refBases[1] : (byte)'N' ): refBase;
+
+            final List<VariantContext> stoppedVCs = new ArrayList<>(variantContextsOverlappingCurrentMerge.size());
+
+            for (int i = variantContextsOverlappingCurrentMerge.size() - 1; i >= 0; i-- ) {
+                final VariantContext vc = variantContextsOverlappingCurrentMerge.get(i);
+                //the VC for the previous state will be stopped if its position is previous to the current position or it we've moved to a new contig
+                if ( vc.getStart() <= pos.getStart() || !vc.contigsMatch(pos)) {
+
+                    stoppedVCs.add(vc);
+
+                    // if it was ending anyways, then remove it from the future state
+                    // or if ending vc is the same sample as a starting VC, then remove it from the future state
+                    if((vc.getEnd() == pos.getStart()) || (variantContexts.size() > 0 && !forceOutputAtCurrentPosition && newSamples.containsAll(vc.getSampleNames()))) {
+                        samples.removeAll(vc.getSampleNames());
+                        variantContextsOverlappingCurrentMerge.remove(i);
+                    }
+                }
+            }
 
-        if (storedReferenceContext == null) {
-            logger.warn("Error: The requested interval contained no data in source VCF files");
-            return null;
-        }
+            //output the stopped variantContexts if there is no previous output (state.prevPos == null) or our current position is past
+            // the last write position (state.prevPos)
+            //NOTE: BP resolution with have current position == state.prevPos because it gets output via a different control flow
+            if ( !stoppedVCs.isEmpty() &&  (prevPos == null || IntervalUtils.isAfter(pos,prevPos,sequenceDictionary) )) {
+                final SimpleInterval closingSpot = new SimpleInterval(stoppedVCs.get(0).getContig(), pos.getStart(), pos.getStart());
+
+                // we need the specialized merge if the site contains anything other than ref blocks
+                final VariantContext mergedVC;
+                if ( containsTrueAltAllele(stoppedVCs) ) {
+                    mergedVC = referenceConfidenceVariantContextMerger.merge(stoppedVCs, closingSpot, refBase, false, false);
+                } else {
+                    mergedVC = referenceBlockMerge(stoppedVCs, pos.getStart());
+                }
 
-        if ( !variantContextsOverlappingCurrentMerge.isEmpty() ) {
-            // finish off the last blocks
-            final SimpleInterval lastInterval = new SimpleInterval(
-                    variantContextsOverlappingCurrentMerge.get(0).getContig(),
-                    variantContextsOverlappingCurrentMerge.get(0).getStart(),
-                    variantContextsOverlappingCurrentMerge.stream().map(VariantContext::getEnd).max(Comparator.naturalOrder()).get());
-                createIntermediateVariants(lastInterval);
-            // there shouldn't be any state left unless the user cut in the middle of a gVCF block
-            if ( !variantContextsOverlappingCurrentMerge.isEmpty() ) {
-                logger.warn("You have asked for an interval that cuts in the middle of one or more gVCF blocks. Please note that this will cause you to lose records that don't end within your interval.");
+                vcfWriter.add(mergedVC);
+                prevPos = closingSpot;
+                refAfterPrevPos = refNextBase;
             }
         }
 
-        return null;
+        /**
+         * Combine a list of reference block VariantContexts.
+         * We can't use GATKVariantContextUtils.simpleMerge() because it is just too slow for this sort of thing.
+         *
+         * @param vcs   the variant contexts to merge
+         * @param end   the end of this block (inclusive)
+         * @return a new merged VariantContext
+         */
+        private VariantContext referenceBlockMerge(final List<VariantContext> vcs, final int end) {
+
+            final VariantContext first = vcs.get(0);
+
+            // ref allele and start
+            final Allele refAllele;
+            final int start;
+            if ( prevPos == null || !prevPos.getContig().equals(first.getContig()) || first.getStart() >= prevPos.getStart() + 1) {
+                start = first.getStart();
+                refAllele = first.getReference();
+            } else {
+                start = prevPos.getStart() + 1;
+                refAllele = Allele.create(refAfterPrevPos, true);
+            }
+
+            // attributes
+            final Map<String, Object> attrs = new HashMap<>(1);
+            if ( !useBpResolution && end != start ) {
+                attrs.put(VCFConstants.END_KEY, Integer.toString(end));
+            }
+
+            // genotypes
+            final GenotypesContext genotypes = GenotypesContext.create();
+            for (final VariantContext vc : vcs) {
+                for (final Genotype g : vc.getGenotypes()) {
+                    genotypes.add(new GenotypeBuilder(g).alleles(GATKVariantContextUtils.noCallAlleles(g.getPloidy())).make());
+                }
+            }
+            return new VariantContextBuilder("", first.getContig(), start, end, Arrays.asList(refAllele, Allele.NON_REF_ALLELE)).attributes(attrs).genotypes(genotypes).make();
+        }
     }
 
-    @Override
-    public void closeTool(){
-        if (vcfWriter != null) {
-            vcfWriter.close();
+    /**
+     * The standard --variant argument, whose driving paths are replaced by the top level of the tree when combining
+     * in a tree.  The argument itself is left alone, so the command line recorded in the output header is the one the
+     * user gave.
+     */
+    private static final class TreeMergeInputArgumentCollection extends MultiVariantInputArgumentCollection.DefaultMultiVariantInputArgumentCollection {
+        private static final long serialVersionUID = 1L;
+
+        private List<String> combinedPaths = null;
+
+        @Override
+        public List<String> getDrivingVariantPaths() {
+            return combinedPaths != null ? combinedPaths : drivingVariantPaths;
         }
     }
 }
@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.tools.walkers;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import htsjdk.samtools.util.Locatable;
 import htsjdk.variant.variantcontext.*;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
@@ -11,7 +12,9 @@ import org.broadinstitute.hellbender.cmdline.*;
 import org.broadinstitute.hellbender.cmdline.argumentcollections.DbsnpArgumentCollection;
 import org.broadinstitute.hellbender.cmdline.programgroups.ShortVariantDiscoveryProgramGroup;
 import org.broadinstitute.hellbender.engine.*;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.tools.walkers.annotator.*;
+import org.broadinstitute.hellbender.tools.walkers.annotator.allelespecific.AS_QualByDepth;
 import org.broadinstitute.hellbender.tools.walkers.annotator.allelespecific.AS_RMSMappingQuality;
 import org.broadinstitute.hellbender.tools.walkers.genotyper.*;
 import org.broadinstitute.hellbender.tools.walkers.genotyper.afcalc.GeneralPloidyFailOverAFCalculatorProvider;
@@ -28,6 +31,11 @@ import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
@@ -94,7 +102,14 @@ public final class GenotypeGVCFs extends VariantLocusWalker {
     public static final String ONLY_OUTPUT_CALLS_STARTING_IN_INTERVALS_FULL_NAME = "only-output-calls-starting-in-intervals";
     public static final String ALL_SITES_LONG_NAME = "include-non-variant-sites";
     public static final String ALL_SITES_SHORT_NAME = "all-sites";
+    public static final String GENOTYPING_THREADS_LONG_NAME = "genotyping-threads";
     private static final String GVCF_BLOCK = "GVCFBlock";
+
+    /**
+     * Number of sites given to each genotyping thread in each batch.
+     */
+    private static final int SITES_PER_THREAD_PER_BATCH = 100;
+
     private VCFHeader outputHeader;
 
 
@@ -146,12 +161,24 @@ public final class GenotypeGVCFs extends VariantLocusWalker {
     @ArgumentCollection
     private final DbsnpArgumentCollection dbsnp = new DbsnpArgumentCollection();
 
-    // the genotyping engine
-    private GenotypingEngine<?> genotypingEngine;
+    /**
+     * Sites are still read on a single thread and written in order, but are merged, genotyped and annotated on this
+     * many threads.  Each thread has its own genotyping engine and merger, so memory use grows with the number of threads.
+     * The output is the same for any number of threads: QD values above the cap are jittered with a generator seeded by
+     * the site, not with the shared random generator.
+     */
+    @Advanced
+    @Argument(fullName = GENOTYPING_THREADS_LONG_NAME, doc = "Number of threads on which to genotype sites", optional = true, minValue = 1)
+    private int genotypingThreads = 1;
+
     // the annotation engine
     private VariantAnnotatorEngine annotationEngine;
 
-    private ReferenceConfidenceVariantContextMerger merger;
+    // merges, genotypes and annotates sites on the traversal thread
+    private SiteGenotyper siteGenotyper;
+
+    // genotypes sites on multiple threads when genotypingThreads > 1, null otherwise
+    private GenotypingWorkerPool workerPool;
 
     // the INFO field annotation key names to remove
     private final List<String> infoFieldAnnotationKeyNamesToRemove = new ArrayList<>();
@@ -199,7 +226,17 @@ public final class GenotypeGVCFs extends VariantLocusWalker {
 
         final SampleList samples = new IndexedSampleList(inputVCFHeader.getGenotypeSamples()); //todo should this be getSampleNamesInOrder?
 
-        annotationEngine = new VariantAnnotatorEngine(makeVariantAnnotations(), dbsnp.dbsnp, Collections.emptyList(), false);
+        final Collection<Annotation> annotations = makeVariantAnnotations();
+        // The annotations are shared by all the genotyping threads, and a site may be annotated on any of them, so QD
+        // jitter is seeded by the site to keep the output the same for any number of threads:
+        for ( final Annotation annotation : annotations ) {
+            if ( annotation instanceof QualByDepth ) {
+                ((QualByDepth) annotation).setJitterSeededBySite(true);
+            } else if ( annotation instanceof AS_QualByDepth ) {
+                ((AS_QualByDepth) annotation).setJitterSeededBySite(true);
+            }
+        }
+        annotationEngine = new VariantAnnotatorEngine(annotations, dbsnp.dbsnp, Collections.emptyList(), false);
 
         // Request INFO field annotations inheriting from RankSumTest and RMSAnnotation added to remove list
         for ( final InfoFieldAnnotation annotation :  annotationEngine.getInfoAnnotations() ) {
@@ -213,10 +250,18 @@ public final class GenotypeGVCFs extends VariantLocusWalker {
             }
         }
 
-        // We only want the engine to generate the AS_QUAL key if we are using AlleleSpecific annotations.
-        genotypingEngine = new MinimalGenotypingEngine(createUAC(), samples, new GeneralPloidyFailOverAFCalculatorProvider(genotypeArgs), annotationEngine.isRequestedReducibleRawKey(GATKVCFConstants.AS_QUAL_KEY));
+        siteGenotyper = new SiteGenotyper(annotationEngine, samples, false);
 
-        merger = new ReferenceConfidenceVariantContextMerger(annotationEngine, getHeaderForVariants(), somaticInput);
+        if ( genotypingThreads > 1 ) {
+            // The worker engines don't query dbSNP themselves, since FeatureContexts can only be used on the traversal thread:
+            final List<SiteGenotyper> workers = new ArrayList<>(genotypingThreads);
+            final List<ReferenceDataSource> workerReferences = new ArrayList<>(genotypingThreads);
+            for ( int i = 0; i < genotypingThreads; i++ ) {
+                workers.add(new SiteGenotyper(new VariantAnnotatorEngine(annotations, null, Collections.emptyList(), false), samples, dbsnp.dbsnp != null));
+                workerReferences.add(ReferenceDataSource.of(referenceArguments.getReferencePath()));
+            }
+            workerPool = new GenotypingWorkerPool(workers, workerReferences, SITES_PER_THREAD_PER_BATCH * genotypingThreads);
+        }
 
         if ( includeNonVariants ) {
             // Save INFO header names that require alt alleles
@@ -244,7 +289,7 @@ public final class GenotypeGVCFs extends VariantLocusWalker {
         headerLines.removeIf(vcfHeaderLine -> vcfHeaderLine.getKey().startsWith(GVCF_BLOCK));
 
         headerLines.addAll(annotationEngine.getVCFAnnotationDescriptions(false));
-        headerLines.addAll(genotypingEngine.getAppropriateVCFInfoHeaders());
+        headerLines.addAll(siteGenotyper.genotypingEngine.getAppropriateVCFInfoHeaders());
 
         // add headers for annotations added by this tool
         headerLines.add(GATKVCFHeaderLines.getInfoLine(GATKVCFConstants.MLE_ALLELE_COUNT_KEY));
@@ -264,13 +309,30 @@ public final class GenotypeGVCFs extends VariantLocusWalker {
 
     @Override
     public void apply(final Locatable loc, List<VariantContext> variants, ReadsContext reads, ReferenceContext ref, FeatureContext features) {
+        ref.setWindow(10, 10); //TODO this matches the gatk3 behavior but may be unnecessary
 
-        final List<VariantContext> variantsToProcess = getVariantSubsetToProcess(loc, variants);
+        if ( workerPool != null ) {
+            workerPool.submit(loc, variants, ref, dbsnp.dbsnp != null ? features.getValues(dbsnp.dbsnp) : null);
+            return;
+        }
 
-        ref.setWindow(10, 10); //TODO this matches the gatk3 behavior but may be unnecessary
-        final VariantContext mergedVC = merger.merge(variantsToProcess, loc, includeNonVariants ? ref.getBase() : null, !includeNonVariants, false);
-        final VariantContext regenotypedVC = somaticInput ? regenotypeSomaticVC(mergedVC, ref, features, includeNonVariants) :
-                regenotypeVC(mergedVC, ref, features, includeNonVariants);
+        writeSite(siteGenotyper.genotypeSite(loc, variants, ref, features, null));
+    }
+
+    @Override
+    public Object onTraversalSuccess() {
+        // Genotype any sites still waiting on the genotyping threads:
+        if ( workerPool != null ) {
+            workerPool.flush();
+        }
+        return null;
+    }
+
+    /**
+     * Write a genotyped site, unless it was dropped or is outside of the requested intervals.
+     * Must be called on the traversal thread, in site order.
+     */
+    private void writeSite(final VariantContext regenotypedVC) {
         if (regenotypedVC != null) {
             final SimpleInterval variantStart = new SimpleInterval(regenotypedVC.getContig(), regenotypedVC.getStart(), regenotypedVC.getStart());
             if (!GATKVariantContextUtils.isSpanningDeletionOnly(regenotypedVC) &&
@@ -304,68 +366,6 @@ public final class GenotypeGVCFs extends VariantLocusWalker {
         }
     }
 
-    /**
-     * Re-genotype (and re-annotate) a combined genomic VC
-     * @return a new VariantContext or null if the site turned monomorphic and we don't want such sites
-     */
-    private VariantContext regenotypeVC(final VariantContext originalVC, final ReferenceContext ref, final FeatureContext features, boolean includeNonVariants) {
-        Utils.nonNull(originalVC);
-
-        final VariantContext result;
-
-        if ( originalVC.isVariant()  && originalVC.getAttributeAsInt(VCFConstants.DEPTH_KEY,0) > 0 ) {
-            // only re-genotype polymorphic sites
-            final VariantContext regenotypedVC = calculateGenotypes(originalVC);
-            if (regenotypedVC == null || (!isProperlyPolymorphic(regenotypedVC) && !includeNonVariants)) {
-                return null;
-            }
-            if (isProperlyPolymorphic(regenotypedVC) || includeNonVariants) {
-                // Note that reversetrimAlleles must be performed after the annotations are finalized because the reducible annotation data maps
-                // were generated and keyed on the un reverseTrimmed alleles from the starting VariantContexts. Thus reversing the order will make
-                // it difficult to recover the data mapping due to the keyed alleles no longer being present in the variant context.
-                final VariantContext withGenotypingAnnotations = addGenotypingAnnotations(originalVC.getAttributes(), regenotypedVC);
-                final VariantContext withAnnotations = annotationEngine.finalizeAnnotations(withGenotypingAnnotations, originalVC);
-                result = GATKVariantContextUtils.reverseTrimAlleles(withAnnotations);
-            } else if (includeNonVariants) {
-                result = originalVC;
-            } else {
-                return null;
-            }
-        } else {
-            result = originalVC;
-        }
-
-
-        // if it turned monomorphic then we either need to ignore or fix such sites
-        // Note that the order of these actions matters and is different for polymorphic and monomorphic sites.
-        // For polymorphic sites we need to make sure e.g. the SB tag is sent to the annotation engine and then removed later.
-        // For monomorphic sites we need to make sure e.g. the hom ref genotypes are created and only then are passed to the annotation engine.
-        // We could theoretically make 2 passes to re-create the genotypes, but that gets extremely expensive with large sample sizes.
-        if (result.isPolymorphicInSamples()) {
-            // For polymorphic sites we need to make sure e.g. the SB tag is sent to the annotation engine and then removed later.
-            final VariantContext reannotated = annotationEngine.annotateContext(result, features, ref, null, a -> true);
-            return new VariantContextBuilder(reannotated).genotypes(cleanupGenotypeAnnotations(reannotated, false)).make();
-        } else if (includeNonVariants) {
-            // For monomorphic sites we need to make sure e.g. the hom ref genotypes are created and only then are passed to the annotation engine.
-            VariantContext reannotated = new VariantContextBuilder(result).genotypes(cleanupGenotypeAnnotations(result, true)).make();
-            reannotated = annotationEngine.annotateContext(reannotated, features, ref, null, GenotypeGVCFs::annotationShouldBeSkippedForHomRefSites);
-            return removeNonRefAlleles(reannotated);
-        } else {
-            return null;
-        }
-    }
-
-    private VariantContext calculateGenotypes(VariantContext vc){
-        /*
-         * Query the VariantContext for the appropriate model.  If type == MIXED, one would want to use model = BOTH.
-         * However GenotypingEngine.getAlleleFrequencyPriors throws an exception if you give it anything but a SNP or INDEL model.
-         */
-        final GenotypeLikelihoodsCalculationModel model = vc.getType() == VariantContext.Type.INDEL
-                ? GenotypeLikelihoodsCalculationModel.INDEL
-                : GenotypeLikelihoodsCalculationModel.SNP;
-        return genotypingEngine.calculateGenotypes(vc, model, null);
-    }
-
     /**
      * Remove NON-REF alleles from the variant context
      *
@@ -395,103 +395,6 @@ public final class GenotypeGVCFs extends VariantLocusWalker {
         }
     }
 
-    /**
-     * Re-genotype (and re-annotate) a combined genomic VC
-     * @return a new VariantContext or null if the site turned monomorphic and we don't want such sites
-     */
-    private VariantContext regenotypeSomaticVC(final VariantContext originalVC, final ReferenceContext ref, final FeatureContext features, boolean includeNonVariants) {
-        Utils.nonNull(originalVC);
-
-        final VariantContext result;
-        if ( originalVC.isVariant()  && originalVC.getAttributeAsInt(VCFConstants.DEPTH_KEY,0) > 0 ) {
-            result = callSomaticGenotypes(originalVC);
-        } else if (includeNonVariants) {
-            result = originalVC;
-        } else {
-            result = null;
-        }
-        return result;
-    }
-
-
-    /**
-     * Drop low quality alleles and call genotypes
-     * CombineGVCFs will convert calls to no-call (of varying ploidy, as is the case in somatic)
-     *
-     * @param vc input VariantContext with no-called genotypes
-     * @return a VC with called genotypes and low quality alleles removed, may be null
-     */
-    private VariantContext callSomaticGenotypes(final VariantContext vc) {
-        final List<Genotype> newGenotypes = new ArrayList<>();
-        final GenotypesContext genotypes = vc.getGenotypes();
-        final double[] perAlleleLikelihoodSums = new double[vc.getAlleles().size()];  //needs the ref for the subsetting utils
-
-        for(final Genotype g : genotypes) {
-            GenotypeBuilder gb = new GenotypeBuilder(g);
-            final double[] tlodArray = GATKProtectedVariantContextUtils.getAttributeAsDoubleArray(g, GATKVCFConstants.TUMOR_LOD_KEY, () -> null, 0.0);
-            final double[] variantAFArray = GATKProtectedVariantContextUtils.getAttributeAsDoubleArray(g, GATKVCFConstants.ALLELE_FRACTION_KEY, () -> null, 0.0);
-            double variantAFtotal = 0;
-            final List<Allele> calledAlleles = new ArrayList<>();
-            for(int i = 0; i < vc.getAlleles().size()-1; i++) {
-                variantAFtotal += variantAFArray[i];
-                if (tlodArray[i] > tlodThreshold) {
-                    calledAlleles.add(vc.getAlternateAllele(i));
-                    perAlleleLikelihoodSums[i+1] += tlodArray[i];
-                }
-            }
-            //hack for weird Mutect2 ploidy -- if the variant is non-homoplasmic, call the reference allele too
-            if(variantAFtotal < 1-afTolerance && (!g.hasAD() || g.getAD()[0] > 0)) {
-
-                calledAlleles.add(0, vc.getReference());
-            }
-            //"ploidy" gets set according to the size of the alleles List in the Genotype
-            gb.alleles(calledAlleles);
-            newGenotypes.add(gb.make());
-        }
-
-        final VariantContextBuilder builder = new VariantContextBuilder(vc);
-        final VariantContext regenotypedVC = builder.genotypes(newGenotypes).make();
-
-        final int maxAltAlleles = ((UnifiedArgumentCollection)genotypingEngine.getConfiguration()).genotypeArgs.MAX_ALTERNATE_ALLELES;
-        List<Allele> allelesToKeep;
-
-        //we need to make sure all alleles pass the tlodThreshold
-        allelesToKeep = new ArrayList<>(perAlleleLikelihoodSums.length-1);
-        allelesToKeep.add(vc.getReference());
-        for (int i = 1; i < perAlleleLikelihoodSums.length; i++) {
-            if (perAlleleLikelihoodSums[i] > tlodThreshold) {
-                allelesToKeep.add(vc.getAlternateAllele(i-1));
-            }
-        }
-
-        if (regenotypedVC.getAlternateAlleles().size() > maxAltAlleles) {
-            allelesToKeep = AlleleSubsettingUtils.filterToMaxNumberOfAltAllelesBasedOnScores(maxAltAlleles, allelesToKeep, perAlleleLikelihoodSums);
-        }
-
-        if (allelesToKeep.size() == 1) {
-            return null;
-        }
-
-        //if we didn't drop alleles then we're done!
-        if (allelesToKeep.size() == regenotypedVC.getAlleles().size()) {
-            return regenotypedVC;
-        }
-
-        final int[] relevantIndices = allelesToKeep.stream().mapToInt(a -> regenotypedVC.getAlleles().indexOf(a)).toArray();
-
-        //do another pass over genotypes to drop the alleles that aren't called
-        final GenotypesContext reducedGenotypes = AlleleSubsettingUtils.subsetSomaticAlleles(outputHeader, regenotypedVC.getGenotypes(), allelesToKeep, relevantIndices);
-        final VariantContext subsetVC = builder.alleles(allelesToKeep).genotypes(reducedGenotypes).make();
-        final VariantContext trimmedVC = GATKVariantContextUtils.trimAlleles(subsetVC, true, true);
-        if (isProperlyPolymorphic(trimmedVC)) {
-            return trimmedVC;
-        }
-        else {
-            return null;
-        }
-    }
-
-
     /**
      * Determines whether the provided VariantContext has real alternate alleles.
      *
@@ -623,8 +526,388 @@ public final class GenotypeGVCFs extends VariantLocusWalker {
 
     @Override
     public void closeTool() {
+        if ( workerPool != null ) {
+            workerPool.close();
+        }
         if ( vcfWriter != null) {
             vcfWriter.close();
         }
     }
+
+    /**
+     * Merges, genotypes and annotates sites.  Not thread-safe: when genotyping on multiple threads, each thread has its
+     * own {@link SiteGenotyper}, with its own genotyping engine (and so its own allele frequency calculator caches),
+     * annotation engine and merger.
+     */
+    private final class SiteGenotyper {
+        private final GenotypingEngine<?> genotypingEngine;
+        private final VariantAnnotatorEngine annotationEngine;
+        private final ReferenceConfidenceVariantContextMerger merger;
+
+        /**
+         * Annotates sites with the dbSNP records prefetched on the traversal thread, or null if the annotation engine
+         * queries dbSNP itself (or there is no dbSNP).
+         */
+        private final VariantOverlapAnnotator knownVariantsAnnotator;
+
+        /**
+         * @param annotationEngine annotation engine to use for this genotyper only
+         * @param samples samples to genotype
+         * @param annotateKnownVariants whether to annotate sites with dbSNP records prefetched on the traversal thread,
+         *                              rather than through the annotation engine
+         */
+        private SiteGenotyper(final VariantAnnotatorEngine annotationEngine, final SampleList samples, final boolean annotateKnownVariants) {
+            this.annotationEngine = annotationEngine;
+            // We only want the engine to generate the AS_QUAL key if we are using AlleleSpecific annotations.
+            this.genotypingEngine = new MinimalGenotypingEngine(createUAC(), samples, new GeneralPloidyFailOverAFCalculatorProvider(genotypeArgs), annotationEngine.isRequestedReducibleRawKey(GATKVCFConstants.AS_QUAL_KEY));
+            this.merger = new ReferenceConfidenceVariantContextMerger(annotationEngine, getHeaderForVariants(), somaticInput);
+            this.knownVariantsAnnotator = annotateKnownVariants ?
+                    new VariantOverlapAnnotator(dbsnp.dbsnp, Collections.singletonMap(dbsnp.dbsnp, VCFConstants.DBSNP_KEY)) : null;
+        }
+
+        /**
+         * Merge, genotype and annotate the variants at a site.
+         *
+         * @param ref reference context of the site, with its window already set
+         * @param features features overlapping the site; only usable on the traversal thread
+         * @param knownVariants dbSNP records overlapping the site, if they were prefetched on the traversal thread, otherwise null
+         * @return the genotyped site, or null if it should not be output
+         */
+        private VariantContext genotypeSite(final Locatable loc, final List<VariantContext> variants, final ReferenceContext ref,
+                                            final FeatureContext features, final List<VariantContext> knownVariants) {
+            final List<VariantContext> variantsToProcess = getVariantSubsetToProcess(loc, variants);
+
+            final VariantContext mergedVC = merger.merge(variantsToProcess, loc, includeNonVariants ? ref.getBase() : null, !includeNonVariants, false);
+            return somaticInput ? regenotypeSomaticVC(mergedVC, ref, features, includeNonVariants) :
+                    regenotypeVC(mergedVC, ref, features, knownVariants, includeNonVariants);
+        }
+
+        /**
+         * Annotate the given variant with the annotation engine, and with the prefetched dbSNP records if there are any,
+         * in the same way as the annotation engine would if it queried dbSNP itself.
+         */
+        private VariantContext annotateContext(final VariantContext vc, final FeatureContext features, final ReferenceContext ref,
+                                               final List<VariantContext> knownVariants, final Predicate<VariantAnnotation> addAnnot) {
+            final VariantContext annotated = annotationEngine.annotateContext(vc, features, ref, null, addAnnot);
+            if ( knownVariantsAnnotator == null || knownVariants == null ) {
+                return annotated;
+            }
+            final List<VariantContext> knownVariantsAtStart = knownVariants.stream()
+                    .filter(known -> known.getStart() == annotated.getStart())
+                    .collect(Collectors.toList());
+            return knownVariantsAnnotator.annotateOverlap(knownVariantsAtStart, VCFConstants.DBSNP_KEY,
+                    VariantOverlapAnnotator.annotateRsID(knownVariantsAtStart, annotated));
+        }
+
+        /**
+         * Re-genotype (and re-annotate) a combined genomic VC
+         * @return a new VariantContext or null if the site turned monomorphic and we don't want such sites
+         */
+        private VariantContext regenotypeVC(final VariantContext originalVC, final ReferenceContext ref, final FeatureContext features,
+                                                final List<VariantContext> knownVariants, boolean includeNonVariants) {
+            Utils.nonNull(originalVC);
+
+            final VariantContext result;
+
+            if ( originalVC.isVariant()  && originalVC.getAttributeAsInt(VCFConstants.DEPTH_KEY,0) > 0 ) {
+                // only re-genotype polymorphic sites
+                final VariantContext regenotypedVC = calculateGenotypes(originalVC);
+                if (regenotypedVC == null || (!isProperlyPolymorphic(regenotypedVC) && !includeNonVariants)) {
+                    return null;
+                }
+                if (isProperlyPolymorphic(regenotypedVC) || includeNonVariants) {
+                    // Note that reversetrimAlleles must be performed after the annotations are finalized because the reducible annotation data maps
+                    // were generated and keyed on the un reverseTrimmed alleles from the starting VariantContexts. Thus reversing the order will make
+                    // it difficult to recover the data mapping due to the keyed alleles no longer being present in the variant context.
+                    final VariantContext withGenotypingAnnotations = addGenotypingAnnotations(originalVC.getAttributes(), regenotypedVC);
+                    final VariantContext withAnnotations = annotationEngine.finalizeAnnotations(withGenotypingAnnotations, originalVC);
+                    result = GATKVariantContextUtils.reverseTrimAlleles(withAnnotations);
+                } else if (includeNonVariants) {
+                    result = originalVC;
+                } else {
+                    return null;
+                }
+            } else {
+                result = originalVC;
+            }
+
+
+            // if it turned monomorphic then we either need to ignore or fix such sites
+            // Note that the order of these actions matters and is different for polymorphic and monomorphic sites.
+            // For polymorphic sites we need to make sure e.g. the SB tag is sent to the annotation engine and then removed later.
+            // For monomorphic sites we need to make sure e.g. the hom ref genotypes are created and only then are passed to the annotation engine.
+            // We could theoretically make 2 passes to re-create the genotypes, but that gets extremely expensive with large sample sizes.
+            if (result.isPolymorphicInSamples()) {
+                // For polymorphic sites we need to make sure e.g. the SB tag is sent to the annotation engine and then removed later.
+                final VariantContext reannotated = annotateContext(result, features, ref, knownVariants, a -> true);
+                return new VariantContextBuilder(reannotated).genotypes(cleanupGenotypeAnnotations(reannotated, false)).make();
+            } else if (includeNonVariants) {
+                // For monomorphic sites we need to make sure e.g. the hom ref genotypes are created and only then are passed to the annotation engine.
+                VariantContext reannotated = new VariantContextBuilder(result).genotypes(cleanupGenotypeAnnotations(result, true)).make();
+                reannotated = annotateContext(reannotated, features, ref, knownVariants, GenotypeGVCFs::annotationShouldBeSkippedForHomRefSites);
+                return removeNonRefAlleles(reannotated);
+            } else {
+                return null;
+            }
+        }
+
+        private VariantContext calculateGenotypes(VariantContext vc){
+            /*
+             * Query the VariantContext for the appropriate model.  If type == MIXED, one would want to use model = BOTH.
+             * However GenotypingEngine.getAlleleFrequencyPriors throws an exception if you give it anything but a SNP or INDEL model.
+             */
+            final GenotypeLikelihoodsCalculationModel model = vc.getType() == VariantContext.Type.INDEL
+                    ? GenotypeLikelihoodsCalculationModel.INDEL
+                    : GenotypeLikelihoodsCalculationModel.SNP;
+            return genotypingEngine.calculateGenotypes(vc, model, null);
+        }
+
+        /**
+         * Re-genotype (and re-annotate) a combined genomic VC
+         * @return a new VariantContext or null if the site turned monomorphic and we don't want such sites
+         */
+        private VariantContext regenotypeSomaticVC(final VariantContext originalVC, final ReferenceContext ref, final FeatureContext features, boolean includeNonVariants) {
+            Utils.nonNull(originalVC);
+
+            final VariantContext result;
+            if ( originalVC.isVariant()  && originalVC.getAttributeAsInt(VCFConstants.DEPTH_KEY,0) > 0 ) {
+                result = callSomaticGenotypes(originalVC);
+            } else if (includeNonVariants) {
+                result = originalVC;
+            } else {
+                result = null;
+            }
+            return result;
+        }
+
+
+        /**
+         * Drop low quality alleles and call genotypes
+         * CombineGVCFs will convert calls to no-call (of varying ploidy, as is the case in somatic)
+         *
+         * @param vc input VariantContext with no-called genotypes
+         * @return a VC with called genotypes and low quality alleles removed, may be null
+         */
+        private VariantContext callSomaticGenotypes(final VariantContext vc) {
+            final List<Genotype> newGenotypes = new ArrayList<>();
+            final GenotypesContext genotypes = vc.getGenotypes();
+            final double[] perAlleleLikelihoodSums = new double[vc.getAlleles().size()];  //needs the ref for the subsetting utils
+
+            for(final Genotype g : genotypes) {
+                GenotypeBuilder gb = new GenotypeBuilder(g);
+                final double[] tlodArray = GATKProtectedVariantContextUtils.getAttributeAsDoubleArray(g, GATKVCFConstants.TUMOR_LOD_KEY, () -> null, 0.0);
+                final double[] variantAFArray = GATKProtectedVariantContextUtils.getAttributeAsDoubleArray(g, GATKVCFConstants.ALLELE_FRACTION_KEY, () -> null, 0.0);
+                double variantAFtotal = 0;
+                final List<Allele> calledAlleles = new ArrayList<>();
+                for(int i = 0; i < vc.getAlleles().size()-1; i++) {
+                    variantAFtotal += variantAFArray[i];
+                    if (tlodArray[i] > tlodThreshold) {
+                        calledAlleles.add(vc.getAlternateAllele(i));
+                        perAlleleLikelihoodSums[i+1] += tlodArray[i];
+                    }
+                }
+                //hack for weird Mutect2 ploidy -- if the variant is non-homoplasmic, call the reference allele too
+                if(variantAFtotal < 1-afTolerance && (!g.hasAD() || g.getAD()[0] > 0)) {
+
+                    calledAlleles.add(0, vc.getReference());
+                }
+                //"ploidy" gets set according to the size of the alleles List in the Genotype
+                gb.alleles(calledAlleles);
+                newGenotypes.add(gb.make());
+            }
+
+            final VariantContextBuilder builder = new VariantContextBuilder(vc);
+            final VariantContext regenotypedVC = builder.genotypes(newGenotypes).make();
+
+            final int maxAltAlleles = ((UnifiedArgumentCollection)genotypingEngine.getConfiguration()).genotypeArgs.MAX_ALTERNATE_ALLELES;
+            List<Allele> allelesToKeep;
+
+            //we need to make sure all alleles pass the tlodThreshold
+            allelesToKeep = new ArrayList<>(perAlleleLikelihoodSums.length-1);
+            allelesToKeep.add(vc.getReference());
+            for (int i = 1; i < perAlleleLikelihoodSums.length; i++) {
+                if (perAlleleLikelihoodSums[i] > tlodThreshold) {
+                    allelesToKeep.add(vc.getAlternateAllele(i-1));
+                }
+            }
+
+            if (regenotypedVC.getAlternateAlleles().size() > maxAltAlleles) {
+                allelesToKeep = AlleleSubsettingUtils.filterToMaxNumberOfAltAllelesBasedOnScores(maxAltAlleles, allelesToKeep, perAlleleLikelihoodSums);
+            }
+
+            if (allelesToKeep.size() == 1) {
+                return null;
+            }
+
+            //if we didn't drop alleles then we're done!
+            if (allelesToKeep.size() == regenotypedVC.getAlleles().size()) {
+                return regenotypedVC;
+            }
+
+            final int[] relevantIndices = allelesToKeep.stream().mapToInt(a -> regenotypedVC.getAlleles().indexOf(a)).toArray();
+
+            //do another pass over genotypes to drop the alleles that aren't called
+            final GenotypesContext reducedGenotypes = AlleleSubsettingUtils.subsetSomaticAlleles(outputHeader, regenotypedVC.getGenotypes(), allelesToKeep, relevantIndices);
+            final VariantContext subsetVC = builder.alleles(allelesToKeep).genotypes(reducedGenotypes).make();
+            final VariantContext trimmedVC = GATKVariantContextUtils.trimAlleles(subsetVC, true, true);
+            if (isProperlyPolymorphic(trimmedVC)) {
+                return trimmedVC;
+            }
+            else {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Genotypes sites on a pool of threads and writes them in the order in which they were submitted.
+     *
+     * The sites are read on the traversal thread, along with any dbSNP records overlapping them (see
+     * {@link SiteGenotyper#annotateContext}), and genotyped in batches split evenly among the workers.
+     * While the workers genotype a batch, the traversal thread reads the next one.
+     */
+    private final class GenotypingWorkerPool implements AutoCloseable {
+        private final List<SiteGenotyper> workers;
+        private final List<ReferenceDataSource> workerReferences;
+        private final int batchSize;
+        private final ExecutorService executorService;
+
+        private List<PendingSite> currentBatch;
+
+        /**
+         * The results of each worker on its consecutive part of the batch being genotyped.
+         */
+        private List<Future<List<VariantContext>>> inFlightResults = Collections.emptyList();
+
+        /**
+         * @param workers One {@link SiteGenotyper} per worker thread.  Must not be {@code null} or empty.
+         * @param workerReferences One {@link ReferenceDataSource} per worker thread.  Closed by this pool.  Must not be {@code null}.
+         * @param batchSize Number of sites to genotype in each batch.  Must be positive.
+         */
+        private GenotypingWorkerPool(final List<SiteGenotyper> workers, final List<ReferenceDataSource> workerReferences, final int batchSize) {
+            Utils.nonEmpty(workers);
+            Utils.nonNull(workerReferences);
+            Utils.validateArg(workerReferences.size() == workers.size(), "There must be one reference per worker.");
+            Utils.validateArg(batchSize > 0, "batchSize must be positive.");
+
+            this.workers = workers;
+            this.workerReferences = workerReferences;
+            this.batchSize = batchSize;
+            this.currentBatch = new ArrayList<>(batchSize);
+            this.executorService = Executors.newFixedThreadPool(workers.size(),
+                    new ThreadFactoryBuilder()
+                            .setNameFormat("genotypegvcfs-thread-%d")
+                            .setDaemon(true)
+                            .build());
+
+            logger.info("Genotyping sites in batches of " + batchSize + " on " + workers.size() + " threads.");
+        }
+
+        /**
+         * Queue a site to be genotyped and written once its batch is complete.  Must be called on the traversal thread.
+         * @param knownVariants dbSNP records overlapping the site, or null if there is no dbSNP
+         */
+        private void submit(final Locatable loc, final List<VariantContext> variants, final ReferenceContext ref, final List<VariantContext> knownVariants) {
+            currentBatch.add(new PendingSite(new SimpleInterval(loc), variants, ref.getInterval(), ref.getWindow(), knownVariants));
+
+            if ( currentBatch.size() >= batchSize ) {
+                dispatchCurrentBatch();
+            }
+        }
+
+        /**
+         * Genotype and write all sites submitted so far.
+         */
+        private void flush() {
+            dispatchCurrentBatch();
+            writeInFlightBatch();
+        }
+
+        @Override
+        public void close() {
+            executorService.shutdownNow();
+            for ( final ReferenceDataSource workerReference : workerReferences ) {
+                workerReference.close();
+            }
+        }
+
+        private void dispatchCurrentBatch() {
+            // Only one batch is in flight at a time, so that each worker is only ever used by one task:
+            writeInFlightBatch();
+
+            if ( currentBatch.isEmpty() ) {
+                return;
+            }
+
+            final List<PendingSite> batch = currentBatch;
+            currentBatch = new ArrayList<>(batchSize);
+
+            final int sitesPerWorker = (batch.size() + workers.size() - 1) / workers.size();
+            final List<Future<List<VariantContext>>> results = new ArrayList<>(workers.size());
+            for ( int i = 0; i < workers.size() && i * sitesPerWorker < batch.size(); i++ ) {
+                final List<PendingSite> part = batch.subList(i * sitesPerWorker, Math.min(batch.size(), (i + 1) * sitesPerWorker));
+                final SiteGenotyper worker = workers.get(i);
+                final ReferenceDataSource workerReference = workerReferences.get(i);
+                results.add(executorService.submit(() -> genotype(part, worker, workerReference)));
+            }
+            inFlightResults = results;
+        }
+
+        private void writeInFlightBatch() {
+            for ( final Future<List<VariantContext>> result : inFlightResults ) {
+                for ( final VariantContext regenotypedVC : getResult(result) ) {
+                    writeSite(regenotypedVC);
+                }
+            }
+            inFlightResults = Collections.emptyList();
+        }
+
+        private List<VariantContext> genotype(final List<PendingSite> sites, final SiteGenotyper worker, final ReferenceDataSource workerReference) {
+            final FeatureContext noFeatures = new FeatureContext();
+            final List<VariantContext> regenotypedVCs = new ArrayList<>(sites.size());
+            for ( final PendingSite site : sites ) {
+                final ReferenceContext ref = new ReferenceContext(workerReference, site.interval, site.window);
+                // may be null, in which case writeSite() skips it
+                regenotypedVCs.add(worker.genotypeSite(site.loc, site.variants, ref, noFeatures, site.knownVariants));
+            }
+            return regenotypedVCs;
+        }
+
+        private List<VariantContext> getResult(final Future<List<VariantContext>> result) {
+            try {
+                return result.get();
+            }
+            catch ( final InterruptedException ex ) {
+                Thread.currentThread().interrupt();
+                throw new GATKException("Interrupted while genotyping sites", ex);
+            }
+            catch ( final ExecutionException ex ) {
+                // Preserve user exceptions and the like thrown while genotyping:
+                if ( ex.getCause() instanceof RuntimeException ) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw new GATKException("Error while genotyping sites", ex.getCause());
+            }
+        }
+    }
+
+    /**
+     * A site waiting to be genotyped, with everything needed to genotype it away from the traversal thread.
+     */
+    private static final class PendingSite {
+        private final SimpleInterval loc;
+        private final List<VariantContext> variants;
+        private final SimpleInterval interval;
+        private final SimpleInterval window;
+        private final List<VariantContext> knownVariants;
+
+        private PendingSite(final SimpleInterval loc, final List<VariantContext> variants, final SimpleInterval interval,
+                            final SimpleInterval window, final List<VariantContext> knownVariants) {
+            this.loc = loc;
+            this.variants = variants;
+            this.interval = interval;
+            this.window = window;
+            this.knownVariants = knownVariants;
+        }
+    }
 }
@@ -1,8 +1,6 @@
 package org.broadinstitute.hellbender.tools.walkers;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.primitives.Doubles;
-import com.google.common.primitives.Ints;
 import htsjdk.samtools.util.Locatable;
 import htsjdk.variant.variantcontext.*;
 import htsjdk.variant.vcf.*;
@@ -33,10 +31,11 @@ import java.util.stream.Stream;
 public final class ReferenceConfidenceVariantContextMerger {
 
     private final GenotypeLikelihoodCalculators calculators;
-    private static VCFHeader vcfInputHeader = null;
+    private final VCFHeader vcfInputHeader;
     protected final VariantAnnotatorEngine annotatorEngine;
     private final boolean doSomaticMerge;
     protected boolean dropSomaticFilteringAnnotations;
+    private final boolean keepMedianCombinedValues;
     protected final OneShotLogger oneShotAnnotationLogger = new OneShotLogger(this.getClass());
     protected final OneShotLogger oneShotHeaderLineLogger = new OneShotLogger(this.getClass());
     protected final OneShotLogger AS_Warning = new OneShotLogger(this.getClass());
@@ -52,6 +51,13 @@ public final class ReferenceConfidenceVariantContextMerger {
     private static final List<String> SOMATIC_INFO_ANNOTATIONS_TO_DROP = Arrays.asList(
             GATKVCFConstants.POPULATION_AF_VCF_ATTRIBUTE);
 
+    /**
+     * The remapped alleles of every reference block that spans the current location.  Shared, since most samples at
+     * any site of a large cohort are reference blocks.
+     */
+    private static final List<Allele> SPANNING_REFERENCE_BLOCK_ALLELES =
+            Collections.unmodifiableList(Arrays.asList(Allele.NO_CALL, Allele.NON_REF_ALLELE));
+
     public ReferenceConfidenceVariantContextMerger(VariantAnnotatorEngine engine, final VCFHeader inputHeader) {
         this(engine, inputHeader, false, false);
     }
@@ -61,6 +67,16 @@ public final class ReferenceConfidenceVariantContextMerger {
     }
 
     public ReferenceConfidenceVariantContextMerger(VariantAnnotatorEngine engine, final VCFHeader inputHeader, boolean somaticInput, boolean dropSomaticFilteringAnnotations) {
+        this(engine, inputHeader, somaticInput, dropSomaticFilteringAnnotations, false);
+    }
+
+    /**
+     * @param keepMedianCombinedValues if true, annotations that aren't reducible are given every value of the merged
+     *                                 records instead of their median, so that a later merge of the output takes the
+     *                                 median over all of the original values
+     */
+    public ReferenceConfidenceVariantContextMerger(VariantAnnotatorEngine engine, final VCFHeader inputHeader, boolean somaticInput, boolean dropSomaticFilteringAnnotations,
+                                                   boolean keepMedianCombinedValues) {
         Utils.nonNull(inputHeader, "A VCF header must be provided");
 
         calculators = new GenotypeLikelihoodCalculators();
@@ -68,6 +84,7 @@ public final class ReferenceConfidenceVariantContextMerger {
         vcfInputHeader = inputHeader;
         doSomaticMerge = somaticInput;
         this.dropSomaticFilteringAnnotations = dropSomaticFilteringAnnotations;
+        this.keepMedianCombinedValues = keepMedianCombinedValues;
     }
 
     /**
@@ -99,11 +116,22 @@ public final class ReferenceConfidenceVariantContextMerger {
         final Set<String> aggregatedFilters = new HashSet<>();
         boolean sawPassSample = false;
 
+        // the remapped alleles of every reference block that starts at the current location, shared like SPANNING_REFERENCE_BLOCK_ALLELES
+        final List<Allele> referenceBlockAlleles = Collections.unmodifiableList(Arrays.asList(refAllele, Allele.NON_REF_ALLELE));
+
         // cycle through and add info from the other vcs
         for ( final VariantContext vc : vcs ) {
             // if this context doesn't start at the current location then it must be a spanning event (deletion or ref block)
             final boolean isSpanningEvent = loc.getStart() != vc.getStart();
-            vcAndNewAllelePairs.add(new VCWithNewAlleles(vc, isSpanningEvent ? replaceWithNoCallsAndDels(vc, doSomaticMerge) : remapAlleles(vc, refAllele), isSpanningEvent));
+            final List<Allele> newAlleles;
+            if ( isReferenceBlock(vc) && isSpanningEvent ) {
+                newAlleles = SPANNING_REFERENCE_BLOCK_ALLELES;
+            } else if ( isReferenceBlock(vc) && vc.getReference().length() <= refAllele.length() ) {
+                newAlleles = referenceBlockAlleles;
+            } else {
+                newAlleles = isSpanningEvent ? replaceWithNoCallsAndDels(vc, doSomaticMerge) : remapAlleles(vc, refAllele);
+            }
+            vcAndNewAllelePairs.add(new VCWithNewAlleles(vc, newAlleles, isSpanningEvent));
             if (doSomaticMerge && vc.filtersWereApplied()) {
                 if (vc.isFiltered()) {
                     aggregatedFilters.addAll(vc.getFilters());
@@ -121,12 +149,13 @@ public final class ReferenceConfidenceVariantContextMerger {
         final Map<String, List<?>> annotationMap = new LinkedHashMap<>();
 
         final GenotypesContext genotypes = GenotypesContext.create();
+        final GenotypeIndexMapCache genotypeIndexMaps = new GenotypeIndexMapCache();
 
         for ( final VCWithNewAlleles vcWithNewAlleles : vcAndNewAllelePairs ) {
             final VariantContext vc = vcWithNewAlleles.getVc();
             final List<Allele> remappedAlleles = vcWithNewAlleles.getNewAlleles();
 
-            genotypes.addAll(mergeRefConfidenceGenotypes(vc, remappedAlleles, allelesList, samplesAreUniquified));
+            mergeRefConfidenceGenotypes(genotypes, vc, remappedAlleles, allelesList, samplesAreUniquified, genotypeIndexMaps);
             depth += calculateVCDepth(vc);
 
             if ( loc.getStart() != vc.getStart() ) {
@@ -167,6 +196,13 @@ public final class ReferenceConfidenceVariantContextMerger {
         return builder.make();
     }
 
+    /**
+     * @return true if the VariantContext is a reference block, i.e. its only alternate allele is {@link Allele#NON_REF_ALLELE}
+     */
+    private static boolean isReferenceBlock(final VariantContext vc) {
+        return vc.getNAlleles() == 2 && vc.getAlternateAllele(0).equals(Allele.NON_REF_ALLELE);
+    }
+
     /**
      * Replaces any alleles in the VariantContext with NO CALLS or the symbolic deletion allele as appropriate, except for the generic ALT allele
      *
@@ -327,6 +363,8 @@ public final class ReferenceConfidenceVariantContextMerger {
                 final int size = values.size();
                 if (size == 1) {
                     attributes.put(key, values.get(0));
+                } else if (keepMedianCombinedValues) {
+                    attributes.put(key, values);
                 } else {
                     attributes.put(key, Utils.getMedianValue(values));
                 }
@@ -443,9 +481,11 @@ public final class ReferenceConfidenceVariantContextMerger {
                     }
                     else {
                         String[] valueArray = value.toString().split("\\[|" + AnnotationUtils.LIST_DELIMITER +  "|\\]");
-                        for (final Object val : valueArray) {
-                            if (!val.equals("")) {
-                                values.add(parseNumericInfoAttributeValue(vcfInputHeader, key, val.toString()));
+                        for (final String val : valueArray) {
+                            // lists decoded from a VCF are rendered as "[a, b]", so there may be spaces between values
+                            final String trimmedVal = val.trim();
+                            if (!trimmedVal.isEmpty()) {
+                                values.add(parseNumericInfoAttributeValue(vcfInputHeader, key, trimmedVal));
                             }
                         }
                     }
@@ -507,22 +547,28 @@ public final class ReferenceConfidenceVariantContextMerger {
     /**
      * Merge into the context a new genotype represented by the given VariantContext for the provided list of target alleles.
      * This method assumes that none of the alleles in the VC overlaps with any of the alleles in the set.
-     *  @param vc                    the Variant Context for the sample
+     * @param mergedGenotypes       the genotypes to which to add the merged genotypes of the sample
+     * @param vc                    the Variant Context for the sample
      * @param remappedAlleles       the list of remapped alleles for the sample
      * @param targetAlleles         the list of target alleles
      * @param samplesAreUniquified  true if sample names have been uniquified
+     * @param genotypeIndexMaps     the genotype index maps computed so far at this site
      */
-    private GenotypesContext mergeRefConfidenceGenotypes(final VariantContext vc,
-                                                           final List<Allele> remappedAlleles,
-                                                           final List<Allele> targetAlleles,
-                                                           final boolean samplesAreUniquified) {
-        final GenotypesContext mergedGenotypes = GenotypesContext.create();
-        final int maximumPloidy = vc.getMaxPloidy(GATKVariantContextUtils.DEFAULT_PLOIDY);
-        // the map is different depending on the ploidy, so in order to keep this method flexible (mixed ploidies)
-        // we need to get a map done (lazily inside the loop) for each ploidy, up to the maximum possible.
-        final int[][] genotypeIndexMapsByPloidy = new int[maximumPloidy + 1][];
+    private void mergeRefConfidenceGenotypes(final GenotypesContext mergedGenotypes,
+                                             final VariantContext vc,
+                                             final List<Allele> remappedAlleles,
+                                             final List<Allele> targetAlleles,
+                                             final boolean samplesAreUniquified,
+                                             final GenotypeIndexMapCache genotypeIndexMaps) {
         final int maximumAlleleCount = Math.max(remappedAlleles.size(),targetAlleles.size());
 
+        // The indexes of the relevant alleles are the same for every genotype of the VC, unless the best of several
+        // spanning deletions has to be picked from the likelihoods of each genotype (see getIndexesOfRelevantAlleles).
+        // Only the indexes that don't depend on the genotype are computed once and shared.
+        final boolean indexesMayDependOnGenotype = !doSomaticMerge && targetAlleles.contains(Allele.SPAN_DEL)
+                && Collections.frequency(remappedAlleles, Allele.SPAN_DEL) > 1;
+        int[] sharedIndexesOfRelevantAlleles = null;
+
         for ( final Genotype g : vc.getGenotypes() ) {
             final String name;
             if (samplesAreUniquified) {
@@ -534,11 +580,16 @@ public final class ReferenceConfidenceVariantContextMerger {
             final GenotypeBuilder genotypeBuilder = new GenotypeBuilder(g);
             if (!doSomaticMerge) {
                 if (g.hasPL()) {
-                    // lazy initialization of the genotype index map by ploidy.
-                    int[]  perSampleIndexesOfRelevantAlleles = getIndexesOfRelevantAlleles(remappedAlleles, targetAlleles, vc.getStart(), g);
-                    final int[] genotypeIndexMapByPloidy = genotypeIndexMapsByPloidy[ploidy] == null
-                            ? calculators.getInstance(ploidy, maximumAlleleCount).genotypeIndexMap(perSampleIndexesOfRelevantAlleles, calculators) //probably horribly slow
-                            : genotypeIndexMapsByPloidy[ploidy];
+                    final int[] perSampleIndexesOfRelevantAlleles;
+                    if (indexesMayDependOnGenotype) {
+                        perSampleIndexesOfRelevantAlleles = getIndexesOfRelevantAlleles(remappedAlleles, targetAlleles, vc.getStart(), g);
+                    } else {
+                        if (sharedIndexesOfRelevantAlleles == null) {
+                            sharedIndexesOfRelevantAlleles = getIndexesOfRelevantAlleles(remappedAlleles, targetAlleles, vc.getStart(), g);
+                        }
+                        perSampleIndexesOfRelevantAlleles = sharedIndexesOfRelevantAlleles;
+                    }
+                    final int[] genotypeIndexMapByPloidy = genotypeIndexMaps.get(ploidy, perSampleIndexesOfRelevantAlleles, maximumAlleleCount);
                     final int[] PLs = generatePL(g, genotypeIndexMapByPloidy);
                     final int[] AD = g.hasAD() ? generateAD(g.getAD(), perSampleIndexesOfRelevantAlleles) : null;
                     genotypeBuilder.PL(PLs).AD(AD);
@@ -556,9 +607,11 @@ public final class ReferenceConfidenceVariantContextMerger {
                     }
                 }
 
-                // lazy initialization of the genotype index map by ploidy.
-                int[] perSampleIndexesOfRelevantAlleles = getIndexesOfRelevantAlleles(remappedAlleles, targetAlleles, vc.getStart(), g);
-                final int nonRefIndex = remappedAlleles.indexOf(Allele.NON_REF_ALLELE);
+                // the indexes never depend on the genotype in a somatic merge
+                if (sharedIndexesOfRelevantAlleles == null) {
+                    sharedIndexesOfRelevantAlleles = getIndexesOfRelevantAlleles(remappedAlleles, targetAlleles, vc.getStart(), g);
+                }
+                final int[] perSampleIndexesOfRelevantAlleles = sharedIndexesOfRelevantAlleles;
                 final int[] AD;
                 if (g.hasAD()) {
                     AD = generateAD(g.getAD(), perSampleIndexesOfRelevantAlleles);
@@ -596,8 +649,42 @@ public final class ReferenceConfidenceVariantContextMerger {
             genotypeBuilder.alleles(GATKVariantContextUtils.noCallAlleles(g.getPloidy())).name(name);
             mergedGenotypes.add(genotypeBuilder.make());
         }
+    }
 
-        return mergedGenotypes;
+    /**
+     * The genotype index maps computed so far at a site, by ploidy and indexes of the relevant alleles.
+     *
+     * Computing a genotype index map enumerates all of the genotypes of the merged alleles, so it's not something to
+     * repeat for every sample.  There are only a few distinct allele index mappings at any one site (all the reference
+     * blocks map the same way), so they are simply scanned.
+     */
+    private final class GenotypeIndexMapCache {
+        private final List<int[]> indexesOfRelevantAlleles = new ArrayList<>();
+        private final List<int[][]> genotypeIndexMapsByPloidy = new ArrayList<>();
+
+        /**
+         * @return the genotype index map for the given ploidy and indexes of the relevant alleles.  Must not be modified.
+         */
+        int[] get(final int ploidy, final int[] perSampleIndexesOfRelevantAlleles, final int maximumAlleleCount) {
+            int mapping = 0;
+            while ( mapping < indexesOfRelevantAlleles.size() && !Arrays.equals(indexesOfRelevantAlleles.get(mapping), perSampleIndexesOfRelevantAlleles) ) {
+                mapping++;
+            }
+            if ( mapping == indexesOfRelevantAlleles.size() ) {
+                indexesOfRelevantAlleles.add(perSampleIndexesOfRelevantAlleles.clone());
+                genotypeIndexMapsByPloidy.add(new int[ploidy + 1][]);
+            }
+
+            int[][] mapsByPloidy = genotypeIndexMapsByPloidy.get(mapping);
+            if ( mapsByPloidy.length <= ploidy ) {
+                mapsByPloidy = Arrays.copyOf(mapsByPloidy, ploidy + 1);
+                genotypeIndexMapsByPloidy.set(mapping, mapsByPloidy);
+            }
+            if ( mapsByPloidy[ploidy] == null ) {
+                mapsByPloidy[ploidy] = calculators.getInstance(ploidy, maximumAlleleCount).genotypeIndexMap(perSampleIndexesOfRelevantAlleles, calculators);
+            }
+            return mapsByPloidy[ploidy];
+        }
     }
 
     /**
@@ -754,8 +841,16 @@ public final class ReferenceConfidenceVariantContextMerger {
      * @return non-null array of new AD values
      */
     public static int[] generateAD(final int[] originalAD, final int[] indexesOfRelevantAlleles) {
-        final List<Integer> adList = (List<Integer>)remapRLengthList(Arrays.stream(originalAD).boxed().collect(Collectors.toList()), indexesOfRelevantAlleles);
-        return Ints.toArray(adList);
+        Utils.nonNull(originalAD);
+        Utils.nonNull(indexesOfRelevantAlleles);
+
+        // same as remapRLengthList(), without boxing
+        final int[] newAD = new int[indexesOfRelevantAlleles.length];
+        for ( int i = 0; i < newAD.length; i++ ) {
+            final int oldIndex = indexesOfRelevantAlleles[i];
+            newAD[i] = oldIndex >= originalAD.length ? 0 : originalAD[oldIndex];
+        }
+        return newAD;
     }
 
     /**
@@ -765,8 +860,16 @@ public final class ReferenceConfidenceVariantContextMerger {
      * @return non-null array of new AFs
      */
     public static double[] generateAF(final double[] originalAF, final int[] indexesOfRelevantAlleles) {
-        final List<Double> afList = (List<Double>)remapALengthList(Arrays.stream(originalAF).boxed().collect(Collectors.toList()), indexesOfRelevantAlleles);
-        return Doubles.toArray(afList);
+        Utils.nonNull(originalAF);
+        Utils.nonNull(indexesOfRelevantAlleles);
+
+        // same as remapALengthList(), without boxing
+        final double[] newAF = new double[indexesOfRelevantAlleles.length - 1];
+        for ( int i = 0; i < newAF.length; i++ ) {
+            final int oldIndex = indexesOfRelevantAlleles[i + 1];
+            newAF[i] = oldIndex >= originalAF.length + 1 ? 0.0 : originalAF[oldIndex - 1];
+        }
+        return newAF;
     }
 
     /**
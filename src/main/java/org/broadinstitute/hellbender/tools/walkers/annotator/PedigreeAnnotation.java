@@ -22,9 +22,12 @@ public abstract class PedigreeAnnotation extends InfoFieldAnnotation {
     private boolean hasAddedPedigreeFounders = false;
 
     protected GenotypesContext getFounderGenotypes(VariantContext vc) {
-        if ((pedigreeFile!= null) && (!hasAddedPedigreeFounders)) {
-            founderIds.addAll(initializeSampleDB(pedigreeFile));
-            hasAddedPedigreeFounders=true;
+        // Synchronized because annotations may be shared by threads genotyping different sites (see GenotypeGVCFs)
+        synchronized (this) {
+            if ((pedigreeFile!= null) && (!hasAddedPedigreeFounders)) {
+                founderIds.addAll(initializeSampleDB(pedigreeFile));
+                hasAddedPedigreeFounders=true;
+            }
         }
         return (founderIds == null || founderIds.isEmpty()) ? vc.getGenotypes() : vc.getGenotypes(new HashSet<>(founderIds));
     }
@@ -18,6 +18,7 @@ import org.broadinstitute.hellbender.utils.variant.GATKVCFHeaderLines;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 /**
  * Variant confidence normalized by unfiltered depth of variant samples
@@ -53,6 +54,17 @@ public final class QualByDepth extends InfoFieldAnnotation implements StandardAn
     static final double IDEAL_HIGH_QD = 30;
     private static final double JITTER_SIGMA = 3;
 
+    private boolean jitterSeededBySite = false;
+
+    /**
+     * Draw the jitter of QD values above the cap from a generator seeded by the site (see {@link #getSiteRandomGenerator}),
+     * instead of from the shared random generator, so that the QD of a site does not depend on which sites were annotated
+     * before it, nor on the thread that annotated it.
+     */
+    public void setJitterSeededBySite(final boolean jitterSeededBySite) {
+        this.jitterSeededBySite = jitterSeededBySite;
+    }
+
     @Override
     public Map<String, Object> annotate(final ReferenceContext ref,
                                         final VariantContext vc,
@@ -77,7 +89,7 @@ public final class QualByDepth extends InfoFieldAnnotation implements StandardAn
         double QD = qual / depth;
 
         // Hack: see note in the fixTooHighQD method below
-        QD = fixTooHighQD(QD);
+        QD = fixTooHighQD(QD, jitterSeededBySite ? getSiteRandomGenerator(vc) : Utils.getRandomGenerator());
 
         return Collections.singletonMap(getKeyNames().get(0), String.format("%.2f", QD));
     }
@@ -92,13 +104,32 @@ public final class QualByDepth extends InfoFieldAnnotation implements StandardAn
      * @return a QD value
      */
     public static double fixTooHighQD(final double QD) {
+        return fixTooHighQD(QD, Utils.getRandomGenerator());
+    }
+
+    /**
+     * As {@link #fixTooHighQD(double)}, drawing the jitter from the given generator.
+     *
+     * @param QD the raw QD score
+     * @param random the generator to draw the jitter from
+     * @return a QD value
+     */
+    public static double fixTooHighQD(final double QD, final Random random) {
         if ( QD < MAX_QD_BEFORE_FIXING ) {
             return QD;
         } else {
-            return IDEAL_HIGH_QD + Utils.getRandomGenerator().nextGaussian() * JITTER_SIGMA;
+            return IDEAL_HIGH_QD + random.nextGaussian() * JITTER_SIGMA;
         }
     }
 
+    /**
+     * @param vc the site being annotated
+     * @return a new generator seeded by the contig and start of the site
+     */
+    public static Random getSiteRandomGenerator(final VariantContext vc) {
+        return new Random(((long) vc.getContig().hashCode() << 32) ^ vc.getStart());
+    }
+
     public static int getDepth(final GenotypesContext genotypes, final ReadLikelihoods<Allele> likelihoods) {
         int depth = 0;
         int ADrestrictedDepth = 0;
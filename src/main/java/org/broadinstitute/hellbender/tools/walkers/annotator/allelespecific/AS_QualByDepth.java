@@ -11,6 +11,7 @@ import org.broadinstitute.hellbender.tools.walkers.annotator.AnnotationUtils;
 import org.broadinstitute.hellbender.tools.walkers.annotator.InfoFieldAnnotation;
 import org.broadinstitute.hellbender.tools.walkers.annotator.QualByDepth;
 import org.broadinstitute.hellbender.utils.MathUtils;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.genotyper.ReadLikelihoods;
 import org.broadinstitute.hellbender.utils.help.HelpConstants;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFConstants;
@@ -47,6 +48,16 @@ import java.util.*;
 @DocumentedFeature(groupName=HelpConstants.DOC_CAT_ANNOTATORS, groupSummary=HelpConstants.DOC_CAT_ANNOTATORS_SUMMARY, summary="Allele-specific call confidence normalized by depth of sample reads supporting the allele (AS_QD)")
 public class AS_QualByDepth extends InfoFieldAnnotation implements ReducibleAnnotation, AS_StandardAnnotation {
 
+    private boolean jitterSeededBySite = false;
+
+    /**
+     * Draw the jitter of AS_QD values above the cap from a generator seeded by the site, as with
+     * {@link QualByDepth#setJitterSeededBySite}.
+     */
+    public void setJitterSeededBySite(final boolean jitterSeededBySite) {
+        this.jitterSeededBySite = jitterSeededBySite;
+    }
+
     @Override
     public List<String> getKeyNames() { return Arrays.asList(GATKVCFConstants.AS_QUAL_BY_DEPTH_KEY); }
 
@@ -134,11 +145,12 @@ public class AS_QualByDepth extends InfoFieldAnnotation implements ReducibleAnno
 
         // Don't normalize indel length for AS_QD because it will only be called from GenotypeGVCFs, never UG
         List<Double> QDlist = new ArrayList<>();
+        final Random random = jitterSeededBySite ? QualByDepth.getSiteRandomGenerator(vc) : Utils.getRandomGenerator();
         double refDepth = (double)standardDepth.get(0);
         for (int i = 0; i < alleleQualList.size(); i++) {
             double AS_QD = -10.0 * alleleQualList.get(i) / ((double)standardDepth.get(i+1) + refDepth); //+1 to skip the reference field of the AD, add ref counts to each to match biallelic case
             // Hack: see note in the fixTooHighQD method below
-            AS_QD = QualByDepth.fixTooHighQD(AS_QD);
+            AS_QD = QualByDepth.fixTooHighQD(AS_QD, random);
             QDlist.add(AS_QD);
         }
 
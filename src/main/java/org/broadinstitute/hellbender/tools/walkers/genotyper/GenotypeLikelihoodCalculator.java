@@ -23,7 +23,7 @@ public final class GenotypeLikelihoodCalculator {
      * Offset table for this calculator.
      *
      * <p>
-     *     This is a shallow copy of {@link GenotypeLikelihoodCalculators#alleleFirstGenotypeOffsetByPloidy} when the calculator was created
+     *     This is a reference to the immutable offset table shared by {@link GenotypeLikelihoodCalculators} when the calculator was created
      *     thus it follows the same format as that array. Please refer to its documentation.
      * </p>
      *
@@ -90,11 +90,12 @@ public final class GenotypeLikelihoodCalculator {
      * Buffer used as a temporary container for likelihood components for genotypes stratified by reads.
      *
      * <p>
-     *     It is indexed by genotype index and then by read index. The read capacity is increased as needed by calling
-     *     {@link #ensureReadCapacity(int) ensureReadCapacity}.
+     *     It is indexed by genotype index and then by read index. It is allocated on the first call to
+     *     {@link #ensureReadCapacity(int) ensureReadCapacity}, as many calculators are only used to look up genotypes,
+     *     and its read capacity is increased as needed by subsequent calls.
      * </p>
      */
-    private final double[][] readLikelihoodsByGenotypeIndex;
+    private double[][] readLikelihoodsByGenotypeIndex = null;
 
     /**
      * Indicates how many reads the calculator supports.
@@ -150,7 +151,6 @@ public final class GenotypeLikelihoodCalculator {
         this.ploidy = ploidy;
         genotypeCount = this.alleleFirstGenotypeOffsetByPloidy[ploidy][alleleCount];
         alleleHeap = new PriorityQueue<>(ploidy, Comparator.<Integer>naturalOrder().reversed());
-        readLikelihoodsByGenotypeIndex = new double[genotypeCount][];
         // The number of possible components is limited by distinct allele count and ploidy.
         maximumDistinctAllelesInGenotype = Math.min(ploidy, alleleCount);
         genotypeAllelesAndCounts = new int[maximumDistinctAllelesInGenotype * 2];
@@ -165,6 +165,7 @@ public final class GenotypeLikelihoodCalculator {
         if (readCapacity == -1) { // first time call.
             final int minimumCapacity = Math.max(requestedCapacity, 10); // Never go too small, 10 is the minimum.
             readAlleleLikelihoodByAlleleCount = new double[minimumCapacity * alleleCount * (ploidy+1)];
+            readLikelihoodsByGenotypeIndex = new double[genotypeCount][];
             for (int i = 0; i < genotypeCount; i++) {
                 readLikelihoodsByGenotypeIndex[i] = new double[minimumCapacity];
             }
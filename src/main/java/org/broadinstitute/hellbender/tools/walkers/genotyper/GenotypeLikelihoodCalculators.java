@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.tools.walkers.genotyper;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.Utils;
@@ -7,28 +8,36 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Genotype likelihood calculator utility. This class is thread-safe since access to shared mutable state is
- * synchronized.
+ * Genotype likelihood calculator utility. This class is thread-safe and lock-free: the genotype tables are immutable
+ * and shared by all instances and threads, and are replaced atomically by larger ones when a request exceeds their capacity.
  *
  * <p>
  *     This class provide genotype likelihood calculators with any number of alleles able given an arbitrary ploidy and allele
  *     count (number of distinct alleles).
  * </p>
+ *
+ * <p>
+ *     {@link GenotypeLikelihoodCalculator} instances keep mutable buffers so they cannot be shared between threads.
+ *     {@link #getInstance} returns a fresh one on every call, whereas {@link #getThreadLocalInstance} memoizes one
+ *     per thread, ploidy and allele count so that hot loops don't reallocate them.
+ * </p>
  */
 public final class GenotypeLikelihoodCalculators {
 
     private static final Logger logger = LogManager.getLogger(GenotypeLikelihoodCalculators.class);
 
     /**
-     * The current maximum ploidy supported by the tables.
-     * <p>
-     *     Its initial value indicates the initial capacity of the shared {@link #genotypeTableByPloidy}. Feel free
-     *     to change it to anything reasonable that is non-negative.
-     * </p>
+     * Initial maximum ploidy supported by the shared tables. Feel free to change it to anything reasonable that is non-negative.
      */
-    private int maximumPloidy = 2; // its initial value is the initial capacity of the shared tables.
+    private static final int INITIAL_MAXIMUM_PLOIDY = 2;
+
+    /**
+     * Initial maximum allele index supported by the shared tables. Feel free to change it to anything reasonable that is non-negative.
+     */
+    private static final int INITIAL_MAXIMUM_ALLELE = 1;
 
     /**
      * Maximum possible number of genotypes that this calculator can handle.
@@ -41,32 +50,57 @@ public final class GenotypeLikelihoodCalculators {
     static final int GENOTYPE_COUNT_OVERFLOW = -1;
 
     /**
-     * The current maximum allele index supported by the tables.
-     * <p>
-     *     Its initial value indicates the initial capacity of the shared {@link #alleleFirstGenotypeOffsetByPloidy} table.
-     *     Feel free to change it to anything reasonable that is non-negative.
-     * </p>
+     * Genotype counts whose log10 is above this value are certain to overflow; a small margin is left to
+     * account for rounding in the approximation so that borderline cases are resolved exactly by the tables.
      */
-    private int maximumAllele = 1; // its initial value is the initial capacity of the shared tables.
+    private static final double LOG10_MAXIMUM_GENOTYPE_COUNT = Math.log10(Integer.MAX_VALUE) + 0.1;
 
     /**
-     * Shared copy of the offset table as described in {@link #buildGenotypeAlleleCountsTable(int, int, int[][])}.
-     *
-     * This reference holds the largest requested so far in terms of maximum-allele and maximum-ploidy.
+     * Shared tables holding the largest requested so far in terms of maximum-allele and maximum-ploidy.
      */
-    private int[][] alleleFirstGenotypeOffsetByPloidy =
-            buildAlleleFirstGenotypeOffsetTable(maximumPloidy, maximumAllele);
+    private static final AtomicReference<GenotypeTables> sharedTables =
+            new AtomicReference<>(new GenotypeTables(INITIAL_MAXIMUM_PLOIDY, INITIAL_MAXIMUM_ALLELE));
 
+    /**
+     * Calculators confined to each thread, keyed by {@link #calculatorKey(int, int)}.
+     */
+    private static final ThreadLocal<Long2ObjectOpenHashMap<GenotypeLikelihoodCalculator>> threadLocalCalculators =
+            ThreadLocal.withInitial(Long2ObjectOpenHashMap::new);
 
     /**
-     * Shared table of genotypes give the ploidy sorted by their index in the likelihood array.
-     *
-     * <p>
-     *  Its format is described in {@link #buildGenotypeAlleleCountsTable(int, int, int[][])}.
-     * </p>
+     * Immutable snapshot of the offset and genotype tables supporting up to a maximum ploidy and allele index.
      */
-    private GenotypeAlleleCounts[][] genotypeTableByPloidy =
-            buildGenotypeAlleleCountsTable(maximumPloidy,maximumAllele,alleleFirstGenotypeOffsetByPloidy);
+    private static final class GenotypeTables {
+
+        private final int maximumPloidy;
+
+        private final int maximumAllele;
+
+        /**
+         * Offset table as described in {@link #buildAlleleFirstGenotypeOffsetTable(int, int)}.
+         */
+        private final int[][] alleleFirstGenotypeOffsetByPloidy;
+
+        /**
+         * Table of genotypes give the ploidy sorted by their index in the likelihood array.
+         *
+         * <p>
+         *  Its format is described in {@link #buildGenotypeAlleleCountsTable(int, int, int[][])}.
+         * </p>
+         */
+        private final GenotypeAlleleCounts[][] genotypeTableByPloidy;
+
+        private GenotypeTables(final int maximumPloidy, final int maximumAllele) {
+            this.maximumPloidy = maximumPloidy;
+            this.maximumAllele = maximumAllele;
+            alleleFirstGenotypeOffsetByPloidy = buildAlleleFirstGenotypeOffsetTable(maximumPloidy, maximumAllele);
+            genotypeTableByPloidy = buildGenotypeAlleleCountsTable(maximumPloidy, maximumAllele, alleleFirstGenotypeOffsetByPloidy);
+        }
+
+        private boolean supports(final int ploidy, final int allele) {
+            return ploidy <= maximumPloidy && allele <= maximumAllele;
+        }
+    }
 
     public GenotypeLikelihoodCalculators(){
 
@@ -258,48 +292,70 @@ public final class GenotypeLikelihoodCalculators {
      *
      * @return never {@code null}.
      */
-    public synchronized GenotypeLikelihoodCalculator getInstance(final int ploidy, final int alleleCount) {
-        checkPloidyAndMaximumAllele(ploidy, alleleCount);
+    public GenotypeLikelihoodCalculator getInstance(final int ploidy, final int alleleCount) {
+        // the genotype count check makes sure the shared tables have at least the requested capacity, likely to be much more.
+        genotypeCount(ploidy, alleleCount);
+        final GenotypeTables tables = sharedTables.get();
+        return new GenotypeLikelihoodCalculator(ploidy, alleleCount, tables.alleleFirstGenotypeOffsetByPloidy, tables.genotypeTableByPloidy);
+    }
 
-        if (calculateGenotypeCountUsingTables(ploidy, alleleCount) == GENOTYPE_COUNT_OVERFLOW) {
-            final double largeGenotypeCount = Math.pow(10, MathUtils.log10BinomialCoefficient(ploidy + alleleCount - 1, alleleCount - 1));
-            throw new IllegalArgumentException(String.format("the number of genotypes is too large for ploidy %d and allele %d: approx. %.0f", ploidy, alleleCount, largeGenotypeCount));
+    /**
+     * Returns an instance given its ploidy and the number of alleles that is confined to the calling thread and reused
+     * by subsequent calls from that thread with the same ploidy and allele count.
+     * <p>
+     *     The returned calculator must not be handed to other threads, and callers must not rely on holding two distinct
+     *     calculators for the same ploidy and allele count at the same time.
+     * </p>
+     *
+     * @param alleleCount the required allele-count.
+     * @param ploidy the required ploidy-count.
+     *
+     * @throws IllegalArgumentException if either {@code ploidy} or {@code alleleCount} is negative, or the resulting number of genotypes is too large.
+     *
+     * @return never {@code null}.
+     */
+    public GenotypeLikelihoodCalculator getThreadLocalInstance(final int ploidy, final int alleleCount) {
+        checkPloidyAndMaximumAllele(ploidy, alleleCount);
+        final Long2ObjectOpenHashMap<GenotypeLikelihoodCalculator> calculators = threadLocalCalculators.get();
+        final long key = calculatorKey(ploidy, alleleCount);
+        final GenotypeLikelihoodCalculator cached = calculators.get(key);
+        if (cached != null) {
+            return cached;
         }
+        final GenotypeLikelihoodCalculator result = getInstance(ploidy, alleleCount);
+        calculators.put(key, result);
+        return result;
+    }
 
-        // At this point the tables must have at least the requested capacity, likely to be much more.
-        return new GenotypeLikelihoodCalculator(ploidy, alleleCount, alleleFirstGenotypeOffsetByPloidy, genotypeTableByPloidy);
+    private static long calculatorKey(final int ploidy, final int alleleCount) {
+        return ((long) ploidy << 32) | alleleCount;
     }
 
     /**
-     * Update of shared tables.
+     * Returns shared tables with at least the requested capacity, replacing the current ones if necessary.
+     * <p>
+     *     Concurrent expansions may build the same tables more than once, but the published tables are always
+     *     a superset of any previous ones so calculators created from older snapshots remain valid.
+     * </p>
      *
      * @param requestedMaximumAllele the new requested maximum allele maximum.
      * @param requestedMaximumPloidy the new requested ploidy maximum.
+     * @return never {@code null}.
      */
-    private synchronized void ensureCapacity(final int requestedMaximumAllele, final int requestedMaximumPloidy) {
-
-        final boolean needsToExpandAlleleCapacity = requestedMaximumAllele > maximumAllele;
-        final boolean needsToExpandPloidyCapacity = requestedMaximumPloidy > maximumPloidy;
-
-        if (!needsToExpandAlleleCapacity && !needsToExpandPloidyCapacity) {
-            return;
-        }
-
-        final int newMaximumPloidy = Math.max(maximumPloidy, requestedMaximumPloidy);
-        final int newMaximumAllele = Math.max(maximumAllele, requestedMaximumAllele);
-
-        logger.debug("Expanding capacity ploidy:" + maximumPloidy + "->" + newMaximumPloidy + " allele:" +  maximumAllele +"->" + newMaximumAllele );
-
-        // Update tables first.
-        alleleFirstGenotypeOffsetByPloidy = buildAlleleFirstGenotypeOffsetTable(newMaximumPloidy,newMaximumAllele);
-        genotypeTableByPloidy = buildGenotypeAlleleCountsTable(newMaximumPloidy,newMaximumAllele,alleleFirstGenotypeOffsetByPloidy);
-
-        if (needsToExpandAlleleCapacity) {
-            maximumAllele = requestedMaximumAllele;
-        }
-        if (needsToExpandPloidyCapacity) {
-            maximumPloidy = requestedMaximumPloidy;
+    private static GenotypeTables ensureCapacity(final int requestedMaximumAllele, final int requestedMaximumPloidy) {
+        final GenotypeTables current = sharedTables.get();
+        if (current.supports(requestedMaximumPloidy, requestedMaximumAllele)) {
+            return current;
         }
+        return sharedTables.updateAndGet(tables -> {
+            if (tables.supports(requestedMaximumPloidy, requestedMaximumAllele)) {
+                return tables;
+            }
+            final int newMaximumPloidy = Math.max(tables.maximumPloidy, requestedMaximumPloidy);
+            final int newMaximumAllele = Math.max(tables.maximumAllele, requestedMaximumAllele);
+            logger.debug("Expanding capacity ploidy:" + tables.maximumPloidy + "->" + newMaximumPloidy + " allele:" +  tables.maximumAllele +"->" + newMaximumAllele );
+            return new GenotypeTables(newMaximumPloidy, newMaximumAllele);
+        });
     }
 
     /**
@@ -380,9 +436,12 @@ public final class GenotypeLikelihoodCalculators {
         throw new GATKException("Code should never reach here.");
     }
 
-    private synchronized int calculateGenotypeCountUsingTables(int ploidy, int alleleCount) {
+    private static int calculateGenotypeCountUsingTables(int ploidy, int alleleCount) {
         checkPloidyAndMaximumAllele(ploidy, alleleCount);
-        ensureCapacity(alleleCount, ploidy);
-        return alleleFirstGenotypeOffsetByPloidy[ploidy][alleleCount];
+        // Since the tables are shared and never shrink, don't expand them for requests that are bound to overflow.
+        if (alleleCount > 0 && MathUtils.log10BinomialCoefficient(ploidy + alleleCount - 1, alleleCount - 1) > LOG10_MAXIMUM_GENOTYPE_COUNT) {
+            return GENOTYPE_COUNT_OVERFLOW;
+        }
+        return ensureCapacity(alleleCount, ploidy).alleleFirstGenotypeOffsetByPloidy[ploidy][alleleCount];
     }
-}
\ No newline at end of file
+}
@@ -94,7 +94,7 @@ public final class AlleleFrequencyCalculator extends AFCalculator {
                 continue;
             }
             final int ploidy = g.getPloidy() == 0 ? defaultPloidy : g.getPloidy();
-            final GenotypeLikelihoodCalculator glCalc = GL_CALCS.getInstance(ploidy, numAlleles);
+            final GenotypeLikelihoodCalculator glCalc = GL_CALCS.getThreadLocalInstance(ploidy, numAlleles);
 
             final double[] log10GenotypePosteriors = log10NormalizedGenotypePosteriors(g, glCalc, log10AlleleFrequencies);
 
@@ -167,7 +167,7 @@ public final class AlleleFrequencyCalculator extends AFCalculator {
             if (!g.hasLikelihoods()) {
                 continue;
             }
-            final GenotypeLikelihoodCalculator glCalc = GL_CALCS.getInstance(g.getPloidy(), numAlleles);
+            final GenotypeLikelihoodCalculator glCalc = GL_CALCS.getThreadLocalInstance(g.getPloidy(), numAlleles);
 
             final double[] log10GenotypePosteriors = log10NormalizedGenotypePosteriors(g, glCalc, log10AlleleFrequencies);
 
@@ -189,7 +189,7 @@ public final class AlleleFrequencyCalculator extends AFCalculator {
     }
 
     private static int[] genotypeIndicesWithOnlyRefAndSpanDel(final int ploidy, final List<Allele> alleles) {
-        final GenotypeLikelihoodCalculator glCalc = GL_CALCS.getInstance(ploidy, alleles.size());
+        final GenotypeLikelihoodCalculator glCalc = GL_CALCS.getThreadLocalInstance(ploidy, alleles.size());
         final boolean spanningDeletionPresent = alleles.contains(Allele.SPAN_DEL);
         if (!spanningDeletionPresent) {
             return new int[] {HOM_REF_GENOTYPE_INDEX};
@@ -16,6 +16,7 @@ import org.broadinstitute.hellbender.tools.walkers.annotator.Annotation;
 import org.broadinstitute.hellbender.tools.walkers.annotator.VariantAnnotatorEngine;
 import org.broadinstitute.hellbender.utils.fasta.CachingIndexedFastaSequenceFile;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.variant.writers.GVCFWriter;
 
 import java.nio.file.Path;
 import java.util.Collection;
@@ -238,7 +239,13 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
 
     @Override
     public void apply(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext ) {
-        hcEngine.callRegion(region, featureContext).forEach(vcfWriter::add);
+        if ( vcfWriter instanceof GVCFWriter && ((GVCFWriter) vcfWriter).canAddHomRefSites()
+                && hcEngine.canWriteReferenceModelForNoVariation(region) ) {
+            // stream hom-ref sites straight into the GQ bands rather than creating a VariantContext per position
+            hcEngine.writeReferenceModelForNoVariation(region, (GVCFWriter) vcfWriter);
+        } else {
+            hcEngine.callRegion(region, featureContext).forEach(vcfWriter::add);
+        }
     }
 
     @Override
@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 
+import com.google.common.annotations.VisibleForTesting;
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.reference.ReferenceSequenceFile;
@@ -36,6 +37,8 @@ import org.broadinstitute.hellbender.utils.genotyper.SampleList;
 import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
 import org.broadinstitute.hellbender.utils.haplotype.HaplotypeBAMWriter;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.pileup.PileupElement;
+import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.utils.smithwaterman.SmithWatermanAligner;
@@ -75,6 +78,9 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
     // the genotyping engine for the isActive() determination
     private MinimalGenotypingEngine activeRegionEvaluationGenotyperEngine = null;
 
+    // whether isActive() may skip the genotyping engine at loci without any evidence against the reference
+    private boolean canSkipLociWithoutNonRefEvidence = false;
+
     private ReadThreadingAssembler assemblyEngine = null;
 
     private ReadLikelihoodCalculationEngine likelihoodCalculationEngine = null;
@@ -310,6 +316,30 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         activeRegionEvaluationGenotyperEngine = new MinimalGenotypingEngine(simpleUAC, samplesList,
                 FixedAFCalculatorProvider.createThreadSafeProvider(simpleUAC));
         activeRegionEvaluationGenotyperEngine.setLogger(logger);
+        canSkipLociWithoutNonRefEvidence = priorsFavorHomRef(simpleUAC.genotypeArgs, samplesList.numberOfSamples());
+    }
+
+    /**
+     * Checks whether the allele frequency priors used for active region determination give AC=0 at least as much prior
+     * mass as any AC &gt; 0. If so, a locus where every read supports the reference has a maximum a posteriori AC of 0
+     * and {@link #isActive} is known to return an inactive state without having to run the genotyping engine.
+     *
+     * @param genotypeArgs genotyping arguments of the active region evaluation engine
+     * @param numberOfSamples number of samples being called
+     * @return true if the pre-screen in {@link #isActive} is guaranteed not to change its result
+     */
+    @VisibleForTesting
+    static boolean priorsFavorHomRef(final GenotypeCalculationArgumentCollection genotypeArgs, final int numberOfSamples) {
+        if ( ! genotypeArgs.inputPrior.isEmpty() ) {
+            return false;
+        }
+        // Pr(AC=i) = theta/i for i > 0, so the largest non-ref prior is theta and Pr(AC=0) = 1 - theta * H(N)
+        final int totalPloidy = genotypeArgs.samplePloidy * numberOfSamples;
+        double harmonicSum = 0.0;
+        for ( int i = 1; i <= totalPloidy; i++ ) {
+            harmonicSum += 1.0 / i;
+        }
+        return genotypeArgs.snpHeterozygosity * (1.0 + harmonicSum) <= 1.0;
     }
 
     /**
@@ -460,6 +490,43 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
             return new ActivityProfileState(ref.getInterval(), 0.0);
         }
 
+        if ( canSkipLociWithoutNonRefEvidence && hasNoNonRefEvidence(context.getBasePileup(), ref.getBase(), hcArgs.minBaseQualityScore) ) {
+            // Most of the genome looks like this: the likelihoods below would favor hom-ref for every sample and no
+            // soft-clips would be counted, so skip splitting the pileup and calling into the genotyping engine.
+            return new ActivityProfileState(ref.getInterval(), 0.0, ActivityProfileState.Type.NONE, 0.0);
+        }
+
+        return computeActivityProfileState(context, ref);
+    }
+
+    /**
+     * Cheap pre-screen for {@link #isActive}: walks the pileup once using the per-element alignment state and looks for
+     * anything that {@link ReferenceConfidenceModel#calcGenotypeLikelihoodsOfRefVsAny} would count as non-reference
+     * (mismatches, indels, deletions and bases next to soft-clips).
+     *
+     * @param pileup pileup to examine
+     * @param refBase reference base at the pileup locus
+     * @param minBaseQual bases with quality at or below this value are ignored, as in the full computation
+     * @return true if no element of the pileup provides evidence against the reference
+     */
+    @VisibleForTesting
+    static boolean hasNoNonRefEvidence(final ReadPileup pileup, final byte refBase, final byte minBaseQual) {
+        for ( final PileupElement p : pileup ) {
+            if ( p.isDeletion() ) {
+                return false;
+            }
+            if ( p.getQual() > minBaseQual && ReferenceConfidenceModel.isAltBeforeAssembly(p, refBase) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Full isActive() computation: genotypes each sample at the locus using the reference vs. any model.
+     */
+    @VisibleForTesting
+    ActivityProfileState computeActivityProfileState( final AlignmentContext context, final ReferenceContext ref ) {
         final int ploidy = activeRegionEvaluationGenotyperEngine.getConfiguration().genotypeArgs.samplePloidy;
         final List<Allele> noCall = GATKVariantContextUtils.noCallAlleles(ploidy); // used to noCall all genotypes until the exact model is applied
 
@@ -662,6 +729,47 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         }
     }
 
+    /**
+     * Whether the output for an assembly region can be produced with {@link #writeReferenceModelForNoVariation} instead
+     * of {@link #callRegion}: in GVCF mode without priors, an inactive region only produces hom-ref sites.
+     *
+     * @param region region to be called
+     * @return true if the region's output may be streamed directly into a {@link GVCFWriter}
+     */
+    public boolean canWriteReferenceModelForNoVariation(final AssemblyRegion region) {
+        return hcArgs.emitReferenceConfidence == ReferenceConfidenceMode.GVCF
+                && ! hcArgs.justDetermineActiveRegions
+                && hcArgs.genotypeArgs.supportVariants == null
+                && ! region.isActive();
+    }
+
+    /**
+     * Writes the reference model for an inactive assembly region directly into a GVCF writer, producing the same
+     * output as adding the results of {@link #callRegion} to it but without creating a VariantContext per position.
+     * Must only be called if {@link #canWriteReferenceModelForNoVariation} returns true for {@code region}.
+     *
+     * @param region inactive region to emit the reference model for
+     * @param writer the GVCF writer to which the reference model is added
+     */
+    public void writeReferenceModelForNoVariation(final AssemblyRegion region, final GVCFWriter writer) {
+        Utils.validateArg(canWriteReferenceModelForNoVariation(region), "the reference model for this region cannot be streamed");
+        Utils.nonNull(writer);
+        Utils.validateArg(writer.canAddHomRefSites(), "the writer does not accept hom-ref sites as primitive values");
+
+        if ( hcArgs.sampleNameToUse != null ) {
+            removeReadsFromAllSamplesExcept(hcArgs.sampleNameToUse, region);
+        }
+
+        AssemblyBasedCallerUtils.finalizeRegion(region, hcArgs.errorCorrectReads, hcArgs.dontUseSoftClippedBases, minTailQuality, readsHeader, samplesList, ! hcArgs.doNotCorrectOverlappingBaseQualities);
+        filterNonPassingReads(region);
+
+        final SimpleInterval paddedLoc = region.getExtendedSpan();
+        final Haplotype refHaplotype = AssemblyBasedCallerUtils.createReferenceHaplotype(region, paddedLoc, referenceReader);
+        referenceConfidenceModel.writeRefConfidenceForNoVariation(refHaplotype, region,
+                AssemblyBasedCallerUtils.createDummyStratifiedReadMap(refHaplotype, samplesList, readsHeader, region),
+                genotypingEngine.getPloidyModel(), writer);
+    }
+
     private boolean containsCalls(final HaplotypeCallerGenotypingEngine.CalledHaplotypes calledHaplotypes) {
         return calledHaplotypes.getCalls().stream()
                 .flatMap(call -> call.getGenotypes().stream())
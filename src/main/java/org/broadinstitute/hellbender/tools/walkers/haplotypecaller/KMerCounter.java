@@ -1,6 +1,8 @@
 package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 
 import com.google.common.annotations.VisibleForTesting;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import org.broadinstitute.hellbender.utils.Utils;
 
 import java.util.*;
@@ -9,11 +11,33 @@ import java.util.*;
  * generic utility class that counts kmers
  *
  * Basically you add kmers to the counter, and it tells you how many occurrences of each kmer it's seen.
+ *
+ * Kmers of at most {@link #MAX_PACKED_KMER_LENGTH} bases made only of A, C, G and T are packed two bits per base into
+ * a long and counted in a primitive open addressing map; any other kmer (e.g. containing an N) is counted as a
+ * {@link Kmer} object.
  */
 public final class KMerCounter {
 
     /**
-     * A map of for each kmer to its num occurrences in addKmers
+     * Longest kmer that can be packed into a long. One base short of 64 bits so that every packed kmer is non-negative
+     * and {@link #UNPACKABLE} can never be a valid packed kmer.
+     */
+    static final int MAX_PACKED_KMER_LENGTH = 31;
+
+    /**
+     * Returned by {@link #packBase} and {@link #pack} for bases that can't be packed.
+     */
+    static final long UNPACKABLE = -1;
+
+    private static final byte[] PACKED_BASES = {'A', 'C', 'G', 'T'};
+
+    /**
+     * Num occurrences in addKmers of each packed kmer; null if kmerLength is too long to pack
+     */
+    private final Long2IntOpenHashMap countsByPackedKMer;
+
+    /**
+     * A map of for each kmer that couldn't be packed to its num occurrences in addKmers
      */
     private final Map<Kmer, CountedKmer> countsByKMer = new HashMap<>();
     private final int kmerLength;
@@ -24,8 +48,26 @@ public final class KMerCounter {
      * @param kmerLength the length of kmers we'll be counting to error correct, must be >= 1
      */
     public KMerCounter(final int kmerLength) {
+        this(kmerLength, true);
+    }
+
+    /**
+     * Create a new kmer counter that may be told not to pack kmers, so that every kmer is counted as a {@link Kmer}
+     *
+     * @param kmerLength the length of kmers we'll be counting to error correct, must be >= 1
+     * @param packKmers whether to pack kmers that can be packed
+     */
+    KMerCounter(final int kmerLength, final boolean packKmers) {
         Utils.validateArg( kmerLength > 0, () -> "kmerLength must be > 0 but got " + kmerLength);
         this.kmerLength = kmerLength;
+        this.countsByPackedKMer = packKmers && kmerLength <= MAX_PACKED_KMER_LENGTH ? new Long2IntOpenHashMap() : null;
+    }
+
+    /**
+     * @return whether kmers of only A, C, G and T are counted in packed form
+     */
+    boolean packsKmers() {
+        return countsByPackedKMer != null;
     }
 
     /**
@@ -35,15 +77,48 @@ public final class KMerCounter {
      */
     public int getKmerCount(final Kmer kmer) {
         Utils.nonNull(kmer, "kmer cannot be null");
+        // kmers of other lengths are never counted, but could collide with a packed kmer of kmerLength
+        final long packed = countsByPackedKMer != null && kmer.length() == kmerLength ? pack(kmer) : UNPACKABLE;
+        if ( packed != UNPACKABLE ) {
+            return countsByPackedKMer.get(packed);
+        }
         final CountedKmer counted = countsByKMer.get(kmer);
         return counted == null ? 0 : counted.count;
     }
 
     /**
      * Get an unordered collection of the counted kmers in this counter
+     *
+     * Packed kmers are unpacked into new objects on each call, so prefer {@link #getPackedKmerCounts()} in loops
+     *
      * @return a non-null collection
      */
     public Collection<CountedKmer> getCountedKmers() {
+        if ( countsByPackedKMer == null || countsByPackedKMer.isEmpty() ) {
+            return countsByKMer.values();
+        }
+        final List<CountedKmer> result = new ArrayList<>(countsByPackedKMer.size() + countsByKMer.size());
+        for ( final Long2IntMap.Entry entry : countsByPackedKMer.long2IntEntrySet() ) {
+            result.add(new CountedKmer(new Kmer(unpack(entry.getLongKey(), kmerLength)), entry.getIntValue()));
+        }
+        result.addAll(countsByKMer.values());
+        return result;
+    }
+
+    /**
+     * Get the counts of the kmers counted in packed form, keyed by {@link #pack} of each kmer.
+     * The returned map must not be modified.
+     * @return a non-null map, empty if the kmer length is too long to pack
+     */
+    Long2IntMap getPackedKmerCounts() {
+        return countsByPackedKMer == null ? new Long2IntOpenHashMap() : countsByPackedKMer;
+    }
+
+    /**
+     * Get the counted kmers that couldn't be packed because of their length or bases
+     * @return a non-null collection
+     */
+    Collection<CountedKmer> getUnpackedCountedKmers() {
         return countsByKMer.values();
     }
 
@@ -67,6 +142,9 @@ public final class KMerCounter {
      */
     public void clear() {
         countsByKMer.clear();
+        if ( countsByPackedKMer != null ) {
+            countsByPackedKMer.clear();
+        }
     }
 
     /**
@@ -79,6 +157,54 @@ public final class KMerCounter {
         Utils.validateArg(kmer.length() == kmerLength, () -> "bad kmer length " + kmer + " expected size " + kmerLength);
         Utils.validateArg( kmerCount >= 0, () -> "bad kmerCount " + kmerCount);
 
+        final long packed = countsByPackedKMer != null ? pack(kmer) : UNPACKABLE;
+        if ( packed != UNPACKABLE ) {
+            countsByPackedKMer.addTo(packed, kmerCount);
+        } else {
+            addUnpackedKmer(kmer, kmerCount);
+        }
+    }
+
+    /**
+     * Add one occurrence of each of the kmers in bases, that is of each of its subsequences of length kmerLength
+     *
+     * Equivalent to adding {@code new Kmer(bases, offset, kmerLength)} for every offset, but packs the kmers
+     * incrementally rather than creating an object for each one
+     *
+     * @param bases a non-null array of bases, possibly shorter than kmerLength
+     */
+    public void addKmers(final byte[] bases) {
+        Utils.nonNull(bases, "bases cannot be null");
+        if ( countsByPackedKMer == null ) {
+            for ( int offset = 0; offset <= bases.length - kmerLength; offset++ ) {
+                addUnpackedKmer(new Kmer(bases, offset, kmerLength), 1);
+            }
+            return;
+        }
+
+        final long mask = packedKmerMask(kmerLength);
+        long packed = 0;
+        int packableRun = 0; // number of packable bases ending at the current one
+        for ( int i = 0; i < bases.length; i++ ) {
+            final long packedBase = packBase(bases[i]);
+            if ( packedBase == UNPACKABLE ) {
+                packableRun = 0;
+            } else {
+                packed = ((packed << 2) | packedBase) & mask;
+                packableRun++;
+            }
+            final int offset = i - kmerLength + 1;
+            if ( offset >= 0 ) {
+                if ( packableRun >= kmerLength ) {
+                    countsByPackedKMer.addTo(packed, 1);
+                } else {
+                    addUnpackedKmer(new Kmer(bases, offset, kmerLength), 1);
+                }
+            }
+        }
+    }
+
+    private void addUnpackedKmer(final Kmer kmer, final int kmerCount) {
         CountedKmer countFromMap = countsByKMer.get(kmer);
         if ( countFromMap == null ) {
             countFromMap = new CountedKmer(kmer);
@@ -90,7 +216,7 @@ public final class KMerCounter {
     @Override
     public String toString() {
         final StringBuilder b = new StringBuilder("KMerCounter{");
-        b.append("counting ").append(countsByKMer.size()).append(" distinct kmers");
+        b.append("counting ").append(countsByKMer.size() + (countsByPackedKMer == null ? 0 : countsByPackedKMer.size())).append(" distinct kmers");
         b.append("\n}");
         return b.toString();
     }
@@ -103,6 +229,11 @@ public final class KMerCounter {
             this.kmer = kmer;
         }
 
+        private CountedKmer(final Kmer kmer, final int count) {
+            this.kmer = kmer;
+            this.count = count;
+        }
+
         public Kmer getKmer() {
             return kmer;
         }
@@ -125,6 +256,68 @@ public final class KMerCounter {
         }
     }
 
+    /**
+     * Pack a single base into two bits
+     * @return the packed base, or {@link #UNPACKABLE} if base isn't one of A, C, G or T
+     */
+    static long packBase(final byte base) {
+        switch ( base ) {
+            case 'A': return 0;
+            case 'C': return 1;
+            case 'G': return 2;
+            case 'T': return 3;
+            default: return UNPACKABLE;
+        }
+    }
+
+    /**
+     * Pack the bases of a kmer two bits per base, the first base in the most significant position
+     * @return the packed kmer, or {@link #UNPACKABLE} if the kmer is too long or has bases other than A, C, G or T
+     */
+    static long pack(final Kmer kmer) {
+        if ( kmer.length() > MAX_PACKED_KMER_LENGTH ) {
+            return UNPACKABLE;
+        }
+        final byte[] bases = kmer.bases();
+        long packed = 0;
+        for ( final byte base : bases ) {
+            final long packedBase = packBase(base);
+            if ( packedBase == UNPACKABLE ) {
+                return UNPACKABLE;
+            }
+            packed = (packed << 2) | packedBase;
+        }
+        return packed;
+    }
+
+    /**
+     * Inverse of {@link #pack}
+     * @param packed a packed kmer
+     * @param kmerLength the number of bases in the packed kmer
+     * @return a new array of kmerLength bases
+     */
+    static byte[] unpack(final long packed, final int kmerLength) {
+        final byte[] bases = new byte[kmerLength];
+        for ( int i = kmerLength - 1, shift = 0; i >= 0; i--, shift += 2 ) {
+            bases[i] = unpackBase(packed, shift);
+        }
+        return bases;
+    }
+
+    /**
+     * Get the base packed at the given bit shift of a packed kmer
+     */
+    static byte unpackBase(final long packed, final int shift) {
+        return PACKED_BASES[(int) ((packed >>> shift) & 3)];
+    }
+
+    /**
+     * Get the mask of the bits used by a packed kmer of the given length
+     */
+    static long packedKmerMask(final int kmerLength) {
+        return (1L << (2 * kmerLength)) - 1;
+    }
+
     @VisibleForTesting
     void addKmer(final String rawKmer, final int kmerCount) {
         addKmer(new Kmer(rawKmer), kmerCount);
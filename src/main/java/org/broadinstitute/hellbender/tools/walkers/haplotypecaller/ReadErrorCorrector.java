@@ -1,5 +1,8 @@
 package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 
+import com.google.common.annotations.VisibleForTesting;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -57,8 +60,12 @@ public final class ReadErrorCorrector {
      */
     final KMerCounter countsByKMer;
 
-    private final Map<Kmer,Kmer> kmerCorrectionMap = new HashMap<>();
-    private final Map<Kmer,Pair<int[],byte[]>> kmerDifferingBases = new HashMap<>();
+    /**
+     * For each correctable kmer, the positions and bases in which it differs from its correction.
+     * Kmers that {@link KMerCounter} packs into longs are keyed by their packed value, the rest by themselves.
+     */
+    private final Long2ObjectOpenHashMap<Pair<int[],byte[]>> packedKmerCorrections = new Long2ObjectOpenHashMap<>();
+    private final Map<Kmer,Pair<int[],byte[]>> kmerCorrections = new HashMap<>();
     private final int kmerLength;
     private final boolean debug;
     private final boolean trimLowQualityBases;
@@ -78,6 +85,13 @@ public final class ReadErrorCorrector {
     private static final boolean DONT_CORRECT_IN_LONG_HOMOPOLYMERS = false;
     private static final int MAX_HOMOPOLYMER_THRESHOLD = 12;
 
+    /**
+     * Whether to count kmers in packed form.  Packing is only a matter of speed, so this is only ever turned off to
+     * test that packed kmers give the same corrections as {@link Kmer} objects.
+     */
+    @VisibleForTesting
+    static boolean packKmers = true;
+
     // debug counter structure
     private final ReadErrorCorrectionStats readErrorCorrectionStats = new ReadErrorCorrectionStats();
 
@@ -102,7 +116,7 @@ public final class ReadErrorCorrector {
         Utils.validateArg(qualityOfCorrectedBases >= 2 && qualityOfCorrectedBases <= QualityUtils.MAX_REASONABLE_Q_SCORE,
                 () -> "qualityOfCorrectedBases must be >= 2 and <= MAX_REASONABLE_Q_SCORE but got " + qualityOfCorrectedBases);
 
-        countsByKMer = new KMerCounter(kmerLength);
+        countsByKMer = new KMerCounter(kmerLength, packKmers);
         this.kmerLength = kmerLength;
         this.maxMismatchesToCorrect = maxMismatchesToCorrect;
         this.qualityOfCorrectedBases = qualityOfCorrectedBases;
@@ -137,10 +151,7 @@ public final class ReadErrorCorrector {
             return;
         }
 
-        final byte[] readBases = read.getBases();
-        for (int offset = 0; offset <= readBases.length-kmerLength; offset++ )  {
-            countsByKMer.addKmer(new Kmer(readBases,offset,kmerLength),1);
-        }
+        countsByKMer.addKmers(read.getBases());
     }
 
     /**
@@ -215,8 +226,8 @@ public final class ReadErrorCorrector {
 
                 //  do the actual correction
                 // todo - do we need to clone anything else from read?
-                correctedRead.setBaseQualities(inputRead.getBaseQualities());
-                correctedRead.setBases(inputRead.getBases());
+                correctedRead.setBaseQualities(correctedQuals);
+                correctedRead.setBases(correctedBases);
                 correctedRead.setReadGroup(inputRead.getReadGroup());
                 return correctedRead;
             }
@@ -227,6 +238,25 @@ public final class ReadErrorCorrector {
         }
     }
 
+    /**
+     * The bases of a read with the consensus corrections that the k-mer map suggests for them.
+     * Must be called after {@link #correctReads}, which computes the k-mer map.
+     * @param bases                                   Bases to correct
+     * @return                                        A corrected copy of the bases
+     */
+    @VisibleForTesting
+    byte[] getSuggestedCorrections(final byte[] bases) {
+        final byte[] correctedBases = bases.clone();
+        final CorrectionSet correctionSet = buildCorrectionMap(correctedBases);
+        for (int offset = 0; offset < correctedBases.length; offset++) {
+            final Byte b = correctionSet.getConsensusCorrection(offset);
+            if (b != null) {
+                correctedBases[offset] = b;
+            }
+        }
+        return correctedBases;
+    }
+
     /**
      * Build correction map for each of the bases in read.
      * For each of the constituent kmers in read:
@@ -242,11 +272,28 @@ public final class ReadErrorCorrector {
         // array to store list of possible corrections for read
         final CorrectionSet correctionSet = new CorrectionSet(correctedBases.length);
 
-        for (int offset = 0; offset <= correctedBases.length-kmerLength; offset++ )  {
-            final Kmer kmer = new Kmer(correctedBases,offset,kmerLength);
-            final Kmer newKmer = kmerCorrectionMap.get(kmer);
-            if (newKmer != null && !newKmer.equals(kmer)){
-                final Pair<int[],byte[]> differingPositions = kmerDifferingBases.get(kmer);
+        // pack kmers incrementally as KMerCounter.addKmers does
+        final boolean packable = countsByKMer.packsKmers();
+        final long mask = packable ? KMerCounter.packedKmerMask(kmerLength) : 0;
+        long packedKmer = 0;
+        int packableRun = 0;
+        for (int i = 0; i < correctedBases.length; i++) {
+            if (packable) {
+                final long packedBase = KMerCounter.packBase(correctedBases[i]);
+                if (packedBase == KMerCounter.UNPACKABLE) {
+                    packableRun = 0;
+                } else {
+                    packedKmer = ((packedKmer << 2) | packedBase) & mask;
+                    packableRun++;
+                }
+            }
+            final int offset = i - kmerLength + 1;
+            if (offset < 0) {
+                continue;
+            }
+            final Pair<int[],byte[]> differingPositions = packableRun >= kmerLength ? packedKmerCorrections.get(packedKmer)
+                    : kmerCorrections.get(new Kmer(correctedBases, offset, kmerLength));
+            if (differingPositions != null) {
                 final int[] differingIndeces = differingPositions.getLeft();
                 final byte[] differingBases = differingPositions.getRight();
 
@@ -282,85 +329,180 @@ public final class ReadErrorCorrector {
 
     /**
      * For each kmer we've seen, do the following:
-     * a) If kmer count > threshold1, this kmer is good, so correction map will be to itself.
+     * a) If kmer count > threshold1, this kmer is good, so it needs no correction.
      * b) If kmer count <= threshold2, this kmer is bad.
-     *    In that case, loop through all other kmers. If kmer is good, compute distance, and get minimal distance.
-     *    If such distance is < some threshold, map to this kmer, and record differing positions and bases.
+     *    In that case, loop through all other kmers, compute distance, and get minimal distance.
+     *    If such distance is < some threshold, record differing positions and bases of the closest kmer.
      *
      */
     private void computeKmerCorrectionMap() {
-        for (final KMerCounter.CountedKmer storedKmer : countsByKMer.getCountedKmers()) {
-            if (storedKmer.getCount() >= minObservationsForKmerToBeSolid) {
-                // this kmer is good: map to itself
-                kmerCorrectionMap.put(storedKmer.getKmer(),storedKmer.getKmer());
-                kmerDifferingBases.put(storedKmer.getKmer(), Pair.of(new int[0],new byte[0])); // dummy empty array
-                readErrorCorrectionStats.numSolidKmers++;
-            }
-            else if (storedKmer.getCount() <= maxObservationsForKmerToBeCorrectable) {
-                // loop now thru all other kmers to find nearest neighbor
-                final Pair<Kmer,Pair<int[],byte[]>> nearestNeighbor = findNearestNeighbor(storedKmer.getKmer(),countsByKMer,maxMismatchesToCorrect);
-
-                // check if nearest neighbor lies in a close vicinity. If so, log the new bases and the correction map
-                if (nearestNeighbor != null) { // ok, found close neighbor
-                    kmerCorrectionMap.put(storedKmer.getKmer(), nearestNeighbor.getLeft());
-                    kmerDifferingBases.put(storedKmer.getKmer(), nearestNeighbor.getRight());
-                    readErrorCorrectionStats.numCorrectedKmers++;
-//                    if (debug)
-//                        logger.info("Original kmer:" + storedKmer + "\tCorrected kmer:" + nearestNeighbor.first + "\tDistance:" + dist);
-                }
-                else {
-                    readErrorCorrectionStats.numUncorrectableKmers++;
-                }
+        final Long2IntMap packedCounts = countsByKMer.getPackedKmerCounts();
+        final long[] packedKmers = packedCounts.keySet().toLongArray();
+        final List<byte[]> unpackedKmers = new ArrayList<>();
+        for (final KMerCounter.CountedKmer storedKmer : countsByKMer.getUnpackedCountedKmers()) {
+            unpackedKmers.add(storedKmer.getKmer().bases());
+        }
 
+        for (final long packedKmer : packedKmers) {
+            final Pair<int[],byte[]> correction = computeKmerCorrection(packedCounts.get(packedKmer),
+                    KMerCounter.unpack(packedKmer, kmerLength), packedKmer, packedKmers, unpackedKmers);
+            if (correction != null) {
+                packedKmerCorrections.put(packedKmer, correction);
+            }
+        }
+        for (final KMerCounter.CountedKmer storedKmer : countsByKMer.getUnpackedCountedKmers()) {
+            final Pair<int[],byte[]> correction = computeKmerCorrection(storedKmer.getCount(),
+                    storedKmer.getKmer().bases(), KMerCounter.UNPACKABLE, packedKmers, unpackedKmers);
+            if (correction != null) {
+                kmerCorrections.put(storedKmer.getKmer(), correction);
             }
-         }
+        }
     }
 
     /**
-     * Finds nearest neighbor of a given k-mer, among a list of counted K-mers, up to a given distance.
-     * If many k-mers share same closest distance, an arbitrary k-mer is picked
-     * @param kmer                        K-mer of interest
-     * @param countsByKMer                KMerCounter storing set of counted k-mers (may include kmer of interest)
+     * Compute the correction of a single counted kmer
+     * @return the differing positions and bases of the kmer to correct it to, or null if it needs or admits no correction
+     */
+    private Pair<int[],byte[]> computeKmerCorrection(final int count,
+                                                     final byte[] kmer,
+                                                     final long packedKmer,
+                                                     final long[] packedKmers,
+                                                     final List<byte[]> unpackedKmers) {
+        if (count >= minObservationsForKmerToBeSolid) {
+            // this kmer is good: leave it as is
+            readErrorCorrectionStats.numSolidKmers++;
+            return null;
+        }
+        if (count > maxObservationsForKmerToBeCorrectable) {
+            return null;
+        }
+
+        // loop now thru all other kmers to find nearest neighbor
+        final Pair<int[],byte[]> nearestNeighbor = findNearestNeighbor(kmer, packedKmer, packedKmers, unpackedKmers, maxMismatchesToCorrect);
+        if (nearestNeighbor != null) {
+            readErrorCorrectionStats.numCorrectedKmers++;
+        } else {
+            readErrorCorrectionStats.numUncorrectableKmers++;
+        }
+        return nearestNeighbor;
+    }
+
+    /**
+     * Finds nearest neighbor of a given k-mer, among the counted K-mers, up to a given distance.
+     * If many k-mers share same closest distance, the first in lexicographic order is picked, so that the choice
+     * depends neither on the order in which the counted k-mers are stored nor on whether they're packed.
+     * @param kmer                        Bases of the K-mer of interest
+     * @param packedKmer                  K-mer of interest packed by {@link KMerCounter#pack}, or {@link KMerCounter#UNPACKABLE}
+     * @param packedKmers                 Counted K-mers in packed form (may include kmer of interest)
+     * @param unpackedKmers               Bases of the counted K-mers that aren't packed (may include kmer of interest)
      * @param maxDistance                 Maximum distance to search
-     * @return                            Pair of values: closest K-mer in Hamming distance and list of differing bases.
+     * @return                            Pair of differing positions and bases of the closest K-mer in Hamming distance.
      *                                      If no neighbor can be found up to given distance, returns null
      */
-    private Pair<Kmer,Pair<int[],byte[]>> findNearestNeighbor(final Kmer kmer,
-                                                             final KMerCounter  countsByKMer,
-                                                             final int maxDistance) {
+    private static Pair<int[],byte[]> findNearestNeighbor(final byte[] kmer,
+                                                         final long packedKmer,
+                                                         final long[] packedKmers,
+                                                         final List<byte[]> unpackedKmers,
+                                                         final int maxDistance) {
         Utils.nonNull(kmer, "KMER");
-        Utils.nonNull(countsByKMer, "countsByKMer");
-        Utils.validateArg(maxDistance >= 1, "countsByKMer");
-
-        int minimumDistance = Integer.MAX_VALUE;
-        Kmer closestKmer = null;
+        Utils.validateArg(maxDistance >= 1, "maxDistance must be >= 1");
+
+        // distance of the closest neighbor found so far, or maxDistance + 1 if there's none
+        int minimumDistance = maxDistance + 1;
+        byte[] closestKmer = null;
+
+        // the test kmer itself is the only candidate at distance 0, so skip it that way
+        for (final long candidateKmer : packedKmers) {
+            final int hammingDistance = packedKmer != KMerCounter.UNPACKABLE ? packedHammingDistance(packedKmer, candidateKmer)
+                    : hammingDistance(kmer, candidateKmer, minimumDistance + 1);
+            if (hammingDistance > 0 && hammingDistance <= maxDistance && (hammingDistance < minimumDistance ||
+                    hammingDistance == minimumDistance && compareToPacked(closestKmer, candidateKmer) > 0)) {
+                minimumDistance = hammingDistance;
+                closestKmer = KMerCounter.unpack(candidateKmer, kmer.length);
+            }
+        }
+        for (final byte[] candidateKmer : unpackedKmers) {
+            final int hammingDistance = hammingDistance(kmer, candidateKmer, minimumDistance + 1);
+            if (hammingDistance > 0 && hammingDistance <= maxDistance && (hammingDistance < minimumDistance ||
+                    hammingDistance == minimumDistance && compare(closestKmer, candidateKmer) > 0)) {
+                minimumDistance = hammingDistance;
+                closestKmer = candidateKmer;
+            }
+        }
+        if (closestKmer == null) {
+            return null;
+        }
 
-        final int[] differingIndeces = new int[maxDistance+1];
-        final byte[] differingBases = new byte[maxDistance+1];
+        final int[] differingIndeces = new int[minimumDistance];
+        final byte[] differingBases = new byte[minimumDistance];
+        for (int i = 0, k = 0; i < kmer.length; i++) {
+            if (kmer[i] != closestKmer[i]) {
+                differingIndeces[k] = i;
+                differingBases[k++] = closestKmer[i];
+            }
+        }
+        return Pair.of(differingIndeces, differingBases);
+    }
 
-        final int[] closestDifferingIndices = new int[maxDistance+1];
-        final byte[] closestDifferingBases = new byte[maxDistance+1];
+    /**
+     * Lexicographic comparison of two kmers of the same length
+     */
+    private static int compare(final byte[] kmer1, final byte[] kmer2) {
+        for (int i = 0; i < kmer1.length; i++) {
+            if (kmer1[i] != kmer2[i]) {
+                return Byte.compare(kmer1[i], kmer2[i]);
+            }
+        }
+        return 0;
+    }
 
-        for (final KMerCounter.CountedKmer candidateKmer : countsByKMer.getCountedKmers()) {
-            // skip if candidate set includes test kmer
-            if (candidateKmer.getKmer().equals(kmer)) {
-                continue;
+    /**
+     * Lexicographic comparison of a kmer and a packed kmer of the same length, without unpacking the latter
+     */
+    private static int compareToPacked(final byte[] kmer, final long packedKmer) {
+        for (int i = 0, shift = 2 * (kmer.length - 1); i < kmer.length; i++, shift -= 2) {
+            final byte base = KMerCounter.unpackBase(packedKmer, shift);
+            if (kmer[i] != base) {
+                return Byte.compare(kmer[i], base);
             }
+        }
+        return 0;
+    }
 
-            final int hammingDistance  = kmer.getDifferingPositions(candidateKmer.getKmer(), maxDistance, differingIndeces, differingBases);
-            if (hammingDistance < 0) // can't compare kmer? skip
-            {
-                continue;
+    /**
+     * Number of differing bases between two kmers packed by {@link KMerCounter#pack}
+     */
+    @VisibleForTesting
+    static int packedHammingDistance(final long packedKmer1, final long packedKmer2) {
+        final long differingBits = packedKmer1 ^ packedKmer2;
+        // a base differs if either of its two bits does: gather that into the low bit of each base
+        return Long.bitCount((differingBits | (differingBits >>> 1)) & 0x5555555555555555L);
+    }
+
+    /**
+     * Number of differing bases between kmer and a packed kmer of the same length, or limit if that's reached first
+     */
+    private static int hammingDistance(final byte[] kmer, final long packedKmer, final int limit) {
+        int distance = 0;
+        for (int i = kmer.length - 1, shift = 0; i >= 0 && distance < limit; i--, shift += 2) {
+            if (kmer[i] != KMerCounter.unpackBase(packedKmer, shift)) {
+                distance++;
             }
+        }
+        return distance;
+    }
 
-            if (hammingDistance < minimumDistance)  {
-                minimumDistance = hammingDistance;
-                closestKmer = candidateKmer.getKmer();
-                System.arraycopy(differingBases,0,closestDifferingBases,0,differingBases.length);
-                System.arraycopy(differingIndeces,0,closestDifferingIndices,0,differingIndeces.length);
+    /**
+     * Number of differing bases between two kmers of the same length, or limit if that's reached first
+     */
+    private static int hammingDistance(final byte[] kmer1, final byte[] kmer2, final int limit) {
+        int distance = 0;
+        for (int i = 0; i < kmer1.length && distance < limit; i++) {
+            if (kmer1[i] != kmer2[i]) {
+                distance++;
             }
         }
-        return Pair.of(closestKmer, Pair.of(closestDifferingIndices,closestDifferingBases));
+        return distance;
     }
 
 
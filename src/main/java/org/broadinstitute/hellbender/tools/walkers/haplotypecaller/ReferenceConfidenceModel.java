@@ -26,6 +26,7 @@ import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFConstants;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 import org.broadinstitute.hellbender.utils.variant.HomoSapiensConstants;
+import org.broadinstitute.hellbender.utils.variant.writers.GVCFWriter;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -70,8 +71,15 @@ public class ReferenceConfidenceModel {
     protected static final int MAX_N_INDEL_INFORMATIVE_READS = 40; // more than this is overkill because GQs are capped at 99 anyway
 
     private static final int INITIAL_INDEL_LK_CACHE_PLOIDY_CAPACITY = 20;
+    private static final int REF_VS_ANY_QUAL_TABLE_SIZE = 256; // every value of an unsigned byte quality
     private static GenotypeLikelihoods[][] indelPLCache = new GenotypeLikelihoods[INITIAL_INDEL_LK_CACHE_PLOIDY_CAPACITY + 1][];
 
+    /**
+     * Per-ploidy tables of the likelihood terms contributed by a single pileup element, see {@link #buildRefVsAnyLikelihoodTable}.
+     * Tables are immutable once published; a racing thread may at worst build the same table twice.
+     */
+    private static volatile double[][] refVsAnyLikelihoodTables = new double[INITIAL_INDEL_LK_CACHE_PLOIDY_CAPACITY + 1][];
+
     /**
      * Indel error rate for the indel model used to assess the confidence on the hom-ref call.
      */
@@ -222,6 +230,56 @@ public class ReferenceConfidenceModel {
     }
 
 
+    /**
+     * Streams the reference confidence for a single sample in a region without variation directly into a GVCF writer.
+     *
+     * <p>
+     *     This is equivalent to adding each element of {@link #calculateRefConfidence} to {@code writer} when there are
+     *     no variant calls and no priors to apply, but it passes only the per-position GQ, DP and PLs to the writer
+     *     so that no {@link VariantContext} or {@link Genotype} is created for positions that end up in a GQ band.
+     * </p>
+     *
+     * @param refHaplotype the reference haplotype, used to get the reference bases across activeRegion.getLoc()
+     * @param activeRegion the region we want to get the reference confidence over
+     * @param readLikelihoods a map from a single sample to its PerReadAlleleLikelihoodMap for the reference haplotype
+     * @param ploidyModel indicate the ploidy of each sample in {@code readLikelihoods}.
+     * @param writer the GVCF writer to which the hom-ref sites are added
+     */
+    public void writeRefConfidenceForNoVariation(final Haplotype refHaplotype,
+                                                 final AssemblyRegion activeRegion,
+                                                 final ReadLikelihoods<Haplotype> readLikelihoods,
+                                                 final PloidyModel ploidyModel,
+                                                 final GVCFWriter writer) {
+        Utils.nonNull(refHaplotype, "refHaplotype cannot be null");
+        Utils.nonNull(activeRegion, "activeRegion cannot be null");
+        Utils.nonNull(readLikelihoods, "readLikelihoods cannot be null");
+        Utils.validateArg(readLikelihoods.numberOfSamples() == 1, () -> "readLikelihoods must contain exactly one sample but it contained " + readLikelihoods.numberOfSamples());
+        Utils.validateArg( refHaplotype.length() == activeRegion.getExtendedSpan().size(), () -> "refHaplotype " + refHaplotype.length() + " and activeRegion location size " + activeRegion.getSpan().size() + " are different");
+        Utils.nonNull(ploidyModel, "the ploidy model cannot be null");
+        Utils.nonNull(writer, "the writer cannot be null");
+        final int ploidy = ploidyModel.samplePloidy(0); // the first sample = the only sample in reference-confidence mode.
+
+        final SimpleInterval refSpan = activeRegion.getSpan();
+        final List<ReadPileup> refPileups = AssemblyBasedCallerUtils.getPileupsOverReference(activeRegion.getHeader(), refSpan, readLikelihoods, samples);
+        final byte[] ref = refHaplotype.getBases();
+        final String sampleName = readLikelihoods.getSample(0);
+
+        final int globalRefOffset = refSpan.getStart() - activeRegion.getExtendedSpan().getStart();
+        final int refPileupsSize = refPileups.size();
+        for (int i = 0; i < refPileupsSize; i++) {
+            final ReadPileup pileup = refPileups.get(i);
+            final Locatable curPos = pileup.getLocation();
+            final int refOffset = curPos.getStart() - refSpan.getStart() + globalRefOffset;
+            final byte refBase = ref[refOffset];
+
+            final RefVsAnyResult homRefCalc = (RefVsAnyResult) calcGenotypeLikelihoodsOfRefVsAny(ploidy, pileup, refBase, BASE_QUAL_THRESHOLD, null, true);
+            doIndelRefConfCalc(ploidy, ref, pileup, refOffset, homRefCalc);
+            final int[] pls = homRefCalc.finalPhredScaledGenotypeLikelihoods;
+            writer.addHomRefSite(sampleName, curPos.getContig(), curPos.getStart(), Allele.create(refBase, true), ploidy,
+                    GATKVariantContextUtils.calculateGQFromPLs(pls), homRefCalc.getDP(), pls);
+        }
+    }
+
    public VariantContext makeReferenceConfidenceVariantContext(final int ploidy,
                                                                  final byte[] ref,
                                                                  final String sampleName,
@@ -364,6 +422,8 @@ public class ReferenceConfidenceModel {
         final double log10Ploidy = MathUtils.log10(ploidy);
 
         final RefVsAnyResult result = new RefVsAnyResult(likelihoodCount);
+        // with a single genotype the hom-ref and hom-var terms go to the same entry, which the lookup table can't represent
+        final double[] likelihoodTable = likelihoodCount > 1 ? getRefVsAnyLikelihoodTable(ploidy) : null;
         int readCount = 0;
         for (final PileupElement p : pileup) {
             final byte qual = p.isDeletion() ? REF_MODEL_DELETION_QUAL : p.getQual();
@@ -371,7 +431,11 @@ public class ReferenceConfidenceModel {
                 continue;
             }
             readCount++;
-            applyPileupElementRefVsNonRefLikelihoodAndCount(refBase, likelihoodCount, log10Ploidy, result, p, qual, hqSoftClips, readsWereRealigned);
+            if (likelihoodTable != null) {
+                applyPileupElementRefVsNonRefLikelihoodAndCount(refBase, likelihoodCount, likelihoodTable, result, p, qual, hqSoftClips, readsWereRealigned);
+            } else {
+                applyPileupElementRefVsNonRefLikelihoodAndCount(refBase, likelihoodCount, log10Ploidy, result, p, qual, hqSoftClips, readsWereRealigned);
+            }
         }
         final double denominator = readCount * log10Ploidy;
         for (int i = 0; i < likelihoodCount; i++) {
@@ -408,6 +472,85 @@ public class ReferenceConfidenceModel {
         }
     }
 
+    /**
+     * Same as {@link #applyPileupElementRefVsNonRefLikelihoodAndCount(byte, int, double, RefVsAnyResult, PileupElement, byte, MathUtils.RunningAverage, boolean)}
+     * but takes each likelihood term from a table built by {@link #buildRefVsAnyLikelihoodTable}. The terms are the very
+     * same values and are added in the same order, so the result is identical.
+     */
+    private static void applyPileupElementRefVsNonRefLikelihoodAndCount(final byte refBase, final int likelihoodCount, final double[] likelihoodTable, final RefVsAnyResult result, final PileupElement element, final byte qual, final MathUtils.RunningAverage hqSoftClips, final boolean readsWereRealigned) {
+        final boolean isAlt = readsWereRealigned ? isAltAfterAssembly(element, refBase) : isAltBeforeAssembly(element, refBase);
+        if (isAlt) {
+            result.nonRefDepth++;
+        } else {
+            result.refDepth++;
+        }
+        final int offset = refVsAnyLikelihoodTableOffset(qual, isAlt, likelihoodCount);
+        final double[] genotypeLikelihoods = result.genotypeLikelihoods;
+        genotypeLikelihoods[0] += likelihoodTable[offset];
+        genotypeLikelihoods[likelihoodCount - 1] += likelihoodTable[offset + likelihoodCount - 1];
+        for (int i = 1; i < likelihoodCount - 1; i++) {
+            genotypeLikelihoods[i] += likelihoodTable[offset + i];
+        }
+        if (isAlt && hqSoftClips != null && element.isNextToSoftClip()) {
+            hqSoftClips.add(AlignmentUtils.calcNumHighQualitySoftClips(element.getRead(), HQ_BASE_QUALITY_SOFTCLIP_THRESHOLD));
+        }
+    }
+
+    private static int refVsAnyLikelihoodTableOffset(final byte qual, final boolean isAlt, final int likelihoodCount) {
+        return (((qual & 0xFF) << 1) + (isAlt ? 1 : 0)) * likelihoodCount;
+    }
+
+    private static double[] getRefVsAnyLikelihoodTable(final int ploidy) {
+        final double[][] tables = refVsAnyLikelihoodTables;
+        if (ploidy < tables.length && tables[ploidy] != null) {
+            return tables[ploidy];
+        }
+        final double[] result = buildRefVsAnyLikelihoodTable(ploidy);
+        final double[][] newTables = Arrays.copyOf(tables, Math.max(tables.length, ploidy + 1));
+        newTables[ploidy] = result;
+        refVsAnyLikelihoodTables = newTables;
+        return result;
+    }
+
+    /**
+     * Builds the table of per-element genotype likelihood terms for every base quality and ref/alt status given a ploidy.
+     * <p>
+     *     For each quality and status there are {@code ploidy + 1} consecutive entries holding the term added to the
+     *     likelihood of each genotype, computed exactly as in
+     *     {@link #applyPileupElementRefVsNonRefLikelihoodAndCount(byte, int, double, RefVsAnyResult, PileupElement, byte, MathUtils.RunningAverage, boolean)}.
+     * </p>
+     */
+    @VisibleForTesting
+    static double[] buildRefVsAnyLikelihoodTable(final int ploidy) {
+        Utils.validateArg(ploidy > 0, "the ploidy must be positive");
+        final int likelihoodCount = ploidy + 1;
+        final double log10Ploidy = MathUtils.log10(ploidy);
+        final double[] result = new double[REF_VS_ANY_QUAL_TABLE_SIZE * 2 * likelihoodCount];
+        for (int q = 0; q < REF_VS_ANY_QUAL_TABLE_SIZE; q++) {
+            final byte qual = (byte) q;
+            for (final boolean isAlt : new boolean[] {false, true}) {
+                final double referenceLikelihood;
+                final double nonRefLikelihood;
+                if (isAlt) {
+                    nonRefLikelihood = QualityUtils.qualToProbLog10(qual);
+                    referenceLikelihood = QualityUtils.qualToErrorProbLog10(qual) + MathUtils.LOG10_ONE_THIRD;
+                } else {
+                    referenceLikelihood = QualityUtils.qualToProbLog10(qual);
+                    nonRefLikelihood = QualityUtils.qualToErrorProbLog10(qual) + MathUtils.LOG10_ONE_THIRD;
+                }
+                final int offset = refVsAnyLikelihoodTableOffset(qual, isAlt, likelihoodCount);
+                result[offset] = referenceLikelihood + log10Ploidy;
+                result[offset + likelihoodCount - 1] = nonRefLikelihood + log10Ploidy;
+                for (int i = 1, j = likelihoodCount - 2; i < likelihoodCount - 1; i++, j--) {
+                    result[offset + i] = MathUtils.approximateLog10SumLog10(
+                            referenceLikelihood + MathUtils.log10(j),
+                            nonRefLikelihood + MathUtils.log10(i));
+                }
+            }
+        }
+        return result;
+    }
+
     protected static boolean isAltBeforeAssembly(final PileupElement element, final byte refBase){
         return element.getBase() != refBase || element.isDeletion() || element.isBeforeDeletionStart()
                 || element.isAfterDeletionEnd() || element.isBeforeInsertion() || element.isAfterInsertion() || element.isNextToSoftClip();
@@ -8,6 +8,7 @@ import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.ReferenceConf
 import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.QualityUtils;
 import org.broadinstitute.hellbender.utils.genotyper.IndexedAlleleList;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
 import org.broadinstitute.hellbender.utils.genotyper.ReadLikelihoods;
 import org.broadinstitute.hellbender.utils.genotyper.SampleList;
 import org.broadinstitute.hellbender.utils.pileup.PileupElement;
@@ -62,7 +63,7 @@ public class SomaticReferenceConfidenceModel extends ReferenceConfidenceModel {
         final Map<String, List<GATKRead>> perSampleReadMap = new HashMap<>();
         perSampleReadMap.put(samples.getSample(0), pileup.getReads());
         final ReadLikelihoods<Allele> readLikelihoods = new ReadLikelihoods<>(samples, new IndexedAlleleList<>(Arrays.asList(Allele.create(refBase,true), Allele.NON_REF_ALLELE)), perSampleReadMap);
-        final ReadLikelihoods<Allele> readLikelihoods2 = new ReadLikelihoods<>(samples, new IndexedAlleleList<>(Arrays.asList(Allele.create(refBase,true), Allele.NON_REF_ALLELE)), perSampleReadMap);
+        final LikelihoodMatrix<Allele> matrix = readLikelihoods.sampleMatrix(0);
         final Iterator<PileupElement> pileupIter = pileup.iterator();
         for (int i = 0; i < pileup.size(); i++) {
             final PileupElement element = pileupIter.next();
@@ -81,13 +82,10 @@ public class SomaticReferenceConfidenceModel extends ReferenceConfidenceModel {
                 refLikelihood = QualityUtils.qualToProbLog10(element.getQual());
                 result.refDepth++;
             }
-            readLikelihoods.sampleMatrix(0).set(0, i, nonRefLikelihood);
-            readLikelihoods2.sampleMatrix(0).set(0, i, refLikelihood);
-            readLikelihoods2.sampleMatrix(0).set(1, i, nonRefLikelihood);
+            matrix.set(0, i, refLikelihood);
+            matrix.set(1, i, nonRefLikelihood);
         }
-        result.lods = genotypingEngine.somaticLog10Odds(readLikelihoods.sampleMatrix(0));
-        PerAlleleCollection<Double> lods2 = genotypingEngine.somaticLog10Odds(readLikelihoods2.sampleMatrix(0));
-        result.lods = lods2;
+        result.lods = genotypingEngine.somaticLog10Odds(matrix);
         return result;
     }
 
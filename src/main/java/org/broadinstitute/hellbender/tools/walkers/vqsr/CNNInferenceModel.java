@@ -0,0 +1,571 @@
+package org.broadinstitute.hellbender.tools.walkers.vqsr;
+
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * A trained CNNScoreVariants Keras model that is evaluated on the CPU in the JVM, without Python or TensorFlow.
+ *
+ * The model is read from a file written by {@code vqsr_cnn.export_model_for_java()}, which holds the layers of the
+ * Keras model in topological order, each with the indices of the earlier layers it reads from, its output shape
+ * (without the batch dimension, channels last), its parameters and its weights.  The model inputs come first, in the
+ * order in which {@link #predict} takes them.  All numbers are big-endian, as read by {@link DataInputStream}:
+ *
+ * <pre>
+ *     int magic ("GCNN"), int version, int number of layers
+ *     for each layer:
+ *         UTF type, UTF name
+ *         int number of inputs, int input layer indices...
+ *         int output rank, int output dimensions...
+ *         UTF activation
+ *         int number of int parameters, ints...
+ *         int number of float parameters, floats...
+ *         int number of weight arrays, for each: int length, floats...
+ *     int index of the output layer
+ * </pre>
+ *
+ * Supported layer types are {@code Input}, {@code Dense}, {@code Conv} and {@code MaxPool} (1D layers are exported as
+ * 2D layers of height 1), {@code BatchNorm}, {@code Activation}, {@code Flatten}, {@code Concatenate} on the last axis,
+ * and {@code Identity} for the dropout layers, which do nothing at inference time.
+ *
+ * Batches of examples are held as one primitive array per layer, example after example.  Every example is computed
+ * independently of the others, so the predictions do not depend on how examples are batched or on the number of threads.
+ * Package private because it's not usable outside of CNNScoreVariants.
+ */
+final class CNNInferenceModel {
+
+    private static final int MAGIC_NUMBER = 0x47434E4E; // "GCNN"
+    private static final int FORMAT_VERSION = 1;
+
+    private final Layer[] layers;
+    private final int[] inputLayers;
+    private final int outputLayer;
+
+    private CNNInferenceModel(final Layer[] layers, final int outputLayer) {
+        this.layers = layers;
+        this.outputLayer = outputLayer;
+        this.inputLayers = IntStream.range(0, layers.length).filter(i -> layers[i] instanceof InputLayer).toArray();
+        Utils.validateArg(inputLayers.length > 0, "Model has no inputs");
+    }
+
+    /**
+     * Read a model written by {@code vqsr_cnn.export_model_for_java()}.
+     * @param modelPath {@link Path} to the exported model.  Must not be {@code null}.
+     * @return The model in the given file.  Never {@code null}.
+     */
+    static CNNInferenceModel read(final Path modelPath) {
+        Utils.nonNull(modelPath);
+        try ( final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(modelPath))) ) {
+            if ( in.readInt() != MAGIC_NUMBER || in.readInt() != FORMAT_VERSION ) {
+                throw new UserException.MalformedFile(modelPath, "Not a CNN model exported for Java inference of version " + FORMAT_VERSION);
+            }
+            final Layer[] layers = new Layer[in.readInt()];
+            for ( int i = 0; i < layers.length; i++ ) {
+                layers[i] = readLayer(in, i, layers);
+            }
+            final int outputLayer = in.readInt();
+            if ( outputLayer < 0 || outputLayer >= layers.length ) {
+                throw new UserException.MalformedFile(modelPath, "Output layer index out of range: " + outputLayer);
+            }
+            return new CNNInferenceModel(layers, outputLayer);
+        }
+        catch ( final EOFException ex ) {
+            throw new UserException.MalformedFile(modelPath, "CNN model file is truncated", ex);
+        }
+        catch ( final IOException ex ) {
+            throw new UserException.CouldNotReadInputFile(modelPath, ex);
+        }
+        catch ( final IllegalArgumentException ex ) {
+            throw new UserException.MalformedFile(modelPath, "Invalid CNN model: " + ex.getMessage(), ex);
+        }
+    }
+
+    private static Layer readLayer(final DataInputStream in, final int index, final Layer[] previousLayers) throws IOException {
+        final String type = in.readUTF();
+        final String name = in.readUTF();
+        final int[] inputs = readInts(in);
+        for ( final int input : inputs ) {
+            Utils.validateArg(input >= 0 && input < index, "Layer " + name + " reads from a layer that does not precede it: " + input);
+        }
+        final int[] outputShape = readInts(in);
+        final Activation activation = Activation.of(in.readUTF());
+        final int[] intParams = readInts(in);
+        final float[] floatParams = readFloats(in);
+        final float[][] weights = new float[in.readInt()][];
+        for ( int i = 0; i < weights.length; i++ ) {
+            weights[i] = readFloats(in);
+        }
+
+        final int[][] inputShapes = Arrays.stream(inputs).mapToObj(i -> previousLayers[i].outputShape).toArray(int[][]::new);
+        final Layer layer;
+        switch ( type ) {
+            case "Input":       layer = new InputLayer(); break;
+            case "Dense":       layer = new DenseLayer(inputShapes, outputShape, weights); break;
+            case "Conv":        layer = new ConvLayer(inputShapes, outputShape, intParams, weights); break;
+            case "MaxPool":     layer = new MaxPoolLayer(inputShapes, outputShape, intParams); break;
+            case "BatchNorm":   layer = new BatchNormLayer(inputShapes, outputShape, floatParams, weights); break;
+            case "Concatenate": layer = new ConcatenateLayer(inputShapes, outputShape); break;
+            case "Activation":
+            case "Flatten":
+            case "Identity":    layer = new IdentityLayer(inputShapes, outputShape); break;
+            default: throw new IllegalArgumentException("Unsupported layer type " + type + " of layer " + name);
+        }
+        layer.name = name;
+        layer.inputs = inputs;
+        layer.outputShape = outputShape;
+        layer.outputSize = size(outputShape);
+        layer.activation = activation;
+        return layer;
+    }
+
+    private static int[] readInts(final DataInputStream in) throws IOException {
+        final int[] values = new int[in.readInt()];
+        for ( int i = 0; i < values.length; i++ ) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private static float[] readFloats(final DataInputStream in) throws IOException {
+        final float[] values = new float[in.readInt()];
+        for ( int i = 0; i < values.length; i++ ) {
+            values[i] = in.readFloat();
+        }
+        return values;
+    }
+
+    private static int size(final int[] shape) {
+        int size = 1;
+        for ( final int dimension : shape ) {
+            size *= dimension;
+        }
+        return size;
+    }
+
+    int getNumInputs() { return inputLayers.length; }
+
+    /**
+     * @return the shape of a single example of the given input, without the batch dimension
+     */
+    int[] getInputShape(final int input) { return layers[inputLayers[input]].outputShape.clone(); }
+
+    int getOutputSize() { return layers[outputLayer].outputSize; }
+
+    /**
+     * Evaluate the model on a batch of examples.
+     * @param inputs for each model input, the values of {@code numExamples} examples of that input, example after example
+     * @param numExamples the number of examples in the batch
+     * @param batchSize the maximum number of examples evaluated at once
+     * @param pool evaluate batches in this pool, or on the calling thread if {@code null}
+     * @return for each example, the values of the output layer
+     */
+    float[][] predict(final float[][] inputs, final int numExamples, final int batchSize, final ForkJoinPool pool) {
+        Utils.nonNull(inputs);
+        Utils.validateArg(inputs.length == inputLayers.length, "Model has " + inputLayers.length + " inputs, but got " + inputs.length);
+        Utils.validateArg(batchSize > 0, "Batch size must be positive");
+        for ( int i = 0; i < inputs.length; i++ ) {
+            Utils.validateArg(inputs[i].length == numExamples * layers[inputLayers[i]].outputSize,
+                    "Wrong number of values for input " + layers[inputLayers[i]].name);
+        }
+
+        final float[][] predictions = new float[numExamples][];
+        final int numBatches = (numExamples + batchSize - 1) / batchSize;
+        final IntStream batches = IntStream.range(0, numBatches);
+        if ( pool == null ) {
+            batches.forEach(batch -> predictBatch(inputs, batch * batchSize, Math.min(numExamples, (batch + 1) * batchSize), predictions));
+        } else {
+            pool.submit(() -> batches.parallel().forEach(batch ->
+                    predictBatch(inputs, batch * batchSize, Math.min(numExamples, (batch + 1) * batchSize), predictions))).join();
+        }
+        return predictions;
+    }
+
+    private void predictBatch(final float[][] inputs, final int start, final int end, final float[][] predictions) {
+        final int n = end - start;
+        final float[][] values = new float[layers.length][];
+        for ( int i = 0; i < inputLayers.length; i++ ) {
+            final int inputSize = layers[inputLayers[i]].outputSize;
+            values[inputLayers[i]] = Arrays.copyOfRange(inputs[i], start * inputSize, end * inputSize);
+        }
+        for ( int i = 0; i < layers.length; i++ ) {
+            final Layer layer = layers[i];
+            if ( layer instanceof InputLayer ) {
+                continue;
+            }
+            final float[][] layerInputs = new float[layer.inputs.length][];
+            for ( int j = 0; j < layerInputs.length; j++ ) {
+                layerInputs[j] = values[layer.inputs[j]];
+            }
+            values[i] = layer.forward(layerInputs, n);
+            layer.activation.apply(values[i], layer.outputShape[layer.outputShape.length - 1]);
+        }
+
+        final int outputSize = layers[outputLayer].outputSize;
+        for ( int e = 0; e < n; e++ ) {
+            predictions[start + e] = Arrays.copyOfRange(values[outputLayer], e * outputSize, (e + 1) * outputSize);
+        }
+    }
+
+    private enum Activation {
+        LINEAR, RELU, SIGMOID, TANH, SELU, ELU, SOFTMAX;
+
+        private static final double SELU_ALPHA = 1.6732632423543772848170429916717;
+        private static final double SELU_SCALE = 1.0507009873554804934193349852946;
+
+        static Activation of(final String name) {
+            try {
+                return valueOf(name.toUpperCase());
+            }
+            catch ( final IllegalArgumentException ex ) {
+                throw new IllegalArgumentException("Unsupported activation " + name);
+            }
+        }
+
+        /**
+         * Apply this activation in place.  Softmax is taken over the last axis, of size {@code channels}.
+         */
+        void apply(final float[] x, final int channels) {
+            switch ( this ) {
+                case LINEAR:
+                    break;
+                case RELU:
+                    for ( int i = 0; i < x.length; i++ ) { x[i] = Math.max(x[i], 0.0f); }
+                    break;
+                case SIGMOID:
+                    for ( int i = 0; i < x.length; i++ ) { x[i] = (float) (1.0 / (1.0 + Math.exp(-x[i]))); }
+                    break;
+                case TANH:
+                    for ( int i = 0; i < x.length; i++ ) { x[i] = (float) Math.tanh(x[i]); }
+                    break;
+                case SELU:
+                    for ( int i = 0; i < x.length; i++ ) { x[i] = (float) (SELU_SCALE * (x[i] > 0 ? x[i] : SELU_ALPHA * Math.expm1(x[i]))); }
+                    break;
+                case ELU:
+                    for ( int i = 0; i < x.length; i++ ) { x[i] = x[i] > 0 ? x[i] : (float) Math.expm1(x[i]); }
+                    break;
+                case SOFTMAX:
+                    for ( int offset = 0; offset < x.length; offset += channels ) {
+                        float max = Float.NEGATIVE_INFINITY;
+                        for ( int c = 0; c < channels; c++ ) { max = Math.max(max, x[offset + c]); }
+                        double sum = 0.0;
+                        for ( int c = 0; c < channels; c++ ) {
+                            x[offset + c] = (float) Math.exp(x[offset + c] - max);
+                            sum += x[offset + c];
+                        }
+                        for ( int c = 0; c < channels; c++ ) { x[offset + c] /= sum; }
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown activation " + this);
+            }
+        }
+    }
+
+    private abstract static class Layer {
+        String name;
+        int[] inputs;
+        int[] outputShape;
+        int outputSize;
+        Activation activation;
+
+        /**
+         * @return the values of this layer, before activation, for {@code n} examples of the given input values
+         */
+        abstract float[] forward(final float[][] inputValues, final int n);
+    }
+
+    private static final class InputLayer extends Layer {
+        @Override
+        float[] forward(final float[][] inputValues, final int n) {
+            throw new IllegalStateException("Input layers are not evaluated");
+        }
+    }
+
+    /**
+     * Activation, Flatten and the dropout layers: the values are passed through (flattening is a no-op on row-major values).
+     */
+    private static final class IdentityLayer extends Layer {
+        IdentityLayer(final int[][] inputShapes, final int[] outputShape) {
+            Utils.validateArg(inputShapes.length == 1 && size(inputShapes[0]) == size(outputShape), "Layer must have one input of the size of its output");
+        }
+
+        @Override
+        float[] forward(final float[][] inputValues, final int n) {
+            return inputValues[0].clone();
+        }
+    }
+
+    private static final class DenseLayer extends Layer {
+        private final int inputSize;
+        private final int units;
+        private final float[] kernel; // [input][unit]
+        private final float[] bias;
+
+        DenseLayer(final int[][] inputShapes, final int[] outputShape, final float[][] weights) {
+            Utils.validateArg(inputShapes.length == 1 && inputShapes[0].length == 1 && outputShape.length == 1, "Dense layer must map a vector to a vector");
+            inputSize = inputShapes[0][0];
+            units = outputShape[0];
+            Utils.validateArg(weights.length == 2 && weights[0].length == inputSize * units && weights[1].length == units, "Wrong size of dense layer weights");
+            kernel = weights[0];
+            bias = weights[1];
+        }
+
+        @Override
+        float[] forward(final float[][] inputValues, final int n) {
+            final float[] x = inputValues[0];
+            final float[] y = new float[n * units];
+            for ( int e = 0; e < n; e++ ) {
+                final int yOffset = e * units;
+                System.arraycopy(bias, 0, y, yOffset, units);
+                for ( int i = 0; i < inputSize; i++ ) {
+                    final float xi = x[e * inputSize + i];
+                    if ( xi == 0.0f ) {
+                        continue;
+                    }
+                    final int kOffset = i * units;
+                    for ( int u = 0; u < units; u++ ) {
+                        y[yOffset + u] += xi * kernel[kOffset + u];
+                    }
+                }
+            }
+            return y;
+        }
+    }
+
+    /**
+     * The spatial shape of a convolution or pooling layer: height, width and channels.  1D layers have height 1.
+     */
+    private static int[] spatialShape(final int[] shape) {
+        Utils.validateArg(shape.length == 2 || shape.length == 3, "Convolution and pooling layers need 1D or 2D inputs with channels");
+        return shape.length == 2 ? new int[]{1, shape[0], shape[1]} : shape;
+    }
+
+    /**
+     * The padding before the first position of one spatial dimension, as in TensorFlow.
+     */
+    private static int padding(final boolean same, final int inputLength, final int outputLength, final int window, final int stride) {
+        return same ? Math.max((outputLength - 1) * stride + window - inputLength, 0) / 2 : 0;
+    }
+
+    private static final class ConvLayer extends Layer {
+        private final int inHeight, inWidth, inChannels;
+        private final int outHeight, outWidth, filters;
+        private final int kernelHeight, kernelWidth, strideHeight, strideWidth;
+        private final int padTop, padLeft;
+        private final float[] kernel; // [kernelHeight][kernelWidth][inChannels][filters]
+        private final float[] bias;
+
+        ConvLayer(final int[][] inputShapes, final int[] outputShape, final int[] params, final float[][] weights) {
+            Utils.validateArg(inputShapes.length == 1 && params.length == 6, "Convolution layer must have one input and 6 parameters");
+            final int[] in = spatialShape(inputShapes[0]);
+            final int[] out = spatialShape(outputShape);
+            inHeight = in[0]; inWidth = in[1]; inChannels = in[2];
+            outHeight = out[0]; outWidth = out[1]; filters = out[2];
+            kernelHeight = params[0]; kernelWidth = params[1];
+            strideHeight = params[2]; strideWidth = params[3];
+            final boolean same = params[4] != 0;
+            Utils.validateArg(params[5] == filters, "Number of filters does not match output shape");
+            Utils.validateArg(outHeight == outputLength(same, inHeight, kernelHeight, strideHeight) &&
+                    outWidth == outputLength(same, inWidth, kernelWidth, strideWidth), "Convolution output shape does not match its input shape and parameters");
+            padTop = padding(same, inHeight, outHeight, kernelHeight, strideHeight);
+            padLeft = padding(same, inWidth, outWidth, kernelWidth, strideWidth);
+            Utils.validateArg(weights.length == 2 && weights[0].length == kernelHeight * kernelWidth * inChannels * filters && weights[1].length == filters,
+                    "Wrong size of convolution layer weights");
+            kernel = weights[0];
+            bias = weights[1];
+        }
+
+        @Override
+        float[] forward(final float[][] inputValues, final int n) {
+            final float[] x = inputValues[0];
+            final int inSize = inHeight * inWidth * inChannels;
+            final int outSize = outHeight * outWidth * filters;
+            final float[] y = new float[n * outSize];
+            for ( int e = 0; e < n; e++ ) {
+                for ( int oh = 0; oh < outHeight; oh++ ) {
+                    for ( int ow = 0; ow < outWidth; ow++ ) {
+                        final int yOffset = e * outSize + (oh * outWidth + ow) * filters;
+                        System.arraycopy(bias, 0, y, yOffset, filters);
+                        for ( int kh = 0; kh < kernelHeight; kh++ ) {
+                            final int ih = oh * strideHeight + kh - padTop;
+                            if ( ih < 0 || ih >= inHeight ) {
+                                continue;
+                            }
+                            for ( int kw = 0; kw < kernelWidth; kw++ ) {
+                                final int iw = ow * strideWidth + kw - padLeft;
+                                if ( iw < 0 || iw >= inWidth ) {
+                                    continue;
+                                }
+                                final int xOffset = e * inSize + (ih * inWidth + iw) * inChannels;
+                                final int kOffset = (kh * kernelWidth + kw) * inChannels * filters;
+                                for ( int c = 0; c < inChannels; c++ ) {
+                                    final float xc = x[xOffset + c];
+                                    if ( xc == 0.0f ) {
+                                        continue;
+                                    }
+                                    final int kcOffset = kOffset + c * filters;
+                                    for ( int f = 0; f < filters; f++ ) {
+                                        y[yOffset + f] += xc * kernel[kcOffset + f];
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            return y;
+        }
+    }
+
+    private static int outputLength(final boolean same, final int inputLength, final int window, final int stride) {
+        return same ? (inputLength + stride - 1) / stride : (inputLength - window) / stride + 1;
+    }
+
+    private static final class MaxPoolLayer extends Layer {
+        private final int inHeight, inWidth, channels;
+        private final int outHeight, outWidth;
+        private final int poolHeight, poolWidth, strideHeight, strideWidth;
+        private final int padTop, padLeft;
+
+        MaxPoolLayer(final int[][] inputShapes, final int[] outputShape, final int[] params) {
+            Utils.validateArg(inputShapes.length == 1 && params.length == 5, "Pooling layer must have one input and 5 parameters");
+            final int[] in = spatialShape(inputShapes[0]);
+            final int[] out = spatialShape(outputShape);
+            inHeight = in[0]; inWidth = in[1]; channels = in[2];
+            outHeight = out[0]; outWidth = out[1];
+            Utils.validateArg(out[2] == channels, "Pooling layer must not change the number of channels");
+            poolHeight = params[0]; poolWidth = params[1];
+            strideHeight = params[2]; strideWidth = params[3];
+            final boolean same = params[4] != 0;
+            Utils.validateArg(outHeight == outputLength(same, inHeight, poolHeight, strideHeight) &&
+                    outWidth == outputLength(same, inWidth, poolWidth, strideWidth), "Pooling output shape does not match its input shape and parameters");
+            padTop = padding(same, inHeight, outHeight, poolHeight, strideHeight);
+            padLeft = padding(same, inWidth, outWidth, poolWidth, strideWidth);
+        }
+
+        @Override
+        float[] forward(final float[][] inputValues, final int n) {
+            final float[] x = inputValues[0];
+            final int inSize = inHeight * inWidth * channels;
+            final int outSize = outHeight * outWidth * channels;
+            final float[] y = new float[n * outSize];
+            Arrays.fill(y, Float.NEGATIVE_INFINITY);
+            for ( int e = 0; e < n; e++ ) {
+                for ( int oh = 0; oh < outHeight; oh++ ) {
+                    for ( int ow = 0; ow < outWidth; ow++ ) {
+                        final int yOffset = e * outSize + (oh * outWidth + ow) * channels;
+                        for ( int ph = 0; ph < poolHeight; ph++ ) {
+                            final int ih = oh * strideHeight + ph - padTop;
+                            if ( ih < 0 || ih >= inHeight ) {
+                                continue;
+                            }
+                            for ( int pw = 0; pw < poolWidth; pw++ ) {
+                                final int iw = ow * strideWidth + pw - padLeft;
+                                if ( iw < 0 || iw >= inWidth ) {
+                                    continue;
+                                }
+                                final int xOffset = e * inSize + (ih * inWidth + iw) * channels;
+                                for ( int c = 0; c < channels; c++ ) {
+                                    y[yOffset + c] = Math.max(y[yOffset + c], x[xOffset + c]);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            return y;
+        }
+    }
+
+    /**
+     * Batch normalization over the last axis with the moving statistics, folded into one scale and shift per channel.
+     */
+    private static final class BatchNormLayer extends Layer {
+        private final float[] scale;
+        private final float[] shift;
+
+        BatchNormLayer(final int[][] inputShapes, final int[] outputShape, final float[] params, final float[][] weights) {
+            Utils.validateArg(inputShapes.length == 1 && Arrays.equals(inputShapes[0], outputShape), "Batch normalization must have one input of the shape of its output");
+            final int channels = outputShape[outputShape.length - 1];
+            Utils.validateArg(params.length == 1 && weights.length == 4 && Arrays.stream(weights).allMatch(w -> w.length == channels),
+                    "Batch normalization needs epsilon and 4 weight arrays of the size of the last axis");
+            final float epsilon = params[0];
+            final float[] gamma = weights[0], beta = weights[1], mean = weights[2], variance = weights[3];
+            scale = new float[channels];
+            shift = new float[channels];
+            for ( int c = 0; c < channels; c++ ) {
+                scale[c] = (float) (gamma[c] / Math.sqrt(variance[c] + epsilon));
+                shift[c] = beta[c] - mean[c] * scale[c];
+            }
+        }
+
+        @Override
+        float[] forward(final float[][] inputValues, final int n) {
+            final float[] x = inputValues[0];
+            final float[] y = new float[x.length];
+            final int channels = scale.length;
+            for ( int i = 0; i < x.length; i++ ) {
+                final int c = i % channels;
+                y[i] = x[i] * scale[c] + shift[c];
+            }
+            return y;
+        }
+    }
+
+    /**
+     * Concatenation over the last axis.
+     */
+    private static final class ConcatenateLayer extends Layer {
+        private final int[] inputChannels;
+        private final int positions;
+
+        ConcatenateLayer(final int[][] inputShapes, final int[] outputShape) {
+            Utils.validateArg(inputShapes.length > 0, "Concatenate layer needs inputs");
+            inputChannels = Arrays.stream(inputShapes).mapToInt(shape -> shape[shape.length - 1]).toArray();
+            positions = size(outputShape) / outputShape[outputShape.length - 1];
+            for ( final int[] shape : inputShapes ) {
+                Utils.validateArg(shape.length == outputShape.length && size(shape) / shape[shape.length - 1] == positions,
+                        "Concatenated inputs must only differ in their last axis");
+            }
+            Utils.validateArg(Arrays.stream(inputChannels).sum() == outputShape[outputShape.length - 1], "Concatenated inputs do not add up to the output shape");
+        }
+
+        @Override
+        float[] forward(final float[][] inputValues, final int n) {
+            final int outChannels = Arrays.stream(inputChannels).sum();
+            final float[] y = new float[n * positions * outChannels];
+            int yOffset = 0;
+            for ( int p = 0; p < n * positions; p++ ) {
+                for ( int i = 0; i < inputValues.length; i++ ) {
+                    System.arraycopy(inputValues[i], p * inputChannels[i], y, yOffset, inputChannels[i]);
+                    yOffset += inputChannels[i];
+                }
+            }
+            return y;
+        }
+    }
+
+    /**
+     * @return names of the layers, for debugging
+     */
+    @Override
+    public String toString() {
+        final List<String> names = new ArrayList<>(layers.length);
+        for ( final Layer layer : layers ) {
+            names.add(layer.name + Arrays.toString(layer.outputShape));
+        }
+        return "CNNInferenceModel" + names;
+    }
+}
@@ -2,10 +2,13 @@ package org.broadinstitute.hellbender.tools.walkers.vqsr;
 
 import java.util.*;
 import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintWriter;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.Files;
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import java.io.UnsupportedEncodingException;
 
@@ -59,6 +62,11 @@ import com.intel.gkl.IntelGKLUtils;
  * {@link CNNVariantWriteTensors} and {@link CNNVariantTrain}.
  * CNNVariantTrain will create a json architecture file and an hd5 weights file, which you can use with this tool.
  *
+ * 1D models can also be scored in Java, without Python or TensorFlow, which avoids streaming every variant to a python
+ * process as text. The model must first be exported once, in python, with
+ * {@code vqsr_cnn.export_model_for_java(model, 'path/to/my_model_folder/1dmodel.gcnn')},
+ * and is then given to this tool with the --java-inference-model argument, as in the last example below.
+ * Only 1D models, with the reference tensor type, can be scored in Java; 2D models still need Python.
  *
  * <h3>1D Model with pre-trained architecture</h3>
  *
@@ -103,6 +111,17 @@ import com.intel.gkl.IntelGKLUtils;
  *   -architecture path/to/my_model_folder/2dmodel.json
  *   -weights path/to/my_model_folder/2dmodel.hd5
  * </pre>
+ *
+ * <h3>1D Model exported for inference in Java, on 4 threads:</h3>
+ *
+ * <pre>
+ * gatk CNNScoreVariants \
+ *   -V vcf_to_annotate.vcf.gz \
+ *   -R reference.fasta \
+ *   -O annotated.vcf \
+ *   --java-inference-model path/to/my_model_folder/1dmodel.gcnn \
+ *   --inference-threads 4
+ * </pre>
  */
 @DocumentedFeature
 @CommandLineProgramProperties(
@@ -134,6 +153,34 @@ public class CNNScoreVariants extends TwoPassVariantWalker {
     private static final int MAX_BATCH_SIZE_1D = 1024;
     private static final int MAX_BATCH_SIZE_2D = 64;
 
+    // Number of batches that may be in flight to python at once, so the next batch is sent while python scores the previous one.
+    private static final int MAX_OUTSTANDING_BATCHES = 2;
+
+    // These constants correspond to the encoding of reference tensors and predictions in inference.py and defines.py.
+    private static final int DNA_CHANNELS = 4;
+    private static final int NOT_SNP_LABEL = 0;
+    private static final int NOT_INDEL_LABEL = 1;
+    private static final int SNP_LABEL = 2;
+    private static final int INDEL_LABEL = 3;
+    private static final double PREDICTION_EPSILON = 1e-7;
+
+    // The probability of each base for IUPAC ambiguity codes, as in defines.AMBIGUITY_CODES.
+    private static final Map<Character, float[]> AMBIGUITY_CODES = new HashMap<>();
+    static {
+        AMBIGUITY_CODES.put('K', new float[]{0f, 0f, 0.5f, 0.5f});
+        AMBIGUITY_CODES.put('M', new float[]{0.5f, 0.5f, 0f, 0f});
+        AMBIGUITY_CODES.put('R', new float[]{0.5f, 0f, 0f, 0.5f});
+        AMBIGUITY_CODES.put('Y', new float[]{0f, 0.5f, 0.5f, 0f});
+        AMBIGUITY_CODES.put('S', new float[]{0f, 0.5f, 0f, 0.5f});
+        AMBIGUITY_CODES.put('W', new float[]{0.5f, 0f, 0.5f, 0f});
+        AMBIGUITY_CODES.put('B', new float[]{0f, 0.333f, 0.333f, 0.334f});
+        AMBIGUITY_CODES.put('V', new float[]{0.333f, 0.333f, 0f, 0.334f});
+        AMBIGUITY_CODES.put('H', new float[]{0.333f, 0.333f, 0.334f, 0f});
+        AMBIGUITY_CODES.put('D', new float[]{0.333f, 0f, 0.333f, 0.334f});
+        AMBIGUITY_CODES.put('X', new float[]{0.25f, 0.25f, 0.25f, 0.25f});
+        AMBIGUITY_CODES.put('N', new float[]{0.25f, 0.25f, 0.25f, 0.25f});
+    }
+
     // These constants correspond to constants in the python code set in defines.py. They must be kept in sync.
     private static final String DATA_VALUE_SEPARATOR = ","; // If changed make change in defines.py
     private static final String DATA_TYPE_SEPARATOR = "\t"; // If changed make change in defines.py
@@ -183,6 +230,17 @@ public class CNNScoreVariants extends TwoPassVariantWalker {
     @Argument(fullName = "intra-op-threads", shortName = "intra-op-threads", doc = "Number of intra-op parallelism threads to use for Tensorflow", minValue = 0, maxValue = 4096, optional = true)
     private int intraOpThreads = 0;
 
+    @Advanced
+    @Argument(fullName = "java-inference-model", shortName = "java-inference-model", doc = "1D model exported with vqsr_cnn.export_model_for_java() " +
+            "to score the variants with in Java, without Python. Overrides the architecture and weights arguments. " +
+            "2D models, which read tensors of aligned reads, are not supported in Java and must be scored in Python.", optional = true)
+    private String javaInferenceModel;
+
+    @Advanced
+    @Argument(fullName = "inference-threads", shortName = "inference-threads", doc = "Number of threads to use for inference in Java, " +
+            "with the java-inference-model argument.", minValue = 1, maxValue = 4096, optional = true)
+    private int inferenceThreads = 1;
+
     @Advanced
     @Argument(fullName = "output-tensor-dir", shortName = "output-tensor-dir", doc = "Optional directory where tensors can be saved for debugging or visualization.", optional = true)
     private String outputTensorsDir = "";
@@ -204,16 +262,21 @@ public class CNNScoreVariants extends TwoPassVariantWalker {
     @Argument(fullName = "python-profile", shortName = "python-profile", doc = "Run the tool with the Python CProfiler on and write results to this file.", optional = true)
     private File pythonProfileResults;
 
-    // Create the Python executor. This doesn't actually start the Python process, but verifies that
-    // the requestedPython executable exists and can be located.
-    final StreamingPythonScriptExecutor<String> pythonExecutor = new StreamingPythonScriptExecutor<>(true);
+    // The Python executor, unless the model is scored in Java.
+    private StreamingPythonScriptExecutor<String> pythonExecutor;
+
+    // The model, a pool to evaluate it in and the tensors of the current batch, when the model is scored in Java.
+    private CNNInferenceModel javaModel;
+    private ForkJoinPool javaInferencePool;
+    private float[] referenceTensorBatch;
+    private float[] annotationTensorBatch;
+    private List<VariantContext> variantBatch;
 
     private List<String> batchList = new ArrayList<>(inferenceBatchSize);
 
     private int curBatchSize = 0;
     private int windowEnd = windowSize / 2;
     private int windowStart = windowSize / 2;
-    private boolean waitforBatchCompletion = false;
 
     private File scoreFile;
     private String scoreKey;
@@ -238,6 +301,10 @@ public class CNNScoreVariants extends TwoPassVariantWalker {
             return new String[]{"Inference batch size must be less than or equal to transfer batch size."};
         }
 
+        if (javaInferenceModel != null && !tensorType.equals(TensorType.reference)) {
+            return new String[]{"Inference in Java is only supported for tensor type:" + TensorType.reference.name()};
+        }
+
         if (architecture == null || weights == null){
             if (!tensorType.equals(TensorType.read_tensor) && !tensorType.equals(TensorType.reference)){
                 return new String[]{"No default architecture for tensor type:" + tensorType.name()};
@@ -273,6 +340,15 @@ public class CNNScoreVariants extends TwoPassVariantWalker {
 
     @Override
     public void onTraversalStart() {
+        if (javaInferenceModel != null) {
+            initializeJavaModel();
+            return;
+        }
+
+        // Create the Python executor. This doesn't actually start the Python process, but verifies that
+        // the requestedPython executable exists and can be located.
+        pythonExecutor = new StreamingPythonScriptExecutor<>(true);
+
         // Users can disable the AVX check to allow an older version of TF that doesn't require AVX to be used.
         if(this.disableAVXCheck == false) {
             IntelGKLUtils utils = new IntelGKLUtils();
@@ -290,7 +366,7 @@ public class CNNScoreVariants extends TwoPassVariantWalker {
 
         // Start the Python process and initialize a stream writer for streaming data to the Python code
         pythonExecutor.start(Collections.emptyList(), enableJournal, pythonProfileResults);
-        pythonExecutor.initStreamWriter(AsynchronousStreamWriter.stringSerializer);
+        pythonExecutor.initStreamWriter(AsynchronousStreamWriter.stringSerializer, MAX_OUTSTANDING_BATCHES);
 
         batchList = new ArrayList<>(transferBatchSize);
 
@@ -318,6 +394,10 @@ public class CNNScoreVariants extends TwoPassVariantWalker {
     @Override
     public void firstPassApply(final VariantContext variant, final ReadsContext readsContext, final ReferenceContext referenceContext, final FeatureContext featureContext) {
         referenceContext.setWindow(windowStart, windowEnd);
+        if (javaModel != null) {
+            addToJavaBatch(variant, referenceContext);
+            return;
+        }
         if (tensorType.isReadsRequired()) {
             transferReadsToPythonViaFifo(variant, readsContext, referenceContext);
         } else {
@@ -328,17 +408,26 @@ public class CNNScoreVariants extends TwoPassVariantWalker {
 
     @Override
     public void afterFirstPass() {
-        if (waitforBatchCompletion) {
-            pythonExecutor.waitForPreviousBatchCompletion();
+        if (javaModel != null) {
+            scoreJavaBatch();
+            openScoreFileAndVCFWriter();
+            return;
         }
+
         if (curBatchSize > 0) {
+            waitForBatchSlot();
             executePythonCommand();
+        }
+        while (pythonExecutor.getNumOutstandingBatches() > 0) {
             pythonExecutor.waitForPreviousBatchCompletion();
         }
 
         pythonExecutor.sendSynchronousCommand("tempFile.close()" + NL);
         pythonExecutor.terminate();
+        openScoreFileAndVCFWriter();
+    }
 
+    private void openScoreFileAndVCFWriter() {
         try {
             scoreScan = new Scanner(scoreFile);
             vcfWriter = createVCFWriter(new File(outputFile));
@@ -382,6 +471,141 @@ public class CNNScoreVariants extends TwoPassVariantWalker {
         if (scoreScan != null){
             scoreScan.close();
         }
+        if (javaInferencePool != null) {
+            javaInferencePool.shutdownNow();
+        }
+    }
+
+    private void initializeJavaModel() {
+        final VCFHeader inputHeader = getHeaderForVariants();
+        if(inputHeader.getGenotypeSamples().size() > 1) {
+            logger.warn("CNNScoreVariants is a single sample tool but the input VCF has more than 1 sample.");
+        }
+
+        scoreKey = getScoreKeyAndCheckModelAndReadsHarmony();
+        javaModel = CNNInferenceModel.read(IOUtils.getPath(javaInferenceModel));
+        if (javaModel.getNumInputs() != 2
+                || !Arrays.equals(javaModel.getInputShape(0), new int[]{windowSize, DNA_CHANNELS})
+                || !Arrays.equals(javaModel.getInputShape(1), new int[]{annotationKeys.size()})
+                || javaModel.getOutputSize() != INDEL_LABEL + 1) {
+            throw new UserException.BadInput(String.format("The model %s does not take a reference tensor of window size %d and %d annotations, " +
+                    "or does not predict the %d SNP and INDEL labels: %s", javaInferenceModel, windowSize, annotationKeys.size(), INDEL_LABEL + 1, javaModel));
+        }
+        logger.info("Using key:" + scoreKey + " for CNN model scored in Java:" + javaInferenceModel);
+
+        javaInferencePool = inferenceThreads > 1 ? new ForkJoinPool(inferenceThreads) : null;
+        referenceTensorBatch = new float[transferBatchSize * windowSize * DNA_CHANNELS];
+        annotationTensorBatch = new float[transferBatchSize * annotationKeys.size()];
+        variantBatch = new ArrayList<>(transferBatchSize);
+
+        try {
+            scoreFile = File.createTempFile(outputFile, ".temp");
+            if (!keepTempFile) {
+                scoreFile.deleteOnExit();
+            } else {
+                logger.info("Saving temp file of scores:" + scoreFile.getAbsolutePath());
+            }
+        } catch (IOException e) {
+            throw new GATKException("Error when creating temp file for scores.", e);
+        }
+    }
+
+    private void addToJavaBatch(final VariantContext variant, final ReferenceContext referenceContext) {
+        final int i = variantBatch.size();
+        referenceBasesToTensor(Arrays.copyOfRange(referenceContext.getBases(), 0, windowSize), referenceTensorBatch, i * windowSize * DNA_CHANNELS);
+        annotationsToTensor(variant, annotationKeys, annotationTensorBatch, i * annotationKeys.size());
+        variantBatch.add(variant);
+        if (variantBatch.size() == transferBatchSize) {
+            scoreJavaBatch();
+        }
+    }
+
+    /**
+     * Score the variants of the current batch in Java, append their scores to the score file and empty the batch.
+     * The score file is opened for each batch, so that it is never left open if scoring fails.
+     */
+    private void scoreJavaBatch() {
+        final int n = variantBatch.size();
+        if (n == 0) {
+            return;
+        }
+        final float[][] predictions = javaModel.predict(new float[][]{
+                        Arrays.copyOf(referenceTensorBatch, n * windowSize * DNA_CHANNELS),
+                        Arrays.copyOf(annotationTensorBatch, n * annotationKeys.size())},
+                n, inferenceBatchSize, javaInferencePool);
+
+        try (final PrintWriter scoreWriter = new PrintWriter(new FileWriter(scoreFile, true))) {
+            for (int i = 0; i < n; i++) {
+                final VariantContext variant = variantBatch.get(i);
+                scoreWriter.print(getVariantDataString(variant) + DATA_TYPE_SEPARATOR + String.format("%.3f", predictionToScore(variant, predictions[i])) + "\n");
+            }
+            if (scoreWriter.checkError()) {
+                throw new GATKException("Error when writing temporary score file: " + scoreFile.getAbsolutePath());
+            }
+        } catch (IOException e) {
+            throw new GATKException("Error when opening temporary score file: " + scoreFile.getAbsolutePath(), e);
+        }
+        variantBatch.clear();
+        Arrays.fill(referenceTensorBatch, 0.0f);
+        Arrays.fill(annotationTensorBatch, 0.0f);
+    }
+
+    /**
+     * One-hot encode reference bases into a reference tensor of shape (bases, 4), as in
+     * vqsr_cnn.reference_string_to_tensor().  Positions after a 0 byte are left empty.
+     * @param bases the reference bases of the window around the variant
+     * @param tensor the batch of tensors to write into, which must be zero at the positions written
+     * @param offset the offset of the tensor of this variant in the batch
+     */
+    static void referenceBasesToTensor(final byte[] bases, final float[] tensor, final int offset) {
+        for (int i = 0; i < bases.length; i++) {
+            final int position = offset + i * DNA_CHANNELS;
+            switch (bases[i]) {
+                case 'A': tensor[position] = 1.0f; break;
+                case 'C': tensor[position + 1] = 1.0f; break;
+                case 'G': tensor[position + 2] = 1.0f; break;
+                case 'T': tensor[position + 3] = 1.0f; break;
+                case 0: return;
+                default:
+                    final float[] ambiguity = AMBIGUITY_CODES.get((char) bases[i]);
+                    if (ambiguity == null) {
+                        throw new GATKException("Unknown base code in reference tensor: " + (char) bases[i]);
+                    }
+                    System.arraycopy(ambiguity, 0, tensor, position, DNA_CHANNELS);
+            }
+        }
+    }
+
+
+    /**
+     * Write the given INFO annotations of a variant into an annotation tensor, as in
+     * vqsr_cnn.annotation_string_to_tensor().  Missing and NaN annotations are left 0.
+     */
+    static void annotationsToTensor(final VariantContext variant, final List<String> annotationKeys, final float[] tensor, final int offset) {
+        for (int i = 0; i < annotationKeys.size(); i++) {
+            if (variant.hasAttribute(annotationKeys.get(i))) {
+                final String value = variant.getAttributeAsString(annotationKeys.get(i), "0");
+                try {
+                    final double annotation = Double.parseDouble(value);
+                    if (!Double.isNaN(annotation)) {
+                        tensor[offset + i] = (float) annotation;
+                    }
+                } catch (NumberFormatException e) {
+                    throw new UserException.BadInput(String.format("Annotation %s of variant at %s:%d is not a number: %s",
+                            annotationKeys.get(i), variant.getContig(), variant.getStart(), value));
+                }
+            }
+        }
+    }
+
+    /**
+     * The log odds score of a variant from the predicted probabilities of the labels, as in
+     * vqsr_cnn.predictions_to_snp_scores() and vqsr_cnn.predictions_to_indel_scores().
+     */
+    static double predictionToScore(final VariantContext variant, final float[] prediction) {
+        final double snpScore = Math.log(PREDICTION_EPSILON + prediction[SNP_LABEL] / (prediction[NOT_SNP_LABEL] + PREDICTION_EPSILON));
+        final double indelScore = Math.log(PREDICTION_EPSILON + prediction[INDEL_LABEL] / (prediction[NOT_INDEL_LABEL] + PREDICTION_EPSILON));
+        return variant.isSNP() ? snpScore : variant.isIndel() ? indelScore : Math.max(snpScore, indelScore);
     }
 
     private void transferToPythonViaFifo(final VariantContext variant, final ReferenceContext referenceContext) {
@@ -401,18 +625,20 @@ public class CNNScoreVariants extends TwoPassVariantWalker {
 
     private void sendBatchIfReady() {
         if (curBatchSize == transferBatchSize) {
-            if (waitforBatchCompletion == true) {
-                // wait for the last batch to complete before we start a new one
-                pythonExecutor.waitForPreviousBatchCompletion();
-                waitforBatchCompletion = false;
-            }
+            waitForBatchSlot();
             executePythonCommand();
-            waitforBatchCompletion = true;
             curBatchSize = 0;
             batchList = new ArrayList<>(transferBatchSize);
         }
     }
 
+    private void waitForBatchSlot() {
+        if (pythonExecutor.getNumOutstandingBatches() == MAX_OUTSTANDING_BATCHES) {
+            // wait for the oldest batch to complete before we start a new one
+            pythonExecutor.waitForPreviousBatchCompletion();
+        }
+    }
+
     private void transferReadsToPythonViaFifo(final VariantContext variant, final ReadsContext readsContext, final ReferenceContext referenceContext) {
         StringBuilder sb = new StringBuilder(FIFO_STRING_INITIAL_CAPACITY);
         try {
@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import Jama.Matrix;
 
@@ -136,10 +137,43 @@ class GaussianMixtureModel {
         }
     }
 
+    /**
+     * Same as {@link #expectationStep(List)}, over the blocks of {@code data} in parallel in the given pool.
+     * Each datum is evaluated independently, so the results are the same as those of {@link #expectationStep(List)}.
+     */
+    public void expectationStep( final VariantDataMatrix data, final ForkJoinPool pool ) {
+
+        for( final MultivariateGaussian gaussian : gaussians ) {
+            gaussian.precomputeDenominatorForVariationalBayes( getSumHyperParameterLambda() );
+        }
+
+        final double[] annotations = data.getValues();
+        data.forEachBlock(pool, block -> {
+            final double[] pVarInGaussianLog10 = new double[gaussians.size()];
+            for( int datumIndex = data.getBlockStart(block); datumIndex < data.getBlockEnd(block); datumIndex++ ) {
+                final int offset = data.getRowOffset(datumIndex);
+                for( int gaussianIndex = 0; gaussianIndex < gaussians.size(); gaussianIndex++ ) {
+                    pVarInGaussianLog10[gaussianIndex] = gaussians.get(gaussianIndex).evaluateDatumLog10(annotations, offset);
+                }
+                final double[] pVarInGaussianNormalized = MathUtils.normalizeLog10DeleteMePlease( pVarInGaussianLog10, false);
+                for( int gaussianIndex = 0; gaussianIndex < gaussians.size(); gaussianIndex++ ) {
+                    gaussians.get(gaussianIndex).setPVarInGaussian( datumIndex, pVarInGaussianNormalized[gaussianIndex] );
+                }
+            }
+        });
+    }
+
     public void maximizationStep( final List<VariantDatum> data ) {
         gaussians.forEach(g -> g.maximizeGaussian( data, empiricalMu, empiricalSigma, shrinkage, dirichletParameter, priorCounts));
     }
 
+    /**
+     * Same as {@link #maximizationStep(List)}, summing over the blocks of {@code data} in parallel in the given pool.
+     */
+    public void maximizationStep( final VariantDataMatrix data, final ForkJoinPool pool ) {
+        gaussians.forEach(g -> g.maximizeGaussian( data, pool, empiricalMu, empiricalSigma, shrinkage, dirichletParameter, priorCounts));
+    }
+
     private double getSumHyperParameterLambda() {
         return gaussians.stream().mapToDouble(g -> g.hyperParameter_lambda).sum();
     }
@@ -149,6 +183,14 @@ class GaussianMixtureModel {
         normalizePMixtureLog10();
     }
 
+    /**
+     * Same as {@link #evaluateFinalModelParameters(List)}, summing over the blocks of {@code data} in parallel in the given pool.
+     */
+    public void evaluateFinalModelParameters( final VariantDataMatrix data, final ForkJoinPool pool ) {
+        gaussians.forEach(g -> g.evaluateFinalModelParameters(data, pool));
+        normalizePMixtureLog10();
+    }
+
     public double normalizePMixtureLog10() {
         double sumDiff = 0.0;
         final double sumPK = gaussians.stream().mapToDouble(g -> g.sumProb).sum();
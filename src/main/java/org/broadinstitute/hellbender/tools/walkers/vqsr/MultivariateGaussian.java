@@ -9,6 +9,7 @@ import org.broadinstitute.hellbender.utils.collections.ExpandingArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import Jama.Matrix;
 
@@ -125,16 +126,24 @@ class MultivariateGaussian {
     }
 
     public double evaluateDatumLog10( final VariantDatum datum ) {
+        return evaluateDatumLog10( datum.annotations, 0 );
+    }
+
+    /**
+     * Same as {@link #evaluateDatumLog10(VariantDatum)} for the annotations starting at {@code offset} in {@code annotations}.
+     * Safe to call from multiple threads.
+     */
+    public double evaluateDatumLog10( final double[] annotations, final int offset ) {
         double sumKernel = 0.0;
         final double[] crossProdTmp = new double[mu.length];
         Arrays.fill(crossProdTmp, 0.0);
         for( int iii = 0; iii < mu.length; iii++ ) {
             for( int jjj = 0; jjj < mu.length; jjj++ ) {
-                crossProdTmp[iii] += (datum.annotations[jjj] - mu[jjj]) * cachedSigmaInverse.get(jjj, iii);
+                crossProdTmp[iii] += (annotations[offset + jjj] - mu[jjj]) * cachedSigmaInverse.get(jjj, iii);
             }
         }
         for( int iii = 0; iii < mu.length; iii++ ) {
-            sumKernel += crossProdTmp[iii] * (datum.annotations[iii] - mu[iii]);
+            sumKernel += crossProdTmp[iii] * (annotations[offset + iii] - mu[iii]);
         }
 
         return (( -0.5 * sumKernel ) / Math.log(10.0)) + cachedDenomLog10; // This is the definition of a Gaussian PDF Log10
@@ -144,6 +153,10 @@ class MultivariateGaussian {
         pVarInGaussian[pVarInGaussianIndex++] = pVar;
     }
 
+    public void setPVarInGaussian( final int datumIndex, final double pVar ) {
+        pVarInGaussian[datumIndex] = pVar;
+    }
+
     public void resetPVarInGaussian() {
         Arrays.fill(pVarInGaussian, 0.0);
         pVarInGaussianIndex = 0;
@@ -227,4 +240,122 @@ class MultivariateGaussian {
 
         resetPVarInGaussian(); // clean up some memory
     }
+
+    /**
+     * Same as {@link #maximizeGaussian(List, double[], Matrix, double, double, double)}, summing over the blocks of
+     * {@code data} in parallel in the given pool.
+     */
+    public void maximizeGaussian(final VariantDataMatrix data, final ForkJoinPool pool, final double[] empiricalMu, final Matrix empiricalSigma,
+                                 final double SHRINKAGE, final double DIRICHLET_PARAMETER, final double DEGREES_OF_FREEDOM ) {
+        sumProb = 1E-10;
+        final Matrix wishart = new Matrix(mu.length, mu.length);
+        zeroOutMu();
+        zeroOutSigma();
+
+        sumProb += sumWeightedAnnotations( data, pool );
+        divideEqualsMu( sumProb );
+
+        final double shrinkageFactor = (SHRINKAGE * sumProb) / (SHRINKAGE + sumProb);
+        for( int iii = 0; iii < mu.length; iii++ ) {
+            double deltaMu = shrinkageFactor * (mu[iii] - empiricalMu[iii]);
+            for( int jjj = 0; jjj < mu.length; jjj++ ) {
+                wishart.set(iii, jjj, deltaMu * (mu[jjj] - empiricalMu[jjj]));
+            }
+        }
+
+        addWeightedScatter( data, pool );
+
+        sigma.plusEquals( empiricalSigma );
+        sigma.plusEquals( wishart );
+
+        for( int iii = 0; iii < mu.length; iii++ ) {
+            mu[iii] = (sumProb * mu[iii] + SHRINKAGE * empiricalMu[iii]) / (sumProb + SHRINKAGE);
+        }
+
+        hyperParameter_a = sumProb + DEGREES_OF_FREEDOM;
+        hyperParameter_b = sumProb + SHRINKAGE;
+        hyperParameter_lambda = sumProb + DIRICHLET_PARAMETER;
+
+        resetPVarInGaussian(); // clean up some memory
+    }
+
+    /**
+     * Same as {@link #evaluateFinalModelParameters(List)}, summing over the blocks of {@code data} in parallel in the given pool.
+     */
+    public void evaluateFinalModelParameters( final VariantDataMatrix data, final ForkJoinPool pool ) {
+        sumProb = 0.0;
+        zeroOutMu();
+        zeroOutSigma();
+
+        sumProb += sumWeightedAnnotations( data, pool );
+        divideEqualsMu( sumProb );
+
+        addWeightedScatter( data, pool );
+        sigma.timesEquals( 1.0 / sumProb );
+
+        resetPVarInGaussian(); // clean up some memory
+    }
+
+    /**
+     * Add the annotations of all data weighted by their probability of belonging to this Gaussian to {@link #mu}.
+     * Each block is summed separately and the block sums are added in block order, so the result does not depend on the number of threads.
+     * @return the sum of the probabilities of all data belonging to this Gaussian
+     */
+    private double sumWeightedAnnotations( final VariantDataMatrix data, final ForkJoinPool pool ) {
+        final double[] annotations = data.getValues();
+        final double[][] blockSums = data.mapBlocks(pool, block -> {
+            // the sum of the probabilities, followed by the weighted sum of each annotation:
+            final double[] blockSum = new double[mu.length + 1];
+            for( int datumIndex = data.getBlockStart(block); datumIndex < data.getBlockEnd(block); datumIndex++ ) {
+                final double prob = pVarInGaussian[datumIndex];
+                final int offset = data.getRowOffset(datumIndex);
+                blockSum[0] += prob;
+                for( int jjj = 0; jjj < mu.length; jjj++ ) {
+                    blockSum[jjj + 1] += prob * annotations[offset + jjj];
+                }
+            }
+            return blockSum;
+        });
+
+        double blockSumProb = 0.0;
+        for( final double[] blockSum : blockSums ) {
+            blockSumProb += blockSum[0];
+            for( int jjj = 0; jjj < mu.length; jjj++ ) {
+                mu[jjj] += blockSum[jjj + 1];
+            }
+        }
+        return blockSumProb;
+    }
+
+    /**
+     * Add the scatter matrix of all data around {@link #mu} weighted by their probability of belonging to this Gaussian to {@link #sigma}.
+     * Each block is summed separately and the block sums are added in block order, so the result does not depend on the number of threads.
+     */
+    private void addWeightedScatter( final VariantDataMatrix data, final ForkJoinPool pool ) {
+        final double[] annotations = data.getValues();
+        final double[][] blockSums = data.mapBlocks(pool, block -> {
+            final double[] blockSum = new double[mu.length * mu.length];
+            for( int datumIndex = data.getBlockStart(block); datumIndex < data.getBlockEnd(block); datumIndex++ ) {
+                final double prob = pVarInGaussian[datumIndex];
+                final int offset = data.getRowOffset(datumIndex);
+                for( int iii = 0; iii < mu.length; iii++ ) {
+                    final double deltaMu = prob * (annotations[offset + iii] - mu[iii]);
+                    for( int jjj = 0; jjj < mu.length; jjj++ ) {
+                        blockSum[iii * mu.length + jjj] += deltaMu * (annotations[offset + jjj] - mu[jjj]);
+                    }
+                }
+            }
+            return blockSum;
+        });
+
+        final Matrix blockSigma = new Matrix(mu.length, mu.length);
+        for( final double[] blockSum : blockSums ) {
+            for( int iii = 0; iii < mu.length; iii++ ) {
+                for( int jjj = 0; jjj < mu.length; jjj++ ) {
+                    blockSigma.set(iii, jjj, blockSum[iii * mu.length + jjj]);
+                }
+            }
+            sigma.plusEquals( blockSigma );
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+package org.broadinstitute.hellbender.tools.walkers.vqsr;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/*
+ * The annotations of a list of VariantDatums, stored row by row in one contiguous array, so that the Gaussian mixture
+ * model can scan them in parallel over fixed blocks of rows.
+ * Package private because it's not usable outside of VQSR.
+ */
+final class VariantDataMatrix {
+
+    /**
+     * Number of rows in each block.  Fixed, so that per-block sums reduced in block order do not depend on the number of threads.
+     */
+    static final int BLOCK_SIZE = 4096;
+
+    private final int numRows;
+    private final int numColumns;
+    private final double[] values;
+
+    VariantDataMatrix( final List<VariantDatum> data ) {
+        Utils.nonEmpty(data);
+        numRows = data.size();
+        numColumns = data.get(0).annotations.length;
+        Utils.validateArg((long) numRows * numColumns < Integer.MAX_VALUE, "Too many variants to fit in one annotation matrix: " + numRows);
+
+        values = new double[numRows * numColumns];
+        int offset = 0;
+        for( final VariantDatum datum : data ) {
+            Utils.validateArg(datum.annotations.length == numColumns, "All variants must have the same number of annotations.");
+            System.arraycopy(datum.annotations, 0, values, offset, numColumns);
+            offset += numColumns;
+        }
+    }
+
+    int getNumRows() { return numRows; }
+
+    int getNumColumns() { return numColumns; }
+
+    /**
+     * @return the annotations of all rows; row {@code i} starts at {@link #getRowOffset(int)}.  Must not be modified.
+     */
+    double[] getValues() { return values; }
+
+    int getRowOffset( final int row ) { return row * numColumns; }
+
+    int getNumBlocks() { return (numRows + BLOCK_SIZE - 1) / BLOCK_SIZE; }
+
+    int getBlockStart( final int block ) { return block * BLOCK_SIZE; }
+
+    int getBlockEnd( final int block ) { return Math.min(numRows, (block + 1) * BLOCK_SIZE); }
+
+    /**
+     * Run the given function on every block of rows in the given pool.
+     */
+    void forEachBlock( final ForkJoinPool pool, final IntConsumer blockConsumer ) {
+        pool.submit(() -> IntStream.range(0, getNumBlocks()).parallel().forEach(blockConsumer)).join();
+    }
+
+    /**
+     * Run the given function on every block of rows in the given pool.
+     * @return the result for each block, in block order
+     */
+    double[][] mapBlocks( final ForkJoinPool pool, final IntFunction<double[]> blockFunction ) {
+        return pool.submit(() -> IntStream.range(0, getNumBlocks()).parallel().mapToObj(blockFunction).toArray(double[][]::new)).join();
+    }
+}
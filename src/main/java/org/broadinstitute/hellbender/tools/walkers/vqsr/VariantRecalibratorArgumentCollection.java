@@ -92,6 +92,16 @@ final class VariantRecalibratorArgumentCollection {
     @Argument(fullName = "maximum-training-variants", doc = "Maximum number of training data", optional = true)
     protected int MAX_NUM_TRAINING_DATA = 2500000;
 
+    /**
+     * The number of threads to use to train the Gaussian mixture models and to evaluate all variants with them.
+     * With more than one thread, the model parameters are summed over fixed blocks of training variants, so the models
+     * are the same for any number of threads greater than one, but may differ in the last digits from the models
+     * trained with a single thread.
+     */
+    @Advanced
+    @Argument(fullName = "model-threads", doc = "Number of threads to use to train and evaluate the Gaussian mixture models", optional = true, minValue = 1)
+    public int MODEL_THREADS = 1;
+
     /**
      * This parameter determines the minimum number of variants that will be selected from the list of worst scoring
      * variants to use for building the Gaussian mixture model of bad variants.
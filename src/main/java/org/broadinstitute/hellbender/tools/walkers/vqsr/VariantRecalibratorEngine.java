@@ -6,6 +6,8 @@ import org.apache.logging.log4j.LogManager;
 import org.broadinstitute.hellbender.utils.Utils;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 public class VariantRecalibratorEngine {
 
@@ -60,8 +62,30 @@ public class VariantRecalibratorEngine {
         }
 
         logger.info("Evaluating full set of " + data.size() + " variants...");
-        for( final VariantDatum datum : data ) {
-            final double thisLod = evaluateDatum( datum, model );
+
+        // With multiple threads, evaluate the data without missing annotations up front.
+        // The data with missing annotations are marginalized with random draws, so they are left to the loop below
+        // to keep the same sequence of random numbers as with a single thread.
+        final double[] precomputedLods = new double[data.size()];
+        final boolean[] isLodPrecomputed = new boolean[data.size()];
+        final ForkJoinPool pool = createModelThreadPool();
+        if( pool != null ) {
+            try {
+                pool.submit(() -> IntStream.range(0, data.size()).parallel().forEach(i -> {
+                    final VariantDatum datum = data.get(i);
+                    if( !hasMissingAnnotations(datum) ) {
+                        precomputedLods[i] = evaluateDatum( datum, model );
+                        isLodPrecomputed[i] = true;
+                    }
+                })).join();
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        for( int i = 0; i < data.size(); i++ ) {
+            final VariantDatum datum = data.get(i);
+            final double thisLod = isLodPrecomputed[i] ? precomputedLods[i] : evaluateDatum( datum, model );
             if( Double.isNaN(thisLod) ) {
                 logger.warn("Evaluate datum returned a NaN.");
                 model.failedToConverge = true;
@@ -77,21 +101,32 @@ public class VariantRecalibratorEngine {
     }
 
     public void calculateWorstPerformingAnnotation( final List<VariantDatum> data, final GaussianMixtureModel goodModel, final GaussianMixtureModel badModel ) {
-        for( final VariantDatum datum : data ) {
-            int worstAnnotation = -1;
-            double minProb = Double.MAX_VALUE;
-            double worstValue = -1;
-            for( int iii = 0; iii < datum.annotations.length; iii++ ) {
-                final Double goodProbLog10 = goodModel.evaluateDatumInOneDimension(datum, iii);
-                final Double badProbLog10 = badModel.evaluateDatumInOneDimension(datum, iii);
-                if( goodProbLog10 != null && badProbLog10 != null ) {
-                    final double prob = goodProbLog10 - badProbLog10;
-                    if(prob < minProb) { minProb = prob; worstAnnotation = iii; worstValue = datum.annotations[iii];}
-                }
+        final ForkJoinPool pool = createModelThreadPool();
+        if( pool == null ) {
+            data.forEach(datum -> calculateWorstPerformingAnnotation(datum, goodModel, badModel));
+        } else {
+            try {
+                pool.submit(() -> data.parallelStream().forEach(datum -> calculateWorstPerformingAnnotation(datum, goodModel, badModel))).join();
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static void calculateWorstPerformingAnnotation( final VariantDatum datum, final GaussianMixtureModel goodModel, final GaussianMixtureModel badModel ) {
+        int worstAnnotation = -1;
+        double minProb = Double.MAX_VALUE;
+        double worstValue = -1;
+        for( int iii = 0; iii < datum.annotations.length; iii++ ) {
+            final Double goodProbLog10 = goodModel.evaluateDatumInOneDimension(datum, iii);
+            final Double badProbLog10 = badModel.evaluateDatumInOneDimension(datum, iii);
+            if( goodProbLog10 != null && badProbLog10 != null ) {
+                final double prob = goodProbLog10 - badProbLog10;
+                if(prob < minProb) { minProb = prob; worstAnnotation = iii; worstValue = datum.annotations[iii];}
             }
-            datum.worstAnnotation = worstAnnotation;
-            datum.worstValue = worstValue;
         }
+        datum.worstAnnotation = worstAnnotation;
+        datum.worstValue = worstValue;
     }
 
 
@@ -103,27 +138,50 @@ public class VariantRecalibratorEngine {
 
         model.initializeRandomModel( data, VRAC.NUM_KMEANS_ITERATIONS );
 
-        // The VBEM loop
-        model.normalizePMixtureLog10();
-        model.expectationStep( data );
-        double currentChangeInMixtureCoefficients;
-        int iteration = 0;
-        logger.info("Finished iteration " + iteration + ".");
-        while( iteration < VRAC.MAX_ITERATIONS ) {
-            iteration++;
-            model.maximizationStep( data );
-            currentChangeInMixtureCoefficients = model.normalizePMixtureLog10();
-            model.expectationStep( data );
-            if( iteration % 5 == 0 ) { // cut down on the number of output lines so that users can read the warning messages
-                logger.info("Finished iteration " + iteration + ". \tCurrent change in mixture coefficients = " + String.format("%.5f", currentChangeInMixtureCoefficients));
+        final ForkJoinPool pool = createModelThreadPool();
+        try {
+            // With multiple threads, the E and M steps scan one contiguous matrix of annotations in parallel blocks:
+            final VariantDataMatrix dataMatrix = (pool == null) ? null : new VariantDataMatrix( data );
+            final Runnable expectationStep = (pool == null) ? () -> model.expectationStep( data ) : () -> model.expectationStep( dataMatrix, pool );
+            final Runnable maximizationStep = (pool == null) ? () -> model.maximizationStep( data ) : () -> model.maximizationStep( dataMatrix, pool );
+
+            // The VBEM loop
+            model.normalizePMixtureLog10();
+            expectationStep.run();
+            double currentChangeInMixtureCoefficients;
+            int iteration = 0;
+            logger.info("Finished iteration " + iteration + ".");
+            while( iteration < VRAC.MAX_ITERATIONS ) {
+                iteration++;
+                maximizationStep.run();
+                currentChangeInMixtureCoefficients = model.normalizePMixtureLog10();
+                expectationStep.run();
+                if( iteration % 5 == 0 ) { // cut down on the number of output lines so that users can read the warning messages
+                    logger.info("Finished iteration " + iteration + ". \tCurrent change in mixture coefficients = " + String.format("%.5f", currentChangeInMixtureCoefficients));
+                }
+                if( iteration > 2 && currentChangeInMixtureCoefficients < MIN_PROB_CONVERGENCE ) {
+                    logger.info("Convergence after " + iteration + " iterations!");
+                    break;
+                }
+            }
+
+            if( pool == null ) {
+                model.evaluateFinalModelParameters( data );
+            } else {
+                model.evaluateFinalModelParameters( dataMatrix, pool );
             }
-            if( iteration > 2 && currentChangeInMixtureCoefficients < MIN_PROB_CONVERGENCE ) {
-                logger.info("Convergence after " + iteration + " iterations!");
-                break;
+        } finally {
+            if( pool != null ) {
+                pool.shutdown();
             }
         }
+    }
 
-        model.evaluateFinalModelParameters( data );
+    /**
+     * @return a pool with {@link VariantRecalibratorArgumentCollection#MODEL_THREADS} threads, or {@code null} if only one thread should be used
+     */
+    private ForkJoinPool createModelThreadPool() {
+        return VRAC.MODEL_THREADS > 1 ? new ForkJoinPool(VRAC.MODEL_THREADS) : null;
     }
 
     /////////////////////////////
@@ -133,4 +191,13 @@ public class VariantRecalibratorEngine {
     private double evaluateDatum( final VariantDatum datum, final GaussianMixtureModel model ) {
         return model.evaluateDatum( datum );
     }
+
+    private static boolean hasMissingAnnotations( final VariantDatum datum ) {
+        for( final boolean isNull : datum.isNull ) {
+            if( isNull ) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -1,29 +1,85 @@
 package org.broadinstitute.hellbender.utils.bwa;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.utils.Utils;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 
 /**
  * Manage a global collection of {@link BwaMemIndex} instances.
+ * <p>
+ *     The index images are large, so each one is loaded at most once per VM, and then kept for use by later tasks.
+ *     The native loader maps the image file into memory, so VMs on the same host that open an image at the same
+ *     path share its pages through the page cache, rather than each keeping a private copy.
+ * </p>
+ * <p>
+ *     Users that call {@link #acquireInstance} hold a reference to the index until they call
+ *     {@link #releaseInstance}.  An index with outstanding references is never closed out from under its users:
+ *     a request to close it is deferred until its last reference is released.
+ * </p>
  */
 public class BwaMemIndexCache {
+    private static final Logger logger = LogManager.getLogger(BwaMemIndexCache.class);
+    private static final String PROC_SELF_SMAPS = "/proc/self/smaps";
 
-    private final static Map<String, BwaMemIndex> instances = new HashMap<>();
+    private final static Map<String, CachedIndex> instances = new HashMap<>();
 
     /**
      * Returns a {@link BwaMemIndex} instance that corresponds to  given index image file.
+     * <p>
+     *     The caller doesn't hold a reference to the instance, so it may be closed by any of the close methods.
+     *     Prefer {@link #acquireInstance} for use by concurrent tasks.
+     * </p>
      * @param indexImageFile the target image file.
      * @return never {@code null}.
      */
     public static synchronized BwaMemIndex getInstance( final String indexImageFile ) {
         Utils.nonNull(indexImageFile, "the index image file name provided cannot be null");
-        if (!instances.containsKey(indexImageFile)) {
-            instances.put(indexImageFile, new BwaMemIndex(indexImageFile));
+        return getCachedIndex(indexImageFile).index;
+    }
+
+    /**
+     * Returns a {@link BwaMemIndex} instance that corresponds to given index image file, loading it if necessary, and
+     * takes a reference to it.  The instance won't be closed until the reference is released by a call to
+     * {@link #releaseInstance}.
+     * If a close of the instance is pending, it stays pending: the instance is closed when the last reference,
+     * including this one, is released.
+     * @param indexImageFile the target image file.
+     * @return never {@code null}.
+     */
+    public static synchronized BwaMemIndex acquireInstance( final String indexImageFile ) {
+        Utils.nonNull(indexImageFile, "the index image file name provided cannot be null");
+        final CachedIndex cachedIndex = getCachedIndex(indexImageFile);
+        cachedIndex.references += 1;
+        return cachedIndex.index;
+    }
+
+    /**
+     * Releases a reference taken by {@link #acquireInstance}.
+     * If a close was requested while the instance was in use, and this was the last reference, the instance is closed.
+     * @param instance the instance to release.
+     */
+    public static synchronized void releaseInstance( final BwaMemIndex instance ) {
+        Utils.nonNull(instance, "the input index cannot be null");
+        final Map.Entry<String, CachedIndex> entry = findEntry(instance);
+        if ( entry == null || entry.getValue().references == 0 ) {
+            throw new GATKException("attempt to release an index that has not been acquired");
+        }
+        final CachedIndex cachedIndex = entry.getValue();
+        cachedIndex.references -= 1;
+        if ( cachedIndex.references == 0 && cachedIndex.closePending ) {
+            cachedIndex.index.close();
+            instances.remove(entry.getKey());
         }
-        return instances.get(indexImageFile);
     }
 
     /**
@@ -33,14 +89,15 @@ public class BwaMemIndexCache {
      * </p>
      * <p>
      *     An attempt to close a missing instance, won't have any effect.
+     *     If the instance has been acquired and not yet released, it's closed when its last reference is released.
      * </p>
      *
      * @param indexImageFile the index file name of the instance to close.
      */
     public static synchronized void closeInstance(final String indexImageFile) {
         Utils.nonNull(indexImageFile, "the input image file cannot be null");
-        if (instances.containsKey(indexImageFile)) {
-            instances.get(indexImageFile).close();
+        final CachedIndex cachedIndex = instances.get(indexImageFile);
+        if ( cachedIndex != null && closeOrDefer(cachedIndex) ) {
             instances.remove(indexImageFile);
         }
     }
@@ -50,25 +107,28 @@ public class BwaMemIndexCache {
      *<p>
      *     An attempt to close a instance that is not present in the cache, won't have any effect.
      *     Thus if the input instance is not part of the cache an is not closed, will remind unclosed.
+     *     If the instance has been acquired and not yet released, it's closed when its last reference is released.
      * </p>
      * @param instance the instance ot close.
      */
     public static synchronized void closeInstance(final BwaMemIndex instance) {
         Utils.nonNull(instance, "the input index cannot be null");
-        if (instances.values().contains(instance)) {
-            instance.close();
-            instances.values().remove(instance);
+        final Map.Entry<String, CachedIndex> entry = findEntry(instance);
+        if ( entry != null && closeOrDefer(entry.getValue()) ) {
+            instances.remove(entry.getKey());
         }
     }
 
     /**
      * Closes all instances in the VM.
+     * Instances that have been acquired and not yet released are closed when their last reference is released.
      */
     public static synchronized void closeInstances() {
-        final Iterator<BwaMemIndex> it = instances.values().iterator();
+        final Iterator<CachedIndex> it = instances.values().iterator();
         while (it.hasNext()) {
-            it.next().close();
-            it.remove();
+            if ( closeOrDefer(it.next()) ) {
+                it.remove();
+            }
         }
     }
 
@@ -83,4 +143,139 @@ public class BwaMemIndexCache {
         for ( int idx = 0; idx != nJobs; ++idx ) jobList.add(idx);
         ctx.parallelize(jobList, nJobs).foreach(idx -> closeInstances());
     }
+
+    /**
+     * Returns metrics for the index instance in the cache with the given index file name.
+     * @param indexImageFile the index file name of the instance.
+     * @return the metrics, or {@code null} if no instance for that file is in the cache.
+     */
+    public static synchronized IndexMetrics getMetrics( final String indexImageFile ) {
+        Utils.nonNull(indexImageFile, "the input image file cannot be null");
+        final CachedIndex cachedIndex = instances.get(indexImageFile);
+        if ( cachedIndex == null ) return null;
+        return new IndexMetrics(indexImageFile, cachedIndex.imageSizeBytes, cachedIndex.loadTimeMillis,
+                                cachedIndex.references, getResidentBytes(indexImageFile));
+    }
+
+    private static CachedIndex getCachedIndex( final String indexImageFile ) {
+        CachedIndex cachedIndex = instances.get(indexImageFile);
+        if ( cachedIndex == null ) {
+            final long startTime = System.currentTimeMillis();
+            final BwaMemIndex index = new BwaMemIndex(indexImageFile);
+            final long loadTimeMillis = System.currentTimeMillis() - startTime;
+            final long imageSizeBytes = new File(indexImageFile).length();
+            logger.info(String.format("Loaded BWA-MEM index image %s (%d bytes) in %.3f secs",
+                                        indexImageFile, imageSizeBytes, loadTimeMillis / 1000.));
+            cachedIndex = new CachedIndex(index, imageSizeBytes, loadTimeMillis);
+            instances.put(indexImageFile, cachedIndex);
+        }
+        return cachedIndex;
+    }
+
+    private static Map.Entry<String, CachedIndex> findEntry( final BwaMemIndex instance ) {
+        for ( final Map.Entry<String, CachedIndex> entry : instances.entrySet() ) {
+            if ( entry.getValue().index == instance ) return entry;
+        }
+        return null;
+    }
+
+    /** Closes the index and returns true if it has no references, otherwise marks it to be closed on last release. */
+    private static boolean closeOrDefer( final CachedIndex cachedIndex ) {
+        if ( cachedIndex.references > 0 ) {
+            cachedIndex.closePending = true;
+            return false;
+        }
+        cachedIndex.index.close();
+        return true;
+    }
+
+    /**
+     * Sum the resident set sizes of this process's mappings of the image file, as reported by /proc/self/smaps.
+     * Returns -1 if that information isn't available (e.g., when not running on Linux).
+     */
+    private static long getResidentBytes( final String indexImageFile ) {
+        final Path smapsPath = Paths.get(PROC_SELF_SMAPS);
+        if ( !Files.isReadable(smapsPath) ) return -1L;
+        final String imagePath;
+        try {
+            imagePath = new File(indexImageFile).getCanonicalPath();
+        } catch ( final IOException ioe ) {
+            return -1L;
+        }
+        long residentKB = 0L;
+        try ( final BufferedReader reader = Files.newBufferedReader(smapsPath) ) {
+            boolean inImageMapping = false;
+            String line;
+            while ( (line = reader.readLine()) != null ) {
+                if ( line.startsWith("Rss:") ) {
+                    if ( inImageMapping ) {
+                        residentKB += Long.parseLong(line.substring(4).trim().split("\\s+")[0]);
+                    }
+                } else if ( !line.isEmpty() && !Character.isUpperCase(line.charAt(0)) ) {
+                    // a mapping's header line, like "7f0a1c000000-7f0a9c000000 r--s 00000000 fd:01 1234  /path/to/file"
+                    inImageMapping = line.endsWith(imagePath);
+                }
+            }
+        } catch ( final IOException | NumberFormatException e ) {
+            return -1L;
+        }
+        return residentKB * 1024L;
+    }
+
+    private static final class CachedIndex {
+        final BwaMemIndex index;
+        final long imageSizeBytes;
+        final long loadTimeMillis;
+        int references;
+        boolean closePending;
+
+        CachedIndex( final BwaMemIndex index, final long imageSizeBytes, final long loadTimeMillis ) {
+            this.index = index;
+            this.imageSizeBytes = imageSizeBytes;
+            this.loadTimeMillis = loadTimeMillis;
+        }
+    }
+
+    /**
+     * Metrics describing a cached index.
+     */
+    public static final class IndexMetrics {
+        private final String indexImageFile;
+        private final long imageSizeBytes;
+        private final long loadTimeMillis;
+        private final int references;
+        private final long residentBytes;
+
+        IndexMetrics( final String indexImageFile, final long imageSizeBytes, final long loadTimeMillis,
+                      final int references, final long residentBytes ) {
+            this.indexImageFile = indexImageFile;
+            this.imageSizeBytes = imageSizeBytes;
+            this.loadTimeMillis = loadTimeMillis;
+            this.references = references;
+            this.residentBytes = residentBytes;
+        }
+
+        public String getIndexImageFile() { return indexImageFile; }
+
+        /** The size of the image file. */
+        public long getImageSizeBytes() { return imageSizeBytes; }
+
+        /** How long it took to load the index in this VM. */
+        public long getLoadTimeMillis() { return loadTimeMillis; }
+
+        /** The number of references that have been acquired and not yet released. */
+        public int getReferences() { return references; }
+
+        /**
+         * How much of the image file is mapped into this VM and resident in memory, or -1 if that isn't known.
+         * Pages that are resident on behalf of one VM are shared with every other VM on the host that maps the image.
+         */
+        public long getResidentBytes() { return residentBytes; }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d bytes, %d resident, loaded in %d ms, %d references",
+                                indexImageFile, imageSizeBytes, residentBytes, loadTimeMillis, references);
+        }
+    }
 }
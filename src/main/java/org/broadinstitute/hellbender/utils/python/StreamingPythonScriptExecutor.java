@@ -28,7 +28,9 @@ import java.util.stream.Collectors;
  *  - start the remote process ({@link #start}.
  *  - optionally call {@code #getStreamWriter} to initialize and create a data transfer fifo.
  *  - send one or more synchronous or asynchronous commands to be executed in Python
- *  - optionally send data one or more times of type {@ocde T} through the async writer
+ *  - optionally send data one or more times of type {@ocde T} through the async writer, with up to
+ *    {@code maxOutstandingBatches} batches in flight, so that the next batch can be produced while Python consumes
+ *    the previous one
  *  - execute python code to close the data fifo
  *  - terminate the executor {@link #terminate}
  *
@@ -40,6 +42,8 @@ import java.util.stream.Collectors;
  *   - Prefer single line commands that run a script, vs. multi-line Python code embedded in Java
  *   - Terminate commands with a newline.
  *   - Try not to be chatty (maximize use of the fifo buffer by writing to it in batches before reading from Python)
+ *   - Prefer binary items written with {@link AsynchronousStreamWriter#framedByteArraySerializer}, and read in Python
+ *     with {@code tool.readDataFIFOFrame()}, over text that has to be formatted and parsed.
  *
  * @param <T> type of data that will be streamed to the Python process
  */
@@ -55,6 +59,7 @@ public class StreamingPythonScriptExecutor<T> extends PythonExecutorBase {
     private File dataTransferFIFOFile;
     private FileOutputStream dataTransferFIFOWriter;
     private AsynchronousStreamWriter<T> asyncWriter;
+    private int maxOutstandingBatches = 1;
 
     private File profileResults;
 
@@ -69,9 +74,10 @@ public class StreamingPythonScriptExecutor<T> extends PythonExecutorBase {
     private final static String PYTHON_SEND_ACK_REQUEST = "tool.sendAck()" + NL;
     private final static String PYTHON_END_PROFILING = "tool.endProfiling('%s')" + NL;
 
-    // keep track of when an ack request has been made and reject attempts to send another ack
-    // request until the previous one has been handled
-    private boolean isAckRequestOutstanding = false;
+    // keep track of the ack requests that have been made and not yet handled. Only the ack requests of batches
+    // started via startBatchWrite can be outstanding at the same time; any other ack request is rejected until
+    // the previous ones have been handled
+    private int numOutstandingAckRequests = 0;
 
     /**
      * The start method must be called to actually start the remote executable.
@@ -201,11 +207,11 @@ public class StreamingPythonScriptExecutor<T> extends PythonExecutorBase {
      * @throws PythonScriptExecutorException if nck was received
      */
     public ProcessOutput waitForAck() {
-        if (!isAckRequestOutstanding) {
+        if (numOutstandingAckRequests == 0) {
             throw new GATKException("No ack request is outstanding. An ack request must be issued first");
         }
         final ProcessControllerAckResult pcAckResult = spController.waitForAck();
-        isAckRequestOutstanding = false;
+        numOutstandingAckRequests--;
         // At every ack receipt, we want to retrieve the stdout/stderr output in case we're journaling
         final ProcessOutput po = getAccumulatedOutput();
         if (!pcAckResult.isPositiveAck()) {
@@ -236,7 +242,21 @@ public class StreamingPythonScriptExecutor<T> extends PythonExecutorBase {
      * @return An {@link AsynchronousStreamWriter}
      */
     public void initStreamWriter(final Function<T, ByteArrayOutputStream> itemSerializer) {
+        initStreamWriter(itemSerializer, 1);
+    }
+
+    /**
+     * Obtain a stream writer that serializes and writes batches of items of type {@code T} on a background thread,
+     * and allows up to {@code maxOutstandingBatches} batches to be in flight at once.
+     * @param itemSerializer {@code Function} that  accepts items of type {@code T} and converts them to a
+     *                                       {@code ByteArrayOutputStream} that is subsequently written to the stream
+     * @param maxOutstandingBatches maximum number of batches that may be started via {@link #startBatchWrite}
+     *                              before the oldest one is retrieved via {@link #waitForPreviousBatchCompletion}
+     */
+    public void initStreamWriter(final Function<T, ByteArrayOutputStream> itemSerializer, final int maxOutstandingBatches) {
         Utils.nonNull(itemSerializer, "An item serializer must be provided for the async writer service");
+        Utils.validateArg(maxOutstandingBatches > 0, "The maximum number of outstanding batches must be positive");
+        this.maxOutstandingBatches = maxOutstandingBatches;
 
         dataTransferFIFOFile = spController.createDataFIFO();
 
@@ -246,7 +266,7 @@ public class StreamingPythonScriptExecutor<T> extends PythonExecutorBase {
         sendAsynchronousCommand(String.format(PYTHON_INITIALIZE_DATA_FIFO, dataTransferFIFOFile.getAbsolutePath()));
         try {
             dataTransferFIFOWriter = new FileOutputStream(dataTransferFIFOFile);
-            asyncWriter = spController.getAsynchronousStreamWriter(dataTransferFIFOWriter, itemSerializer);
+            asyncWriter = spController.getAsynchronousStreamWriter(dataTransferFIFOWriter, itemSerializer, maxOutstandingBatches);
             // synchronize on an ack for the async command sent above before returning
             waitForAck();
         } catch ( IOException e ) {
@@ -255,8 +275,11 @@ public class StreamingPythonScriptExecutor<T> extends PythonExecutorBase {
     }
 
     /**
-     * Request that a batch of items be written to the stream on a background thread. Any previously requested batch
-     * must have already been completed and retrieved via {@link #waitForPreviousBatchCompletion}.
+     * Request that a batch of items be written to the stream on a background thread. Fewer than
+     * {@code maxOutstandingBatches} previously requested batches may be outstanding, so the oldest one may have to
+     * be completed and retrieved via {@link #waitForPreviousBatchCompletion} first.
+     *
+     * Python executes the commands of outstanding batches in order, so each command consumes the data of its own batch.
      *
      * @param pythonCommand command that will be executed asynchronously to cconsume the data written to the stream
      * @param batchList a list of items to be written
@@ -265,15 +288,35 @@ public class StreamingPythonScriptExecutor<T> extends PythonExecutorBase {
         Utils.nonNull(pythonCommand);
         Utils.nonNull(batchList);
         Utils.nonEmpty(batchList);
-        sendAsynchronousCommand(pythonCommand);
+        if (!pythonCommand.endsWith(NL)) {
+            throw new IllegalArgumentException("Python commands must be newline-terminated");
+        }
+        if (asyncWriter.getNumOutstandingBatches() >= maxOutstandingBatches) {
+            throw new IllegalStateException("Previous batch not yet complete");
+        }
+        if (numOutstandingAckRequests != asyncWriter.getNumOutstandingBatches()) {
+            throw new GATKException("An ack request that is not for a batch is outstanding. It must be retrieved" +
+                    " before a new batch can be started");
+        }
+        spController.writeProcessInput(pythonCommand);
+        spController.writeProcessInput(PYTHON_SEND_ACK_REQUEST);
+        numOutstandingAckRequests++;
         asyncWriter.startBatchWrite(batchList);
     }
 
     /**
-     * Waits for a batch that was previously initiated via {@link #startBatchWrite(String, List)}}
+     * @return the number of batches started via {@link #startBatchWrite} and not yet retrieved via
+     * {@link #waitForPreviousBatchCompletion}
+     */
+    public int getNumOutstandingBatches() {
+        return asyncWriter == null ? 0 : asyncWriter.getNumOutstandingBatches();
+    }
+
+    /**
+     * Waits for the oldest batch that was previously initiated via {@link #startBatchWrite(String, List)}}
      * to complete, flushes the target stream and returns the corresponding completed Future. The Future representing
-     * a given batch can only be obtained via this method once. If no work is outstanding, and/or the previous batch
-     * has already been retrieved, null is returned.
+     * a given batch can only be obtained via this method once. If no work is outstanding, and/or all previous batches
+     * have already been retrieved, null is returned.
      * @return returns null if no previous work to complete, otherwise a completed Future
      */
     public Future<Integer> waitForPreviousBatchCompletion() {
@@ -360,12 +403,12 @@ public class StreamingPythonScriptExecutor<T> extends PythonExecutorBase {
     }
 
     private void sendAckRequest() {
-        if (isAckRequestOutstanding) {
+        if (numOutstandingAckRequests > 0) {
             throw new GATKException("An ack request is already outstanding. The previous ack request must be retrieved" +
                     " before a new ack request can be issued");
         }
         spController.writeProcessInput(PYTHON_SEND_ACK_REQUEST);
-        isAckRequestOutstanding = true;
+        numOutstandingAckRequests++;
     }
 
 }
@@ -6,8 +6,11 @@ import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.utils.Utils;
 
 import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.function.Function;
@@ -15,6 +18,10 @@ import java.util.function.Function;
 /**
  * A service that can be used to write to a stream using a thread background thread and an executor service. This
  * is typically used to write items to a buffered stream that might block until the stream is consumed by a reader.
+ *
+ * Up to {@code maxOutstandingBatches} batches may be outstanding at once, so that the caller can produce the next
+ * batch while the reader is still consuming a previous one. Batches are always written to the stream in the order
+ * in which they were started, and are retrieved via {@link #waitForPreviousBatchCompletion} in the same order.
  * @param <T> Type of items to be written.
  */
 public class AsynchronousStreamWriter<T> {
@@ -23,7 +30,9 @@ public class AsynchronousStreamWriter<T> {
     final ExecutorService executorService;
     final OutputStream streamWriter;
     final Function<T, ByteArrayOutputStream> itemSerializer;
-    Future<Integer> previousBatch;
+    final int maxOutstandingBatches;
+    // outstanding batches, oldest first
+    final Deque<Future<Integer>> outstandingBatches = new ArrayDeque<>();
 
     /**
      * @param executorService executor service to be used to dispatch background tasks
@@ -34,20 +43,38 @@ public class AsynchronousStreamWriter<T> {
             final ExecutorService executorService,
             final OutputStream streamWriter,
             final Function<T, ByteArrayOutputStream> itemSerializer)
+    {
+        this(executorService, streamWriter, itemSerializer, 1);
+    }
+
+    /**
+     * @param executorService executor service to be used to dispatch background tasks
+     * @param streamWriter target stream to which items should be written
+     * @param itemSerializer function that converts an item of type {@code T} to a {@code ByteArrayOutputStream} for serialization
+     * @param maxOutstandingBatches maximum number of batches that may be started before the oldest one is retrieved
+     *                              via {@link #waitForPreviousBatchCompletion}
+     */
+    public AsynchronousStreamWriter(
+            final ExecutorService executorService,
+            final OutputStream streamWriter,
+            final Function<T, ByteArrayOutputStream> itemSerializer,
+            final int maxOutstandingBatches)
     {
         Utils.nonNull(executorService);
         Utils.nonNull(streamWriter);
         Utils.nonNull(itemSerializer);
+        Utils.validateArg(maxOutstandingBatches > 0, "The maximum number of outstanding batches must be positive");
 
         this.streamWriter = streamWriter;
         this.executorService = executorService;
         this.itemSerializer = itemSerializer;
-        previousBatch = null;
+        this.maxOutstandingBatches = maxOutstandingBatches;
     }
 
     /**
-     * Request that a batch of items be written to the stream on a background thread. Any previously requested batch
-     * must have already been completed and retrieved via {@link #waitForPreviousBatchCompletion}.
+     * Request that a batch of items be written to the stream on a background thread, after all outstanding batches.
+     * Fewer than {@code maxOutstandingBatches} batches may be outstanding, so the oldest batch may have to be retrieved
+     * via {@link #waitForPreviousBatchCompletion} first.
      *
      * @param batchList a list of items to be written
      */
@@ -55,12 +82,17 @@ public class AsynchronousStreamWriter<T> {
         Utils.nonNull(batchList);
         Utils.nonEmpty(batchList);
 
-        if (previousBatch != null) {
+        if (outstandingBatches.size() >= maxOutstandingBatches) {
             throw new IllegalStateException("Previous batch not yet complete");
         }
 
-        previousBatch = executorService.submit(() -> {
+        // The executor service may run tasks concurrently, so each batch waits for the one before it to be written.
+        final Future<Integer> precedingBatch = outstandingBatches.peekLast();
+        outstandingBatches.addLast(executorService.submit(() -> {
             try {
+                if (precedingBatch != null) {
+                    precedingBatch.get();
+                }
                 Integer batchSize = batchList.size();
                 for (int i = 0; i < batchList.size(); i++) {
                     T element = batchList.get(i);
@@ -72,22 +104,22 @@ public class AsynchronousStreamWriter<T> {
             } catch (IOException e) {
                 throw new GATKException("IOException converting bytes for serialization", e);
             }
-        });
+        }));
     }
 
     /**
-     * Waits for a batch that was previously initiated via {@link #startBatchWrite(List)}}
+     * Waits for the oldest outstanding batch that was previously initiated via {@link #startBatchWrite(List)}}
      * to complete, flushes the target stream and returns the corresponding completed Future. The Future representing
-     * a given batch can only be obtained via this method once. If no work is outstanding, and/or the previous batch
-     * has already been retrieved, null is returned.
+     * a given batch can only be obtained via this method once. If no work is outstanding, and/or all previous batches
+     * have already been retrieved, null is returned.
      * @return returns null if no previous work to complete, otherwise a completed Future
      */
     public Future<Integer> waitForPreviousBatchCompletion() {
-        final Future<Integer> lastCompleteBatch = previousBatch;
-         if (previousBatch != null) {
+        final Future<Integer> oldestBatch = outstandingBatches.pollFirst();
+        if (oldestBatch != null) {
             try {
                 try {
-                    previousBatch.get();
+                    oldestBatch.get();
                 } catch (ExecutionException | InterruptedException e) {
                     throw new GATKException("Interrupted during background stream write", e);
                 }
@@ -95,9 +127,16 @@ public class AsynchronousStreamWriter<T> {
             } catch (IOException e) {
                 throw new GATKException("IOException waiting for asynchronous batch completion", e);
             }
-            previousBatch = null;
         }
-        return lastCompleteBatch;
+        return oldestBatch;
+    }
+
+    /**
+     * @return the number of batches started via {@link #startBatchWrite(List)} and not yet retrieved via
+     * {@link #waitForPreviousBatchCompletion}
+     */
+    public int getNumOutstandingBatches() {
+        return outstandingBatches.size();
     }
 
     /**
@@ -106,11 +145,13 @@ public class AsynchronousStreamWriter<T> {
      */
     public boolean terminate() {
         boolean isCancelled = true;
-        if (previousBatch != null) {
+        if (!outstandingBatches.isEmpty()) {
             logger.warn("Cancelling outstanding asynchronous writing");
-            isCancelled = previousBatch.cancel(true);
+            // cancel the newest batches first, so that none of them starts writing once an older one is cancelled
+            while (!outstandingBatches.isEmpty()) {
+                isCancelled &= outstandingBatches.pollLast().cancel(true);
+            }
         }
-        previousBatch = null;
         return isCancelled;
     }
 
@@ -128,4 +169,21 @@ public class AsynchronousStreamWriter<T> {
                 return bos;
             };
 
+    /**
+     * Convenience function that can be provided to an {@code AsynchronousStreamWriter} to serialize binary buffers.
+     * Each buffer is written as a frame: its length as a 4 byte big-endian integer, followed by its bytes. Frames
+     * can be read in Python with {@code tool.readDataFIFOFrame()}.
+     */
+    public static Function<byte[], ByteArrayOutputStream> framedByteArraySerializer =
+            (byte[] item) -> {
+                final ByteArrayOutputStream bos = new ByteArrayOutputStream(Integer.BYTES + item.length);
+                try (final DataOutputStream dos = new DataOutputStream(bos)) {
+                    dos.writeInt(item.length);
+                    dos.write(item);
+                } catch (IOException e) {
+                    throw new GATKException("IOException converting bytes for serialization", e);
+                }
+                return bos;
+            };
+
 }
@@ -306,6 +306,24 @@ public final class StreamingProcessController extends ProcessControllerBase<Capt
         return new AsynchronousStreamWriter<>(executorService, outputStream, itemSerializer);
     }
 
+    /**
+     * Return a {@link AsynchronousStreamWriter} to be used to write to a stream on a background thread, which allows
+     * several batches to be outstanding at once.
+     * @param outputStream stream to which items should be written.
+     * @param itemSerializer
+     * @param maxOutstandingBatches maximum number of batches that may be outstanding at once
+     * @param <T> Type of items to be written to the stream.
+     * @return {@link AsynchronousStreamWriter}
+     */
+    public <T> AsynchronousStreamWriter<T> getAsynchronousStreamWriter(
+            final OutputStream outputStream,
+            final Function<T, ByteArrayOutputStream> itemSerializer,
+            final int maxOutstandingBatches) {
+        Utils.nonNull(outputStream);
+        Utils.nonNull(itemSerializer);
+        return new AsynchronousStreamWriter<>(executorService, outputStream, itemSerializer, maxOutstandingBatches);
+    }
+
     /**
      * Close the FIFO; called on controller termination
      */
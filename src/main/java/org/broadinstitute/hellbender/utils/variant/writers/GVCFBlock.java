@@ -6,20 +6,18 @@ import htsjdk.variant.variantcontext.Genotype;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.VariantContextBuilder;
 import htsjdk.variant.vcf.VCFConstants;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.Utils;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.LinkedHashMap;
-import java.util.List;
 
 public abstract class GVCFBlock implements Locatable {
     protected final VariantContext startingVC;
     protected final int minGQ;
     protected final int maxGQ;
     protected final Allele ref;
-    protected final List<Integer> DPs = new ArrayList<>();
+    protected final IntArrayList DPs = new IntArrayList();
     protected int end;
 
     public GVCFBlock(final VariantContext startingVC, final int lowerGQBound, final int upperGQBound) {
@@ -66,13 +64,19 @@ public abstract class GVCFBlock implements Locatable {
 
     /** Get the min DP observed within this band */
     public int getMinDP() {
-        return Collections.min(DPs);
+        Utils.validate(!DPs.isEmpty(), "cannot take the minimum DP of an empty band");
+        int result = DPs.getInt(0);
+        for (int i = 1; i < DPs.size(); i++) {
+            result = Math.min(result, DPs.getInt(i));
+        }
+        return result;
     }
 
     /** Get the median DP observed within this band
      * If there are an even number of DPs recorded in this band the median is the mean of the two middle values */
     public int getMedianDP() {
-        return (int) Math.round(MathUtils.median(DPs));
+        Utils.validate(!DPs.isEmpty(), "cannot take the median DP of an empty band");
+        return MathUtils.median(DPs.toIntArray());
     }
 
     int getGQUpperBound() {
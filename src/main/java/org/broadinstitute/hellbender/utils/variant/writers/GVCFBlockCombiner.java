@@ -7,6 +7,7 @@ import com.google.common.collect.TreeRangeMap;
 import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.Genotype;
 import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
 import htsjdk.variant.vcf.VCFConstants;
 import htsjdk.variant.vcf.VCFHeader;
 import htsjdk.variant.vcf.VCFHeaderLine;
@@ -19,6 +20,7 @@ import org.broadinstitute.hellbender.utils.variant.GATKVCFHeaderLines;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Queue;
 
@@ -114,16 +116,8 @@ public class GVCFBlockCombiner implements PushPullTransformer<VariantContext> {
      */
     protected VariantContext addHomRefSite(final VariantContext vc, final Genotype g) {
 
-        if (nextAvailableStart != -1) {
-            //there's a use case here related to ReblockGVCFs for overlapping deletions on different haplotypes
-            if ( vc.getStart() <= nextAvailableStart && vc.getContig().equals(contigOfNextAvailableStart) ) {
-                if (vc.getEnd() <= nextAvailableStart) {
-                    return null;
-                }
-            }
-            // otherwise, reset to non-relevant
-            nextAvailableStart = -1;
-            contigOfNextAvailableStart = null;
+        if (isCoveredByPreviousVariant(vc.getContig(), vc.getStart(), vc.getEnd())) {
+            return null;
         }
 
         final VariantContext result;
@@ -137,6 +131,87 @@ public class GVCFBlockCombiner implements PushPullTransformer<VariantContext> {
         return result;
     }
 
+    /**
+     * Checks whether a hom-ref site is entirely covered by the last variant emitted, resetting that state otherwise.
+     */
+    private boolean isCoveredByPreviousVariant(final String contig, final int start, final int end) {
+        if (nextAvailableStart != -1) {
+            //there's a use case here related to ReblockGVCFs for overlapping deletions on different haplotypes
+            if ( start <= nextAvailableStart && contig.equals(contigOfNextAvailableStart) ) {
+                if (end <= nextAvailableStart) {
+                    return true;
+                }
+            }
+            // otherwise, reset to non-relevant
+            nextAvailableStart = -1;
+            contigOfNextAvailableStart = null;
+        }
+        return false;
+    }
+
+    /**
+     * @return whether hom-ref sites can be submitted as primitive values via {@link #submitHomRefSite}
+     */
+    public boolean canSubmitHomRefSites() {
+        return true;
+    }
+
+    /**
+     * Add a single-base hom-ref site to the current band given only its primitive reference-confidence values.
+     * <p>
+     *     This is equivalent to submitting a biallelic {@code <NON_REF>} site with a hom-ref genotype carrying these
+     *     GQ, DP and PL values, but no {@link VariantContext} or {@link Genotype} is created unless a band starts or closes.
+     * </p>
+     *
+     * @param sampleName the name of the sample, must match that of any other submitted site
+     * @param contig the contig of the site
+     * @param position the position of the site
+     * @param refAllele the reference allele at the site
+     * @param ploidy the ploidy of the hom-ref genotype
+     * @param gq the genotype quality
+     * @param dp the depth
+     * @param pls the phred-scaled genotype likelihoods, not retained by this combiner
+     */
+    public void submitHomRefSite(final String sampleName, final String contig, final int position, final Allele refAllele,
+                                 final int ploidy, final int gq, final int dp, final int[] pls) {
+        Utils.nonNull(sampleName);
+        Utils.nonNull(contig);
+        Utils.nonNull(refAllele);
+        Utils.nonNull(pls);
+
+        if (this.sampleName == null) {
+            this.sampleName = sampleName;
+        }
+
+        if (currentBlock != null && !(position == currentBlock.getEnd() + 1 && contig.equals(currentBlock.getContig()))) {
+            // we've made a non-contiguous step (across interval, onto another chr), so finalize
+            emitCurrentBlock();
+        }
+
+        if (isCoveredByPreviousVariant(contig, position, position)) {
+            return;
+        }
+
+        final HomRefBlock currentHomRefBlock = (HomRefBlock)currentBlock;
+        if (currentHomRefBlock != null
+                && currentHomRefBlock.withinBounds(Math.min(gq, MAX_GENOTYPE_QUAL))
+                && currentHomRefBlock.getPloidy() == ploidy
+                && (currentHomRefBlock.getMinPLs() == null || currentHomRefBlock.getMinPLs().length == pls.length)) {
+            currentHomRefBlock.add(position, position, gq, dp, pls);
+        } else {
+            emitCurrentBlock();
+            final Range<Integer> partition = gqPartitions.get(Math.min(gq, MAX_GENOTYPE_QUAL));
+            if( partition == null) {
+                throw new GATKException("GQ " + gq + " at " + contig + ":" + position + " didn't fit into any partition");
+            }
+            final VariantContext startingVC = new VariantContextBuilder(GVCF_BLOCK, contig, position, position,
+                    Arrays.asList(refAllele, Allele.NON_REF_ALLELE)).make();
+            final HomRefBlock block = new HomRefBlock(startingVC, partition.lowerEndpoint(), partition.upperEndpoint(), ploidy);
+            block.add(position, position, gq, dp, pls);
+            currentBlock = block;
+        }
+    }
+
     boolean genotypeCanBeMergedInCurrentBlock(final Genotype g) {
         final HomRefBlock currentHomRefBlock = (HomRefBlock)currentBlock;
         return currentHomRefBlock != null
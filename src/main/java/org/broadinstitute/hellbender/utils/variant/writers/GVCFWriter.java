@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.utils.variant.writers;
 
+import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
 import htsjdk.variant.vcf.VCFHeader;
@@ -86,6 +87,33 @@ public class GVCFWriter implements VariantContextWriter {
         output();
     }
 
+    /**
+     * @return whether this writer accepts hom-ref sites as primitive values via {@link #addHomRefSite}
+     */
+    public boolean canAddHomRefSites() {
+        return gvcfBlockCombiner.canSubmitHomRefSites();
+    }
+
+    /**
+     * Add a single-base hom-ref site for emission given only its primitive reference-confidence values, avoiding the
+     * creation of a per-site {@link VariantContext}. See {@link GVCFBlockCombiner#submitHomRefSite}.
+     *
+     * @param sampleName the name of the sample
+     * @param contig the contig of the site
+     * @param position the position of the site
+     * @param refAllele the reference allele at the site
+     * @param ploidy the ploidy of the hom-ref genotype
+     * @param gq the genotype quality
+     * @param dp the depth
+     * @param pls the phred-scaled genotype likelihoods
+     * @throws UnsupportedOperationException if {@link #canAddHomRefSites} is false
+     */
+    public void addHomRefSite(final String sampleName, final String contig, final int position, final Allele refAllele,
+                              final int ploidy, final int gq, final int dp, final int[] pls) {
+        gvcfBlockCombiner.submitHomRefSite(sampleName, contig, position, refAllele, ploidy, gq, dp, pls);
+        output();
+    }
+
     private void output() {
         if (gvcfBlockCombiner.hasFinalizedItems()) {
             gvcfBlockCombiner.consumeFinalizedItems().forEach(underlyingWriter::add);
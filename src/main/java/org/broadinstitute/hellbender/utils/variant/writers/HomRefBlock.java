@@ -84,26 +84,9 @@ final class HomRefBlock extends GVCFBlock {
     public void add(final int pos, final int newEnd, final Genotype genotype) {
         Utils.nonNull(genotype, "genotype cannot be null");
         if ( ! genotype.hasPL() ) { throw new IllegalArgumentException("genotype must have PL field");}
-        if ( pos != end + 1 ) { throw new IllegalArgumentException("adding genotype at pos " + pos + " isn't contiguous with previous end " + end); }
         if ( genotype.getPloidy() != ploidy) { throw new IllegalArgumentException("cannot add a genotype with a different ploidy: " + genotype.getPloidy() + " != " + ploidy); }
-        // Make sure the GQ is within the bounds of this band. Treat GQs > 99 as 99.
-        if ( !withinBounds(Math.min(genotype.getGQ(), VCFConstants.MAX_GENOTYPE_QUAL))) {
-            throw new IllegalArgumentException("cannot add a genotype with GQ=" + genotype.getGQ() + " because it's not within bounds ["
-                    + this.getGQLowerBound() + ',' + this.getGQUpperBound() + ')');
-        }
 
-        if( minPLs == null ) {
-            minPLs = genotype.getPL();
-        }
-        else { // otherwise take the min with the provided genotype's PLs
-            final int[] pls = genotype.getPL();
-            if (pls.length != minPLs.length) {
-                throw new GATKException("trying to merge different PL array sizes: " + pls.length + " != " + minPLs.length);
-            }
-            for (int i = 0; i < pls.length; i++) {
-                minPLs[i] = Math.min(minPLs[i], pls[i]);
-            }
-        }
+        add(pos, newEnd, genotype.getGQ(), genotype.getDP(), genotype.getPL());
 
         if( genotype.hasExtendedAttribute(GATKVCFConstants.PHRED_SCALED_POSTERIORS_KEY)) {
             if (minPPs == null ) {
@@ -119,9 +102,41 @@ final class HomRefBlock extends GVCFBlock {
                 }
             }
         }
+    }
+
+    /**
+     * Add a hom-ref site of this block's ploidy to the current block given only its primitive per-position values,
+     * without requiring a {@link Genotype}.
+     *
+     * @param pos current genomic position
+     * @param newEnd new calculated block end position
+     * @param gq the genotype quality of the site
+     * @param dp the depth of the site; negative values are treated as 0
+     * @param pls the phred-scaled likelihoods of the site, which are not retained by this block
+     */
+    public void add(final int pos, final int newEnd, final int gq, final int dp, final int[] pls) {
+        Utils.nonNull(pls, "pls cannot be null");
+        if ( pos != end + 1 ) { throw new IllegalArgumentException("adding genotype at pos " + pos + " isn't contiguous with previous end " + end); }
+        // Make sure the GQ is within the bounds of this band. Treat GQs > 99 as 99.
+        if ( !withinBounds(Math.min(gq, VCFConstants.MAX_GENOTYPE_QUAL))) {
+            throw new IllegalArgumentException("cannot add a genotype with GQ=" + gq + " because it's not within bounds ["
+                    + this.getGQLowerBound() + ',' + this.getGQUpperBound() + ')');
+        }
+
+        if( minPLs == null ) {
+            minPLs = pls.clone();
+        }
+        else { // otherwise take the min with the provided genotype's PLs
+            if (pls.length != minPLs.length) {
+                throw new GATKException("trying to merge different PL array sizes: " + pls.length + " != " + minPLs.length);
+            }
+            for (int i = 0; i < pls.length; i++) {
+                minPLs[i] = Math.min(minPLs[i], pls[i]);
+            }
+        }
 
         end = newEnd;
-        DPs.add(Math.max(genotype.getDP(), 0)); // DP must be >= 0
+        DPs.add(Math.max(dp, 0)); // DP must be >= 0
     }
 
     /** Get the min PLs observed within this band, can be null if no PLs have yet been observed */
@@ -4,6 +4,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Range;
 import com.google.common.collect.RangeMap;
 import com.google.common.collect.TreeRangeMap;
+import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.Genotype;
 import htsjdk.variant.variantcontext.VariantContext;
 import org.broadinstitute.hellbender.exceptions.GATKException;
@@ -38,6 +39,20 @@ public class SomaticGVCFBlockCombiner extends GVCFBlockCombiner{
                 && currentTLODBlock.withinBounds(convertLODtoInt(TLOD, partitionPrecision));
     }
 
+    /**
+     * Somatic bands are based on the TLOD of each site, which isn't among the primitive values of a hom-ref site.
+     */
+    @Override
+    public boolean canSubmitHomRefSites() {
+        return false;
+    }
+
+    @Override
+    public void submitHomRefSite(final String sampleName, final String contig, final int position, final Allele refAllele,
+                                 final int ploidy, final int gq, final int dp, final int[] pls) {
+        throw new UnsupportedOperationException("somatic GVCF bands are based on TLOD and require a VariantContext per site");
+    }
+
     /**
      * Helper function to create a new HomRefBlock from a variant context and current genotype
      *
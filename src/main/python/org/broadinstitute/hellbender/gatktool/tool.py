@@ -8,12 +8,14 @@ and is used to pass data to Python from Java.
 
 Most of the functions in this module are intended to be called by GATK via
 the StreamingPythonScriptExecutor Java class, and are not called by Python
-code directly. The one exception is the readDataFIFO function, which can be
-used to read data that had been passed to Python by GATK Java code.
+code directly. The exceptions are the readDataFIFO and readDataFIFOFrame
+functions, which can be used to read data that had been passed to Python by
+GATK Java code, as lines of text or as length-prefixed binary frames.
 """
 
 import sys
 import os
+import struct
 import cProfile, pstats, io
 import traceback
 from gatktool import toolconstants
@@ -121,6 +123,17 @@ def readDataFIFO() -> str:
     global _dataFIFO
     return _dataFIFO.readLine()
 
+
+def readDataFIFOFrame() -> bytes:
+    """
+    Read a binary frame from the Data FIFO, as written by GATK with
+    AsynchronousStreamWriter.framedByteArraySerializer.
+    :return: bytes
+    """
+    global _dataFIFO
+    return _dataFIFO.readFrame()
+
+
 def startProfiling():
     """
     Start Python CProfile profiling.
@@ -227,9 +240,10 @@ class DataFIFO:
         """Open the data stream fifo for reading"""
         self.dataFIFOName = dataFIFOName
 
-        # the data fifo is always opened for read only on the python side
+        # the data fifo is always opened for read only on the python side, in binary mode so that
+        # lines of text and binary frames can both be read from it
         readDescriptor = os.open(self.dataFIFOName, os.O_RDONLY)
-        self.fileReader = os.fdopen(readDescriptor, 'r')
+        self.fileReader = os.fdopen(readDescriptor, 'rb')
 
     def readLine(self) -> str:
         """
@@ -238,7 +252,23 @@ class DataFIFO:
         """
         if self.fileReader is None:
             raise RuntimeError("data FIFO reader has not been initialized")
-        return self.fileReader.readline()
+        return self.fileReader.readline().decode()
+
+    def readFrame(self) -> bytes:
+        """
+        Read a single frame from the Data FIFO: a 4 byte big-endian length followed by that many bytes.
+        :return: bytes
+        """
+        if self.fileReader is None:
+            raise RuntimeError("data FIFO reader has not been initialized")
+        frameLength = struct.unpack('>i', self._readFully(4))[0]
+        return self._readFully(frameLength)
+
+    def _readFully(self, length: int) -> bytes:
+        data = self.fileReader.read(length)
+        if len(data) != length:
+            raise RuntimeError("data FIFO was closed in the middle of a frame")
+        return data
 
     def close(self):
         if self.fileReader is None:
@@ -1,6 +1,7 @@
 from .models import build_2d_annotation_model_from_args, build_1d_annotation_model_from_args
 from .models import build_default_1d_annotation_model, build_default_2d_annotation_model
 from .models import start_session_get_args_and_model, train_model_from_generators
+from .models import args_and_model_from_semantics, export_model_for_java
 from .tensor_maps import get_tensor_channel_map_from_args, tensor_shape_from_args
 from .arguments import parse_args, weight_path_from_args, annotations_from_args
 from .inference import score_and_write_batch
@@ -1,5 +1,7 @@
 import os
 import json
+import struct
+import numpy as np
 
 # Keras Imports
 from keras import layers
@@ -609,4 +611,116 @@ def serialize_model_semantics(args, architecture_hd5):
     with open(json_file_name, 'w') as outfile:
         json.dump(semantics, outfile)
 
-    print('Saved model semantics at:', json_file_name)
\ No newline at end of file
+    print('Saved model semantics at:', json_file_name)
+
+# The format of models exported for inference in Java, read by CNNInferenceModel.java. Must be kept in sync.
+JAVA_MODEL_MAGIC = 0x47434E4E  # "GCNN"
+JAVA_MODEL_VERSION = 1
+JAVA_DROPOUT_LAYERS = ['Dropout', 'SpatialDropout1D', 'SpatialDropout2D', 'AlphaDropout']
+
+
+def export_model_for_java(model, java_model_file):
+    """Export a model for inference in Java, without Python, with the --java-inference-model argument of CNNScoreVariants.
+
+    The layers are written in topological order, model inputs first.  1D convolution and pooling layers are written as
+    2D layers of height 1.  Only channels_last models of the layer types built in this module are supported.
+
+    Arguments
+        model: a keras model, for example from args_and_model_from_semantics()
+        java_model_file: the file to write the exported model to
+    """
+    if K.image_data_format() != 'channels_last':
+        raise ValueError('Only channels_last models can be exported for inference in Java.')
+
+    input_layers = [t._keras_history[0] for t in model.inputs]
+    layer_order = input_layers + [l for l in model.layers if l not in input_layers]
+    layer_indices = {l.name: i for i, l in enumerate(layer_order)}
+    output_layer = model.outputs[0]._keras_history[0]
+
+    with open(java_model_file, 'wb') as out:
+        out.write(struct.pack('>iii', JAVA_MODEL_MAGIC, JAVA_MODEL_VERSION, len(layer_order)))
+        for layer in layer_order:
+            layer_type, activation, int_params, float_params, weights = _java_layer_parameters(layer)
+            nodes = getattr(layer, '_inbound_nodes', None) or layer.inbound_nodes
+            inputs = [] if layer in input_layers else [layer_indices[l.name] for l in nodes[0].inbound_layers]
+            _write_java_utf(out, layer_type)
+            _write_java_utf(out, layer.name)
+            _write_java_ints(out, inputs)
+            _write_java_ints(out, layer.output_shape[1:])
+            _write_java_utf(out, activation)
+            _write_java_ints(out, int_params)
+            _write_java_floats(out, float_params)
+            out.write(struct.pack('>i', len(weights)))
+            for w in weights:
+                _write_java_floats(out, w)
+        out.write(struct.pack('>i', layer_indices[output_layer.name]))
+
+    print('Exported model for inference in Java at:', java_model_file)
+
+
+def _java_layer_parameters(layer):
+    """Returns the type, activation, int parameters, float parameters and weights of a layer, as read in Java."""
+    layer_type = layer.__class__.__name__
+    config = layer.get_config()
+    activation = config.get('activation', 'linear')
+
+    if layer_type == 'InputLayer':
+        return 'Input', 'linear', [], [], []
+    elif layer_type == 'Dense':
+        return 'Dense', activation, [config['units']], [], _java_kernel_and_bias(layer)
+    elif layer_type in ['Conv1D', 'Conv2D']:
+        if any(d != 1 for d in config['dilation_rate']) or config['padding'] not in ['valid', 'same']:
+            raise ValueError('Unsupported dilation or padding for inference in Java in layer:', layer.name)
+        kernel = (1,) + tuple(config['kernel_size']) if layer_type == 'Conv1D' else tuple(config['kernel_size'])
+        strides = (1,) + tuple(config['strides']) if layer_type == 'Conv1D' else tuple(config['strides'])
+        int_params = list(kernel) + list(strides) + [int(config['padding'] == 'same'), config['filters']]
+        return 'Conv', activation, int_params, [], _java_kernel_and_bias(layer)
+    elif layer_type in ['MaxPooling1D', 'MaxPooling2D']:
+        if layer_type == 'MaxPooling1D':
+            pool, strides = (1, config['pool_size'][0]), (1, config['strides'][0])
+        else:
+            pool, strides = tuple(config['pool_size']), tuple(config['strides'])
+        return 'MaxPool', 'linear', list(pool) + list(strides) + [int(config['padding'] == 'same')], [], []
+    elif layer_type == 'BatchNormalization':
+        if config['axis'] not in [-1, len(layer.input_shape) - 1]:
+            raise ValueError('Only batch normalization over the last axis is supported for inference in Java:', layer.name)
+        weights = list(layer.get_weights())
+        channels = layer.input_shape[-1]
+        gamma = weights.pop(0) if config['scale'] else np.ones(channels)
+        beta = weights.pop(0) if config['center'] else np.zeros(channels)
+        return 'BatchNorm', 'linear', [], [config['epsilon']], [gamma, beta, weights[0], weights[1]]
+    elif layer_type == 'Activation':
+        return 'Activation', activation, [], [], []
+    elif layer_type == 'Flatten':
+        return 'Flatten', 'linear', [], [], []
+    elif layer_type in JAVA_DROPOUT_LAYERS:
+        return 'Identity', 'linear', [], [], []
+    elif layer_type == 'Concatenate':
+        if config['axis'] not in [-1, len(layer.output_shape) - 1]:
+            raise ValueError('Only concatenation on the last axis is supported for inference in Java:', layer.name)
+        return 'Concatenate', 'linear', [], [], []
+    else:
+        raise ValueError('Unsupported layer type for inference in Java:', layer_type)
+
+
+def _java_kernel_and_bias(layer):
+    weights = layer.get_weights()
+    bias = weights[1] if len(weights) > 1 else np.zeros(weights[0].shape[-1])
+    return [weights[0], bias]
+
+
+def _write_java_utf(out, string):
+    encoded = string.encode('utf-8')
+    out.write(struct.pack('>H', len(encoded)))
+    out.write(encoded)
+
+
+def _write_java_ints(out, values):
+    out.write(struct.pack('>i', len(values)))
+    out.write(struct.pack('>%di' % len(values), *values))
+
+
+def _write_java_floats(out, values):
+    flat = np.asarray(values, dtype='>f4').flatten()
+    out.write(struct.pack('>i', len(flat)))
+    out.write(flat.tobytes())
@@ -0,0 +1,87 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public final class VariantStartMergingIteratorUnitTest extends GATKBaseTest {
+
+    // contig "2" comes before contig "1", so that lexicographic order would be wrong
+    private static final SAMSequenceDictionary DICTIONARY = new SAMSequenceDictionary(Arrays.asList(
+            new SAMSequenceRecord("2", 1000), new SAMSequenceRecord("1", 1000)));
+
+    private static VariantContext makeVariant(final String source, final String contig, final int start) {
+        return new VariantContextBuilder(source, contig, start, start, Arrays.asList(Allele.REF_A, Allele.ALT_C)).make();
+    }
+
+    private static CloseableIterator<VariantContext> asCloseableIterator(final VariantContext... variants) {
+        final Iterator<VariantContext> it = Arrays.asList(variants).iterator();
+        return new CloseableIterator<VariantContext>() {
+            @Override
+            public void close() { }
+
+            @Override
+            public boolean hasNext() { return it.hasNext(); }
+
+            @Override
+            public VariantContext next() { return it.next(); }
+        };
+    }
+
+    @Test
+    public void testMergeOrdersByDictionaryThenStartThenSource() {
+        final List<CloseableIterator<VariantContext>> sources = Arrays.asList(
+                asCloseableIterator(makeVariant("a", "2", 10), makeVariant("a", "1", 5), makeVariant("a", "1", 20)),
+                asCloseableIterator(),
+                asCloseableIterator(makeVariant("c", "2", 10), makeVariant("c", "2", 15), makeVariant("c", "1", 5)),
+                asCloseableIterator(makeVariant("d", "2", 1), makeVariant("d", "1", 20)));
+
+        final List<String> merged = new ArrayList<>();
+        try (final VariantStartMergingIterator it = new VariantStartMergingIterator(DICTIONARY, sources)) {
+            it.forEachRemaining(vc -> merged.add(vc.getSource() + "@" + vc.getContig() + ":" + vc.getStart()));
+        }
+
+        Assert.assertEquals(merged, Arrays.asList("d@2:1", "a@2:10", "c@2:10", "c@2:15", "a@1:5", "c@1:5", "a@1:20", "d@1:20"));
+    }
+
+    @Test
+    public void testManySourcesWithTies() {
+        final List<CloseableIterator<VariantContext>> sources = new ArrayList<>();
+        for ( int source = 0; source < 50; source++ ) {
+            sources.add(asCloseableIterator(makeVariant(String.valueOf(source), "2", 100 - source % 3), makeVariant(String.valueOf(source), "1", 7)));
+        }
+
+        final List<VariantContext> merged = new ArrayList<>();
+        new VariantStartMergingIterator(DICTIONARY, sources).forEachRemaining(merged::add);
+
+        Assert.assertEquals(merged.size(), 100);
+        for ( int i = 1; i < merged.size(); i++ ) {
+            final VariantContext previous = merged.get(i - 1);
+            final VariantContext current = merged.get(i);
+            final int contigOrder = Integer.compare(DICTIONARY.getSequenceIndex(previous.getContig()), DICTIONARY.getSequenceIndex(current.getContig()));
+            Assert.assertTrue(contigOrder < 0 || (contigOrder == 0 && previous.getStart() <= current.getStart()));
+            if ( contigOrder == 0 && previous.getStart() == current.getStart() ) {
+                Assert.assertTrue(Integer.parseInt(previous.getSource()) < Integer.parseInt(current.getSource()));
+            }
+        }
+        Assert.assertEquals(merged.stream().filter(vc -> vc.getContig().equals("1")).map(VariantContext::getSource).collect(Collectors.toList()).size(), 50);
+    }
+
+    @Test(expectedExceptions = UserException.class)
+    public void testContigMissingFromDictionary() {
+        new VariantStartMergingIterator(DICTIONARY, Arrays.asList(asCloseableIterator(makeVariant("a", "3", 10))));
+    }
+}
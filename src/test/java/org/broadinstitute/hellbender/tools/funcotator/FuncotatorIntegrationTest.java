@@ -1452,6 +1452,45 @@ public class FuncotatorIntegrationTest extends CommandLineProgramTest {
         Assert.assertEquals(Sets.intersection(funcotationKeys, PIK3CA_VCF_HG19_INPUT_FIELDS).size(), 0);
     }
 
+    @Test
+    public void testMultithreadedAnnotationMatchesSingleThreaded() {
+        final FuncotatorArgumentDefinitions.OutputFormatType outputFormatType = FuncotatorArgumentDefinitions.OutputFormatType.VCF;
+        final List<List<VariantContext>> outputs = new ArrayList<>();
+
+        for ( final int annotationThreads : new int[] {1, 3} ) {
+            final File outputFile = getOutputFile(outputFormatType);
+            final ArgumentsBuilder arguments = createBaselineArgumentsForFuncotator(
+                    PIK3CA_VCF_HG19,
+                    outputFile,
+                    b37Chr3Ref,
+                    DS_PIK3CA_DIR,
+                    FuncotatorTestConstants.REFERENCE_VERSION_HG19,
+                    outputFormatType,
+                    false);
+            arguments.addArgument(FuncotatorArgumentDefinitions.TRANSCRIPT_SELECTION_MODE_LONG_NAME, TranscriptSelectionMode.CANONICAL.toString());
+            arguments.addBooleanArgument(FuncotatorArgumentDefinitions.FORCE_B37_TO_HG19_REFERENCE_CONTIG_CONVERSION, true);
+            arguments.addArgument(FuncotatorArgumentDefinitions.ANNOTATION_THREADS_LONG_NAME, String.valueOf(annotationThreads));
+
+            runCommandLine(arguments);
+
+            outputs.add(VariantContextTestUtils.readEntireVCFIntoMemory(outputFile.getAbsolutePath()).getRight());
+        }
+
+        final List<VariantContext> singleThreaded = outputs.get(0);
+        final List<VariantContext> multithreaded = outputs.get(1);
+        Assert.assertTrue(singleThreaded.size() > 0);
+        Assert.assertEquals(multithreaded.size(), singleThreaded.size());
+        for ( int i = 0; i < singleThreaded.size(); i++ ) {
+            final VariantContext expected = singleThreaded.get(i);
+            final VariantContext actual = multithreaded.get(i);
+            Assert.assertEquals(actual.getContig(), expected.getContig());
+            Assert.assertEquals(actual.getStart(), expected.getStart());
+            Assert.assertEquals(actual.getAlleles(), expected.getAlleles());
+            Assert.assertEquals(actual.getAttributeAsString(VcfOutputRenderer.FUNCOTATOR_VCF_FIELD_NAME, ""),
+                    expected.getAttributeAsString(VcfOutputRenderer.FUNCOTATOR_VCF_FIELD_NAME, ""));
+        }
+    }
+
     @DataProvider
     public Object[][] provideTNVcfs() {
         // These two VCFs are exactly the same, except how the sample names are handled.
@@ -280,4 +280,85 @@ public class CosmicFuncotationFactoryUnitTest extends GATKBaseTest {
             expected
         );
     }
+
+    @Test
+    public void testCreateFuncotationsWithCachedGeneRecords() {
+        // Annotate all the test cases twice with the same factory, so that the second pass only uses cached records.
+        // Nothing is preloaded, so that the records are queried by gene:
+        final CosmicFuncotationFactory cosmicFuncotationFactory =
+                new CosmicFuncotationFactory(PATH_TO_TEST_DB, new LinkedHashMap<>(), CosmicFuncotationFactory.DEFAULT_VERSION_STRING, false, 0);
+
+        for ( int pass = 0; pass < 2; ++pass ) {
+            for ( final Object[] testCase : provideForTestCreateFuncotations() ) {
+                @SuppressWarnings("unchecked")
+                final List<Feature> featureList = (List<Feature>) testCase[2];
+                @SuppressWarnings("unchecked")
+                final List<GencodeFuncotation> gencodeFuncotations = (List<GencodeFuncotation>) testCase[3];
+
+                Assert.assertEquals(
+                    cosmicFuncotationFactory.createFuncotationsOnVariant(
+                        (VariantContext) testCase[0],
+                        (ReferenceContext) testCase[1],
+                        featureList,
+                        gencodeFuncotations
+                    ),
+                    testCase[4]
+                );
+            }
+        }
+    }
+
+    @DataProvider
+    private Object[][] provideForTestMixedCaseGeneNames() {
+        return new Object[][] {
+                // When the DB compares gene names ignoring case, records of all cases match, whether preloaded or queried:
+                { "COLLATE NOCASE", CosmicFuncotationFactory.DEFAULT_MAX_PRELOADED_RECORDS, "p.E545K(2)|p.H1047R(1)" },
+                { "COLLATE NOCASE", 0, "p.E545K(2)|p.H1047R(1)" },
+                // Otherwise only the records with exactly the same gene name match:
+                { "", CosmicFuncotationFactory.DEFAULT_MAX_PRELOADED_RECORDS, "p.E545K(1)" },
+                { "", 0, "p.E545K(1)" },
+        };
+    }
+
+    @Test(dataProvider = "provideForTestMixedCaseGeneNames")
+    public void testMixedCaseGeneNames(final String geneNameCollation, final int maxPreloadedRecords, final String expectedMutations) throws SQLException {
+        final File dbFile = createTempFile("mixedCaseCosmic", ".db");
+        try ( final Connection connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath());
+              final Statement statement = connection.createStatement() ) {
+            statement.executeUpdate("CREATE TABLE Cosmic (\"Gene name\" TEXT " + geneNameCollation + ", \"Mutation AA\" TEXT, \"Mutation genome position\" TEXT);");
+            statement.executeUpdate("CREATE INDEX GeneIndex ON Cosmic(\"Gene name\");");
+            statement.executeUpdate("INSERT INTO Cosmic VALUES " +
+                    "('PIK3CA', 'p.E545K', '3:178936091-178936091'), " +
+                    "('Pik3ca', 'p.E545K', '3:178936091-178936091'), " +
+                    "('pik3ca', 'p.H1047R', '3:178936091-178936091'), " +
+                    "('PIK3CB', 'p.E545K', '3:178936091-178936091');");
+        }
+
+        final CosmicFuncotationFactory cosmicFuncotationFactory =
+                new CosmicFuncotationFactory(dbFile.toPath(), new LinkedHashMap<>(), CosmicFuncotationFactory.DEFAULT_VERSION_STRING, false, maxPreloadedRecords);
+        final VariantContext variant = createVariantContext("chr3", 178936091, 178936091, "G", "A");
+        final List<GencodeFuncotation> gencodeFuncotations = Collections.singletonList(
+                new GencodeFuncotationBuilder().setHugoSymbol("PIK3CA").setChromosome("chr3").setStart(178936091).setEnd(178936091).setProteinChange("p.E999K").build()
+        );
+
+        // Annotate twice, so that the second time the queried records come from the cache:
+        for ( int pass = 0; pass < 2; ++pass ) {
+            Assert.assertEquals(
+                    cosmicFuncotationFactory.createFuncotationsOnVariant(variant, defaultReferenceContext, Collections.emptyList(), gencodeFuncotations),
+                    Collections.singletonList(
+                            TableFuncotation.create(Collections.singletonList("Cosmic_overlapping_mutations"), Collections.singletonList(expectedMutations), Allele.create("A"), "Cosmic", null)
+                    )
+            );
+        }
+        cosmicFuncotationFactory.close();
+    }
+
+    @Test
+    public void testCompareIgnoringAsciiCase() {
+        Assert.assertEquals(CosmicFuncotationFactory.compareIgnoringAsciiCase("C1orf112", "C1ORF112"), 0);
+        Assert.assertTrue(CosmicFuncotationFactory.compareIgnoringAsciiCase("abc", "ABD") < 0);
+        Assert.assertTrue(CosmicFuncotationFactory.compareIgnoringAsciiCase("ABCD", "abc") > 0);
+        // Like SQLite's NOCASE, only ASCII letters are folded:
+        Assert.assertNotEquals(CosmicFuncotationFactory.compareIgnoringAsciiCase("\u00e9", "\u00c9"), 0);
+    }
 }
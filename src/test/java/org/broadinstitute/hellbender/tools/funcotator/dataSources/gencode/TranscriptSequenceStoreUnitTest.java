@@ -0,0 +1,84 @@
+package org.broadinstitute.hellbender.tools.funcotator.dataSources.gencode;
+
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.SAMSequenceRecord;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.ReferenceDataSource;
+import org.broadinstitute.hellbender.tools.funcotator.FuncotatorTestConstants;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.reference.ReferenceUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Unit test class for the {@link TranscriptSequenceStore} class.
+ */
+public class TranscriptSequenceStoreUnitTest extends GATKBaseTest {
+
+    private static final Path TRANSCRIPT_FASTA = IOUtils.getPath(FuncotatorTestConstants.MUC16_ALL_TRANSCRIPTS_GENCODE_TRANSCRIPT_FASTA_FILE);
+
+    private static Path writeStore() {
+        final File storeFile = createTempFile("transcripts", TranscriptSequenceStore.STORE_EXTENSION);
+        try ( final ReferenceDataSource transcriptFasta = ReferenceDataSource.of(TRANSCRIPT_FASTA) ) {
+            TranscriptSequenceStore.writeStore(transcriptFasta, storeFile.toPath());
+        }
+        return storeFile.toPath();
+    }
+
+    @Test
+    public void testStoreMatchesFasta() {
+        try ( final ReferenceDataSource transcriptFasta = ReferenceDataSource.of(TRANSCRIPT_FASTA);
+              final TranscriptSequenceStore store = TranscriptSequenceStore.open(writeStore()) ) {
+
+            Assert.assertEquals(store.getSequenceDictionary().size(), transcriptFasta.getSequenceDictionary().size());
+            Assert.assertTrue(store.getSequenceDictionary().size() > 0);
+
+            for ( final SAMSequenceRecord sequence : transcriptFasta.getSequenceDictionary().getSequences() ) {
+                final String name = sequence.getSequenceName();
+                final int length = sequence.getSequenceLength();
+
+                Assert.assertEquals(store.getSequenceDictionary().getSequence(name).getSequenceLength(), length);
+                Assert.assertEquals(store.getSequenceDictionary().getSequenceIndex(name), sequence.getSequenceIndex());
+
+                // Whole sequence, first base, last base, and a slice in the middle:
+                Assert.assertEquals(store.queryAndPrefetch(name, 1, length).getBases(), transcriptFasta.queryAndPrefetch(name, 1, length).getBases());
+                Assert.assertEquals(store.queryAndPrefetch(name, 1, 1).getBases(), transcriptFasta.queryAndPrefetch(name, 1, 1).getBases());
+                Assert.assertEquals(store.queryAndPrefetch(name, length, length).getBases(), transcriptFasta.queryAndPrefetch(name, length, length).getBases());
+                Assert.assertEquals(store.queryAndPrefetch(name, length / 3 + 1, 2 * length / 3 + 1).getBaseString(),
+                        transcriptFasta.queryAndPrefetch(name, length / 3 + 1, 2 * length / 3 + 1).getBaseString());
+            }
+        }
+    }
+
+    @Test(expectedExceptions = SAMException.class)
+    public void testQueryPastEndOfSequence() {
+        try ( final TranscriptSequenceStore store = TranscriptSequenceStore.open(writeStore()) ) {
+            final SAMSequenceRecord sequence = store.getSequenceDictionary().getSequence(0);
+            store.queryAndPrefetch(sequence.getSequenceName(), 1, sequence.getSequenceLength() + 1);
+        }
+    }
+
+    @Test
+    public void testOfUsesStoreOnlyWhenPresent() throws IOException {
+        try ( final ReferenceDataSource transcripts = TranscriptSequenceStore.of(TRANSCRIPT_FASTA) ) {
+            Assert.assertFalse(transcripts instanceof TranscriptSequenceStore);
+        }
+
+        // Copy the FASTA next to a store for it:
+        final Path dir = createTempDir("transcriptSequenceStore").toPath();
+        final Path fasta = dir.resolve(TRANSCRIPT_FASTA.getFileName().toString());
+        Files.copy(TRANSCRIPT_FASTA, fasta);
+        Files.copy(IOUtils.getPath(ReferenceUtils.getFastaIndexFileName(TRANSCRIPT_FASTA.toString())), IOUtils.getPath(ReferenceUtils.getFastaIndexFileName(fasta.toString())));
+        Files.copy(IOUtils.getPath(ReferenceUtils.getFastaDictionaryFileName(TRANSCRIPT_FASTA.toString())), IOUtils.getPath(ReferenceUtils.getFastaDictionaryFileName(fasta.toString())));
+        Files.copy(writeStore(), TranscriptSequenceStore.getStorePath(fasta));
+
+        try ( final ReferenceDataSource transcripts = TranscriptSequenceStore.of(fasta) ) {
+            Assert.assertTrue(transcripts instanceof TranscriptSequenceStore);
+        }
+    }
+}
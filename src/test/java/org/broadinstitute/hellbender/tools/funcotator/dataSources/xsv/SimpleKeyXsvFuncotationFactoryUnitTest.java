@@ -13,6 +13,7 @@ import org.broadinstitute.hellbender.tools.funcotator.dataSources.TableFuncotati
 import org.broadinstitute.hellbender.tools.funcotator.dataSources.gencode.GencodeFuncotation;
 import org.broadinstitute.hellbender.tools.funcotator.dataSources.gencode.GencodeFuncotationBuilder;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
 import org.broadinstitute.hellbender.testutils.FuncotatorReferenceTestUtils;
 import org.testng.Assert;
@@ -20,8 +21,11 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * Unit test class for {@link SimpleKeyXsvFuncotationFactory}.
@@ -425,4 +429,77 @@ public class SimpleKeyXsvFuncotationFactoryUnitTest extends GATKBaseTest {
         final TableFuncotation tableFuncotation = (TableFuncotation)funcotation;
         Assert.assertEquals(tableFuncotation.get(defaultName + "_Beatle"), "Harrison", "Wrong value for the Beatle column in returned funcotation");
     }
+
+    @DataProvider
+    private Object[][] provideForTestIndexedRowsMatchInMemoryRows() {
+        return new Object[][] {
+                { FuncotatorTestConstants.XSV_CSV_FILE_PATH, "," },
+                { FuncotatorTestConstants.XSV_TSV_FILE_PATH, "\t" },
+                { FuncotatorTestConstants.XSV_DEADBEEFSV_FILE_PATH, "DEADBEEF" },
+                { FuncotatorTestConstants.XSV_PIPESV_FILE_PATH, "|" },
+                { createXsvWithLongRows().getAbsolutePath(), "," },
+        };
+    }
+
+    /**
+     * @return A CSV file whose rows are alternately shorter and longer than the buffer rows are read into.
+     */
+    private static File createXsvWithLongRows() {
+        final File xsv = createTempFile("longRows", ".csv");
+        final List<String> lines = new ArrayList<>();
+        lines.add("Gene,Value,Other");
+        for ( int i = 0; i < 6; ++i ) {
+            final int length = (i % 2 == 0) ? 10 : 70_000 * i;
+            lines.add(String.format("GENE%d,%s,%d", i, String.join("", Collections.nCopies(length, Integer.toString(i))), i));
+        }
+        try {
+            Files.write(xsv.toPath(), lines);
+        }
+        catch (final IOException ex) {
+            throw new GATKException("Could not write test file: " + xsv, ex);
+        }
+        return xsv;
+    }
+
+    @Test(dataProvider = "provideForTestIndexedRowsMatchInMemoryRows")
+    public void testIndexedRowsMatchInMemoryRows(final String filePath, final String delimiter) throws IOException {
+        final Path path = IOUtils.getPath(filePath);
+
+        final SimpleKeyXsvFuncotationFactory inMemoryFactory = new SimpleKeyXsvFuncotationFactory(
+                defaultName, path, "VERSION", delimiter, 0, SimpleKeyXsvFuncotationFactory.XsvDataKeyType.GENE_NAME,
+                new LinkedHashMap<>(), 0, false, false, false);
+        final SimpleKeyXsvFuncotationFactory indexedFactory = new SimpleKeyXsvFuncotationFactory(
+                defaultName, path, "VERSION", delimiter, 0, SimpleKeyXsvFuncotationFactory.XsvDataKeyType.GENE_NAME,
+                new LinkedHashMap<>(), 0, false, false, true);
+
+        Assert.assertEquals(indexedFactory.getSupportedFuncotationFields(), inMemoryFactory.getSupportedFuncotationFields());
+
+        // Every key in the file, and one that is not:
+        final List<String> keys = Files.readAllLines(path).stream()
+                .skip(1)
+                .filter(line -> !line.isEmpty())
+                .map(line -> Utils.split(line, delimiter).get(0))
+                .collect(Collectors.toList());
+        Assert.assertFalse(keys.isEmpty());
+        keys.add("NOT A KEY IN THE FILE");
+
+        try {
+            // Twice, so that the second time the indexed rows come from the cache:
+            for ( int pass = 0; pass < 2; ++pass ) {
+                for ( final String key : keys ) {
+                    final List<GencodeFuncotation> gencodeFuncotations =
+                            Collections.singletonList(new GencodeFuncotationBuilder().setHugoSymbol(key).build());
+                    Assert.assertEquals(
+                            indexedFactory.createFuncotationsOnVariant(defaultVariantContext, defaultReferenceContext, Collections.emptyList(), gencodeFuncotations),
+                            inMemoryFactory.createFuncotationsOnVariant(defaultVariantContext, defaultReferenceContext, Collections.emptyList(), gencodeFuncotations),
+                            "Funcotations differ for key: " + key
+                    );
+                }
+            }
+        }
+        finally {
+            indexedFactory.close();
+            inMemoryFactory.close();
+        }
+    }
 }
@@ -6,6 +6,7 @@ import org.apache.commons.io.FileUtils;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.engine.spark.datasources.ReferenceFileSparkSource;
 import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerShort;
+import org.broadinstitute.hellbender.tools.spark.utils.BlockedLongBloomFilter;
 import org.broadinstitute.hellbender.tools.spark.utils.LargeLongHopscotchSet;
 import org.broadinstitute.hellbender.tools.spark.utils.LongBloomFilter;
 import org.broadinstitute.hellbender.tools.spark.utils.LongIterator;
@@ -169,4 +170,67 @@ public class PSKmerUtilsTest extends CommandLineProgramTest {
         }
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testReadWriteBlockedBloomFilter() {
+        final int numElements = 100000;
+        final int kSize = 31;
+        final SVKmerShort mask = SVKmerShort.getMask(new byte[]{15}, kSize);
+        final Random rand = new Random(SEED);
+
+        final long[] rawKmers = new long[numElements];
+        final BlockedLongBloomFilter bfOut = new BlockedLongBloomFilter(numElements, 0.01);
+        for (int i = 0; i < numElements; i++) {
+            rawKmers[i] = rand.nextLong() >>> 2;
+            bfOut.add(PSKmerCollection.canonicalizeAndMask(new SVKmerShort(rawKmers[i]), kSize, mask));
+        }
+
+        final File bfFile = createTempFile("set", ".bin");
+        final PSKmerBlockedBloomFilter truthFilter = new PSKmerBlockedBloomFilter(bfOut, kSize, mask, numElements);
+        PSKmerUtils.writeKmerBlockedBloomFilter(bfFile.getPath(), truthFilter);
+        new File(bfFile.getPath() + PSKmerUtils.BLOCKED_BLOOM_FILTER_EXTENSION).deleteOnExit();
+
+        final PSKmerCollection bloomIn = PSKmerUtils.readKmerFilter(bfFile.getPath() + PSKmerUtils.BLOCKED_BLOOM_FILTER_EXTENSION);
+        Assert.assertTrue(bloomIn instanceof PSKmerBlockedBloomFilter);
+        Assert.assertEquals(bloomIn.kmerSize(), kSize);
+        Assert.assertEquals(bloomIn.getMask(), mask);
+        Assert.assertEquals(bloomIn.getFalsePositiveProbability(), truthFilter.getFalsePositiveProbability());
+        for (final long rawKmer : rawKmers) {
+            Assert.assertTrue(bloomIn.contains(new SVKmerShort(rawKmer)), "Blocked Bloom filter changed after writing/reading");
+        }
+        Assert.assertEquals(((PSKmerBlockedBloomFilter) bloomIn).countContained(rawKmers, numElements, numElements), numElements);
+        Assert.assertEquals(((PSKmerBlockedBloomFilter) bloomIn).countContained(rawKmers, numElements, 10), 10);
+    }
+
+    @Test
+    public void testReadWriteMappedSet() {
+        final int numElements = 100000;
+        final int kSize = 31;
+        final SVKmerShort mask = SVKmerShort.getMask(new byte[]{15}, kSize);
+        final Random rand = new Random(SEED);
+
+        final LargeLongHopscotchSet hssMasked = new LargeLongHopscotchSet(numElements);
+        Assert.assertTrue(hssMasked.getSets().size() > 1);
+        for (int i = 0; i < numElements; i++) {
+            hssMasked.add(PSKmerCollection.canonicalizeAndMask(new SVKmerShort(rand.nextLong() >>> 2), kSize, mask));
+        }
+
+        final File hssFile = createTempFile("set", ".bin");
+        PSKmerUtils.writeKmerMappedSet(hssFile.getPath(), hssMasked, kSize, mask);
+        new File(hssFile.getPath() + PSKmerUtils.MAPPED_HOPSCOTCH_SET_EXTENSION).deleteOnExit();
+
+        final PSKmerCollection setIn = PSKmerUtils.readKmerFilter(hssFile.getPath() + PSKmerUtils.MAPPED_HOPSCOTCH_SET_EXTENSION);
+        Assert.assertTrue(setIn instanceof PSKmerMappedSet);
+        Assert.assertEquals(((PSKmerMappedSet) setIn).setSize(), hssMasked.size());
+        Assert.assertEquals(setIn.kmerSize(), kSize);
+        Assert.assertEquals(setIn.getMask(), mask);
+        Assert.assertEquals(setIn.getFalsePositiveProbability(), 0.);
+        final LongIterator hssIter = hssMasked.iterator();
+        while (hssIter.hasNext()) {
+            Assert.assertTrue(setIn.contains(new SVKmerShort(hssIter.next())), "Mapped hash set changed after writing/reading");
+        }
+        for (int i = 0; i < 10000; i++) {
+            final long val = rand.nextLong() >>> 2;
+            Assert.assertEquals(setIn.contains(new SVKmerShort(val)), hssMasked.contains(PSKmerCollection.canonicalizeAndMask(new SVKmerShort(val), kSize, mask)), "Mapped hash set changed after writing/reading");
+        }
+    }
+}
@@ -418,6 +418,40 @@ public class PSScorerTest extends CommandLineProgramTest {
         checkComputedScores(resultMap, divideByGenomeLength, notNormalizedByKingdom);
     }
 
+    @Test
+    public void testComputeTaxScoreTable() {
+        final PSTree tree = new PSTree(1);
+        tree.addNode(2, "n2", 1, 0, PSTaxonomyConstants.KINGDOM_RANK_NAME);
+        tree.addNode(3, "n3", 2, 100, "species");
+        tree.addNode(4, "n4", 1, 0, PSTaxonomyConstants.SUPERKINGDOM_RANK_NAME);
+        tree.addNode(5, "n5", 2, 100, "species");
+        tree.addNode(6, "n6", 4, 100, "species");
+        tree.addNode(7, "n7", 4, 100, "species");
+        final PSScoringTaxonomy taxonomy = PSScoringTaxonomy.fromDatabase(new PSTaxonomyDatabase(tree, null));
+
+        final List<PSPathogenAlignmentHit> readTaxHits = new ArrayList<>();
+        readTaxHits.add(new PSPathogenAlignmentHit(Arrays.asList(4), 2)); //Invalid hit, ref length 0
+        readTaxHits.add(new PSPathogenAlignmentHit(Arrays.asList(3), 2));
+        readTaxHits.add(new PSPathogenAlignmentHit(Arrays.asList(3, 6, 3), 2));
+        readTaxHits.add(new PSPathogenAlignmentHit(Arrays.asList(5), 2));
+        readTaxHits.add(new PSPathogenAlignmentHit(Arrays.asList(6), 1));
+        readTaxHits.add(new PSPathogenAlignmentHit(Arrays.asList(8), 2)); //Invalid hit, not in tree
+
+        for (final boolean divideByGenomeLength : new boolean[]{true, false}) {
+            for (final boolean notNormalizedByKingdom : new boolean[]{true, false}) {
+                final PSTaxonScoreTable table = PSScorer.computeTaxScoreTable(readTaxHits.iterator(), taxonomy, divideByGenomeLength);
+                checkComputedScores(PSScorer.computeNormalizedScores(table.toTaxonScores(taxonomy), tree, notNormalizedByKingdom),
+                        divideByGenomeLength, notNormalizedByKingdom);
+
+                //Scoring the hits in two partitions and merging the tables gives the same scores
+                final PSTaxonScoreTable merged = PSScorer.computeTaxScoreTable(readTaxHits.subList(0, 3).iterator(), taxonomy, divideByGenomeLength)
+                        .merge(PSScorer.computeTaxScoreTable(readTaxHits.subList(3, readTaxHits.size()).iterator(), taxonomy, divideByGenomeLength));
+                checkComputedScores(PSScorer.computeNormalizedScores(merged.toTaxonScores(taxonomy), tree, notNormalizedByKingdom),
+                        divideByGenomeLength, notNormalizedByKingdom);
+            }
+        }
+    }
+
     private static void checkComputedScores(final Map<Integer,PSPathogenTaxonScore> resultMap, final boolean divideByGenomeLength,
                                            final boolean notNormalizeByKingdom) {
         double score3 = 0.5 * 2.0 + 2.0;
@@ -0,0 +1,96 @@
+package org.broadinstitute.hellbender.tools.spark.pathseq;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+public class PSScoringTaxonomyTest extends GATKBaseTest {
+
+    private static PSTaxonomyDatabase makeDatabase() {
+        final Map<String,Integer> accessionToTaxMap = new HashMap<>();
+        accessionToTaxMap.put("A",1);
+        accessionToTaxMap.put("B",1);
+        accessionToTaxMap.put("C",2);
+        accessionToTaxMap.put("D",3);
+        accessionToTaxMap.put("NC_000001.1",6);
+
+        final PSTree tree = new PSTree(1);
+        tree.addNode(2, "node2", 1, 0, "genus");
+        tree.addNode(3, "node3", 1, 0, "genus");
+        tree.addNode(4, "node4", 2, 200, "species");
+        tree.addNode(5, "node5", 2, 300, "species");
+        tree.addNode(6, "node6", 3, 100, "species");
+        return new PSTaxonomyDatabase(tree, accessionToTaxMap);
+    }
+
+    private static void checkTaxonomy(final PSScoringTaxonomy taxonomy, final PSTaxonomyDatabase taxonomyDatabase) {
+        final PSTree tree = taxonomyDatabase.tree;
+        Assert.assertEquals(taxonomy.numNodes(), tree.getNodeIDs().size());
+        for (final int taxId : tree.getNodeIDs()) {
+            final int node = taxonomy.indexOf(taxId);
+            Assert.assertTrue(node >= 0);
+            Assert.assertEquals(taxonomy.taxIdOf(node), taxId);
+            Assert.assertEquals(taxonomy.lengthOf(node), tree.getLengthOf(taxId));
+            if (taxId == 1) {
+                Assert.assertEquals(taxonomy.parentOf(node), -1);
+                Assert.assertEquals(taxonomy.depthOf(node), 0);
+            } else {
+                Assert.assertEquals(taxonomy.taxIdOf(taxonomy.parentOf(node)), tree.getParentOf(taxId));
+                Assert.assertEquals(taxonomy.depthOf(node), taxonomy.depthOf(taxonomy.parentOf(node)) + 1);
+            }
+        }
+        Assert.assertTrue(taxonomy.indexOf(0) < 0);
+        Assert.assertTrue(taxonomy.indexOf(7) < 0);
+
+        Assert.assertEquals(taxonomy.taxIdOf(taxonomy.getLCA(taxonomy.indexOf(4), taxonomy.indexOf(5))), 2);
+        Assert.assertEquals(taxonomy.taxIdOf(taxonomy.getLCA(taxonomy.indexOf(4), taxonomy.indexOf(6))), 1);
+        Assert.assertEquals(taxonomy.taxIdOf(taxonomy.getLCA(taxonomy.indexOf(2), taxonomy.indexOf(5))), 2);
+        Assert.assertEquals(taxonomy.taxIdOf(taxonomy.getLCA(taxonomy.indexOf(6), taxonomy.indexOf(6))), 6);
+
+        for (final Map.Entry<String, Integer> entry : taxonomyDatabase.accessionToTaxId.entrySet()) {
+            Assert.assertEquals(taxonomy.getTaxIdOfAccession(entry.getKey()), entry.getValue());
+        }
+        Assert.assertNull(taxonomy.getTaxIdOfAccession("E"));
+        Assert.assertNull(taxonomy.getTaxIdOfAccession(""));
+        Assert.assertNull(taxonomy.getTaxIdOfAccession("NC_000001"));
+    }
+
+    @Test
+    public void testFromDatabase() {
+        final PSTaxonomyDatabase taxonomyDatabase = makeDatabase();
+        checkTaxonomy(PSScoringTaxonomy.fromDatabase(taxonomyDatabase), taxonomyDatabase);
+    }
+
+    @Test
+    public void testWriteAndOpen() {
+        final PSTaxonomyDatabase taxonomyDatabase = makeDatabase();
+        final File file = createTempFile("scoringTaxonomy", PSScoringTaxonomy.EXTENSION);
+        PSScoringTaxonomy.fromDatabase(taxonomyDatabase).write(file.toPath());
+
+        final PSScoringTaxonomy taxonomy = PSScoringTaxonomy.open(file.toPath());
+        checkTaxonomy(taxonomy, taxonomyDatabase);
+        Assert.assertSame(PSScoringTaxonomy.open(file.toPath()), taxonomy);
+    }
+
+    @Test
+    public void testNoAccessions() {
+        final PSTaxonomyDatabase taxonomyDatabase = makeDatabase();
+        final PSScoringTaxonomy taxonomy = PSScoringTaxonomy.fromDatabase(new PSTaxonomyDatabase(taxonomyDatabase.tree, null));
+        Assert.assertEquals(taxonomy.numNodes(), 6);
+        Assert.assertNull(taxonomy.getTaxIdOfAccession("A"));
+    }
+
+    @Test(expectedExceptions = UserException.BadInput.class)
+    public void testNotATaxonomy() throws IOException {
+        final File file = createTempFile("notATaxonomy", PSScoringTaxonomy.EXTENSION);
+        Files.write(file.toPath(), "not a scoring taxonomy".getBytes());
+        PSScoringTaxonomy.open(file.toPath());
+    }
+}
@@ -90,6 +90,42 @@ public class PathSeqBuildKmersSparkIntegrationTest extends CommandLineProgramTes
         Assert.assertTrue(numFP < 1.2 * NUM_FPP_TRIALS * BLOOM_FPP);
     }
 
+    @Test
+    public void testMappedHopscotchSetFromFasta() throws Exception {
+
+        final String libraryPath = publicTestDir + PathSeqBuildKmers.class.getPackage().getName().replace(".", "/") + "/hg19mini.hss";
+        final File expectedFile = new File(libraryPath);
+        final File ref = new File(hg19MiniReference);
+        final File output = createTempFile("test", PSKmerUtils.MAPPED_HOPSCOTCH_SET_EXTENSION);
+        if (!output.delete()) {
+            Assert.fail();
+        }
+        final ArgumentsBuilder args = new ArgumentsBuilder();
+        args.addFileArgument(PathSeqBuildKmers.REFERENCE_LONG_NAME, ref);
+        args.addBooleanArgument(PathSeqBuildKmers.MAPPED_HASH_SET_LONG_NAME, true);
+        args.addOutput(output);
+        this.runCommandLine(args.getArgsArray());
+
+        final Input inputExpected = new Input(FileUtils.openInputStream(expectedFile));
+        final Kryo kryo = new Kryo();
+        final PSKmerSet expectedKmerLib = kryo.readObject(inputExpected, PSKmerSet.class);
+        final PSKmerCollection testKmerLib = PSKmerUtils.readKmerFilter(output.getAbsolutePath());
+        Assert.assertTrue(testKmerLib instanceof PSKmerMappedSet);
+        Assert.assertEquals(((PSKmerMappedSet) testKmerLib).setSize(), expectedKmerLib.setSize());
+        Assert.assertEquals(testKmerLib.kmerSize(), expectedKmerLib.kmerSize());
+        Assert.assertEquals(testKmerLib.getMask(), expectedKmerLib.getMask());
+
+        final LongIterator itr = expectedKmerLib.iterator();
+        while (itr.hasNext()) {
+            Assert.assertTrue(testKmerLib.contains(new SVKmerShort(itr.next())));
+        }
+        final Random rand = new Random(72939);
+        for (int i = 0; i < NUM_FPP_TRIALS; i++) {
+            final SVKmerShort randomKmer = new SVKmerShort(rand.nextLong() >>> 2);
+            Assert.assertEquals(testKmerLib.contains(randomKmer), expectedKmerLib.contains(randomKmer));
+        }
+    }
+
     @SuppressWarnings("unchecked")
     @Test
     public void testMaskedHopscotchSetFromFasta() throws Exception {
@@ -141,4 +177,16 @@ public class PathSeqBuildKmersSparkIntegrationTest extends CommandLineProgramTes
         this.runCommandLine(args.getArgsArray());
     }
 
+    @Test(expectedExceptions = Exception.class)
+    public void testMappedHashSetWithBloomFilter() throws Exception {
+        final File ref = new File(hg19MiniReference);
+        final File output = createTempFile("test", PSKmerUtils.MAPPED_HOPSCOTCH_SET_EXTENSION);
+        final ArgumentsBuilder args = new ArgumentsBuilder();
+        args.addFileArgument(PathSeqBuildKmers.REFERENCE_LONG_NAME, ref);
+        args.addBooleanArgument(PathSeqBuildKmers.MAPPED_HASH_SET_LONG_NAME, true);
+        args.addArgument(PathSeqBuildKmers.BLOOM_FILTER_FALSE_POSITIVE_P_LONG_NAME, Double.toString(BLOOM_FPP));
+        args.addOutput(output);
+        this.runCommandLine(args.getArgsArray());
+    }
+
 }
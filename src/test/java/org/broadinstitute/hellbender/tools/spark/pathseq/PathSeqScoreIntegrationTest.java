@@ -11,7 +11,10 @@ import org.testng.annotations.Test;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class PathSeqScoreIntegrationTest extends CommandLineProgramTest {
@@ -76,7 +79,7 @@ public class PathSeqScoreIntegrationTest extends CommandLineProgramTest {
 
     @DataProvider(name = "pathseqScoreTestData")
     public Object[][] getTestData() {
-        return new Object[][]{
+        final Object[][] cases = new Object[][]{
                 {"expected_paired.txt", "expected_paired.metrics",
                         "alignment_paired.bam", null, false, false},
                 {"expected_unpaired.txt", "expected_unpaired.metrics",
@@ -86,11 +89,22 @@ public class PathSeqScoreIntegrationTest extends CommandLineProgramTest {
                 {"expected_paired_kingdom_false.txt", "expected_paired_kingdom_false.metrics",
                         "alignment_paired.bam", null, false, true}
         };
+        //Aggregating the scores by partition must give the same results
+        final List<Object[]> data = new ArrayList<>(2 * cases.length);
+        for (final boolean aggregateScoresByPartition : new boolean[]{false, true}) {
+            for (final Object[] testCase : cases) {
+                final Object[] row = Arrays.copyOf(testCase, testCase.length + 1);
+                row[testCase.length] = aggregateScoresByPartition;
+                data.add(row);
+            }
+        }
+        return data.toArray(new Object[data.size()][]);
     }
     @Test(dataProvider = "pathseqScoreTestData", groups = "spark")
     public void testPathSeqScoreSpark(final String expectedScoresFilename, final String expectedMetricsFilename,
                      final String inputPairedBamFilename, final String inputUnpairedBamFilename,
-                     final boolean divideByGenomeLength, final boolean notNormalizedByKingdom) throws IOException {
+                     final boolean divideByGenomeLength, final boolean notNormalizedByKingdom,
+                     final boolean aggregateScoresByPartition) throws IOException {
         final File expectedScoresFile =  getTestFile(expectedScoresFilename);
         final File expectedMetricsFile = getTestFile(expectedMetricsFilename);
         final File inputPairedBamFile = inputPairedBamFilename == null ? null : getTestFile(inputPairedBamFilename);
@@ -112,6 +126,7 @@ public class PathSeqScoreIntegrationTest extends CommandLineProgramTest {
         args.addOutput(outputBamFile);
         args.addBooleanArgument(PSScoreArgumentCollection.DIVIDE_BY_GENOME_LENGTH_LONG_NAME, divideByGenomeLength);
         args.addBooleanArgument(PSScoreArgumentCollection.NOT_NORMALIZED_BY_KINGDOM_LONG_NAME, notNormalizedByKingdom);
+        args.addBooleanArgument(PSScoreArgumentCollection.AGGREGATE_SCORES_BY_PARTITION_LONG_NAME, aggregateScoresByPartition);
 
         this.runCommandLine(args.getArgsArray());
 
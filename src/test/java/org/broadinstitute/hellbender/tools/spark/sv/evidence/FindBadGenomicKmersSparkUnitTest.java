@@ -12,6 +12,7 @@ import org.broadinstitute.hellbender.tools.spark.sv.StructuralVariationDiscovery
 import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmer;
 import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerLong;
 import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerizer;
+import org.broadinstitute.hellbender.tools.spark.sv.utils.SVReferenceUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.GATKBaseTest;
 import org.testng.Assert;
@@ -52,6 +53,23 @@ public class FindBadGenomicKmersSparkUnitTest extends GATKBaseTest {
         // should have just one bad kmer:  polyA
         Assert.assertEquals(badKmers.size(), 1);
         Assert.assertEquals(badKmers.get(0), SVKmerizer.toKmer(polyA,new SVKmerLong()));
+
+        // same answer with a count-min sketch prefilter
+        final List<SVKmer> sketchedBadKmers = FindBadGenomicKmersSpark.collectUbiquitousKmersInReference(KMER_SIZE,
+                                                                             Integer.MAX_VALUE,
+                                                                             FindBadGenomicKmersSpark.MAX_KMER_FREQ,
+                                                                             10,
+                                                                             refRDD);
+        Assert.assertEquals(sketchedBadKmers, badKmers);
+
+        // and with the sketch split into shards
+        final List<SVKmer> shardedBadKmers = FindBadGenomicKmersSpark.collectUbiquitousKmersInReference(KMER_SIZE,
+                                                                             Integer.MAX_VALUE,
+                                                                             FindBadGenomicKmersSpark.MAX_KMER_FREQ,
+                                                                             10,
+                                                                             6,
+                                                                             refRDD);
+        Assert.assertEquals(shardedBadKmers, badKmers);
     }
 
     @Test(groups = "sv")
@@ -71,10 +89,19 @@ public class FindBadGenomicKmersSparkUnitTest extends GATKBaseTest {
         }
         kmerMap.entrySet().removeIf( x -> x.getValue() <= FindBadGenomicKmersSpark.MAX_KMER_FREQ);
 
-        final List<SVKmer> badKmers =
-                FindBadGenomicKmersSpark.findBadGenomicKmers(ctx, KMER_SIZE, Integer.MAX_VALUE, ref, null);
-        final Set<SVKmer> badKmerSet = new HashSet<>(badKmers);
-        Assert.assertEquals(badKmers.size(), badKmerSet.size());
-        Assert.assertEquals(badKmerSet, kmerMap.keySet());
+        for ( final int countMinSketchLog2Width : new int[]{0, 16} ) {
+            final List<SVKmer> badKmers = FindBadGenomicKmersSpark.findBadGenomicKmers(ctx, KMER_SIZE, Integer.MAX_VALUE,
+                                                                                       countMinSketchLog2Width, ref, null);
+            final Set<SVKmer> badKmerSet = new HashSet<>(badKmers);
+            Assert.assertEquals(badKmers.size(), badKmerSet.size());
+            Assert.assertEquals(badKmerSet, kmerMap.keySet());
+        }
+
+        // a sketch split into 16 shards finds the same kmers
+        final JavaRDD<byte[]> refRDD = SVReferenceUtils.getReferenceBasesRDD(ctx, KMER_SIZE, ref, dict,
+                FindBadGenomicKmersSpark.REF_RECORD_LEN, FindBadGenomicKmersSpark.REF_RECORDS_PER_PARTITION);
+        final List<SVKmer> shardedBadKmers = FindBadGenomicKmersSpark.collectUbiquitousKmersInReference(KMER_SIZE,
+                Integer.MAX_VALUE, FindBadGenomicKmersSpark.MAX_KMER_FREQ, 16, 12, refRDD);
+        Assert.assertEquals(new HashSet<>(shardedBadKmers), kmerMap.keySet());
     }
 }
@@ -20,6 +20,7 @@ import scala.Tuple2;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static org.broadinstitute.hellbender.tools.spark.sv.StructuralVariationDiscoveryArgumentCollection.FindBreakpointEvidenceSparkArgumentCollection;
@@ -50,7 +51,7 @@ public final class FindBreakpointEvidenceSparkUnitTest extends GATKBaseTest {
                         { new ReadMetadata.PartitionBounds(0, 1, 1, 10000, 9999)},
                     100, 10, 30);
     private final Broadcast<ReadMetadata> broadcastMetadata = ctx.broadcast(readMetadataExpected);
-    private final Broadcast<SVIntervalTree<SVInterval>> broadcastRegionsToIgnore = ctx.broadcast(new SVIntervalTree<>());
+    private final Broadcast<SVIntervalIndex> broadcastRegionsToIgnore = ctx.broadcast(new SVIntervalIndex(Collections.emptyList()));
     private final List<List<BreakpointEvidence>> externalEvidence =
             FindBreakpointEvidenceSpark.readExternalEvidence(null, readMetadataExpected,
                                                     params.externalEvidenceWeight, params.externalEvidenceUncertainty);
@@ -137,6 +138,56 @@ public final class FindBreakpointEvidenceSparkUnitTest extends GATKBaseTest {
         Assert.assertEquals(actualAssemblyQNames, expectedAssemblyQNames);
     }
 
+    @Test(groups = "sv")
+    public void singleReadScanProjectionTest() {
+        final JavaRDD<GATKRead> projectedReads = reads.map(read -> FindBreakpointEvidenceSpark.projectForEvidenceScan(read, filter));
+
+        final FindBreakpointEvidenceSparkArgumentCollection intervalsParams =
+                new FindBreakpointEvidenceSparkArgumentCollection();
+        intervalsParams.minEvidenceWeightPerCoverage = 15.0 / broadcastMetadata.getValue().getCoverage();
+        intervalsParams.minCoherentEvidenceWeightPerCoverage = 7.0 / broadcastMetadata.getValue().getCoverage();
+        Assert.assertEquals(FindBreakpointEvidenceSpark.getIntervalsAndEvidenceTargetLinks(intervalsParams,broadcastMetadata,
+                        broadcastExternalEvidence,header,projectedReads,filter,logger, broadcastRegionsToIgnore)._1(),
+                expectedIntervalList);
+
+        final Set<String> actualQNames = new HashSet<>();
+        FindBreakpointEvidenceSpark.getQNames(params, ctx, broadcastMetadata, expectedIntervalList, projectedReads, filter, broadcastRegionsToIgnore)
+                .stream()
+                .map(QNameAndInterval::getKey)
+                .forEach(actualQNames::add);
+        Assert.assertEquals(actualQNames, expectedQNames);
+
+        final Set<SVKmer> expectedKmers = SVFileUtils.readKmersFile(kmersFile, params.kSize);
+        final HopscotchUniqueMultiMap<SVKmer, Integer, KmerAndInterval> kmerAndIntervalSet =
+                new HopscotchUniqueMultiMap<>(expectedKmers.size());
+        expectedKmers.stream().
+                map(kmer -> new KmerAndInterval(kmer, 0))
+                .forEach(kmerAndIntervalSet::add);
+        final Set<String> actualAssemblyQNames = new HashSet<>();
+        FindBreakpointEvidenceSpark.getAssemblyQNames(params, ctx, kmerAndIntervalSet, projectedReads, filter)
+                .stream()
+                .map(QNameAndInterval::getKey)
+                .forEach(actualAssemblyQNames::add);
+        Assert.assertEquals(actualAssemblyQNames, expectedAssemblyQNames);
+
+        for ( final GATKRead read : reads.take(1000) ) {
+            final GATKRead projection = FindBreakpointEvidenceSpark.projectForEvidenceScan(read, filter);
+            Assert.assertNull(projection.getAttributeAsString("NM"));
+            Assert.assertEquals(projection.getReadGroup(), read.getReadGroup());
+            for ( final String tag : BreakpointEvidence.READ_TAGS_USED ) {
+                Assert.assertEquals(projection.getAttributeAsString(tag), read.getAttributeAsString(tag));
+            }
+            Assert.assertEquals(projection.getName(), read.getName());
+            Assert.assertEquals(projection.getCigar(), read.getCigar());
+            if ( filter.isPrimaryLine(read) || filter.isEvidence(read) ) {
+                Assert.assertEquals(projection.getBases(), read.getBases());
+                Assert.assertEquals(projection.getBaseQualities(), read.getBaseQualities());
+            } else {
+                Assert.assertEquals(projection.getLength(), 0);
+            }
+        }
+    }
+
     @Test(groups = "sv")
     public void generateFastqsTest() {
         final HopscotchUniqueMultiMap<String, Integer, QNameAndInterval> qNameMultiMap =
@@ -144,7 +195,85 @@ public final class FindBreakpointEvidenceSparkUnitTest extends GATKBaseTest {
         expectedAssemblyQNames.stream()
                 .map(qName -> new QNameAndInterval(qName, 0))
                 .forEach(qNameMultiMap::add);
-        FindBreakpointEvidenceSpark.handleAssemblies(ctx,qNameMultiMap,reads,filter,2,true,new LocalAssemblyComparator(fastqFile));
+        FindBreakpointEvidenceSpark.handleAssemblies(ctx,qNameMultiMap,reads,filter,2,true,1,0,new LocalAssemblyComparator(fastqFile));
+        FindBreakpointEvidenceSpark.handleAssemblies(ctx,qNameMultiMap,reads,filter,2,true,2,0,new LocalAssemblyComparator(fastqFile));
+    }
+
+    @Test(groups = "sv")
+    public void assembleConcurrentlyTest() {
+        final List<Tuple2<Integer, List<SVFastqUtils.FastqRead>>> intervalsAndReads = new ArrayList<>();
+        for ( int intervalId = 0; intervalId != 10; ++intervalId ) {
+            intervalsAndReads.add(new Tuple2<>(intervalId, new ArrayList<>()));
+        }
+        final int slowIntervalId = 3;
+        final FindBreakpointEvidenceSpark.LocalAssemblyHandler handler = intervalAndReads -> {
+            if ( intervalAndReads._1() == slowIntervalId ) {
+                try {
+                    Thread.sleep(1000L);
+                } catch ( final InterruptedException ie ) {
+                    Assert.fail("a running assembly was interrupted");
+                }
+            }
+            return new AlignedAssemblyOrExcuse(intervalAndReads._1(), "assembled " + intervalAndReads._1());
+        };
+
+        // every interval is assembled, however long it takes
+        final Map<Integer, String> dispositions = new HashMap<>();
+        FindBreakpointEvidenceSpark.assembleConcurrently(intervalsAndReads.iterator(), handler, 4, 0)
+                .forEachRemaining(result -> Assert.assertNull(dispositions.put(result.getAssemblyId(), result.getErrorMessage())));
+        Assert.assertEquals(dispositions.size(), intervalsAndReads.size());
+        for ( final Map.Entry<Integer, String> entry : dispositions.entrySet() ) {
+            Assert.assertEquals(entry.getValue(), "assembled " + entry.getKey());
+        }
+    }
+
+    @Test(groups = "sv", expectedExceptions = GATKException.class)
+    public void assembleConcurrentlyFailureTest() {
+        final List<Tuple2<Integer, List<SVFastqUtils.FastqRead>>> intervalsAndReads = new ArrayList<>();
+        for ( int intervalId = 0; intervalId != 10; ++intervalId ) {
+            intervalsAndReads.add(new Tuple2<>(intervalId, new ArrayList<>()));
+        }
+        final FindBreakpointEvidenceSpark.LocalAssemblyHandler handler = intervalAndReads -> {
+            if ( intervalAndReads._1() == 3 ) {
+                throw new IllegalStateException("assembly failed");
+            }
+            return new AlignedAssemblyOrExcuse(intervalAndReads._1(), "assembled");
+        };
+        FindBreakpointEvidenceSpark.assembleConcurrently(intervalsAndReads.iterator(), handler, 4, 0);
+    }
+
+    @Test(groups = "sv")
+    public void assembleConcurrentlyTimeoutTest() {
+        final List<Tuple2<Integer, List<SVFastqUtils.FastqRead>>> intervalsAndReads = new ArrayList<>();
+        for ( int intervalId = 0; intervalId != 10; ++intervalId ) {
+            intervalsAndReads.add(new Tuple2<>(intervalId, new ArrayList<>()));
+        }
+        final int slowIntervalId = 3;
+        final FindBreakpointEvidenceSpark.LocalAssemblyHandler handler = intervalAndReads -> {
+            if ( intervalAndReads._1() == slowIntervalId ) {
+                try {
+                    Thread.sleep(60000L);
+                } catch ( final InterruptedException ie ) {
+                    // cancelled by the timeout
+                }
+            }
+            return new AlignedAssemblyOrExcuse(intervalAndReads._1(), "assembled");
+        };
+
+        // the slow interval is excused, and nothing waits for it
+        final long startTime = System.nanoTime();
+        final Map<Integer, String> dispositions = new HashMap<>();
+        FindBreakpointEvidenceSpark.assembleConcurrently(intervalsAndReads.iterator(), handler, 4, 1)
+                .forEachRemaining(result -> dispositions.put(result.getAssemblyId(), result.getErrorMessage()));
+        Assert.assertTrue(System.nanoTime() - startTime < TimeUnit.SECONDS.toNanos(30L));
+        Assert.assertEquals(dispositions.size(), intervalsAndReads.size());
+        for ( final Map.Entry<Integer, String> entry : dispositions.entrySet() ) {
+            if ( entry.getKey() == slowIntervalId ) {
+                Assert.assertEquals(entry.getValue(), "no assembly -- timed out after 1 secs.");
+            } else {
+                Assert.assertEquals(entry.getValue(), "assembled");
+            }
+        }
     }
 
     @Test(groups = "sv")
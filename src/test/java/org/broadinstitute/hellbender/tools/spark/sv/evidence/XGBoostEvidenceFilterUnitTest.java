@@ -216,6 +216,39 @@ public class XGBoostEvidenceFilterUnitTest extends GATKBaseTest {
                 "Evidence passed by XGBoostEvidenceFilter not the same as expected");
     }
 
+    @Test(groups = "sv")
+    protected void testBatchScoring() {
+        // the filters mark evidence as validated, so give each filter its own copy of the evidence
+        final XGBoostEvidenceFilter evidenceFilter = new XGBoostEvidenceFilter(
+                copyEvidenceList().iterator(), readMetadata, params, emptyCrossingChecker
+        );
+        // batch probabilities are in tree order: sorted by location, with ties in their original order
+        final List<BreakpointEvidence> sortedEvidence = copyEvidenceList();
+        sortedEvidence.sort(Comparator.comparing(BreakpointEvidence::getLocation));
+        final double[] expectedProbabilities =
+                sortedEvidence.stream().mapToDouble(evidenceFilter::predictProbability).toArray();
+        for(final int batchSize : new int[] {1, 7, expectedProbabilities.length + 1}) {
+            assertArrayEquals(evidenceFilter.predictProbabilities(batchSize), expectedProbabilities, 0.0,
+                    "Probabilities calculated in batches of " + batchSize + " differ from those calculated singly");
+        }
+
+        final FindBreakpointEvidenceSparkArgumentCollection batchParams = initParams();
+        batchParams.svEvidenceFilterBatchSize = 7;
+        final List<BreakpointEvidence> passedEvidence = new ArrayList<>();
+        new XGBoostEvidenceFilter(copyEvidenceList().iterator(), readMetadata, params, emptyCrossingChecker)
+                .forEachRemaining(passedEvidence::add);
+        final List<BreakpointEvidence> batchPassedEvidence = new ArrayList<>();
+        new XGBoostEvidenceFilter(copyEvidenceList().iterator(), readMetadata, batchParams, emptyCrossingChecker)
+                .forEachRemaining(batchPassedEvidence::add);
+        Assert.assertEquals(batchPassedEvidence, passedEvidence,
+                "Evidence passed by XGBoostEvidenceFilter differs when scoring in batches");
+    }
+
+    private static List<BreakpointEvidence> copyEvidenceList() {
+        return Arrays.stream(featuresTestData.stringReps)
+                .map(breakpointEvidenceFactory::fromStringRep).collect(Collectors.toList());
+    }
+
     private static void assertArrayEquals(final double[] actuals, final double[] expecteds, final double tol,
                                           final String message) {
         Assert.assertEquals(actuals.length, expecteds.length, "Lengths not equal: " + message);
@@ -8,6 +8,7 @@ import org.broadinstitute.hellbender.testutils.ArgumentsBuilder;
 import org.broadinstitute.hellbender.testutils.BaseTest;
 import org.broadinstitute.hellbender.testutils.IntegrationTestSpec;
 import org.broadinstitute.hellbender.testutils.MiniClusterUtils;
+import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -17,7 +18,10 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Integration test on the SV pipeline as it exists right now [2017-03-06]
@@ -70,6 +74,11 @@ public class FindBreakpointEvidenceSparkIntegrationTest extends CommandLineProgr
                     (svGenomeUmapS100File.isEmpty() ? "" : " --sv-genome-umap-s100-file " + svGenomeUmapS100File);
         }
 
+        FindBreakpointEvidenceSparkIntegrationTestArgs withOutputDir(final String newOutputDir) {
+            return new FindBreakpointEvidenceSparkIntegrationTestArgs(expectedAlignedContigsLoc, bamLoc, kmerIgnoreListLoc,
+                    alignerRefIndexImgLoc, newOutputDir, bamCoverage, svEvidenceFilterType, svGenomeGapsFile, svGenomeUmapS100File);
+        }
+
         @Override
         public String toString() {
             return "FindBreakpointEvidenceSparkIntegrationTestArgs{" +
@@ -128,6 +137,44 @@ public class FindBreakpointEvidenceSparkIntegrationTest extends CommandLineProgr
         IntegrationTestSpec.assertEqualTextFiles(actualSAMfile, expectedSAMfile);
     }
 
+    @Test(dataProvider = "findBreakpointEvidenceSparkIntegrationTest", groups = "sv")
+    public void testSingleReadScanMatchesFullScan(final FindBreakpointEvidenceSparkIntegrationTestArgs params) throws IOException {
+        final List<File> outputDirs = new ArrayList<>(2);
+        for ( final String scanArgs : Arrays.asList("", " --single-read-scan") ) {
+            final File outputDir = BaseTest.createTempDir("singleReadScan");
+            Files.createDirectories(Paths.get(outputDir.getAbsolutePath(), "fastq"));
+            final String commandLine = params.withOutputDir(outputDir.getAbsolutePath()).getCommandLine() +
+                    " --unfiltered-breakpoint-evidence-dir " + outputDir.getAbsolutePath() + "/unfilteredEvidence" +
+                    " --breakpoint-evidence-dir " + outputDir.getAbsolutePath() + "/evidence" +
+                    scanArgs;
+            runCommandLine(Arrays.asList(new ArgumentsBuilder().add(commandLine).getArgsArray()));
+            outputDirs.add(outputDir);
+        }
+
+        final File fullScanDir = outputDirs.get(0);
+        final File singleScanDir = outputDirs.get(1);
+        Assert.assertEquals(getEvidenceLines(new File(singleScanDir, "unfilteredEvidence")),
+                            getEvidenceLines(new File(fullScanDir, "unfilteredEvidence")));
+        Assert.assertEquals(getEvidenceLines(new File(singleScanDir, "evidence")),
+                            getEvidenceLines(new File(fullScanDir, "evidence")));
+        IntegrationTestSpec.assertEqualTextFiles(new File(singleScanDir, "intervals"), new File(fullScanDir, "intervals"));
+        IntegrationTestSpec.assertEqualTextFiles(new File(singleScanDir, "targetLinks.bedpe"), new File(fullScanDir, "targetLinks.bedpe"));
+        IntegrationTestSpec.assertEqualTextFiles(new File(singleScanDir, "assemblies.sam"), new File(fullScanDir, "assemblies.sam"));
+    }
+
+    /** The sorted lines of all the part files that Spark wrote to an evidence directory. */
+    private static List<String> getEvidenceLines(final File evidenceDir) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        try ( final Stream<java.nio.file.Path> parts = Files.list(evidenceDir.toPath()) ) {
+            for ( final java.nio.file.Path part : parts.filter(part -> part.getFileName().toString().startsWith("part-")).collect(Collectors.toList()) ) {
+                lines.addAll(Files.readAllLines(part));
+            }
+        }
+        Assert.assertFalse(lines.isEmpty());
+        Collections.sort(lines);
+        return lines;
+    }
+
     @Test(dataProvider = "findBreakpointEvidenceSparkIntegrationTest", groups = "sv")
     public void testFindBreakpointRunnableMiniCluster(final FindBreakpointEvidenceSparkIntegrationTestArgs params) throws Exception {
 
@@ -0,0 +1,141 @@
+package org.broadinstitute.hellbender.tools.spark.sv.utils;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+
+public class SVIntervalIndexTest extends GATKBaseTest {
+    private static SVInterval[] intervals = {
+            new SVInterval(0, 100, 200),
+            new SVInterval(0, 150, 250),
+            new SVInterval(0, 200, 300),
+            new SVInterval(0, 250, 350),
+            new SVInterval(0, 300, 400),
+            new SVInterval(0, 350, 450),
+            new SVInterval(0, 400, 500),
+            new SVInterval(0, 450, 550),
+            new SVInterval(0, 500, 600),
+            new SVInterval(0, 550, 650),
+            new SVInterval(0, 600, 700),
+            new SVInterval(0, 650, 750),
+            new SVInterval(0, 700, 800),
+            new SVInterval(0, 750, 850),
+            new SVInterval(0, 800, 900),
+            new SVInterval(0, 850, 950),
+            new SVInterval(0, 900, 1000),
+            new SVInterval(1, 0, 100)
+    };
+
+    private static SVIntervalIndex initIndex() {
+        final List<SVInterval> shuffled = new ArrayList<>(Arrays.asList(intervals));
+        Collections.shuffle(shuffled, new Random(47));
+        return new SVIntervalIndex(shuffled);
+    }
+
+    @Test(groups = "sv")
+    public void sizeAndIterationTest() {
+        final SVIntervalIndex index = initIndex();
+        Assert.assertEquals(index.size(), intervals.length);
+        final Iterator<SVInterval> itr = index.iterator();
+        for ( int idx = 0; idx != intervals.length; ++idx ) {
+            Assert.assertEquals(index.getInterval(idx), intervals[idx]);
+            Assert.assertTrue(itr.hasNext());
+            Assert.assertEquals(itr.next(), intervals[idx]);
+        }
+        Assert.assertFalse(itr.hasNext());
+    }
+
+    @Test(groups = "sv")
+    public void emptyIndexTest() {
+        final SVIntervalIndex index = new SVIntervalIndex(Collections.emptyList());
+        Assert.assertTrue(index.isEmpty());
+        Assert.assertFalse(index.iterator().hasNext());
+        Assert.assertFalse(index.hasOverlapper(intervals[0]));
+        Assert.assertNull(index.minOverlapper(intervals[0]));
+        Assert.assertFalse(index.overlappers(intervals[0]).hasNext());
+    }
+
+    @Test(groups = "sv")
+    public void overlapperTest() {
+        final SVIntervalIndex index = initIndex();
+        final SVInterval[] probes = {
+                new SVInterval(0, 0, 100),
+                new SVInterval(0, 0, 101),
+                new SVInterval(0, 199, 250),
+                new SVInterval(0, 475, 476),
+                new SVInterval(0, 999, 2000),
+                new SVInterval(0, 1000, 2000),
+                new SVInterval(1, 50, 50),
+                new SVInterval(1, 99, 200),
+                new SVInterval(2, 0, 100)
+        };
+        for ( final SVInterval probe : probes ) {
+            final List<SVInterval> expected = new ArrayList<>();
+            for ( final SVInterval interval : intervals ) {
+                if ( interval.overlaps(probe) ) expected.add(interval);
+            }
+            final List<SVInterval> actual = new ArrayList<>();
+            index.overlappers(probe).forEachRemaining(actual::add);
+            Assert.assertEquals(actual, expected, "overlappers of " + probe);
+            Assert.assertEquals(index.hasOverlapper(probe), !expected.isEmpty());
+            Assert.assertEquals(index.minOverlapper(probe), expected.isEmpty() ? null : expected.get(0));
+        }
+    }
+
+    @Test(groups = "sv")
+    public void agreesWithTreeTest() {
+        final Random rng = new Random(0xdeadbeef);
+        for ( int trial = 0; trial != 100; ++trial ) {
+            final int nIntervals = rng.nextInt(1000);
+            final List<SVInterval> intervalList = new ArrayList<>(nIntervals);
+            final SVIntervalTree<SVInterval> tree = new SVIntervalTree<>();
+            for ( int idx = 0; idx != nIntervals; ++idx ) {
+                final int start = rng.nextInt(10000);
+                final SVInterval interval = new SVInterval(rng.nextInt(3), start, start + rng.nextInt(300));
+                if ( tree.find(interval) == null ) {
+                    intervalList.add(interval);
+                    tree.put(interval, interval);
+                }
+            }
+            final SVIntervalIndex index = new SVIntervalIndex(intervalList);
+            for ( int probeIdx = 0; probeIdx != 100; ++probeIdx ) {
+                final int start = rng.nextInt(10500);
+                final SVInterval probe = new SVInterval(rng.nextInt(3), start, start + rng.nextInt(100));
+                final List<SVInterval> expected = new ArrayList<>();
+                tree.overlappers(probe).forEachRemaining(entry -> expected.add(entry.getInterval()));
+                final List<SVInterval> actual = new ArrayList<>();
+                index.overlappers(probe).forEachRemaining(actual::add);
+                Assert.assertEquals(actual, expected);
+                Assert.assertEquals(index.hasOverlapper(probe), tree.hasOverlapper(probe));
+            }
+        }
+    }
+
+    @Test(groups = "sv")
+    public void serializationTest() {
+        final SVIntervalIndex index = initIndex();
+        final Kryo kryo = new Kryo();
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final Output out = new Output(bos);
+        kryo.writeClassAndObject(out, index);
+        out.flush();
+
+        final Input in = new Input(new ByteArrayInputStream(bos.toByteArray()));
+        final SVIntervalIndex index2 = (SVIntervalIndex)kryo.readClassAndObject(in);
+        Assert.assertEquals(index2, index);
+        Assert.assertEquals(index2.minOverlapper(new SVInterval(0, 475, 476)), intervals[6]);
+    }
+
+    @Test(groups = "sv", expectedExceptions = IllegalArgumentException.class)
+    public void negativeCoordinateTest() {
+        new SVIntervalIndex(Collections.singletonList(
+                new SVInterval(0, -1, 10, SVInterval.SVIntervalConstructorArgsValidator.ACCEPTS_ALL)));
+    }
+}
@@ -0,0 +1,135 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public final class BlockedLongBloomFilterTest extends GATKBaseTest {
+    private static final long[] testVals = {0, 1, 2, 8, 16, 42, 97, 100, 2894765};
+    private static final long[] notAllTestVals = {0, 1, 2, 3, 7, 22, 61};
+    private static final int RAND_SEED = 0xdeadf00;
+    private static final int N_RANDOM_VALS = 200000;
+    private static final double FPP = 0.01;
+
+    private static long randomLong( final Random rng ) {
+        return (((long) rng.nextInt()) | (((long) rng.nextInt()) << 31)) & ~Long.MIN_VALUE;
+    }
+
+    @Test
+    void containsTest() {
+        final BlockedLongBloomFilter bloomFilter = new BlockedLongBloomFilter(testVals.length, FPP);
+        Assert.assertFalse(bloomFilter.contains(testVals[0]));
+        bloomFilter.addAll(testVals);
+        for ( final long val : testVals ) {
+            Assert.assertTrue(bloomFilter.contains(val));
+        }
+        Assert.assertTrue(bloomFilter.containsAll(testVals));
+        Assert.assertTrue(bloomFilter.containsAll(new long[0]));
+        Assert.assertFalse(bloomFilter.containsAll(notAllTestVals));
+        Assert.assertEquals(bloomFilter.countContained(testVals, 0, testVals.length, Integer.MAX_VALUE), testVals.length);
+        Assert.assertEquals(bloomFilter.countContained(testVals, 2, 5, Integer.MAX_VALUE), 3);
+        Assert.assertEquals(bloomFilter.countContained(testVals, 0, testVals.length, 4), 4);
+    }
+
+    @Test
+    void falsePositiveRateTest() {
+        final Random rng = new Random(RAND_SEED);
+        final Set<Long> added = new HashSet<>(N_RANDOM_VALS);
+        final BlockedLongBloomFilter bloomFilter = new BlockedLongBloomFilter(N_RANDOM_VALS, FPP);
+        final long[] vals = new long[N_RANDOM_VALS];
+        for ( int idx = 0; idx != N_RANDOM_VALS; ++idx ) {
+            vals[idx] = randomLong(rng);
+            bloomFilter.add(vals[idx]);
+            added.add(vals[idx]);
+        }
+        Assert.assertTrue(bloomFilter.containsAll(vals));
+        Assert.assertTrue(bloomFilter.getTheoreticalFPP(N_RANDOM_VALS) <= FPP);
+
+        // the batched and single lookups must agree
+        final long[] probes = new long[N_RANDOM_VALS];
+        int falsePositives = 0;
+        int expectedCount = 0;
+        for ( int idx = 0; idx != N_RANDOM_VALS; ++idx ) {
+            probes[idx] = randomLong(rng);
+            if ( bloomFilter.contains(probes[idx]) ) {
+                expectedCount += 1;
+                if ( !added.contains(probes[idx]) ) falsePositives += 1;
+            }
+        }
+        Assert.assertEquals(bloomFilter.countContained(probes, 0, N_RANDOM_VALS, Integer.MAX_VALUE), expectedCount);
+        Assert.assertTrue(falsePositives < 1.2 * FPP * N_RANDOM_VALS, "Blocked Bloom filter gave too many false positives");
+    }
+
+    @Test
+    void writeAndMapTest() {
+        final Random rng = new Random(RAND_SEED);
+        final BlockedLongBloomFilter bloomFilter = new BlockedLongBloomFilter(N_RANDOM_VALS, FPP);
+        final long[] vals = new long[N_RANDOM_VALS];
+        for ( int idx = 0; idx != N_RANDOM_VALS; ++idx ) {
+            vals[idx] = randomLong(rng);
+            bloomFilter.add(vals[idx]);
+        }
+        final byte[] metadata = {1, 2, 3};
+        final File file = createTempFile("blockedBloomFilter", ".bbf");
+        bloomFilter.write(file.toPath(), metadata);
+
+        final BlockedLongBloomFilter mappedFilter = BlockedLongBloomFilter.open(file.getAbsolutePath());
+        Assert.assertEquals(mappedFilter, bloomFilter);
+        Assert.assertEquals(mappedFilter.getMetadata(), metadata);
+        Assert.assertTrue(mappedFilter.containsAll(vals));
+        for ( int idx = 0; idx != 10000; ++idx ) {
+            final long val = randomLong(rng);
+            Assert.assertEquals(mappedFilter.contains(val), bloomFilter.contains(val));
+        }
+        Assert.assertSame(BlockedLongBloomFilter.open(file.getAbsolutePath()), mappedFilter);
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    void mappedFilterIsReadOnlyTest() {
+        final File file = createTempFile("blockedBloomFilter", ".bbf");
+        new BlockedLongBloomFilter(testVals.length, FPP).write(file.toPath());
+        BlockedLongBloomFilter.open(file.getAbsolutePath()).add(1L);
+    }
+
+    @Test(expectedExceptions = UserException.BadInput.class)
+    void notAFilterTest() throws IOException {
+        final File file = createTempFile("notAFilter", ".bbf");
+        Files.write(file.toPath(), "not a blocked Bloom filter, just some bytes that are long enough to fill the header".getBytes());
+        BlockedLongBloomFilter.open(file.getAbsolutePath());
+    }
+
+    @Test
+    void serializationTest() {
+        final BlockedLongBloomFilter bloomFilter = new BlockedLongBloomFilter(testVals.length, FPP);
+        bloomFilter.addAll(testVals);
+        final File file = createTempFile("blockedBloomFilter", ".bbf");
+        bloomFilter.write(file.toPath());
+        final BlockedLongBloomFilter mappedFilter = BlockedLongBloomFilter.open(file.getAbsolutePath());
+
+        final Kryo kryo = new Kryo();
+        for ( final BlockedLongBloomFilter filter : new BlockedLongBloomFilter[]{bloomFilter, mappedFilter} ) {
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            final Output out = new Output(bos);
+            kryo.writeClassAndObject(out, filter);
+            out.flush();
+
+            final Input in = new Input(new ByteArrayInputStream(bos.toByteArray()));
+            final BlockedLongBloomFilter filter2 = (BlockedLongBloomFilter) kryo.readClassAndObject(in);
+            Assert.assertEquals(filter2, filter);
+            Assert.assertTrue(filter2.containsAll(testVals));
+        }
+    }
+}
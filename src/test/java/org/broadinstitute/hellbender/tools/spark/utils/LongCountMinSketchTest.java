@@ -0,0 +1,110 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public final class LongCountMinSketchTest extends GATKBaseTest {
+    private static final int RAND_SEED = 0xdeadf00;
+    private static final int DEPTH = 4;
+    private static final int LOG2_WIDTH = 16;
+
+    private static Map<Long, Integer> addRandomVals( final LongCountMinSketch sketch, final Random rng, final int nVals ) {
+        final Map<Long, Integer> counts = new HashMap<>();
+        for ( int idx = 0; idx != nVals; ++idx ) {
+            // small range of values, so that there are repeats
+            final long val = rng.nextInt(nVals / 4);
+            sketch.add(val);
+            counts.merge(val, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    @Test
+    void neverUndercountsTest() {
+        final LongCountMinSketch sketch = new LongCountMinSketch(DEPTH, LOG2_WIDTH);
+        final Map<Long, Integer> counts = addRandomVals(sketch, new Random(RAND_SEED), 20000);
+        int nOvercounted = 0;
+        for ( final Map.Entry<Long, Integer> entry : counts.entrySet() ) {
+            final int estimate = sketch.estimateCount(entry.getKey());
+            Assert.assertTrue(estimate >= Math.min(entry.getValue(), LongCountMinSketch.MAX_COUNT));
+            if ( estimate > entry.getValue() ) nOvercounted += 1;
+        }
+        // the sketch is wide enough that overcounts should be rare
+        Assert.assertTrue(nOvercounted < counts.size() / 100, "too many overcounts: " + nOvercounted);
+        Assert.assertEquals(sketch.estimateCount(-1L), 0);
+    }
+
+    @Test
+    void saturationTest() {
+        final LongCountMinSketch sketch = new LongCountMinSketch(DEPTH, LOG2_WIDTH);
+        for ( int idx = 0; idx != 1000; ++idx ) {
+            sketch.add(42L);
+        }
+        Assert.assertEquals(sketch.estimateCount(42L), LongCountMinSketch.MAX_COUNT);
+        sketch.merge(sketch);
+        Assert.assertEquals(sketch.estimateCount(42L), LongCountMinSketch.MAX_COUNT);
+    }
+
+    @Test
+    void mergeTest() {
+        final Random rng = new Random(RAND_SEED);
+        final LongCountMinSketch sketch1 = new LongCountMinSketch(DEPTH, LOG2_WIDTH);
+        final LongCountMinSketch sketch2 = new LongCountMinSketch(DEPTH, LOG2_WIDTH);
+        final Map<Long, Integer> counts1 = addRandomVals(sketch1, rng, 10000);
+        final Map<Long, Integer> counts2 = addRandomVals(sketch2, rng, 10000);
+        sketch1.merge(sketch2);
+        counts2.forEach((val, count) -> counts1.merge(val, count, Integer::sum));
+        for ( final Map.Entry<Long, Integer> entry : counts1.entrySet() ) {
+            Assert.assertTrue(sketch1.estimateCount(entry.getKey()) >= entry.getValue());
+        }
+    }
+
+    @Test
+    void shardTest() {
+        final int log2Shards = 3;
+        final int[] shardCounts = new int[1 << log2Shards];
+        final Random rng = new Random(RAND_SEED);
+        for ( int idx = 0; idx != 8000; ++idx ) {
+            final long val = rng.nextLong();
+            Assert.assertEquals(LongCountMinSketch.shardOf(val, 0), 0);
+            final int shard = LongCountMinSketch.shardOf(val, log2Shards);
+            Assert.assertEquals(LongCountMinSketch.shardOf(val, log2Shards), shard);
+            shardCounts[shard] += 1;
+        }
+        // the shards should be about evenly loaded
+        for ( final int shardCount : shardCounts ) {
+            Assert.assertTrue(shardCount > 800 && shardCount < 1200, "uneven shard: " + shardCount);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    void mergeMismatchedSketchesTest() {
+        new LongCountMinSketch(DEPTH, LOG2_WIDTH).merge(new LongCountMinSketch(DEPTH, LOG2_WIDTH + 1));
+    }
+
+    @Test
+    void serializationTest() {
+        final LongCountMinSketch sketch = new LongCountMinSketch(DEPTH, 10);
+        addRandomVals(sketch, new Random(RAND_SEED), 1000);
+
+        final Kryo kryo = new Kryo();
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final Output out = new Output(bos);
+        kryo.writeClassAndObject(out, sketch);
+        out.flush();
+
+        final Input in = new Input(new ByteArrayInputStream(bos.toByteArray()));
+        final LongCountMinSketch sketch2 = (LongCountMinSketch)kryo.readClassAndObject(in);
+        Assert.assertEquals(sketch2, sketch);
+    }
+}
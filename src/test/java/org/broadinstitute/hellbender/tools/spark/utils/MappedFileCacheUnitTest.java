@@ -0,0 +1,36 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class MappedFileCacheUnitTest extends GATKBaseTest {
+
+    @Test
+    public void testFilesAreMappedOnce() throws Exception {
+        final AtomicInteger nMapped = new AtomicInteger();
+        final MappedFileCache<String> cache = new MappedFileCache<>(path -> path.toString() + nMapped.incrementAndGet());
+        final File file = createTempFile("mappedFileCache", ".bin");
+
+        final String mapped = cache.open(file.toPath());
+        Assert.assertSame(cache.open(file.getAbsoluteFile().toPath()), mapped);
+        Assert.assertEquals(nMapped.get(), 1);
+
+        // a file that's been rewritten is mapped again
+        Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(Files.getLastModifiedTime(file.toPath()).toMillis() + 1000L));
+        Assert.assertNotEquals(cache.open(file.toPath()), mapped);
+        Assert.assertEquals(nMapped.get(), 2);
+    }
+
+    @Test(expectedExceptions = UserException.CouldNotReadInputFile.class)
+    public void testMissingFile() {
+        final MappedFileCache<String> cache = new MappedFileCache<>(path -> path.toString());
+        cache.open(new File(createTempDir("mappedFileCache"), "missing.bin").toPath());
+    }
+}
@@ -0,0 +1,181 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public final class MappedLongHopscotchSetTest extends GATKBaseTest {
+    private static final long[] testVals = {0, 1, 2, 8, 16, 42, 97, 100, 2894765};
+    private static final long[] notInTestVals = {3, 7, 22, 61, 2894766};
+    private static final int RAND_SEED = 0xdeadf00;
+    private static final int N_RANDOM_VALS = 100000;
+
+    private static long randomLong( final Random rng ) {
+        return (((long) rng.nextInt()) | (((long) rng.nextInt()) << 31)) & ~Long.MIN_VALUE;
+    }
+
+    @Test
+    void containsTest() {
+        final File file = createTempFile("mappedSet", ".lht");
+        MappedLongHopscotchSet.write(new LongHopscotchSet(testVals), file.toPath());
+        final MappedLongHopscotchSet mappedSet = MappedLongHopscotchSet.open(file.getAbsolutePath());
+
+        Assert.assertEquals(mappedSet.size(), testVals.length);
+        for ( final long val : testVals ) {
+            Assert.assertTrue(mappedSet.contains(val));
+        }
+        for ( final long val : notInTestVals ) {
+            Assert.assertFalse(mappedSet.contains(val));
+        }
+        Assert.assertFalse(mappedSet.contains(-1L));
+
+        final Set<Long> iterated = new HashSet<>();
+        final LongIterator itr = mappedSet.iterator();
+        while ( itr.hasNext() ) {
+            Assert.assertTrue(iterated.add(itr.next()));
+        }
+        Assert.assertEquals(iterated.size(), testVals.length);
+        for ( final long val : testVals ) {
+            Assert.assertTrue(iterated.contains(val));
+        }
+    }
+
+    @Test
+    void randomValuesMatchOnHeapSetTest() {
+        final Random rng = new Random(RAND_SEED);
+        final LongHopscotchSet onHeapSet = new LongHopscotchSet(N_RANDOM_VALS);
+        final long[] vals = new long[N_RANDOM_VALS];
+        for ( int idx = 0; idx != N_RANDOM_VALS; ++idx ) {
+            vals[idx] = randomLong(rng);
+            onHeapSet.add(vals[idx]);
+        }
+        final File file = createTempFile("mappedSet", ".lht");
+        MappedLongHopscotchSet.write(onHeapSet, file.toPath());
+        final MappedLongHopscotchSet mappedSet = MappedLongHopscotchSet.open(file.getAbsolutePath());
+
+        Assert.assertEquals(mappedSet.size(), onHeapSet.size());
+        for ( final long val : vals ) {
+            Assert.assertTrue(mappedSet.contains(val));
+        }
+        for ( int idx = 0; idx != N_RANDOM_VALS; ++idx ) {
+            final long val = randomLong(rng);
+            Assert.assertEquals(mappedSet.contains(val), onHeapSet.contains(val));
+        }
+    }
+
+    @Test
+    void partitionedSetTest() {
+        final Random rng = new Random(RAND_SEED);
+        final LargeLongHopscotchSet onHeapSet = new LargeLongHopscotchSet(N_RANDOM_VALS);
+        Assert.assertTrue(onHeapSet.getSets().size() > 1);
+        for ( int idx = 0; idx != N_RANDOM_VALS; ++idx ) {
+            onHeapSet.add(randomLong(rng));
+        }
+        final byte[] metadata = {1, 2, 3};
+        final File file = createTempFile("mappedSet", ".lht");
+        MappedLongHopscotchSet.write(onHeapSet, metadata, file.toPath());
+        final MappedLongHopscotchSet mappedSet = MappedLongHopscotchSet.open(file.getAbsolutePath());
+
+        Assert.assertEquals(mappedSet.size(), onHeapSet.size());
+        Assert.assertEquals(mappedSet.getMetadata(), metadata);
+        final Set<Long> iterated = new HashSet<>();
+        final LongIterator itr = mappedSet.iterator();
+        while ( itr.hasNext() ) {
+            final long val = itr.next();
+            Assert.assertTrue(onHeapSet.contains(val));
+            Assert.assertTrue(mappedSet.contains(val));
+            Assert.assertTrue(iterated.add(val));
+        }
+        Assert.assertEquals(iterated.size(), onHeapSet.size());
+        for ( int idx = 0; idx != N_RANDOM_VALS; ++idx ) {
+            final long val = randomLong(rng);
+            Assert.assertEquals(mappedSet.contains(val), onHeapSet.contains(val));
+        }
+    }
+
+    @Test
+    void mapTest() {
+        final Random rng = new Random(RAND_SEED);
+        final long[] keys = new long[N_RANDOM_VALS];
+        final long[] values = new long[N_RANDOM_VALS];
+        final LongHopscotchSet distinct = new LongHopscotchSet(N_RANDOM_VALS);
+        for ( int idx = 0; idx != N_RANDOM_VALS; ++idx ) {
+            long key;
+            do {
+                key = randomLong(rng);
+            } while ( !distinct.add(key) );
+            keys[idx] = key;
+            values[idx] = rng.nextLong();
+        }
+        final File file = createTempFile("mappedMap", ".lht");
+        MappedLongHopscotchMap.write(keys, values, file.toPath());
+        final MappedLongHopscotchMap mappedMap = MappedLongHopscotchMap.open(file.getAbsolutePath());
+
+        Assert.assertEquals(mappedMap.size(), N_RANDOM_VALS);
+        for ( int idx = 0; idx != N_RANDOM_VALS; ++idx ) {
+            Assert.assertTrue(mappedMap.containsKey(keys[idx]));
+            Assert.assertEquals(mappedMap.get(keys[idx], -1L), values[idx]);
+        }
+        for ( int idx = 0; idx != 1000; ++idx ) {
+            final long key = randomLong(rng);
+            if ( !distinct.contains(key) ) {
+                Assert.assertEquals(mappedMap.get(key, -1L), -1L);
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    void duplicateMapKeyTest() {
+        MappedLongHopscotchMap.write(new long[]{1, 2, 1}, new long[]{4, 5, 6}, createTempFile("mappedMap", ".lht").toPath());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    void openSetAsMapTest() {
+        final File file = createTempFile("mappedSet", ".lht");
+        MappedLongHopscotchSet.write(new LongHopscotchSet(testVals), file.toPath());
+        MappedLongHopscotchMap.open(file.getAbsolutePath());
+    }
+
+    @Test(expectedExceptions = UserException.BadInput.class)
+    void notATableTest() throws IOException {
+        final File file = createTempFile("notATable", ".lht");
+        Files.write(file.toPath(), "not a hopscotch table, just some bytes".getBytes());
+        MappedLongHopscotchSet.open(file.getAbsolutePath());
+    }
+
+    @Test
+    void serializationSharesMappingTest() {
+        final File file = createTempFile("mappedSet", ".lht");
+        MappedLongHopscotchSet.write(new LongHopscotchSet(testVals), file.toPath());
+        final MappedLongHopscotchSet mappedSet = MappedLongHopscotchSet.open(file.getAbsolutePath());
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final Output out = new Output(bos);
+        final Kryo kryo = new Kryo();
+        kryo.writeClassAndObject(out, mappedSet);
+        out.flush();
+        // only the path is serialized
+        Assert.assertTrue(bos.size() < 1000);
+
+        final Input in = new Input(new ByteArrayInputStream(bos.toByteArray()));
+        final MappedLongHopscotchSet mappedSet2 = (MappedLongHopscotchSet) kryo.readClassAndObject(in);
+        Assert.assertEquals(mappedSet2.getPath(), mappedSet.getPath());
+        for ( final long val : testVals ) {
+            Assert.assertTrue(mappedSet2.contains(val));
+        }
+        Assert.assertSame(MappedLongHopscotchTable.open(file.toPath()), MappedLongHopscotchTable.open(file.toPath()));
+    }
+}
@@ -9,6 +9,7 @@ import org.apache.commons.codec.digest.DigestUtils;
 import htsjdk.variant.variantcontext.VariantContext;
 import org.apache.commons.collections.IteratorUtils;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.engine.FeatureDataSource;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.Utils;
@@ -24,6 +25,8 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -31,6 +34,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class CombineGVCFsIntegrationTest extends CommandLineProgramTest {
     private static final List<String> NO_EXTRA_ARGS = Collections.emptyList();
@@ -538,4 +542,57 @@ public class CombineGVCFsIntegrationTest extends CommandLineProgramTest {
         }
     }
 
+    @DataProvider
+    public Object[][] gvcfsToCombineInATree() {
+        final List<File> asSnippets = Arrays.asList(getTestFile("NA12878.AS.chr20snippet.g.vcf"), getTestFile("NA12892.AS.chr20snippet.g.vcf"), getTestFile("YRIoffspring.chr20snippet.g.vcf"));
+        return new Object[][]{
+                {asSnippets, Arrays.asList("-G", "StandardAnnotation", "-G", "AS_StandardAnnotation"), 1},
+                {asSnippets, Arrays.asList("-G", "StandardAnnotation", "-G", "AS_StandardAnnotation"), 2},
+                {asSnippets, Arrays.asList("-L", "20:10080000-10100000", "--" + CombineGVCFs.BREAK_BANDS_LONG_NAME, "1000"), 2},
+        };
+    }
+
+    @Test(dataProvider = "gvcfsToCombineInATree")
+    public void testTreeMergeMatchesFlatMerge(final List<File> inputs, final List<String> extraArgs, final int threads) throws IOException {
+        final File treeTempDir = createTempDir("combinegvcfs-tree-test");
+        final List<File> outputs = new ArrayList<>();
+        // --tmp-dir sets java.io.tmpdir for the whole VM
+        final String javaTempDir = System.getProperty("java.io.tmpdir");
+        try {
+            for ( final List<String> treeArgs : Arrays.asList(NO_EXTRA_ARGS, Arrays.asList(
+                    "--" + CombineGVCFs.TREE_MERGE_FANOUT_LONG_NAME, "2",
+                    "--" + CombineGVCFs.TREE_MERGE_THREADS_LONG_NAME, String.valueOf(threads),
+                    "--" + StandardArgumentDefinitions.TMP_DIR_NAME, treeTempDir.getAbsolutePath())) ) {
+                final File output = createTempFile("combinegvcfs", ".vcf");
+                final ArgumentsBuilder args = new ArgumentsBuilder()
+                        .addReference(new File(b37_reference_20_21))
+                        .addOutput(output)
+                        .addBooleanArgument(StandardArgumentDefinitions.ADD_OUTPUT_VCF_COMMANDLINE, false);
+                inputs.forEach(args::addVCF);
+                extraArgs.forEach(args::add);
+                treeArgs.forEach(args::add);
+
+                Utils.resetRandomGenerator();
+                runCommandLine(args);
+                outputs.add(output);
+            }
+        } finally {
+            System.setProperty("java.io.tmpdir", javaTempDir);
+        }
+
+        final List<VariantContext> flatVariants = getVariantContexts(outputs.get(0));
+        Assert.assertFalse(flatVariants.isEmpty());
+        // the median-combined annotations must be there to be compared
+        if ( extraArgs.contains("AS_StandardAnnotation") ) {
+            Assert.assertTrue(flatVariants.stream().anyMatch(vc -> vc.hasAttribute(GATKVCFConstants.MAP_QUAL_RANK_SUM_KEY)));
+            Assert.assertTrue(flatVariants.stream().anyMatch(vc -> vc.hasAttribute(GATKVCFConstants.READ_POS_RANK_SUM_KEY)));
+        }
+        // header and records alike
+        Assert.assertEquals(Files.readAllLines(outputs.get(1).toPath()), Files.readAllLines(outputs.get(0).toPath()));
+
+        // every level of intermediate GVCFs is deleted once it has been combined
+        try ( final Stream<Path> leftovers = Files.walk(treeTempDir.toPath()) ) {
+            Assert.assertEquals(leftovers.filter(path -> path.toString().endsWith(".g.vcf.gz") || path.toString().endsWith(".tbi")).count(), 0L);
+        }
+    }
 }
@@ -312,6 +312,39 @@ public class GenotypeGVCFsIntegrationTest extends CommandLineProgramTest {
         }
     }
 
+    @DataProvider(name = "gvcfsToGenotypeOnMultipleThreads")
+    public Object[][] gvcfsToGenotypeOnMultipleThreads() {
+        return new Object[][]{
+                {CEUTRIO_20_21_GATK3_4_G_VCF, Arrays.asList("--dbsnp", largeFileTestDir + "dbsnp_138.b37.20.21.vcf")},
+                {getTestFile(BASE_PAIR_GVCF), Collections.singletonList("--" + GenotypeGVCFs.ALL_SITES_LONG_NAME)},
+                {new File(ALLELE_SPECIFIC_DIRECTORY, "NA12878.AS.chr20snippet.g.vcf"), Arrays.asList( "-A", "ClippingRankSumTest", "-G", "AS_StandardAnnotation", "-G", "StandardAnnotation")}
+        };
+    }
+
+    @Test(dataProvider = "gvcfsToGenotypeOnMultipleThreads")
+    public void testMultithreadedGenotypingMatchesSingleThreaded(final File input, final List<String> extraArgs) throws IOException {
+        final List<File> outputs = new ArrayList<>();
+        for ( final int genotypingThreads : new int[] {1, 3} ) {
+            final File output = createTempFile("genotypegvcf", ".vcf");
+            final ArgumentsBuilder args = new ArgumentsBuilder()
+                    .addReference(new File(b37_reference_20_21))
+                    .addVCF(input)
+                    .addOutput(output)
+                    .addArgument(GenotypeGVCFs.GENOTYPING_THREADS_LONG_NAME, String.valueOf(genotypingThreads))
+                    .addArgument(StandardArgumentDefinitions.ADD_OUTPUT_VCF_COMMANDLINE, "false");
+            extraArgs.forEach(args::add);
+
+            // Draw something from the shared random generator in between runs, which must not change the output:
+            Utils.getRandomGenerator().nextGaussian();
+            runCommandLine(args);
+            outputs.add(output);
+        }
+
+        Assert.assertFalse(getVariantContexts(outputs.get(0)).isEmpty());
+        // The output must be byte-identical, jittered QD values included:
+        Assert.assertEquals(Files.readAllBytes(outputs.get(1).toPath()), Files.readAllBytes(outputs.get(0).toPath()));
+    }
+
     @Test
     public void testIndexIsCreated(){
         final File output = createTempFile("test", ".vcf");
@@ -2,6 +2,7 @@ package org.broadinstitute.hellbender.tools.walkers;
 
 import htsjdk.samtools.util.Locatable;
 import htsjdk.variant.variantcontext.*;
+import htsjdk.variant.vcf.VCFConstants;
 import htsjdk.variant.vcf.VCFHeader;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.walkers.annotator.VariantAnnotatorEngine;
@@ -88,6 +89,71 @@ public class ReferenceConfidenceVariantContextMergerUnitTest extends GATKBaseTes
     }
 
 
+    @Test
+    public void testGenerateAFWithNewAlleles() {
+        final double[] originalAF = new double[] {0.25, 0.0};
+        final int[] indexesOfRelevantAlleles = new int[] {0,1,2,2,3};
+
+        final double[] newAF = ReferenceConfidenceVariantContextMerger.generateAF(originalAF, indexesOfRelevantAlleles);
+        Assert.assertEquals(newAF, new double[]{0.25, 0.0, 0.0, 0.0});
+    }
+
+    @Test
+    public void testMergeManyReferenceBlocks() {
+        final SimpleInterval loc = new SimpleInterval("20", 10, 10);
+        final List<Allele> noCalls = Arrays.asList(Allele.NO_CALL, Allele.NO_CALL);
+        final List<VariantContext> toMerge = new ArrayList<>();
+
+        final Genotype variantGenotype = new GenotypeBuilder("variant").PL(new int[]{30, 20, 10, 71, 72, 73}).alleles(noCalls).make();
+        toMerge.add(new VariantContextBuilder("variant", "20", 10, 10, Arrays.asList(Aref, C, Allele.NON_REF_ALLELE)).genotypes(variantGenotype).make());
+
+        // reference blocks starting at and spanning the location, of mixed ploidy, all sharing the same allele mapping
+        for ( int i = 0; i < 20; i++ ) {
+            final int start = i % 2 == 0 ? 10 : 5;
+            final Genotype genotype = i % 3 == 0 ?
+                    new GenotypeBuilder("haploid" + i).PL(new int[]{0, 50 + i}).alleles(Collections.singletonList(Allele.NO_CALL)).make() :
+                    new GenotypeBuilder("diploid" + i).PL(new int[]{0, 100 + i, 1000 + i}).alleles(noCalls).make();
+            toMerge.add(new VariantContextBuilder("block" + i, "20", start, 20, Arrays.asList(Aref, Allele.NON_REF_ALLELE))
+                    .attribute(VCFConstants.END_KEY, 20).genotypes(genotype).make());
+        }
+
+        final ReferenceConfidenceVariantContextMerger merger = new ReferenceConfidenceVariantContextMerger(getAnnotationEngine(), new VCFHeader());
+        final VariantContext merged = merger.merge(toMerge, loc, null, false, false);
+
+        Assert.assertEquals(merged.getAlleles(), Arrays.asList(Aref, C, Allele.NON_REF_ALLELE));
+        Assert.assertEquals(merged.getNSamples(), 21);
+        Assert.assertEquals(merged.getGenotype("variant").getPL(), new int[]{30, 20, 10, 71, 72, 73});
+        for ( int i = 0; i < 20; i++ ) {
+            // both C and <NON_REF> take the likelihoods of the block's <NON_REF>
+            if ( i % 3 == 0 ) {
+                Assert.assertEquals(merged.getGenotype("haploid" + i).getPL(), new int[]{0, 50 + i, 50 + i});
+            } else {
+                Assert.assertEquals(merged.getGenotype("diploid" + i).getPL(), new int[]{0, 100 + i, 1000 + i, 100 + i, 1000 + i, 1000 + i});
+            }
+        }
+    }
+
+    @Test
+    public void testMergeSpanningDeletionsPicksBestDeletionPerGenotype() {
+        final SimpleInterval loc = new SimpleInterval("20", 10, 10);
+        final List<Allele> noCalls = Arrays.asList(Allele.NO_CALL, Allele.NO_CALL);
+
+        // two deletions spanning the location, which both become <*>; the first sample likes the first deletion best,
+        // the second sample the second one
+        final Genotype firstDel = new GenotypeBuilder("first").PL(new int[]{50, 41, 0, 42, 31, 20, 61, 62, 63, 90}).alleles(noCalls).make();
+        final Genotype secondDel = new GenotypeBuilder("second").PL(new int[]{50, 41, 20, 42, 31, 0, 61, 62, 63, 90}).alleles(noCalls).make();
+        final VariantContext spanning = new VariantContextBuilder("spanning", "20", 9, 11,
+                Arrays.asList(ATCref, Allele.create("A"), Allele.create("AT"), Allele.NON_REF_ALLELE)).genotypes(firstDel, secondDel).make();
+
+        final ReferenceConfidenceVariantContextMerger merger = new ReferenceConfidenceVariantContextMerger(getAnnotationEngine(), new VCFHeader());
+        final VariantContext merged = merger.merge(Collections.singletonList(spanning), loc, (byte) 'T', false, false);
+
+        Assert.assertEquals(merged.getAlleles(), Arrays.asList(Allele.create("T", true), Allele.SPAN_DEL, Allele.NON_REF_ALLELE));
+        // each sample's <*> takes the likelihoods of its own best deletion
+        Assert.assertEquals(merged.getGenotype("first").getPL(), new int[]{50, 41, 0, 61, 62, 90});
+        Assert.assertEquals(merged.getGenotype("second").getPL(), new int[]{50, 42, 0, 61, 63, 90});
+    }
+
     @Test(expectedExceptions = UserException.class)
     public void testGetIndexesOfRelevantAllelesWithNoALT() {
         ReferenceConfidenceVariantContextMerger merger = new ReferenceConfidenceVariantContextMerger(getAnnotationEngine(), new VCFHeader());
@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.tools.walkers.genotyper;
 
 import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.MathUtils;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.DataProvider;
@@ -9,6 +10,9 @@ import org.testng.annotations.Test;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public final class GenotypeLikelihoodCalculatorsUnitTest extends GATKBaseTest {
 
@@ -99,4 +103,52 @@ public final class GenotypeLikelihoodCalculatorsUnitTest extends GATKBaseTest {
         Assert.assertEquals(3, GenotypeLikelihoodCalculators.computeMaxAcceptableAlleleCount(20, 1024));
         Assert.assertEquals(2, GenotypeLikelihoodCalculators.computeMaxAcceptableAlleleCount(100, 1024));
     }
+
+    @Test
+    public void testThreadLocalInstanceIsReusedWithinAThread() throws Exception {
+        final GenotypeLikelihoodCalculator first = calcs.getThreadLocalInstance(3, 4);
+        Assert.assertSame(calcs.getThreadLocalInstance(3, 4), first);
+        Assert.assertSame(new GenotypeLikelihoodCalculators().getThreadLocalInstance(3, 4), first);
+        Assert.assertNotSame(calcs.getThreadLocalInstance(4, 3), first);
+        Assert.assertNotSame(calcs.getInstance(3, 4), first);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final GenotypeLikelihoodCalculator otherThread = executor.submit(() -> calcs.getThreadLocalInstance(3, 4)).get();
+            Assert.assertNotSame(otherThread, first);
+            Assert.assertEquals(otherThread.genotypeCount(), first.genotypeCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentCapacityExpansion() throws Exception {
+        final int maxPloidy = 8;
+        final int maxAlleleCount = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int ploidy = maxPloidy; ploidy > 0; ploidy--) {
+                for (int alleleCount = maxAlleleCount; alleleCount > 0; alleleCount--) {
+                    final int p = ploidy;
+                    final int a = alleleCount;
+                    results.add(executor.submit(() -> {
+                        final GenotypeLikelihoodCalculator calc = new GenotypeLikelihoodCalculators().getThreadLocalInstance(p, a);
+                        final int expectedCount = (int) Math.round(Math.pow(10, MathUtils.log10BinomialCoefficient(p + a - 1, a - 1)));
+                        boolean ok = calc.genotypeCount() == expectedCount;
+                        for (int i = 0; i < calc.genotypeCount(); i++) {
+                            ok &= calc.genotypeAlleleCountsAt(i).index() == i;
+                        }
+                        return ok;
+                    }));
+                }
+            }
+            for (final Future<Boolean> result : results) {
+                Assert.assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
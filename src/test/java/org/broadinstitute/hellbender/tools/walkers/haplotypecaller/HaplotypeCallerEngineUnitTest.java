@@ -4,6 +4,7 @@ import org.broadinstitute.hellbender.GATKBaseTest;
 import org.broadinstitute.hellbender.engine.*;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.tools.walkers.annotator.VariantAnnotatorEngine;
+import org.broadinstitute.hellbender.tools.walkers.genotyper.GenotypeCalculationArgumentCollection;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.activityprofile.ActivityProfileState;
 import org.broadinstitute.hellbender.utils.downsampling.DownsamplingMethod;
@@ -74,4 +75,52 @@ public class HaplotypeCallerEngineUnitTest extends GATKBaseTest {
             });
         }
     }
+
+    @Test
+    public void testNoNonRefEvidencePreScreenMatchesFullComputation() throws IOException {
+        final File testBam = new File(NA12878_20_21_WGS_bam);
+        final Path reference = Paths.get(b37_reference_20_21);
+        final SimpleInterval shardInterval = new SimpleInterval("20", 10000000, 10001000);
+        final HaplotypeCallerArgumentCollection hcArgs = new HaplotypeCallerArgumentCollection();
+
+        try ( final ReadsDataSource reads = new ReadsDataSource(testBam.toPath());
+              final ReferenceDataSource ref = new ReferenceFileSource(reference);
+              final CachingIndexedFastaSequenceFile referenceReader = new CachingIndexedFastaSequenceFile(reference)) {
+
+            final HaplotypeCallerEngine hcEngine = new HaplotypeCallerEngine(hcArgs, false, false, reads.getHeader(), referenceReader, new VariantAnnotatorEngine(new ArrayList<>(), hcArgs.dbsnp.dbsnp, hcArgs.comps, false));
+
+            final ReadFilter hcCombinedFilter = ReadFilter.fromList(HaplotypeCallerEngine.makeStandardHCReadFilters(), reads.getHeader());
+            final Iterator<GATKRead> readIter = new ReadFilteringIterator(reads.query(shardInterval), hcCombinedFilter);
+            final LocusIteratorByState libs = new LocusIteratorByState(readIter, DownsamplingMethod.NONE, false, ReadUtils.getSamplesFromHeader(reads.getHeader()), reads.getHeader(), false);
+
+            final int[] nSkippable = {0};
+            libs.forEachRemaining(pileup -> {
+                final SimpleInterval pileupInterval = new SimpleInterval(pileup.getLocation());
+                final ReferenceContext pileupRefContext = new ReferenceContext(ref, pileupInterval);
+                if ( HaplotypeCallerEngine.hasNoNonRefEvidence(pileup.getBasePileup(), pileupRefContext.getBase(), hcArgs.minBaseQualityScore) ) {
+                    nSkippable[0]++;
+                    final ActivityProfileState full = hcEngine.computeActivityProfileState(pileup, pileupRefContext);
+                    final ActivityProfileState fast = hcEngine.isActive(pileup, pileupRefContext, new FeatureContext((FeatureManager)null, pileupInterval));
+                    Assert.assertEquals(fast.isActiveProb(), full.isActiveProb(), "Wrong isActive probability for site " + pileupInterval);
+                    Assert.assertEquals(fast.getResultState(), full.getResultState());
+                    Assert.assertEquals(fast.getResultValue().doubleValue(), full.getResultValue().doubleValue());
+                }
+            });
+            Assert.assertTrue(nSkippable[0] > 0, "expected most loci to be eligible for the pre-screen");
+        }
+    }
+
+    @Test
+    public void testPriorsFavorHomRef() {
+        final GenotypeCalculationArgumentCollection genotypeArgs = new GenotypeCalculationArgumentCollection();
+        Assert.assertTrue(HaplotypeCallerEngine.priorsFavorHomRef(genotypeArgs, 1));
+        Assert.assertTrue(HaplotypeCallerEngine.priorsFavorHomRef(genotypeArgs, 1000));
+
+        genotypeArgs.snpHeterozygosity = 0.4;
+        Assert.assertFalse(HaplotypeCallerEngine.priorsFavorHomRef(genotypeArgs, 1));
+
+        genotypeArgs.snpHeterozygosity = 0.001;
+        genotypeArgs.inputPrior = Arrays.asList(0.2, 0.1);
+        Assert.assertFalse(HaplotypeCallerEngine.priorsFavorHomRef(genotypeArgs, 1));
+    }
 }
@@ -604,6 +604,36 @@ public class HaplotypeCallerIntegrationTest extends CommandLineProgramTest {
         }
     }
 
+    /*
+     * Test that read error correction gives exactly the same calls whether its kmers are packed into longs or
+     * counted as Kmer objects
+     */
+    @Test
+    public void testErrorCorrectReadsWithPackedKmersIsConsistentWithKmerObjects() throws Exception {
+        final File packedOutput = createTempFile("testErrorCorrectReadsPackedKmers", ".vcf");
+        final File unpackedOutput = createTempFile("testErrorCorrectReadsKmerObjects", ".vcf");
+
+        try {
+            for ( final boolean packKmers : new boolean[]{true, false} ) {
+                Utils.resetRandomGenerator();
+                ReadErrorCorrector.packKmers = packKmers;
+                final String[] args = {
+                        "-I", NA12878_20_21_WGS_bam,
+                        "-R", b37_reference_20_21,
+                        "-L", "20:10000000-10050000",
+                        "-O", (packKmers ? packedOutput : unpackedOutput).getAbsolutePath(),
+                        "--" + AssemblyBasedCallerArgumentCollection.ERROR_CORRECT_READS_LONG_NAME, "true",
+                        "--" + StandardArgumentDefinitions.ADD_OUTPUT_VCF_COMMANDLINE, "false"
+                };
+                runCommandLine(args);
+            }
+        } finally {
+            ReadErrorCorrector.packKmers = true;
+        }
+
+        IntegrationTestSpec.assertEqualTextFiles(packedOutput, unpackedOutput);
+    }
+
     // test that ReadFilterLibrary.NON_ZERO_REFERENCE_LENGTH_ALIGNMENT removes reads that consume zero reference bases
     // e.g. read name HAVCYADXX150109:1:2102:20528:2129 with cigar 23S53I
     @Test
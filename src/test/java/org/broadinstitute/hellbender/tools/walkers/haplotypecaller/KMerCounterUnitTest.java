@@ -86,4 +86,51 @@ public final class KMerCounterUnitTest extends GATKBaseTest {
         Assert.assertEquals(list.get(0).getKmer().bases(), kmer2.getBytes());
         Assert.assertEquals(list.get(1).getKmer().bases(), kmer1.getBytes());
     }
+
+    @Test
+    public void testAddKmersFromBases() {
+        final byte[] bases = "ACGTTGCANACGGTACGTacgtTTGCAGATTACAGATTACAGATTACAGATTACA".getBytes();
+        for ( final int kmerLength : new int[]{1, 3, 5, 20, 31, 32} ) {
+            final KMerCounter rolling = new KMerCounter(kmerLength);
+            final KMerCounter oneByOne = new KMerCounter(kmerLength);
+            rolling.addKmers(bases);
+            rolling.addKmers(bases);
+            for ( int offset = 0; offset <= bases.length - kmerLength; offset++ ) {
+                oneByOne.addKmer(new Kmer(bases, offset, kmerLength), 2);
+            }
+            Assert.assertEquals(countsAsMap(rolling), countsAsMap(oneByOne), "kmer length " + kmerLength);
+            for ( int offset = 0; offset <= bases.length - kmerLength; offset++ ) {
+                final Kmer kmer = new Kmer(bases, offset, kmerLength);
+                Assert.assertEquals(rolling.getKmerCount(kmer), oneByOne.getKmerCount(kmer));
+            }
+        }
+    }
+
+    @Test
+    public void testKmerOfOtherLengthIsNotCounted() {
+        final KMerCounter counter = new KMerCounter(2);
+        counter.addKmers("AA");
+        Assert.assertEquals(counter.getKmerCount(new Kmer("A")), 0);
+        Assert.assertEquals(counter.getKmerCount(new Kmer("AAA")), 0);
+    }
+
+    @Test
+    public void testPackUnpack() {
+        for ( final String kmer : new String[]{"A", "T", "ACGT", "TTTTTTTTTTTTTTTTTTTTTTTTTTTTTTT", "GATTACAGATTACA"} ) {
+            final long packed = KMerCounter.pack(new Kmer(kmer));
+            Assert.assertTrue(packed >= 0);
+            Assert.assertEquals(KMerCounter.unpack(packed, kmer.length()), kmer.getBytes());
+        }
+        Assert.assertEquals(KMerCounter.pack(new Kmer("ACNT")), KMerCounter.UNPACKABLE);
+        Assert.assertEquals(KMerCounter.pack(new Kmer("acgt")), KMerCounter.UNPACKABLE);
+        Assert.assertEquals(KMerCounter.pack(new Kmer("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA")), KMerCounter.UNPACKABLE);
+    }
+
+    private static Map<String, Integer> countsAsMap(final KMerCounter counter) {
+        final Map<String, Integer> result = new HashMap<>();
+        for ( final KMerCounter.CountedKmer countedKmer : counter.getCountedKmers() ) {
+            Assert.assertNull(result.put(new String(countedKmer.getKmer().bases()), countedKmer.getCount()));
+        }
+        return result;
+    }
 }
@@ -3,11 +3,14 @@ package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.testng.Assert;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public final class ReadErrorCorrectorUnitTest {
     private static final boolean debug = true;
@@ -141,4 +144,156 @@ public final class ReadErrorCorrectorUnitTest {
             Assert.assertTrue(Arrays.equals(badBases,originalBases));
         }
     }
+
+    @Test
+    public void TestSubstitutionErrorCorrection() {
+        final int NUM_GOOD_READS = 500;
+        final int READ_LENGTH = 15;
+        final int ERROR_OFFSET = 7;
+        final List<GATKRead> reads = new ArrayList<>(NUM_GOOD_READS + 1);
+        final byte[] quals = new byte[READ_LENGTH];
+        Arrays.fill(quals, (byte) 20);
+
+        for (int k = 0; k < NUM_GOOD_READS; k++) {
+            final int offset = k % (refChunk.length() - READ_LENGTH);
+            final byte[] bases = Arrays.copyOfRange(refChunk.getBytes(), offset, offset + READ_LENGTH);
+            reads.add(ArtificialReadUtils.createArtificialRead(bases, quals, READ_LENGTH + "M"));
+        }
+        final byte[] trueBases = reads.get(0).getBases();
+        final byte[] badBases = trueBases.clone();
+        badBases[ERROR_OFFSET] = 'A';
+        final GATKRead badRead = ArtificialReadUtils.createArtificialRead(badBases, quals, READ_LENGTH + "M");
+        reads.add(badRead);
+
+        final ReadErrorCorrector readErrorCorrector = new ReadErrorCorrector(10, (byte) 6, 10, debug, refChunkHard.getBytes());
+        readErrorCorrector.addReadsToKmers(reads);
+        final List<GATKRead> correctedReads = readErrorCorrector.correctReads(reads);
+
+        Assert.assertEquals(correctedReads.size(), reads.size());
+        for (int k = 0; k < NUM_GOOD_READS; k++) {
+            Assert.assertSame(correctedReads.get(k), reads.get(k));
+        }
+        // the error is found and corrected in a copy of the read, with the quality of corrected bases
+        Assert.assertEquals(readErrorCorrector.getSuggestedCorrections(badBases), trueBases);
+        final GATKRead correctedRead = correctedReads.get(NUM_GOOD_READS);
+        Assert.assertEquals(correctedRead.getBases(), trueBases);
+        Assert.assertEquals(correctedRead.getBaseQuality(ERROR_OFFSET), 30);
+        Assert.assertEquals(badRead.getBases(), badBases);
+    }
+
+    @DataProvider(name = "readsToCorrect")
+    public Object[][] getReadsToCorrect() {
+        return new Object[][] {
+                {basicErrorCorrectionReads(), 10},
+                {substitutionErrorCorrectionReads(), 10},
+                {basicErrorCorrectionReads(), 5},
+                {substitutionErrorCorrectionReads(), 15}
+        };
+    }
+
+    /**
+     * Packing kmers into longs must give exactly the counts and corrections that counting them as Kmer objects does.
+     */
+    @Test(dataProvider = "readsToCorrect")
+    public void TestPackedKmersMatchKmerObjects(final List<GATKRead> reads, final int kmerLength) {
+        final ReadErrorCorrector packedCorrector;
+        final ReadErrorCorrector unpackedCorrector;
+        final List<GATKRead> packedCorrectedReads;
+        final List<GATKRead> unpackedCorrectedReads;
+        try {
+            ReadErrorCorrector.packKmers = true;
+            packedCorrector = new ReadErrorCorrector(kmerLength, (byte) 6, 10, false, refChunkHard.getBytes());
+            packedCorrector.addReadsToKmers(reads);
+            packedCorrectedReads = packedCorrector.correctReads(reads);
+
+            ReadErrorCorrector.packKmers = false;
+            unpackedCorrector = new ReadErrorCorrector(kmerLength, (byte) 6, 10, false, refChunkHard.getBytes());
+            unpackedCorrector.addReadsToKmers(reads);
+            unpackedCorrectedReads = unpackedCorrector.correctReads(reads);
+        } finally {
+            ReadErrorCorrector.packKmers = true;
+        }
+        Assert.assertFalse(unpackedCorrector.countsByKMer.packsKmers());
+
+        Assert.assertEquals(kmerCounts(packedCorrector.countsByKMer), kmerCounts(unpackedCorrector.countsByKMer));
+        Assert.assertEquals(packedCorrectedReads.size(), unpackedCorrectedReads.size());
+        for (int k = 0; k < reads.size(); k++) {
+            final byte[] bases = reads.get(k).getBases();
+            Assert.assertEquals(packedCorrector.getSuggestedCorrections(bases), unpackedCorrector.getSuggestedCorrections(bases));
+            Assert.assertEquals(packedCorrectedReads.get(k).getBases(), unpackedCorrectedReads.get(k).getBases());
+            Assert.assertEquals(packedCorrectedReads.get(k).getBaseQualities(), unpackedCorrectedReads.get(k).getBaseQualities());
+        }
+    }
+
+    private static Map<String, Integer> kmerCounts(final KMerCounter counter) {
+        final Map<String, Integer> counts = new HashMap<>();
+        for (final KMerCounter.CountedKmer countedKmer : counter.getCountedKmers()) {
+            Assert.assertNull(counts.put(new String(countedKmer.getKmer().bases()), countedKmer.getCount()));
+        }
+        return counts;
+    }
+
+    /**
+     * The reads of TestBasicErrorCorrection: a triangular coverage profile of good reads, and some copies with an N
+     */
+    private List<GATKRead> basicErrorCorrectionReads() {
+        final int NUM_GOOD_READS = 500;
+        final int NUM_BAD_READS = 10;
+        final int READ_LENGTH = 15;
+        final List<GATKRead> reads = new ArrayList<>(NUM_GOOD_READS + NUM_BAD_READS);
+        final byte[] quals = new byte[READ_LENGTH];
+        Arrays.fill(quals, (byte) 30);
+
+        int offset = 0;
+        for (int k = 0; k < NUM_GOOD_READS; k++) {
+            final byte[] bases = Arrays.copyOfRange(refChunk.getBytes(), offset, offset + READ_LENGTH);
+            reads.add(ArtificialReadUtils.createArtificialRead(bases, quals, READ_LENGTH + "M"));
+            offset++;
+            if (offset >= refChunk.length() - READ_LENGTH)
+                offset = 0;
+        }
+        offset = 2;
+        for (int k = 0; k < NUM_BAD_READS; k++) {
+            final byte[] bases = reads.get(k).getBases();
+            bases[offset] = 'N';
+            reads.add(ArtificialReadUtils.createArtificialRead(bases, quals, READ_LENGTH + "M"));
+            offset += 7;
+            if (offset >= READ_LENGTH)
+                offset = 4;
+        }
+        return reads;
+    }
+
+    /**
+     * The reads of TestSubstitutionErrorCorrection: good reads, and one copy with a substitution error
+     */
+    private List<GATKRead> substitutionErrorCorrectionReads() {
+        final int NUM_GOOD_READS = 500;
+        final int READ_LENGTH = 15;
+        final List<GATKRead> reads = new ArrayList<>(NUM_GOOD_READS + 1);
+        final byte[] quals = new byte[READ_LENGTH];
+        Arrays.fill(quals, (byte) 20);
+
+        for (int k = 0; k < NUM_GOOD_READS; k++) {
+            final int offset = k % (refChunk.length() - READ_LENGTH);
+            final byte[] bases = Arrays.copyOfRange(refChunk.getBytes(), offset, offset + READ_LENGTH);
+            reads.add(ArtificialReadUtils.createArtificialRead(bases, quals, READ_LENGTH + "M"));
+        }
+        final byte[] badBases = reads.get(0).getBases();
+        badBases[7] = 'A';
+        reads.add(ArtificialReadUtils.createArtificialRead(badBases, quals, READ_LENGTH + "M"));
+        return reads;
+    }
+
+    @Test
+    public void TestPackedHammingDistance() {
+        final String[][] pairs = {{"ACGT", "ACGT"}, {"ACGT", "ACGA"}, {"ACGT", "TGCA"}, {"AAAAAAAAAA", "CAAAGAAAAT"}};
+        for (final String[] pair : pairs) {
+            int expected = 0;
+            for (int i = 0; i < pair[0].length(); i++) {
+                expected += pair[0].charAt(i) != pair[1].charAt(i) ? 1 : 0;
+            }
+            Assert.assertEquals(ReadErrorCorrector.packedHammingDistance(KMerCounter.pack(new Kmer(pair[0])), KMerCounter.pack(new Kmer(pair[1]))), expected);
+        }
+    }
 }
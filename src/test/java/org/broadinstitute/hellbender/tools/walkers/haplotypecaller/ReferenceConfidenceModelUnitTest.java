@@ -12,6 +12,8 @@ import org.broadinstitute.hellbender.tools.walkers.genotyper.IndependentSampleGe
 import org.broadinstitute.hellbender.tools.walkers.genotyper.PloidyModel;
 import org.broadinstitute.hellbender.utils.GenomeLoc;
 import org.broadinstitute.hellbender.utils.GenomeLocParser;
+import org.broadinstitute.hellbender.utils.MathUtils;
+import org.broadinstitute.hellbender.utils.QualityUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.genotyper.IndexedAlleleList;
@@ -178,6 +180,37 @@ public final class ReferenceConfidenceModelUnitTest extends GATKBaseTest {
         }
     }
 
+    @Test
+    public void testRefVsAnyLikelihoodTable() {
+        for (int ploidy = 1; ploidy <= 4; ploidy++) {
+            final int likelihoodCount = ploidy + 1;
+            final double log10Ploidy = MathUtils.log10(ploidy);
+            final double[] table = ReferenceConfidenceModel.buildRefVsAnyLikelihoodTable(ploidy);
+            Assert.assertEquals(table.length, 256 * 2 * likelihoodCount);
+            for (int q = 0; q < 256; q++) {
+                final byte qual = (byte) q;
+                for (final boolean isAlt : new boolean[] {false, true}) {
+                    final double matchLikelihood = QualityUtils.qualToProbLog10(qual);
+                    final double mismatchLikelihood = QualityUtils.qualToErrorProbLog10(qual) + MathUtils.LOG10_ONE_THIRD;
+                    final double referenceLikelihood = isAlt ? mismatchLikelihood : matchLikelihood;
+                    final double nonRefLikelihood = isAlt ? matchLikelihood : mismatchLikelihood;
+                    final int offset = ((q << 1) + (isAlt ? 1 : 0)) * likelihoodCount;
+                    Assert.assertEquals(table[offset], referenceLikelihood + log10Ploidy);
+                    Assert.assertEquals(table[offset + ploidy], nonRefLikelihood + log10Ploidy);
+                    for (int i = 1; i < ploidy; i++) {
+                        Assert.assertEquals(table[offset + i], MathUtils.approximateLog10SumLog10(
+                                referenceLikelihood + MathUtils.log10(ploidy - i), nonRefLikelihood + MathUtils.log10(i)));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testRefVsAnyLikelihoodTableRejectsZeroPloidy() {
+        ReferenceConfidenceModel.buildRefVsAnyLikelihoodTable(0);
+    }
+
     @Test
     public void testOverlappingVariantContext() {
         final VariantContext vc10 = GATKVariantContextUtils.makeFromAlleles("test", "1", 10, Arrays.asList("A", "C"));
@@ -0,0 +1,183 @@
+package org.broadinstitute.hellbender.tools.walkers.vqsr;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public final class CNNInferenceModelUnitTest extends GATKBaseTest {
+
+    private static final float EPSILON = 1e-5f;
+
+    /**
+     * Writes models in the format of vqsr_cnn.export_model_for_java().
+     */
+    private static final class ModelWriter {
+        private final List<Object[]> layers = new ArrayList<>();
+
+        int add(final String type, final int[] inputs, final int[] outputShape, final String activation,
+                final int[] intParams, final float[] floatParams, final float[]... weights) {
+            layers.add(new Object[]{type, inputs, outputShape, activation, intParams, floatParams, weights});
+            return layers.size() - 1;
+        }
+
+        File write(final int outputLayer) throws IOException {
+            final File file = createTempFile("model", ".gcnn");
+            try ( final DataOutputStream out = new DataOutputStream(new FileOutputStream(file)) ) {
+                out.writeInt(0x47434E4E);
+                out.writeInt(1);
+                out.writeInt(layers.size());
+                for ( int i = 0; i < layers.size(); i++ ) {
+                    final Object[] layer = layers.get(i);
+                    out.writeUTF((String) layer[0]);
+                    out.writeUTF("layer_" + i);
+                    writeInts(out, (int[]) layer[1]);
+                    writeInts(out, (int[]) layer[2]);
+                    out.writeUTF((String) layer[3]);
+                    writeInts(out, (int[]) layer[4]);
+                    writeFloats(out, (float[]) layer[5]);
+                    final float[][] weights = (float[][]) layer[6];
+                    out.writeInt(weights.length);
+                    for ( final float[] w : weights ) {
+                        writeFloats(out, w);
+                    }
+                }
+                out.writeInt(outputLayer);
+            }
+            return file;
+        }
+
+        private static void writeInts(final DataOutputStream out, final int[] values) throws IOException {
+            out.writeInt(values.length);
+            for ( final int value : values ) {
+                out.writeInt(value);
+            }
+        }
+
+        private static void writeFloats(final DataOutputStream out, final float[] values) throws IOException {
+            out.writeInt(values.length);
+            for ( final float value : values ) {
+                out.writeFloat(value);
+            }
+        }
+    }
+
+    private static final int[] NONE = new int[0];
+    private static final float[] NO_FLOATS = new float[0];
+
+    @Test
+    public void testDense() throws IOException {
+        final ModelWriter writer = new ModelWriter();
+        final int input = writer.add("Input", NONE, new int[]{2}, "linear", NONE, NO_FLOATS);
+        // kernel [input][unit] = [[1, -1, 0], [2, 0, 1]], bias [0.5, 0, -10]
+        final int dense = writer.add("Dense", new int[]{input}, new int[]{3}, "relu", new int[]{3}, NO_FLOATS,
+                new float[]{1, -1, 0, 2, 0, 1}, new float[]{0.5f, 0, -10});
+        final CNNInferenceModel model = CNNInferenceModel.read(writer.write(dense).toPath());
+
+        final float[][] predictions = model.predict(new float[][]{{1, 2, -1, 3}}, 2, 10, null);
+        Assert.assertEquals(predictions[0], new float[]{5.5f, 0, 0}, EPSILON);
+        Assert.assertEquals(predictions[1], new float[]{5.5f, 1, 0}, EPSILON);
+    }
+
+    @Test
+    public void testConvolutionAndPooling() throws IOException {
+        final ModelWriter writer = new ModelWriter();
+        final int input = writer.add("Input", NONE, new int[]{4, 1}, "linear", NONE, NO_FLOATS);
+        // out[i] = x[i] - x[i+1] + 0.5
+        final float[] kernel = {1, -1};
+        final float[] bias = {0.5f};
+        final int valid = writer.add("Conv", new int[]{input}, new int[]{3, 1}, "linear", new int[]{1, 2, 1, 1, 0, 1}, NO_FLOATS, kernel, bias);
+        final int same = writer.add("Conv", new int[]{input}, new int[]{4, 1}, "linear", new int[]{1, 2, 1, 1, 1, 1}, NO_FLOATS, kernel, bias);
+        final int pool = writer.add("MaxPool", new int[]{valid}, new int[]{2, 1}, "linear", new int[]{1, 2, 1, 1, 0}, NO_FLOATS);
+        final int concatenate = writer.add("Concatenate", new int[]{writer.add("Flatten", new int[]{pool}, new int[]{2}, "linear", NONE, NO_FLOATS),
+                writer.add("Flatten", new int[]{same}, new int[]{4}, "linear", NONE, NO_FLOATS)}, new int[]{6}, "linear", NONE, NO_FLOATS);
+        final CNNInferenceModel model = CNNInferenceModel.read(writer.write(concatenate).toPath());
+
+        Assert.assertEquals(model.getNumInputs(), 1);
+        Assert.assertEquals(model.getInputShape(0), new int[]{4, 1});
+
+        // valid: [-0.5, 3.5, -3.5], pooled: [3.5, 3.5]; same pads one position at the end: [-0.5, 3.5, -3.5, 3.5]
+        final float[][] predictions = model.predict(new float[][]{{1, 2, -1, 3}}, 1, 1, null);
+        Assert.assertEquals(predictions[0], new float[]{3.5f, 3.5f, -0.5f, 3.5f, -3.5f, 3.5f}, EPSILON);
+    }
+
+    @Test
+    public void testBatchNormalizationAndSoftmax() throws IOException {
+        final ModelWriter writer = new ModelWriter();
+        final int input = writer.add("Input", NONE, new int[]{2}, "linear", NONE, NO_FLOATS);
+        // gamma, beta, moving mean and moving variance:
+        final int batchNorm = writer.add("BatchNorm", new int[]{input}, new int[]{2}, "linear", NONE, new float[]{0.0f},
+                new float[]{2, 1}, new float[]{0, 1}, new float[]{1, -1}, new float[]{4, 1});
+        final int softmax = writer.add("Activation", new int[]{batchNorm}, new int[]{2}, "softmax", NONE, NO_FLOATS);
+        final CNNInferenceModel model = CNNInferenceModel.read(writer.write(softmax).toPath());
+
+        // normalized: [2 * (3 - 1) / 2 + 0, 1 * (0 + 1) / 1 + 1] = [2, 2]
+        final float[][] predictions = model.predict(new float[][]{{3, 0}}, 1, 1, null);
+        Assert.assertEquals(predictions[0], new float[]{0.5f, 0.5f}, EPSILON);
+    }
+
+    @Test
+    public void testPredictionsDoNotDependOnBatchingOrThreads() throws IOException {
+        final Random random = new Random(7);
+        final int window = 16;
+        final int filters = 5;
+        final ModelWriter writer = new ModelWriter();
+        final int reference = writer.add("Input", NONE, new int[]{window, 4}, "linear", NONE, NO_FLOATS);
+        final int annotations = writer.add("Input", NONE, new int[]{3}, "linear", NONE, NO_FLOATS);
+        final int conv = writer.add("Conv", new int[]{reference}, new int[]{window - 2, filters}, "relu", new int[]{1, 3, 1, 1, 0, filters}, NO_FLOATS,
+                randomFloats(random, 3 * 4 * filters), randomFloats(random, filters));
+        final int flatten = writer.add("Flatten", new int[]{conv}, new int[]{(window - 2) * filters}, "linear", NONE, NO_FLOATS);
+        final int dense = writer.add("Dense", new int[]{annotations}, new int[]{4}, "selu", new int[]{4}, NO_FLOATS,
+                randomFloats(random, 3 * 4), randomFloats(random, 4));
+        final int concatenate = writer.add("Concatenate", new int[]{flatten, dense}, new int[]{(window - 2) * filters + 4}, "linear", NONE, NO_FLOATS);
+        final int dropout = writer.add("Identity", new int[]{concatenate}, new int[]{(window - 2) * filters + 4}, "linear", NONE, NO_FLOATS);
+        final int output = writer.add("Dense", new int[]{dropout}, new int[]{4}, "softmax", new int[]{4}, NO_FLOATS,
+                randomFloats(random, ((window - 2) * filters + 4) * 4), randomFloats(random, 4));
+        final CNNInferenceModel model = CNNInferenceModel.read(writer.write(output).toPath());
+
+        final int numExamples = 37;
+        final float[][] inputs = {randomFloats(random, numExamples * window * 4), randomFloats(random, numExamples * 3)};
+        final float[][] oneByOne = model.predict(inputs, numExamples, 1, null);
+        final ForkJoinPool pool = new ForkJoinPool(3);
+        final float[][] batched;
+        try {
+            batched = model.predict(inputs, numExamples, 8, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        for ( int e = 0; e < numExamples; e++ ) {
+            Assert.assertEquals(batched[e], oneByOne[e]);
+            float sum = 0;
+            for ( final float p : batched[e] ) {
+                sum += p;
+            }
+            Assert.assertEquals(sum, 1.0f, EPSILON);
+        }
+    }
+
+    @Test(expectedExceptions = UserException.MalformedFile.class)
+    public void testMismatchedWeights() throws IOException {
+        final ModelWriter writer = new ModelWriter();
+        final int input = writer.add("Input", NONE, new int[]{2}, "linear", NONE, NO_FLOATS);
+        final int dense = writer.add("Dense", new int[]{input}, new int[]{3}, "relu", new int[]{3}, NO_FLOATS, new float[5], new float[3]);
+        CNNInferenceModel.read(writer.write(dense).toPath());
+    }
+
+    private static float[] randomFloats(final Random random, final int n) {
+        final float[] values = new float[n];
+        for ( int i = 0; i < n; i++ ) {
+            values[i] = (float) random.nextGaussian();
+        }
+        return values;
+    }
+}
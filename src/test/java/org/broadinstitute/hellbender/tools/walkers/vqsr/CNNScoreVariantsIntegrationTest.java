@@ -1,14 +1,23 @@
 package org.broadinstitute.hellbender.tools.walkers.vqsr;
 
+import htsjdk.variant.variantcontext.VariantContext;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.testutils.ArgumentsBuilder;
 import org.broadinstitute.hellbender.testutils.IntegrationTestSpec;
+import org.broadinstitute.hellbender.testutils.VariantContextTestUtils;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.python.PythonScriptExecutor;
+import org.broadinstitute.hellbender.utils.variant.GATKVCFConstants;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Integration tests for {@link CNNScoreVariants}.
@@ -23,6 +32,12 @@ public class CNNScoreVariantsIntegrationTest extends CommandLineProgramTest {
     private static final String bigInputVCF = largeFileTestDir + "VQSR/g94982_20_1m_10m_python_2dcnn.vcf.gz";
     private static final String inputBAM = largeFileTestDir + "VQSR/g94982_contig_20_start_bamout.bam";
     private static final String inputIntervals = largeFileTestDir + "VQSR/contig20_conf_1m_10m.interval_list";
+    // A small 1D model with random weights, written in the format of vqsr_cnn.export_model_for_java(), for a window of
+    // 128 reference bases and the default annotations.
+    private static final String javaModel1D = toolsTestDir + "walkers/VQSR/small_1d_java_model.gcnn";
+    // Scores are written with 3 decimals by both Python and Java, and Java sums in float in a different order than
+    // TensorFlow, so the scores of the shipped model scored in Java may differ from the Python ones in the last decimal.
+    private static final double JAVA_INFERENCE_SCORE_TOLERANCE = 0.01;
 
     /**
      * Run the tool on a small test VCF.
@@ -137,6 +152,74 @@ public class CNNScoreVariantsIntegrationTest extends CommandLineProgramTest {
         spec.executeTest("testInference", this);
     }
 
+    /**
+     * Score with the model exported for Java, which needs no Python, on one thread and then on several threads in small
+     * batches.  Every variant must be scored, and the scores must not depend on the batching or the number of threads.
+     */
+    @Test
+    public void testJavaInference() {
+        final List<VariantContext> input = VariantContextTestUtils.readEntireVCFIntoMemory(inputVCF).getRight();
+        final List<VariantContext> singleThreaded = runJavaInference(javaModel1D, 1, 256);
+        final List<VariantContext> multiThreaded = runJavaInference(javaModel1D, 3, 8);
+
+        Assert.assertEquals(singleThreaded.size(), input.size());
+        Assert.assertEquals(multiThreaded.size(), input.size());
+        final Set<String> distinctScores = new HashSet<>();
+        for (int i = 0; i < input.size(); i++) {
+            final VariantContext scored = singleThreaded.get(i);
+            Assert.assertEquals(scored.getContig(), input.get(i).getContig());
+            Assert.assertEquals(scored.getStart(), input.get(i).getStart());
+            Assert.assertEquals(scored.getAlleles(), input.get(i).getAlleles());
+
+            final String score = scored.getAttributeAsString(GATKVCFConstants.CNN_1D_KEY, null);
+            Assert.assertNotNull(score, "No score for " + scored);
+            Assert.assertFalse(Double.isNaN(Double.parseDouble(score)), "Score is not a number for " + scored);
+            Assert.assertEquals(multiThreaded.get(i).getAttributeAsString(GATKVCFConstants.CNN_1D_KEY, null), score);
+            distinctScores.add(score);
+        }
+        // the scores must depend on the variants
+        Assert.assertTrue(distinctScores.size() > 1);
+    }
+
+    /**
+     * Export the shipped 1D model with vqsr_cnn.export_model_for_java(), score it in Java, and compare the scores to the
+     * ones the same model gives in Python.
+     */
+    @Test(groups = {"python"})
+    public void testJavaInferenceOfShippedModelMatchesPython() {
+        final File javaModel = createTempFile("1d_cnn_mix_train_full_bn", ".gcnn");
+        final String exportCommand = String.format("import vqsr_cnn%n" +
+                "args, model = vqsr_cnn.args_and_model_from_semantics('%s', weights_hd5='%s')%n" +
+                "vqsr_cnn.export_model_for_java(model, '%s')%n", architecture1D, weights1D, javaModel.getAbsolutePath());
+        Assert.assertTrue(new PythonScriptExecutor(true).executeCommand(exportCommand, null, null), "Export of the 1D model failed");
+
+        final List<VariantContext> expected = VariantContextTestUtils.readEntireVCFIntoMemory(
+                largeFileTestDir + "VQSR/expected/cnn_1d_chr20_subset_expected.vcf").getRight();
+        final List<VariantContext> scored = runJavaInference(javaModel.getAbsolutePath(), 2, 64);
+        Assert.assertEquals(scored.size(), expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assert.assertEquals(scored.get(i).getContig(), expected.get(i).getContig());
+            Assert.assertEquals(scored.get(i).getStart(), expected.get(i).getStart());
+            Assert.assertEquals(scored.get(i).getAttributeAsDouble(GATKVCFConstants.CNN_1D_KEY, Double.NaN),
+                    expected.get(i).getAttributeAsDouble(GATKVCFConstants.CNN_1D_KEY, Double.NaN),
+                    JAVA_INFERENCE_SCORE_TOLERANCE, "Java and Python scores differ for " + expected.get(i));
+        }
+    }
+
+    private List<VariantContext> runJavaInference(final String javaModel, final int inferenceThreads, final int inferenceBatchSize) {
+        final File output = createTempFile("cnn_java_inference", ".vcf");
+        final ArgumentsBuilder argsBuilder = new ArgumentsBuilder();
+        argsBuilder.addArgument(StandardArgumentDefinitions.VARIANT_LONG_NAME, inputVCF)
+                .addArgument(StandardArgumentDefinitions.OUTPUT_LONG_NAME, output.getAbsolutePath())
+                .addArgument(StandardArgumentDefinitions.REFERENCE_LONG_NAME, b37_reference_20_21)
+                .addArgument("java-inference-model", javaModel)
+                .addArgument("inference-threads", String.valueOf(inferenceThreads))
+                .addArgument("inference-batch-size", String.valueOf(inferenceBatchSize))
+                .addArgument(StandardArgumentDefinitions.ADD_OUTPUT_VCF_COMMANDLINE, "false");
+        runCommandLine(argsBuilder);
+        return VariantContextTestUtils.readEntireVCFIntoMemory(output.getAbsolutePath()).getRight();
+    }
+
     @Test(groups = {"python"})
     public void testOnContigEdge() throws IOException {
         final String edgeVcf = toolsTestDir + "walkers/VQSR/variantNearContigEdge.vcf";
@@ -0,0 +1,83 @@
+package org.broadinstitute.hellbender.tools.walkers.vqsr;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public final class VariantRecalibratorEngineUnitTest extends GATKBaseTest {
+
+    private static final int NUM_ANNOTATIONS = 3;
+
+    // Enough data for several blocks of the parallel model, the last one partial:
+    private static final int NUM_VARIANTS = 3 * VariantDataMatrix.BLOCK_SIZE + 123;
+
+    private static List<VariantDatum> makeData() {
+        final Random random = new Random(13);
+        final List<VariantDatum> data = new ArrayList<>(NUM_VARIANTS);
+        for ( int i = 0; i < NUM_VARIANTS; i++ ) {
+            final VariantDatum datum = new VariantDatum();
+            datum.annotations = new double[NUM_ANNOTATIONS];
+            datum.isNull = new boolean[NUM_ANNOTATIONS];
+            // Two clusters, and a few data with a missing annotation to marginalize over:
+            final double center = (i % 3 == 0) ? 2.0 : -1.0;
+            for ( int j = 0; j < NUM_ANNOTATIONS; j++ ) {
+                datum.annotations[j] = center + random.nextGaussian();
+            }
+            if ( i % 500 == 0 ) {
+                datum.isNull[1] = true;
+            }
+            datum.prior = 2.0;
+            data.add(datum);
+        }
+        return data;
+    }
+
+    private static List<VariantDatum> trainAndEvaluate(final int modelThreads) {
+        Utils.resetRandomGenerator();
+
+        final VariantRecalibratorArgumentCollection VRAC = new VariantRecalibratorArgumentCollection();
+        VRAC.MODEL_THREADS = modelThreads;
+        VRAC.MAX_ITERATIONS = 20;
+        VRAC.NUM_KMEANS_ITERATIONS = 10;
+        final VariantRecalibratorEngine engine = new VariantRecalibratorEngine(VRAC);
+
+        final List<VariantDatum> data = makeData();
+        final GaussianMixtureModel goodModel = engine.generateModel(data, 2);
+        engine.evaluateData(data, goodModel, false);
+        final GaussianMixtureModel badModel = engine.generateModel(data.subList(0, NUM_VARIANTS / 2), 2);
+        engine.evaluateData(data, badModel, true);
+        engine.calculateWorstPerformingAnnotation(data, goodModel, badModel);
+
+        Assert.assertFalse(goodModel.failedToConverge);
+        Assert.assertFalse(badModel.failedToConverge);
+        return data;
+    }
+
+    @Test
+    public void testParallelModelIsIndependentOfThreadCount() {
+        final List<VariantDatum> twoThreads = trainAndEvaluate(2);
+        final List<VariantDatum> fourThreads = trainAndEvaluate(4);
+
+        for ( int i = 0; i < NUM_VARIANTS; i++ ) {
+            Assert.assertEquals(fourThreads.get(i).lod, twoThreads.get(i).lod, 0.0);
+            Assert.assertEquals(fourThreads.get(i).worstAnnotation, twoThreads.get(i).worstAnnotation);
+            Assert.assertEquals(fourThreads.get(i).worstValue, twoThreads.get(i).worstValue, 0.0);
+        }
+    }
+
+    @Test
+    public void testParallelModelMatchesSingleThreadedModel() {
+        final List<VariantDatum> oneThread = trainAndEvaluate(1);
+        final List<VariantDatum> threeThreads = trainAndEvaluate(3);
+
+        // Sums are taken in a different order, so only approximately equal:
+        for ( int i = 0; i < NUM_VARIANTS; i++ ) {
+            Assert.assertEquals(threeThreads.get(i).lod, oneThread.get(i).lod, 1e-6 * Math.max(1.0, Math.abs(oneThread.get(i).lod)));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.broadinstitute.hellbender.utils.bwa;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.RandomDNA;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+public final class BwaMemIndexCacheUnitTest extends GATKBaseTest {
+
+    private File fastaFile;
+    private File imageFile;
+
+    @BeforeClass
+    public void createImage() throws IOException {
+        final SAMSequenceDictionary dictionary =
+                new SAMSequenceDictionary(Collections.singletonList(new SAMSequenceRecord("chr1", 10_000)));
+        fastaFile = new RandomDNA(47).nextFasta(dictionary, 60);
+        fastaFile.deleteOnExit();
+        imageFile = createTempFile(fastaFile.getAbsolutePath(), ".img");
+        BwaMemIndex.createIndexImageFromFastaFile(fastaFile.getAbsolutePath(), imageFile.getAbsolutePath());
+    }
+
+    @AfterMethod
+    public void closeInstances() {
+        BwaMemIndexCache.closeInstances();
+    }
+
+    @AfterClass
+    public void deleteImage() {
+        if (imageFile != null) { try { imageFile.delete(); imageFile = null; } catch (final RuntimeException ex) {}; }
+        if (fastaFile != null) { try { fastaFile.delete(); fastaFile = null; } catch (final RuntimeException ex) {}; }
+    }
+
+    @Test
+    public void testAcquireAndRelease() {
+        final String imageName = imageFile.getAbsolutePath();
+        Assert.assertNull(BwaMemIndexCache.getMetrics(imageName));
+        final BwaMemIndex index1 = BwaMemIndexCache.acquireInstance(imageName);
+        final BwaMemIndex index2 = BwaMemIndexCache.acquireInstance(imageName);
+        Assert.assertSame(index2, index1);
+        Assert.assertSame(BwaMemIndexCache.getInstance(imageName), index1);
+
+        final BwaMemIndexCache.IndexMetrics metrics = BwaMemIndexCache.getMetrics(imageName);
+        Assert.assertNotNull(metrics);
+        Assert.assertEquals(metrics.getReferences(), 2);
+        Assert.assertEquals(metrics.getImageSizeBytes(), imageFile.length());
+        Assert.assertTrue(metrics.getLoadTimeMillis() >= 0);
+        // resident size is counted in whole pages, or is -1 if it can't be determined
+        final long pageSize = 4096L;
+        Assert.assertTrue(metrics.getResidentBytes() >= -1L);
+        Assert.assertTrue(metrics.getResidentBytes() <= (metrics.getImageSizeBytes() + pageSize - 1) / pageSize * pageSize);
+
+        // the close is deferred until the last reference is released
+        BwaMemIndexCache.closeInstance(imageName);
+        Assert.assertEquals(index1.getReferenceContigNames(), Collections.singletonList("chr1"));
+        BwaMemIndexCache.releaseInstance(index1);
+        Assert.assertEquals(BwaMemIndexCache.getMetrics(imageName).getReferences(), 1);
+        BwaMemIndexCache.closeInstances();
+        Assert.assertEquals(index2.getReferenceContigNames(), Collections.singletonList("chr1"));
+        BwaMemIndexCache.releaseInstance(index2);
+        Assert.assertNull(BwaMemIndexCache.getMetrics(imageName));
+    }
+
+    @Test
+    public void testCloseUnreferencedInstance() {
+        final String imageName = imageFile.getAbsolutePath();
+        final BwaMemIndex index = BwaMemIndexCache.acquireInstance(imageName);
+        BwaMemIndexCache.releaseInstance(index);
+        // an unreferenced index stays cached for the next user
+        Assert.assertSame(BwaMemIndexCache.acquireInstance(imageName), index);
+        BwaMemIndexCache.releaseInstance(index);
+        Assert.assertEquals(BwaMemIndexCache.getMetrics(imageName).getReferences(), 0);
+        BwaMemIndexCache.closeInstance(index);
+        Assert.assertNull(BwaMemIndexCache.getMetrics(imageName));
+    }
+
+    @Test
+    public void testAcquireWhileClosePending() {
+        final String imageName = imageFile.getAbsolutePath();
+        final BwaMemIndex index = BwaMemIndexCache.acquireInstance(imageName);
+        BwaMemIndexCache.closeInstance(imageName);
+
+        // acquiring the instance again doesn't cancel the pending close
+        Assert.assertSame(BwaMemIndexCache.acquireInstance(imageName), index);
+        Assert.assertEquals(BwaMemIndexCache.getMetrics(imageName).getReferences(), 2);
+        BwaMemIndexCache.releaseInstance(index);
+        Assert.assertEquals(index.getReferenceContigNames(), Collections.singletonList("chr1"));
+        BwaMemIndexCache.releaseInstance(index);
+        Assert.assertNull(BwaMemIndexCache.getMetrics(imageName));
+
+        // the next user loads a new instance
+        final BwaMemIndex reloaded = BwaMemIndexCache.acquireInstance(imageName);
+        Assert.assertNotSame(reloaded, index);
+        BwaMemIndexCache.releaseInstance(reloaded);
+    }
+
+    @Test(expectedExceptions = GATKException.class)
+    public void testReleaseUnacquiredInstance() {
+        BwaMemIndexCache.releaseInstance(BwaMemIndexCache.getInstance(imageFile.getAbsolutePath()));
+    }
+}
@@ -8,9 +8,11 @@ import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -220,6 +222,57 @@ public class StreamingPythonScriptExecutorUnitTest extends GATKBaseTest {
         }
     }
 
+    @Test(groups = "python", dataProvider="supportedPythonVersions", dependsOnMethods = "testPythonExists", timeOut=10000)
+    public void testPipelinedFramedBatches(final PythonScriptExecutor.PythonExecutableName executableName) throws IOException {
+        // Python script statements to read binary frames from the FIFO and append them to a temporary file
+        final String PYTHON_OPEN_TEMP_FILE      = "tempFile = open('%s', 'wb')" + NL;
+        final String PYTHON_TRANSFER_FRAMES_TO_TEMP_FILE = "for i in range(%s):\n    tempFile.write(tool.readDataFIFOFrame())" + NL + NL;
+        final String PYTHON_CLOSE_TEMP_FILE     = "tempFile.close()" + NL;
+        final int MAX_OUTSTANDING_BATCHES = 3;
+        final int BATCH_COUNT = 20;
+        final int BATCH_SIZE = 50;
+
+        final StreamingPythonScriptExecutor<byte[]> streamingPythonExecutor =
+                new StreamingPythonScriptExecutor<>(executableName, false);
+        Assert.assertTrue(streamingPythonExecutor.start(Collections.emptyList()));
+        streamingPythonExecutor.initStreamWriter(AsynchronousStreamWriter.framedByteArraySerializer, MAX_OUTSTANDING_BATCHES);
+
+        final File tempFile = createTempFile("pythonFramedBatchTest", "bin");
+        final ByteArrayOutputStream bytesWrittenToFIFO = new ByteArrayOutputStream();
+        try {
+            streamingPythonExecutor.sendSynchronousCommand(String.format(PYTHON_OPEN_TEMP_FILE, tempFile.getAbsolutePath()));
+
+            for (int batch = 0; batch < BATCH_COUNT; batch++) {
+                final List<byte[]> frames = new ArrayList<>(BATCH_SIZE);
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    // frames of varying lengths, including empty ones, with arbitrary binary content
+                    final byte[] frame = new byte[(batch * BATCH_SIZE + i) % 97];
+                    for (int j = 0; j < frame.length; j++) {
+                        frame[j] = (byte) (batch * 31 + i * 7 + j);
+                    }
+                    frames.add(frame);
+                    bytesWrittenToFIFO.write(frame);
+                }
+                // only wait when the maximum number of batches is in flight
+                if (streamingPythonExecutor.getNumOutstandingBatches() == MAX_OUTSTANDING_BATCHES) {
+                    streamingPythonExecutor.waitForPreviousBatchCompletion();
+                }
+                streamingPythonExecutor.startBatchWrite(String.format(PYTHON_TRANSFER_FRAMES_TO_TEMP_FILE, BATCH_SIZE), frames);
+                Assert.assertTrue(streamingPythonExecutor.getNumOutstandingBatches() <= MAX_OUTSTANDING_BATCHES);
+            }
+            while (streamingPythonExecutor.getNumOutstandingBatches() > 0) {
+                Assert.assertNotNull(streamingPythonExecutor.waitForPreviousBatchCompletion());
+            }
+            streamingPythonExecutor.sendSynchronousCommand(PYTHON_CLOSE_TEMP_FILE);
+        }
+        finally {
+            streamingPythonExecutor.terminate();
+            Assert.assertFalse(streamingPythonExecutor.getProcess().isAlive());
+        }
+
+        Assert.assertEquals(Files.readAllBytes(tempFile.toPath()), bytesWrittenToFIFO.toByteArray());
+    }
+
     @Test(groups = "python", dataProvider="supportedPythonVersions")
     public void testEnablePythonProfiling(final PythonScriptExecutor.PythonExecutableName executableName) throws IOException {
         // create a temporary output file for the profile results
@@ -110,6 +110,61 @@ public class AsynchronousStreamWriterUnitTest {
         }
     }
 
+    @Test
+    public void testMultipleOutstandingBatchesAreWrittenInOrder() throws IOException, InterruptedException, ExecutionException {
+        final int MAX_OUTSTANDING_BATCHES = 4;
+        final int BATCH_COUNT = 50;
+        final int BATCH_SIZE = 20;
+
+        // a pool with several threads, so that batches would be written concurrently if they were not chained
+        final ExecutorService executorService = Executors.newFixedThreadPool(MAX_OUTSTANDING_BATCHES);
+        AsynchronousStreamWriter<String> asyncWriteService = null;
+        try (final ByteArrayOutputStream streamWriter = new ByteArrayOutputStream()) {
+            asyncWriteService = new AsynchronousStreamWriter<>(executorService, streamWriter, AsynchronousStreamWriter.stringSerializer, MAX_OUTSTANDING_BATCHES);
+            final List<String> expectedItems = new ArrayList<>();
+            for (int batch = 0; batch < BATCH_COUNT; batch++) {
+                final List<String> batchItems = new ArrayList<>(BATCH_SIZE);
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    batchItems.add(Integer.toString(batch * BATCH_SIZE + i) + "\n");
+                }
+                expectedItems.addAll(batchItems);
+                if (asyncWriteService.getNumOutstandingBatches() == MAX_OUTSTANDING_BATCHES) {
+                    Assert.assertEquals(asyncWriteService.waitForPreviousBatchCompletion().get(TIMEOUT_TIME, TIMEOUT_TIMEUNIT).intValue(), BATCH_SIZE);
+                }
+                asyncWriteService.startBatchWrite(batchItems);
+            }
+            while (asyncWriteService.getNumOutstandingBatches() > 0) {
+                Assert.assertNotNull(asyncWriteService.waitForPreviousBatchCompletion());
+            }
+            Assert.assertNull(asyncWriteService.waitForPreviousBatchCompletion());
+
+            try (final ByteArrayInputStream is= new ByteArrayInputStream(streamWriter.toByteArray());
+                 final BufferedLineReader br = new BufferedLineReader(is)) {
+                expectedItems.forEach(expectedLine -> Assert.assertEquals(br.readLine() + '\n', expectedLine));
+            }
+        } catch (TimeoutException e) {
+            Assert.fail("Timed out waiting for a batch", e);
+        } finally {
+            if (asyncWriteService != null) {
+                asyncWriteService.terminate();
+            }
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testFramedByteArraySerializer() throws IOException {
+        final byte[] item = {0, 1, -1, '\n', 42};
+        try (final DataInputStream is = new DataInputStream(new ByteArrayInputStream(
+                AsynchronousStreamWriter.framedByteArraySerializer.apply(item).toByteArray()))) {
+            Assert.assertEquals(is.readInt(), item.length);
+            final byte[] frame = new byte[item.length];
+            is.readFully(frame);
+            Assert.assertEquals(frame, item);
+            Assert.assertEquals(is.read(), -1);
+        }
+    }
+
     @Test(expectedExceptions = IllegalStateException.class)
     public void testWriteBeforePreviousBatchComplete() throws IOException {
        final int BATCH_SIZE = 5;
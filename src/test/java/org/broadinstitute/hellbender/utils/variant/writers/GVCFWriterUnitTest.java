@@ -652,4 +652,53 @@ public class GVCFWriterUnitTest extends GATKBaseTest {
         //The first two blocks overlap, which is fine, but the important thing is that there's no "hole" between the first deletion and the final block
     }
 
+
+    private static VariantContext makeHomRefWithPLs(final String contig, final int start, final int dp, final int[] pls) {
+        final GenotypeBuilder gb = new GenotypeBuilder(SAMPLE_NAME, Arrays.asList(REF, REF));
+        gb.DP(dp).AD(new int[]{dp, 0}).PL(pls).GQ(GATKVariantContextUtils.calculateGQFromPLs(pls));
+        return new VariantContextBuilder("test", contig, start, start, ALLELES).genotypes(gb.make()).make();
+    }
+
+    @Test
+    public void testHomRefSitesFromPrimitivesMatchVariantContexts() {
+        final List<VariantContext> sites = new ArrayList<>();
+        final Random random = new Random(13);
+        for (int pos = 1; pos <= 200; pos++) {
+            final String contig = pos <= 120 ? CHR1 : CHR2;
+            if (pos == 50) {
+                sites.add(makeNonRef(contig, pos));
+            } else if (pos != 80) { // leave a gap in the middle of a band
+                final int het = random.nextInt(60);
+                sites.add(makeHomRefWithPLs(contig, pos, random.nextInt(40), new int[]{0, het, het + random.nextInt(100)}));
+            }
+        }
+
+        final MockWriter fromVariantContexts = new MockWriter();
+        final GVCFWriter expectedWriter = new GVCFWriter(fromVariantContexts, standardPartition, HomoSapiensConstants.DEFAULT_PLOIDY);
+        sites.forEach(expectedWriter::add);
+        expectedWriter.close();
+
+        final MockWriter fromPrimitives = new MockWriter();
+        final GVCFWriter actualWriter = new GVCFWriter(fromPrimitives, standardPartition, HomoSapiensConstants.DEFAULT_PLOIDY);
+        for (final VariantContext vc : sites) {
+            final Genotype g = vc.getGenotype(0);
+            if (g.isHomRef()) {
+                actualWriter.addHomRefSite(g.getSampleName(), vc.getContig(), vc.getStart(), vc.getReference(), g.getPloidy(), g.getGQ(), g.getDP(), g.getPL());
+            } else {
+                actualWriter.add(vc);
+            }
+        }
+        actualWriter.close();
+
+        Assert.assertEquals(fromPrimitives.emitted.size(), fromVariantContexts.emitted.size());
+        for (int i = 0; i < fromVariantContexts.emitted.size(); i++) {
+            VariantContextTestUtils.assertVariantContextsAreEqual(fromPrimitives.emitted.get(i), fromVariantContexts.emitted.get(i), Collections.emptyList());
+        }
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testSomaticWriterRejectsPrimitiveHomRefSites() {
+        final SomaticGVCFWriter writer = new SomaticGVCFWriter(new MockWriter(), ImmutableList.<Number>of(-2.0, 0.0, 2.0));
+        writer.addHomRefSite(SAMPLE_NAME, CHR1, 1, REF, 2, 10, 10, new int[]{0, 10, 100});
+    }
 }
@@ -46,6 +46,27 @@ public class SomaticGVCFWriterUnitTest {
         Assert.assertTrue(writer.convertLODtoInt(2.0) == 2000);
     }
 
+    @Test
+    public void testHomRefSitesRequireVariantContexts() {
+        final GVCFWriterUnitTest.MockWriter mockWriter = new GVCFWriterUnitTest.MockWriter();
+        final SomaticGVCFWriter writer = new SomaticGVCFWriter(mockWriter, standardPartition);
+        // somatic bands depend on each site's TLOD, so the primitive hom-ref fast path must not be offered
+        Assert.assertFalse(writer.canAddHomRefSites());
+        Assert.assertTrue(new GVCFWriter(mockWriter, ImmutableList.of(1, 10, 20), 2).canAddHomRefSites());
+        Assert.assertThrows(UnsupportedOperationException.class,
+                () -> writer.addHomRefSite(SAMPLE_NAME, "contig", 1, REF, 2, 10, 5, new int[]{0, 10, 100}));
+
+        // and sites added as VariantContexts still band by TLOD
+        final GenotypeBuilder gb = new GenotypeBuilder(SAMPLE_NAME, Arrays.asList(REF, REF));
+        for (int pos = 1; pos <= 3; pos++) {
+            writer.add(new VariantContextBuilder("source", "contig", pos, pos, ALLELES)
+                    .genotypes(gb.attribute(GATKVCFConstants.TUMOR_LOD_KEY, -3.4).make()).make());
+        }
+        writer.close();
+        Assert.assertEquals(mockWriter.emitted.size(), 1);
+        Assert.assertEquals(mockWriter.emitted.get(0).getEnd(), 3);
+    }
+
     @Test
     public void testAddingAndMerging() {
         final GVCFWriterUnitTest.MockWriter mockWriter = new GVCFWriterUnitTest.MockWriter();